@@ -32,6 +32,7 @@ dependencies {
         implementation("org.apache.commons:commons-text:1.11.0")
         implementation("org.apache.commons:commons-lang3:3.14.0")
         implementation("io.netty:netty-all:4.1.115.Final")
+        implementation("io.netty:netty-tcnative-boringssl-static:2.0.69.Final")
         implementation("com.fasterxml.jackson.core:jackson-databind:2.16.1")
         implementation("io.burt:jmespath-jackson:0.6.0")
     }
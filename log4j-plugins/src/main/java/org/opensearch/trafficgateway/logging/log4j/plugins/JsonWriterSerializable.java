@@ -0,0 +1,14 @@
+package org.opensearch.trafficgateway.logging.log4j.plugins;
+
+import org.apache.logging.log4j.layout.template.json.util.JsonWriter;
+
+/**
+ * An object logged often enough to write itself into the layout, which the objectMapper resolver then does instead of
+ * converting it with Jackson.
+ */
+public interface JsonWriterSerializable {
+    /**
+     * Writes this object as a single JSON value.
+     */
+    void writeTo(JsonWriter jsonWriter);
+}
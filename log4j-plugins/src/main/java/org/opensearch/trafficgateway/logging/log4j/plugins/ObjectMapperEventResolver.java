@@ -44,6 +44,12 @@ public class ObjectMapperEventResolver implements EventResolver {
             return;
         }
 
+        if (object instanceof JsonWriterSerializable) {
+            // no intermediate map and no copy of the event
+            ((JsonWriterSerializable) object).writeTo(jsonWriter);
+            return;
+        }
+
         try {
             Map<String, Object> mappedObject = MAPPER.convertValue(object, new TypeReference<Map<String, Object>>() {
             });
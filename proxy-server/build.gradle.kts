@@ -26,6 +26,8 @@ dependencies {
     implementation("io.burt:jmespath-jackson")
 
     implementation("io.netty:netty-all")
+    // OpenSSL for the frontside, picked up when available
+    runtimeOnly("io.netty:netty-tcnative-boringssl-static")
 
     implementation("org.opensearch:opensearch:2.11.0")
 
@@ -43,4 +45,22 @@ dependencies {
 application {
     // Define the main class for the application.
     mainClass.set("org.opensearch.trafficgateway.proxy.ProxyServer")
-}
\ No newline at end of file
+}
+
+// Converts binary capture segments back into JSON lines, shipped next to the proxy's own start script
+val captureSegmentReaderStartScripts by tasks.registering(CreateStartScripts::class) {
+    mainClass.set("org.opensearch.trafficgateway.proxy.offload.CaptureSegmentReader")
+    applicationName = "capture-segment-reader"
+    outputDir = layout.buildDirectory.dir("captureSegmentReaderScripts").get().asFile
+    classpath = tasks.startScripts.get().classpath
+}
+
+distributions {
+    main {
+        contents {
+            from(captureSegmentReaderStartScripts) {
+                into("bin")
+            }
+        }
+    }
+}
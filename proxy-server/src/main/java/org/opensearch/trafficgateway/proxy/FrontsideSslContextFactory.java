@@ -0,0 +1,186 @@
+package org.opensearch.trafficgateway.proxy;
+
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import org.opensearch.common.settings.Settings;
+
+/**
+ * Builds the frontside {@link SslContext} from the PEM settings of the security plugin's HTTP layer, as an
+ * alternative to {@code DefaultSecurityKeyStore} that can use OpenSSL and keeps a session cache shared by all
+ * connections, so that returning clients resume their sessions instead of running full handshakes. Keystore based
+ * settings are not supported.
+ */
+@Log4j2
+public final class FrontsideSslContextFactory {
+    public static final String AUTO = "auto";
+
+    static final String PEM_CERT_FILEPATH = "plugins.security.ssl.http.pemcert_filepath";
+    static final String PEM_KEY_FILEPATH = "plugins.security.ssl.http.pemkey_filepath";
+    static final String PEM_KEY_PASSWORD = "plugins.security.ssl.http.pemkey_password";
+    static final String PEM_TRUSTED_CAS_FILEPATH = "plugins.security.ssl.http.pemtrustedcas_filepath";
+    static final String CLIENT_AUTH_MODE = "plugins.security.ssl.http.clientauth_mode";
+    static final String ENABLED_PROTOCOLS = "plugins.security.ssl.http.enabled_protocols";
+    static final String ENABLED_CIPHERS = "plugins.security.ssl.http.enabled_ciphers";
+    static final String KEYSTORE_FILEPATH = "plugins.security.ssl.http.keystore_filepath";
+
+    private static final List<String> DEFAULT_PROTOCOLS = List.of("TLSv1.3", "TLSv1.2");
+
+    private FrontsideSslContextFactory() {}
+
+    /**
+     * Resolves {@code name}, case-insensitively. {@value #AUTO} picks OpenSSL where netty-tcnative is available and
+     * the JDK otherwise, while asking for OpenSSL explicitly fails if it is not available.
+     */
+    public static SslProvider getProvider(@NonNull String name) {
+        if (AUTO.equalsIgnoreCase(name)) {
+            if (OpenSsl.isAvailable()) {
+                return SslProvider.OPENSSL;
+            }
+            log.info(
+                    "OpenSSL is not available, falling back to the JDK: {}",
+                    OpenSsl.unavailabilityCause().toString());
+            return SslProvider.JDK;
+        }
+
+        SslProvider provider = SslProvider.valueOf(name.toUpperCase(Locale.ROOT));
+        if (provider != SslProvider.JDK) {
+            OpenSsl.ensureAvailability();
+        }
+        return provider;
+    }
+
+    /**
+     * @param configDirectory the directory relative paths in {@code settings} are resolved against.
+     * @param sessionCacheSize sessions kept for resumption, 0 for the provider's default.
+     * @param sessionTimeout how long a session can be resumed, zero for the provider's default.
+     * @param http2 whether to offer HTTP/2 with ALPN, next to HTTP/1.1.
+     * @param ticketKeyFile OpenSSL only: file of 48 byte session ticket keys, the first of which encrypts new tickets.
+     *     Sharing the file lets clients resume sessions on any gateway. Without it, every gateway uses random keys
+     *     of its own.
+     */
+    public static SslContext create(
+            @NonNull Settings settings,
+            @NonNull Path configDirectory,
+            @NonNull SslProvider provider,
+            long sessionCacheSize,
+            @NonNull Duration sessionTimeout,
+            boolean http2,
+            Path ticketKeyFile)
+            throws IOException {
+        if (settings.get(KEYSTORE_FILEPATH) != null) {
+            throw new IllegalArgumentException(
+                    KEYSTORE_FILEPATH + " is not supported with a frontside SSL provider, use PEM files instead.");
+        }
+
+        String certFilePath = getRequired(settings, PEM_CERT_FILEPATH);
+        String keyFilePath = getRequired(settings, PEM_KEY_FILEPATH);
+        SslContextBuilder builder = SslContextBuilder.forServer(
+                        configDirectory.resolve(certFilePath).toFile(),
+                        configDirectory.resolve(keyFilePath).toFile(),
+                        settings.get(PEM_KEY_PASSWORD))
+                .sslProvider(provider)
+                .protocols(settings.getAsList(ENABLED_PROTOCOLS, DEFAULT_PROTOCOLS))
+                .sessionCacheSize(sessionCacheSize)
+                .sessionTimeout(sessionTimeout.toSeconds());
+
+        List<String> ciphers = settings.getAsList(ENABLED_CIPHERS);
+        if (!ciphers.isEmpty()) {
+            builder.ciphers(ciphers);
+        } else if (http2) {
+            // HTTP/2 forbids many of the ciphers the providers would otherwise enable
+            builder.ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE);
+        }
+        if (http2) {
+            builder.applicationProtocolConfig(new ApplicationProtocolConfig(
+                    ApplicationProtocolConfig.Protocol.ALPN,
+                    ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                    ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                    ApplicationProtocolNames.HTTP_2,
+                    ApplicationProtocolNames.HTTP_1_1));
+        }
+
+        String trustedCasFilePath = settings.get(PEM_TRUSTED_CAS_FILEPATH);
+        if (trustedCasFilePath != null) {
+            builder.trustManager(configDirectory.resolve(trustedCasFilePath).toFile())
+                    .clientAuth(getClientAuth(settings.get(CLIENT_AUTH_MODE, "OPTIONAL")));
+        }
+
+        SslContext sslContext = builder.build();
+        if (sslContext.sessionContext() instanceof OpenSslSessionContext) {
+            OpenSslSessionContext sessionContext = (OpenSslSessionContext) sslContext.sessionContext();
+            sessionContext.setSessionCacheEnabled(true);
+            if (ticketKeyFile != null) {
+                sessionContext.setTicketKeys(readTicketKeys(ticketKeyFile));
+            }
+        } else if (ticketKeyFile != null) {
+            log.warn("Session ticket keys are only supported with OpenSSL, ignoring {}.", ticketKeyFile);
+        }
+
+        log.info(
+                "Frontside TLS uses {} with a session cache of {} sessions for {}s.",
+                provider,
+                sslContext.sessionCacheSize(),
+                sslContext.sessionTimeout());
+        return sslContext;
+    }
+
+    private static String getRequired(Settings settings, String key) {
+        String value = settings.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException(key + " is required with a frontside SSL provider.");
+        }
+        return value;
+    }
+
+    private static ClientAuth getClientAuth(String mode) {
+        switch (mode.toUpperCase(Locale.ROOT)) {
+            case "NONE":
+                return ClientAuth.NONE;
+            case "OPTIONAL":
+                return ClientAuth.OPTIONAL;
+            case "REQUIRE":
+                return ClientAuth.REQUIRE;
+            default:
+                throw new IllegalArgumentException("Unknown " + CLIENT_AUTH_MODE + ": " + mode);
+        }
+    }
+
+    static OpenSslSessionTicketKey[] readTicketKeys(Path ticketKeyFile) throws IOException {
+        byte[] bytes = Files.readAllBytes(ticketKeyFile);
+        if (bytes.length == 0 || bytes.length % OpenSslSessionTicketKey.TICKET_KEY_SIZE != 0) {
+            throw new IllegalArgumentException("Session ticket key file must hold a multiple of "
+                    + OpenSslSessionTicketKey.TICKET_KEY_SIZE + " bytes, got: " + bytes.length);
+        }
+
+        OpenSslSessionTicketKey[] keys =
+                new OpenSslSessionTicketKey[bytes.length / OpenSslSessionTicketKey.TICKET_KEY_SIZE];
+        for (int i = 0; i < keys.length; i++) {
+            int nameStart = i * OpenSslSessionTicketKey.TICKET_KEY_SIZE;
+            int hmacKeyStart = nameStart + OpenSslSessionTicketKey.NAME_SIZE;
+            int aesKeyStart = hmacKeyStart + OpenSslSessionTicketKey.HMAC_KEY_SIZE;
+            keys[i] = new OpenSslSessionTicketKey(
+                    Arrays.copyOfRange(bytes, nameStart, hmacKeyStart),
+                    Arrays.copyOfRange(bytes, hmacKeyStart, aesKeyStart),
+                    Arrays.copyOfRange(bytes, aesKeyStart, aesKeyStart + OpenSslSessionTicketKey.AES_KEY_SIZE));
+        }
+        return keys;
+    }
+}
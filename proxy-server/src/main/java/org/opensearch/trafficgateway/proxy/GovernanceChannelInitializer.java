@@ -1,11 +1,14 @@
 package org.opensearch.trafficgateway.proxy;
 
+import io.netty.channel.ChannelPipeline;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslHandler;
 import java.io.IOException;
 import java.util.function.Supplier;
 import javax.net.ssl.SSLEngine;
 import lombok.NonNull;
+import org.opensearch.migrations.trafficcapture.IChannelConnectionCaptureSerializer;
 import org.opensearch.migrations.trafficcapture.IConnectionCaptureFactory;
 import org.opensearch.migrations.trafficcapture.netty.ConditionallyReliableLoggingHttpHandler;
 import org.opensearch.migrations.trafficcapture.netty.RequestCapturePredicate;
@@ -13,10 +16,16 @@ import org.opensearch.migrations.trafficcapture.netty.tracing.IRootWireLoggingCo
 import org.opensearch.migrations.trafficcapture.proxyserver.netty.BacksideConnectionPool;
 import org.opensearch.migrations.trafficcapture.proxyserver.netty.FrontsideHandler;
 import org.opensearch.migrations.trafficcapture.proxyserver.netty.ProxyChannelInitializer;
+import org.opensearch.trafficgateway.proxy.backside.EventLoopAffineConnectionPool;
+import org.opensearch.trafficgateway.proxy.backside.PooledFrontsideHandler;
 import org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerFactory;
+import org.opensearch.trafficgateway.proxy.http2.Http2FrontsideConfigurer;
+import org.opensearch.trafficgateway.proxy.util.DecodedRequestListener;
 
 public class GovernanceChannelInitializer<T> extends ProxyChannelInitializer<T> {
     private final GovernanceHandlerFactory governanceHandlerFactory;
+    private final Http2FrontsideConfigurer http2FrontsideConfigurer;
+    private final SslContext frontsideSslContext;
 
     public GovernanceChannelInitializer(
             IRootWireLoggingContext rootContext,
@@ -25,6 +34,32 @@ public class GovernanceChannelInitializer<T> extends ProxyChannelInitializer<T>
             IConnectionCaptureFactory<T> connectionCaptureFactory,
             @NonNull RequestCapturePredicate requestCapturePredicate,
             GovernanceHandlerFactory governanceHandlerFactory) {
+        this(
+                rootContext,
+                backsideConnectionPool,
+                sslEngineSupplier,
+                connectionCaptureFactory,
+                requestCapturePredicate,
+                governanceHandlerFactory,
+                0,
+                null);
+    }
+
+    /**
+     * @param http2MaxConcurrentStreams if positive, frontside connections may speak HTTP/2 with up to this many
+     *     concurrent streams, each of which is handled like an HTTP/1.1 connection of its own.
+     * @param frontsideSslContext if not null, TLS handlers are created from this context instead of from the SSL
+     *     engine supplier.
+     */
+    public GovernanceChannelInitializer(
+            IRootWireLoggingContext rootContext,
+            BacksideConnectionPool backsideConnectionPool,
+            Supplier<SSLEngine> sslEngineSupplier,
+            IConnectionCaptureFactory<T> connectionCaptureFactory,
+            @NonNull RequestCapturePredicate requestCapturePredicate,
+            GovernanceHandlerFactory governanceHandlerFactory,
+            int http2MaxConcurrentStreams,
+            SslContext frontsideSslContext) {
         super(
                 rootContext,
                 backsideConnectionPool,
@@ -32,25 +67,57 @@ public class GovernanceChannelInitializer<T> extends ProxyChannelInitializer<T>
                 connectionCaptureFactory,
                 requestCapturePredicate);
         this.governanceHandlerFactory = governanceHandlerFactory;
+        this.frontsideSslContext = frontsideSslContext;
+        this.http2FrontsideConfigurer = http2MaxConcurrentStreams > 0
+                ? new Http2FrontsideConfigurer(http2MaxConcurrentStreams, this::addHttp1Handlers)
+                : null;
     }
 
     @Override
     protected void initChannel(SocketChannel ch) throws IOException {
-        var sslContext = sslEngineProvider != null ? sslEngineProvider.get() : null;
-        if (sslContext != null) {
-            ch.pipeline().addLast(new SslHandler(sslEngineProvider.get()));
+        SslHandler sslHandler = newSslHandler(ch);
+        if (sslHandler != null) {
+            ch.pipeline().addLast(sslHandler);
+        }
+
+        if (http2FrontsideConfigurer != null) {
+            ch.pipeline().addLast(http2FrontsideConfigurer.newProtocolNegotiator(sslHandler != null));
+        } else {
+            addHttp1Handlers(ch.pipeline(), ch.id().asLongText());
+        }
+    }
+
+    private SslHandler newSslHandler(SocketChannel ch) {
+        if (frontsideSslContext != null) {
+            // OpenSSL engines pool their buffers in the channel's allocator rather than the default one
+            return frontsideSslContext.newHandler(ch.alloc());
         }
+        var sslEngine = sslEngineProvider != null ? sslEngineProvider.get() : null;
+        return sslEngine != null ? new SslHandler(sslEngine) : null;
+    }
 
-        var connectionId = ch.id().asLongText();
-        ch.pipeline()
-                .addLast(new ConditionallyReliableLoggingHttpHandler<>(
-                        rootContext,
-                        "",
-                        connectionId,
-                        connectionCaptureFactory,
-                        requestCapturePredicate,
-                        this::shouldGuaranteeMessageOffloading));
-        ch.pipeline().addLast(governanceHandlerFactory.createGovernanceHandler());
-        ch.pipeline().addLast(new FrontsideHandler(backsideConnectionPool));
+    private void addHttp1Handlers(ChannelPipeline pipeline, String connectionId) throws IOException {
+        // an offloader that can take the requests the governance handler decodes gets them from the channel
+        IConnectionCaptureFactory<T> publishingCaptureFactory = connectionContext -> {
+            IChannelConnectionCaptureSerializer<T> offloader =
+                    connectionCaptureFactory.createOffloader(connectionContext);
+            if (offloader instanceof DecodedRequestListener) {
+                pipeline.channel().attr(DecodedRequestListener.ATTRIBUTE).set((DecodedRequestListener) offloader);
+            }
+            return offloader;
+        };
+        pipeline.addLast(new ConditionallyReliableLoggingHttpHandler<>(
+                rootContext,
+                "",
+                connectionId,
+                publishingCaptureFactory,
+                requestCapturePredicate,
+                this::shouldGuaranteeMessageOffloading));
+        pipeline.addLast(governanceHandlerFactory.createGovernanceHandler());
+        if (backsideConnectionPool instanceof EventLoopAffineConnectionPool) {
+            pipeline.addLast(new PooledFrontsideHandler((EventLoopAffineConnectionPool) backsideConnectionPool));
+        } else {
+            pipeline.addLast(new FrontsideHandler(backsideConnectionPool));
+        }
     }
 }
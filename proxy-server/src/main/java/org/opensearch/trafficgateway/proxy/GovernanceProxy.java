@@ -1,26 +1,43 @@
 package org.opensearch.trafficgateway.proxy;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Supplier;
 import javax.net.ssl.SSLEngine;
 import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
 import org.opensearch.migrations.trafficcapture.IConnectionCaptureFactory;
 import org.opensearch.migrations.trafficcapture.netty.RequestCapturePredicate;
 import org.opensearch.migrations.trafficcapture.netty.tracing.IRootWireLoggingContext;
 import org.opensearch.migrations.trafficcapture.proxyserver.netty.BacksideConnectionPool;
 import org.opensearch.migrations.trafficcapture.proxyserver.netty.NettyScanningHttpProxy;
+import org.opensearch.trafficgateway.proxy.backside.EventLoopAffineConnectionPool;
 import org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerFactory;
+import org.opensearch.trafficgateway.proxy.util.NettyTransport;
 
+@Log4j2
 public class GovernanceProxy extends NettyScanningHttpProxy {
     private final GovernanceHandlerFactory governanceHandlerFactory;
+    private final ProxyNetworkOptions networkOptions;
+    private final List<Channel> additionalListenerChannels = new ArrayList<>();
 
     public GovernanceProxy(int proxyPort, GovernanceHandlerFactory governanceHandlerFactory) {
+        this(proxyPort, governanceHandlerFactory, ProxyNetworkOptions.DEFAULT);
+    }
+
+    public GovernanceProxy(
+            int proxyPort,
+            GovernanceHandlerFactory governanceHandlerFactory,
+            @NonNull ProxyNetworkOptions networkOptions) {
         super(proxyPort);
         this.governanceHandlerFactory = governanceHandlerFactory;
+        this.networkOptions = networkOptions;
     }
 
     @Override
@@ -32,28 +49,71 @@ public class GovernanceProxy extends NettyScanningHttpProxy {
             IConnectionCaptureFactory<Object> connectionCaptureFactory,
             @NonNull RequestCapturePredicate requestCapturePredicate)
             throws InterruptedException {
-        bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("captureProxyPoolBoss"));
-        workerGroup = new NioEventLoopGroup(numThreads, new DefaultThreadFactory("captureProxyPoolWorker"));
+        NettyTransport transport = networkOptions.getTransport();
+        if (transport != NettyTransport.NIO && !(backsideConnectionPool instanceof EventLoopAffineConnectionPool)) {
+            // the upstream pool always opens NIO channels on the frontside connection's event loop
+            log.warn("The {} transport needs an EventLoopAffineConnectionPool, using NIO instead.", transport);
+            transport = NettyTransport.NIO;
+        }
+        int listeners = networkOptions.getListeners();
+        if (listeners < 1) {
+            throw new IllegalArgumentException("listeners must be positive, got: " + listeners);
+        }
+        if (listeners > 1 && transport != NettyTransport.EPOLL) {
+            log.warn("Multiple listeners need SO_REUSEPORT, which the {} transport lacks, using one.", transport);
+            listeners = 1;
+        }
+
+        // each listener is registered on a boss event loop of its own
+        bossGroup = transport.newEventLoopGroup(listeners, new DefaultThreadFactory("captureProxyPoolBoss"));
+        workerGroup = transport.newEventLoopGroup(numThreads, new DefaultThreadFactory("captureProxyPoolWorker"));
         ServerBootstrap serverBootstrap = new ServerBootstrap();
         try {
-            mainChannel = serverBootstrap
+            serverBootstrap
                     .group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
+                    .channel(transport.getServerChannelClass())
                     .childHandler(new GovernanceChannelInitializer<>(
                             rootContext,
                             backsideConnectionPool,
                             sslEngineSupplier,
                             connectionCaptureFactory,
                             requestCapturePredicate,
-                            governanceHandlerFactory))
+                            governanceHandlerFactory,
+                            networkOptions.getHttp2MaxConcurrentStreams(),
+                            networkOptions.getFrontsideSslContext()))
                     .childOption(ChannelOption.AUTO_READ, false)
-                    .bind(proxyPort)
-                    .sync()
-                    .channel();
+                    .childOption(ChannelOption.TCP_NODELAY, networkOptions.isTcpNoDelay())
+                    .childOption(
+                            ChannelOption.WRITE_BUFFER_WATER_MARK,
+                            new WriteBufferWaterMark(
+                                    networkOptions.getWriteBufferLowWaterMark(),
+                                    networkOptions.getWriteBufferHighWaterMark()));
+            if (networkOptions.getBacklog() > 0) {
+                serverBootstrap.option(ChannelOption.SO_BACKLOG, networkOptions.getBacklog());
+            }
+            if (listeners > 1) {
+                serverBootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
+
+            mainChannel = serverBootstrap.bind(proxyPort).sync().channel();
+            for (int i = 1; i < listeners; i++) {
+                additionalListenerChannels.add(
+                        serverBootstrap.bind(proxyPort).sync().channel());
+            }
+            log.info("Listening on port {} with {} {} listener(s).", proxyPort, listeners, transport);
+            if (backsideConnectionPool instanceof EventLoopAffineConnectionPool) {
+                ((EventLoopAffineConnectionPool) backsideConnectionPool).prewarm(workerGroup);
+            }
         } catch (Exception e) {
             workerGroup.shutdownGracefully();
             bossGroup.shutdownGracefully();
             throw e;
         }
     }
+
+    @Override
+    public void stop() throws InterruptedException {
+        additionalListenerChannels.forEach(Channel::close);
+        super.stop();
+    }
 }
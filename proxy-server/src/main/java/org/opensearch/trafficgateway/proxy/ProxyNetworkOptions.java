@@ -0,0 +1,63 @@
+package org.opensearch.trafficgateway.proxy;
+
+import io.netty.handler.ssl.SslContext;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import org.opensearch.trafficgateway.proxy.util.NettyTransport;
+
+/**
+ * How the proxy listens for and talks to clients.
+ */
+@Builder
+@Value
+public class ProxyNetworkOptions {
+    public static final ProxyNetworkOptions DEFAULT =
+            ProxyNetworkOptions.builder().build();
+
+    @NonNull
+    @Builder.Default
+    NettyTransport transport = NettyTransport.NIO;
+
+    /**
+     * Listening sockets bound to the same port with SO_REUSEPORT, each accepting on a thread of its own so that the
+     * kernel spreads new connections across them. Only supported with epoll; other transports use a single socket.
+     */
+    @Builder.Default
+    int listeners = 1;
+
+    @Builder.Default
+    boolean tcpNoDelay = true;
+
+    /**
+     * The accept backlog of each listening socket, 0 for the system default.
+     */
+    @Builder.Default
+    int backlog = 0;
+
+    /**
+     * Client connections stop being writable once this many bytes are queued for them, and their backside connections
+     * stop being read until they drain.
+     */
+    @Builder.Default
+    int writeBufferHighWaterMark = 64 * 1024;
+
+    /**
+     * Client connections become writable again once their queued bytes drop below this.
+     */
+    @Builder.Default
+    int writeBufferLowWaterMark = 32 * 1024;
+
+    /**
+     * If positive, clients may speak HTTP/2, negotiated with ALPN or started with prior knowledge over cleartext, with
+     * up to this many concurrent streams per connection.
+     */
+    @Builder.Default
+    int http2MaxConcurrentStreams = 0;
+
+    /**
+     * If set, clients connect over TLS with handlers of this context, which allocate from the channel's allocator,
+     * instead of with engines from the SSL engine supplier the proxy is started with.
+     */
+    SslContext frontsideSslContext;
+}
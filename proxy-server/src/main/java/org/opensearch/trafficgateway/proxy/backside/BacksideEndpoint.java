@@ -0,0 +1,107 @@
+package org.opensearch.trafficgateway.proxy.backside;
+
+import io.netty.handler.ssl.SslContext;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * A backside node together with its outstanding requests and health. A node is ejected for {@code ejectionTime} after
+ * {@code maxConsecutiveFailures} failed connects, handshakes, health checks or gateway errors (502, 503, 504) in a
+ * row. Once the ejection ends, a single further failure ejects it again, while any success readmits it fully.
+ */
+@Log4j2
+public class BacksideEndpoint {
+    @Getter
+    private final URI uri;
+
+    @Getter
+    private final String host;
+
+    @Getter
+    private final int port;
+
+    @Getter
+    private final SslContext sslContext;
+
+    private final int maxConsecutiveFailures;
+    private final long ejectionNanos;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger outstandingRequests = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile boolean ejected;
+    private volatile long ejectedUntilNanos;
+
+    /**
+     * @param maxConsecutiveFailures failures in a row that eject the node, 0 to never eject it.
+     */
+    public BacksideEndpoint(
+            @NonNull URI uri, SslContext sslContext, int maxConsecutiveFailures, @NonNull Duration ejectionTime) {
+        this(uri, sslContext, maxConsecutiveFailures, ejectionTime, System::nanoTime);
+    }
+
+    BacksideEndpoint(
+            @NonNull URI uri,
+            SslContext sslContext,
+            int maxConsecutiveFailures,
+            @NonNull Duration ejectionTime,
+            @NonNull LongSupplier nanoClock) {
+        if (uri.getHost() == null) {
+            throw new IllegalArgumentException("Backside URI has no host: " + uri);
+        }
+
+        this.uri = uri;
+        this.host = uri.getHost();
+        this.port = uri.getPort() >= 0 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        this.sslContext = sslContext;
+        this.maxConsecutiveFailures = maxConsecutiveFailures;
+        this.ejectionNanos = ejectionTime.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    public int getOutstandingRequests() {
+        return outstandingRequests.get();
+    }
+
+    public boolean isAvailable() {
+        return !ejected || nanoClock.getAsLong() - ejectedUntilNanos >= 0;
+    }
+
+    void onRequestStarted() {
+        outstandingRequests.incrementAndGet();
+    }
+
+    void onRequestsEnded(int requests) {
+        outstandingRequests.addAndGet(-requests);
+    }
+
+    void onSuccess() {
+        consecutiveFailures.set(0);
+        if (ejected) {
+            ejected = false;
+            log.info("Backside node {} is healthy again.", uri);
+        }
+    }
+
+    void onFailure() {
+        if (maxConsecutiveFailures <= 0 || consecutiveFailures.incrementAndGet() < maxConsecutiveFailures) {
+            return;
+        }
+
+        ejectedUntilNanos = nanoClock.getAsLong() + ejectionNanos;
+        if (!ejected) {
+            ejected = true;
+            log.warn("Ejecting backside node {} after {} consecutive failures.", uri, maxConsecutiveFailures);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return uri + "(outstanding=" + outstandingRequests.get() + (isAvailable() ? "" : ", ejected") + ")";
+    }
+}
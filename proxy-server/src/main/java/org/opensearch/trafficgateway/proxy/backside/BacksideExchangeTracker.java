@@ -0,0 +1,151 @@
+package org.opensearch.trafficgateway.proxy.backside;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpMessage;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpRequestDecoder;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseDecoder;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import lombok.NonNull;
+
+/**
+ * Follows the requests written to a backside connection and the responses read from it, so that the connection can
+ * be handed to another frontside connection once every request has been answered. Connections that are closed by
+ * either side, switch protocols or fail to parse are never reused. Along the way, it keeps the endpoint's count of
+ * outstanding requests and reports gateway errors to its passive health check.
+ *
+ * <p>Requests reach the backside only as complete messages re-encoded by the governance handler, so a connection is
+ * never left with half a request written.
+ */
+class BacksideExchangeTracker extends ChannelDuplexHandler {
+    private static final Set<HttpResponseStatus> GATEWAY_ERRORS = Set.of(
+            HttpResponseStatus.BAD_GATEWAY, HttpResponseStatus.SERVICE_UNAVAILABLE, HttpResponseStatus.GATEWAY_TIMEOUT);
+
+    private final BacksideEndpoint endpoint;
+    private final Deque<HttpMethod> pendingMethods = new ArrayDeque<>();
+    private final EmbeddedChannel requestDecoder = new EmbeddedChannel(new HttpRequestDecoder());
+    private final EmbeddedChannel responseDecoder = new EmbeddedChannel(new HttpResponseDecoder() {
+        @Override
+        protected boolean isContentAlwaysEmpty(HttpMessage msg) {
+            // as in HttpClientCodec, responses to HEAD have no content whatever their headers say
+            return HttpMethod.HEAD.equals(pendingMethods.peekFirst()) || super.isContentAlwaysEmpty(msg);
+        }
+    });
+    private boolean tracking = true;
+    private boolean reusable = true;
+    private boolean informationalResponse;
+
+    BacksideExchangeTracker(@NonNull BacksideEndpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    boolean isReusable() {
+        return tracking && reusable && pendingMethods.isEmpty();
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (tracking && msg instanceof ByteBuf) {
+            requestDecoder.writeInbound(((ByteBuf) msg).retainedDuplicate());
+            for (Object decoded = requestDecoder.readInbound();
+                    decoded != null;
+                    decoded = requestDecoder.readInbound()) {
+                onRequestObject(decoded);
+                ReferenceCountUtil.release(decoded);
+            }
+        }
+        super.write(ctx, msg, promise);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (tracking && msg instanceof ByteBuf) {
+            responseDecoder.writeInbound(((ByteBuf) msg).retainedDuplicate());
+            for (Object decoded = responseDecoder.readInbound();
+                    decoded != null;
+                    decoded = responseDecoder.readInbound()) {
+                onResponseObject(decoded);
+                ReferenceCountUtil.release(decoded);
+            }
+        }
+        super.channelRead(ctx, msg);
+    }
+
+    private void onRequestObject(Object decoded) {
+        if (decoded instanceof HttpObject
+                && ((HttpObject) decoded).decoderResult().isFailure()) {
+            stopTracking();
+        } else if (decoded instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) decoded;
+            pendingMethods.addLast(request.method());
+            endpoint.onRequestStarted();
+            reusable &= HttpUtil.isKeepAlive(request);
+        }
+    }
+
+    private void onResponseObject(Object decoded) {
+        if (decoded instanceof HttpObject
+                && ((HttpObject) decoded).decoderResult().isFailure()) {
+            stopTracking();
+            return;
+        }
+
+        if (decoded instanceof HttpResponse) {
+            HttpResponse response = (HttpResponse) decoded;
+            HttpResponseStatus status = response.status();
+            informationalResponse = status.codeClass() == HttpStatusClass.INFORMATIONAL;
+            if (status.equals(HttpResponseStatus.SWITCHING_PROTOCOLS)) {
+                stopTracking();
+                return;
+            }
+            reusable &= HttpUtil.isKeepAlive(response);
+            if (!informationalResponse) {
+                if (GATEWAY_ERRORS.contains(status)) {
+                    endpoint.onFailure();
+                } else {
+                    endpoint.onSuccess();
+                }
+            }
+        }
+        if (decoded instanceof LastHttpContent && !informationalResponse && pendingMethods.pollFirst() != null) {
+            // a 1xx response precedes the final response to the same request
+            endpoint.onRequestsEnded(1);
+        }
+    }
+
+    /*
+     * Requests still pending when tracking stops no longer count as outstanding at the endpoint.
+     */
+    private void stopTracking() {
+        tracking = false;
+        endpoint.onRequestsEnded(pendingMethods.size());
+        pendingMethods.clear();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        stopTracking();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        stopTracking();
+        requestDecoder.finishAndReleaseAll();
+        responseDecoder.finishAndReleaseAll();
+    }
+}
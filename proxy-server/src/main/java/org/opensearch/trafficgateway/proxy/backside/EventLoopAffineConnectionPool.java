@@ -0,0 +1,600 @@
+package org.opensearch.trafficgateway.proxy.backside;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import io.opentelemetry.api.metrics.Meter;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.log4j.Log4j2;
+import org.opensearch.migrations.trafficcapture.proxyserver.netty.BacksideConnectionPool;
+import org.opensearch.trafficgateway.proxy.util.NettyTransport;
+
+/**
+ * Keeps up to {@code idleConnectionsPerEventLoop} connected (and TLS handshaken) connections per event loop and
+ * backside node. A frontside connection is always given a backside connection of its own event loop, so requests and
+ * responses are handed over without crossing threads. Idle connections are opened ahead of demand, both when the proxy
+ * starts and whenever one is taken, and a connection goes back to the pool when its frontside connection closes with
+ * every request answered, so that keep-alive connections outlive the clients using them.
+ *
+ * <p>With several backside nodes, each frontside connection is balanced onto the available node with the fewest
+ * outstanding requests, or the less loaded of two random ones. Nodes are ejected after consecutive failed connects,
+ * gateway errors or health checks, see {@link BacksideEndpoint}. If every node is ejected, all of them are used rather
+ * than failing every request. Otherwise, the connections to an ejected node are drained: idle ones are closed, and a
+ * frontside connection moves to another node before its next request, see {@link #shouldRebalance(Channel)}.
+ *
+ * <p>The per event loop state is only touched from its event loop; only the counters behind {@link #getStats()} and
+ * the endpoints are shared.
+ */
+@Log4j2
+public class EventLoopAffineConnectionPool extends BacksideConnectionPool {
+    private static final long STATS_LOG_INTERVAL_SECONDS = 60;
+    private static final long MIN_SWEEP_INTERVAL_MS = 1000;
+    private static final AttributeKey<LocalPool> LOCAL_POOL =
+            AttributeKey.valueOf(EventLoopAffineConnectionPool.class, "localPool");
+
+    public enum LoadBalancing {
+        LEAST_OUTSTANDING_REQUESTS,
+        POWER_OF_TWO_CHOICES
+    }
+
+    @Value
+    public static class Stats {
+        long connectionsOpened;
+        long connectionsClosed;
+        long connectionsReused;
+        long connectionsOpenedOnDemand;
+        int idleConnections;
+        int connectionsInUse;
+    }
+
+    private static class IdleConnection {
+        final Channel channel;
+        final long idleSinceNanos;
+
+        IdleConnection(Channel channel, long idleSinceNanos) {
+            this.channel = channel;
+            this.idleSinceNanos = idleSinceNanos;
+        }
+    }
+
+    /*
+     * The idle connections of one event loop to one backside node.
+     */
+    private static class LocalPool {
+        final BacksideEndpoint endpoint;
+        final Deque<IdleConnection> idleConnections = new ArrayDeque<>();
+        int opening;
+
+        LocalPool(BacksideEndpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+
+    private final List<BacksideEndpoint> endpoints;
+    private final LoadBalancing loadBalancing;
+    private final int idleConnectionsPerEventLoop;
+    private final long idleTimeoutNanos;
+    private final Duration healthCheckInterval;
+    private final String healthCheckPath;
+    private volatile WriteBufferWaterMark writeBufferWaterMark = WriteBufferWaterMark.DEFAULT;
+
+    private final Map<EventLoop, List<LocalPool>> localPools = new ConcurrentHashMap<>();
+
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionsClosed = new LongAdder();
+    private final LongAdder connectionsReused = new LongAdder();
+    private final LongAdder connectionsOpenedOnDemand = new LongAdder();
+    private final AtomicInteger idleConnections = new AtomicInteger();
+    private final AtomicInteger connectionsInUse = new AtomicInteger();
+
+    /**
+     * A pool for a single backside node, which is never ejected.
+     *
+     * @param idleConnectionsPerEventLoop connections kept ready per event loop. With 0, every frontside connection
+     *     opens its own backside connection and closes it again.
+     * @param idleTimeout how long a connection may stay unused in the pool.
+     */
+    public EventLoopAffineConnectionPool(
+            @NonNull URI backsideUri,
+            SslContext sslContext,
+            int idleConnectionsPerEventLoop,
+            @NonNull Duration idleTimeout) {
+        this(
+                List.of(new BacksideEndpoint(backsideUri, sslContext, 0, Duration.ZERO)),
+                LoadBalancing.LEAST_OUTSTANDING_REQUESTS,
+                idleConnectionsPerEventLoop,
+                idleTimeout,
+                Duration.ZERO,
+                "/");
+    }
+
+    /**
+     * @param idleConnectionsPerEventLoop connections kept ready per event loop and backside node. With 0, every
+     *     frontside connection opens its own backside connection and closes it again.
+     * @param idleTimeout how long a connection may stay unused in the pool.
+     * @param healthCheckInterval how often every node is sent a {@code GET healthCheckPath}, zero to only rely on the
+     *     outcome of proxied traffic. A node that does not answer with a status below 500 within the interval fails the
+     *     check. Only nodes of a pool with more than one node are checked.
+     */
+    public EventLoopAffineConnectionPool(
+            @NonNull List<BacksideEndpoint> endpoints,
+            @NonNull LoadBalancing loadBalancing,
+            int idleConnectionsPerEventLoop,
+            @NonNull Duration idleTimeout,
+            @NonNull Duration healthCheckInterval,
+            @NonNull String healthCheckPath) {
+        super(getFirst(endpoints).getUri(), getFirst(endpoints).getSslContext(), 0, Duration.ZERO);
+        if (idleConnectionsPerEventLoop < 0) {
+            throw new IllegalArgumentException(
+                    "idleConnectionsPerEventLoop must not be negative, got: " + idleConnectionsPerEventLoop);
+        }
+        if (idleConnectionsPerEventLoop > 0 && (idleTimeout.isZero() || idleTimeout.isNegative())) {
+            throw new IllegalArgumentException("idleTimeout must be positive when pooling, got: " + idleTimeout);
+        }
+        if (healthCheckInterval.isNegative()) {
+            throw new IllegalArgumentException("healthCheckInterval must not be negative, got: " + healthCheckInterval);
+        }
+
+        this.endpoints = List.copyOf(endpoints);
+        this.loadBalancing = loadBalancing;
+        this.idleConnectionsPerEventLoop = idleConnectionsPerEventLoop;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.healthCheckInterval = healthCheckInterval;
+        this.healthCheckPath = healthCheckPath;
+    }
+
+    private static BacksideEndpoint getFirst(List<BacksideEndpoint> endpoints) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("At least one backside endpoint is required.");
+        }
+        return endpoints.get(0);
+    }
+
+    public List<BacksideEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Sets the write buffer water marks of connections opened from now on. Frontside connections stop being read
+     * while the backside connection they write to is above the high water mark.
+     */
+    public void setWriteBufferWaterMark(@NonNull WriteBufferWaterMark writeBufferWaterMark) {
+        this.writeBufferWaterMark = writeBufferWaterMark;
+    }
+
+    /**
+     * Opens the idle connections of every event loop of {@code eventLoopGroup}, starts the health checks and starts
+     * logging the pool's stats.
+     */
+    public void prewarm(EventLoopGroup eventLoopGroup) {
+        if (endpoints.size() > 1 && !healthCheckInterval.isZero()) {
+            long intervalMs = healthCheckInterval.toMillis();
+            eventLoopGroup
+                    .next()
+                    .scheduleAtFixedRate(
+                            () -> endpoints.forEach(endpoint -> checkHealth(eventLoopGroup.next(), endpoint)),
+                            0,
+                            intervalMs,
+                            TimeUnit.MILLISECONDS);
+        }
+        if (idleConnectionsPerEventLoop == 0) {
+            return;
+        }
+
+        for (EventExecutor executor : eventLoopGroup) {
+            if (executor instanceof EventLoop) {
+                EventLoop eventLoop = (EventLoop) executor;
+                eventLoop.execute(() -> getLocalPools(eventLoop).forEach(localPool -> replenish(eventLoop, localPool)));
+            }
+        }
+        eventLoopGroup
+                .next()
+                .scheduleAtFixedRate(
+                        () -> log.info("Backside connection pool: {}, endpoints: {}", getStats(), endpoints),
+                        STATS_LOG_INTERVAL_SECONDS,
+                        STATS_LOG_INTERVAL_SECONDS,
+                        TimeUnit.SECONDS);
+    }
+
+    public Stats getStats() {
+        return new Stats(
+                connectionsOpened.sum(),
+                connectionsClosed.sum(),
+                connectionsReused.sum(),
+                connectionsOpenedOnDemand.sum(),
+                idleConnections.get(),
+                connectionsInUse.get());
+    }
+
+    /**
+     * Reports the counts of {@link #getStats()} and the number of ejected nodes as instruments of {@code meter}, which
+     * are read whenever metrics are exported.
+     */
+    public void registerMetrics(@NonNull Meter meter) {
+        meter.counterBuilder("backsideConnectionsOpened")
+                .buildWithCallback(measurement -> measurement.record(connectionsOpened.sum()));
+        meter.counterBuilder("backsideConnectionsClosed")
+                .buildWithCallback(measurement -> measurement.record(connectionsClosed.sum()));
+        meter.counterBuilder("backsideConnectionsReused")
+                .buildWithCallback(measurement -> measurement.record(connectionsReused.sum()));
+        meter.counterBuilder("backsideConnectionsOpenedOnDemand")
+                .buildWithCallback(measurement -> measurement.record(connectionsOpenedOnDemand.sum()));
+        meter.upDownCounterBuilder("backsideIdleConnections")
+                .buildWithCallback(measurement -> measurement.record(idleConnections.get()));
+        meter.upDownCounterBuilder("backsideConnectionsInUse")
+                .buildWithCallback(measurement -> measurement.record(connectionsInUse.get()));
+        meter.upDownCounterBuilder("backsideNodesEjected")
+                .buildWithCallback(measurement -> measurement.record(endpoints.stream()
+                        .filter(endpoint -> !endpoint.isAvailable())
+                        .count()));
+    }
+
+    /**
+     * Must be called on {@code eventLoop}. The connection has to be returned with {@link #release(Channel)}.
+     */
+    public Future<Channel> acquire(EventLoop eventLoop) {
+        Promise<Channel> promise = eventLoop.newPromise();
+        LocalPool localPool = getLocalPools(eventLoop).get(chooseEndpoint());
+        if (idleConnectionsPerEventLoop > 0) {
+            Channel idleChannel = pollIdleChannel(localPool);
+            replenish(eventLoop, localPool);
+            if (idleChannel != null) {
+                connectionsReused.increment();
+                connectionsInUse.incrementAndGet();
+                return promise.setSuccess(idleChannel);
+            }
+        }
+
+        connectionsOpenedOnDemand.increment();
+        openConnection(eventLoop, localPool).addListener((Future<Channel> future) -> {
+            if (future.isSuccess()) {
+                connectionsInUse.incrementAndGet();
+                promise.setSuccess(future.getNow());
+            } else {
+                promise.setFailure(future.cause());
+            }
+        });
+        return promise;
+    }
+
+    /*
+     * Returns the index of the endpoint to use. Ties are broken by starting the search at a random endpoint, so that
+     * idle endpoints share the connections opened before any request is sent.
+     */
+    int chooseEndpoint() {
+        int size = endpoints.size();
+        if (size == 1) {
+            return 0;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean anyAvailable = endpoints.stream().anyMatch(BacksideEndpoint::isAvailable);
+        if (loadBalancing == LoadBalancing.POWER_OF_TWO_CHOICES) {
+            List<Integer> candidates = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                if (!anyAvailable || endpoints.get(i).isAvailable()) {
+                    candidates.add(i);
+                }
+            }
+            int first = candidates.get(random.nextInt(candidates.size()));
+            if (candidates.size() == 1) {
+                return first;
+            }
+            int second = candidates.get(random.nextInt(candidates.size() - 1));
+            if (second == first) {
+                second = candidates.get(candidates.size() - 1);
+            }
+            return endpoints.get(second).getOutstandingRequests()
+                            < endpoints.get(first).getOutstandingRequests()
+                    ? second
+                    : first;
+        }
+
+        int offset = random.nextInt(size);
+        int chosen = -1;
+        for (int i = 0; i < size; i++) {
+            int index = (offset + i) % size;
+            BacksideEndpoint endpoint = endpoints.get(index);
+            if (anyAvailable && !endpoint.isAvailable()) {
+                continue;
+            }
+            if (chosen < 0
+                    || endpoint.getOutstandingRequests() < endpoints.get(chosen).getOutstandingRequests()) {
+                chosen = index;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Must be called on the event loop of {@code channel}. Whether the frontside connection it is lent to should give it
+     * back and acquire another one before sending its next request, because its node was ejected while others are
+     * available. Connections with requests in flight are only drained once these are answered.
+     */
+    public boolean shouldRebalance(Channel channel) {
+        LocalPool localPool = channel.attr(LOCAL_POOL).get();
+        BacksideExchangeTracker tracker = channel.pipeline().get(BacksideExchangeTracker.class);
+        return localPool != null && tracker != null && tracker.isReusable() && isDrained(localPool.endpoint);
+    }
+
+    private boolean isDrained(BacksideEndpoint endpoint) {
+        return !endpoint.isAvailable() && endpoints.stream().anyMatch(BacksideEndpoint::isAvailable);
+    }
+
+    /**
+     * Returns a connection after its frontside connection closed. Connections with requests still in flight, or to a
+     * drained node, are closed instead.
+     */
+    public void release(Channel channel) {
+        if (!channel.eventLoop().inEventLoop()) {
+            channel.eventLoop().execute(() -> release(channel));
+            return;
+        }
+
+        connectionsInUse.decrementAndGet();
+        BacksideExchangeTracker tracker = channel.pipeline().get(BacksideExchangeTracker.class);
+        LocalPool localPool = channel.attr(LOCAL_POOL).get();
+        if (idleConnectionsPerEventLoop == 0
+                || tracker == null
+                || localPool == null
+                || !tracker.isReusable()
+                || isDrained(localPool.endpoint)) {
+            channel.close();
+            return;
+        }
+        offerIdleChannel(localPool, channel);
+    }
+
+    private List<LocalPool> getLocalPools(EventLoop eventLoop) {
+        return localPools.computeIfAbsent(eventLoop, loop -> {
+            List<LocalPool> pools = new ArrayList<>(endpoints.size());
+            endpoints.forEach(endpoint -> pools.add(new LocalPool(endpoint)));
+            if (idleConnectionsPerEventLoop > 0) {
+                long sweepIntervalMs =
+                        Math.max(MIN_SWEEP_INTERVAL_MS, TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) / 2);
+                loop.scheduleAtFixedRate(
+                        () -> pools.forEach(localPool -> {
+                            closeExpiredChannels(localPool);
+                            replenish(loop, localPool);
+                        }),
+                        sweepIntervalMs,
+                        sweepIntervalMs,
+                        TimeUnit.MILLISECONDS);
+            }
+            return pools;
+        });
+    }
+
+    private Channel pollIdleChannel(LocalPool localPool) {
+        long now = System.nanoTime();
+        // the most recently used connection is the least likely to have been closed by the server
+        for (IdleConnection idle = localPool.idleConnections.pollLast();
+                idle != null;
+                idle = localPool.idleConnections.pollLast()) {
+            idleConnections.decrementAndGet();
+            if (idle.channel.isActive() && now - idle.idleSinceNanos < idleTimeoutNanos) {
+                return idle.channel;
+            }
+            idle.channel.close();
+        }
+        return null;
+    }
+
+    private void closeExpiredChannels(LocalPool localPool) {
+        long now = System.nanoTime();
+        boolean drained = isDrained(localPool.endpoint);
+        for (Iterator<IdleConnection> it = localPool.idleConnections.iterator(); it.hasNext(); ) {
+            IdleConnection idle = it.next();
+            if (!drained && idle.channel.isActive() && now - idle.idleSinceNanos < idleTimeoutNanos) {
+                continue;
+            }
+            it.remove();
+            idleConnections.decrementAndGet();
+            idle.channel.close();
+        }
+    }
+
+    private void replenish(EventLoop eventLoop, LocalPool localPool) {
+        // connections to an ejected node would only be wasted
+        if (!localPool.endpoint.isAvailable()) {
+            return;
+        }
+
+        while (localPool.idleConnections.size() + localPool.opening < idleConnectionsPerEventLoop) {
+            localPool.opening++;
+            openConnection(eventLoop, localPool).addListener((Future<Channel> future) -> {
+                localPool.opening--;
+                if (future.isSuccess()) {
+                    offerIdleChannel(localPool, future.getNow());
+                } else {
+                    log.debug("Could not open idle backside connection.", future.cause());
+                }
+            });
+        }
+    }
+
+    private void offerIdleChannel(LocalPool localPool, Channel channel) {
+        if (!channel.isActive() || localPool.idleConnections.size() >= idleConnectionsPerEventLoop) {
+            channel.close();
+            return;
+        }
+
+        localPool.idleConnections.addLast(new IdleConnection(channel, System.nanoTime()));
+        idleConnections.incrementAndGet();
+        // keep a read pending so that a connection closed by the server is noticed while idle
+        channel.read();
+    }
+
+    /*
+     * Completes once the connection is usable, i.e. after the TLS handshake if there is one.
+     */
+    private Future<Channel> openConnection(EventLoop eventLoop, LocalPool localPool) {
+        BacksideEndpoint endpoint = localPool.endpoint;
+        Promise<Channel> promise = eventLoop.newPromise();
+        ChannelFuture connectFuture = new Bootstrap()
+                .group(eventLoop)
+                .channel(NettyTransport.forEventLoop(eventLoop).getSocketChannelClass())
+                .option(ChannelOption.AUTO_READ, false)
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK, writeBufferWaterMark)
+                .handler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        addSslHandler(ch, endpoint);
+                        ch.pipeline().addLast(new BacksideExchangeTracker(endpoint), new PooledBacksideHandler());
+                    }
+                })
+                .connect(endpoint.getHost(), endpoint.getPort());
+
+        connectFuture.addListener((ChannelFuture future) -> {
+            if (!future.isSuccess()) {
+                endpoint.onFailure();
+                promise.setFailure(future.cause());
+                return;
+            }
+
+            Channel channel = future.channel();
+            channel.attr(LOCAL_POOL).set(localPool);
+            connectionsOpened.increment();
+            channel.closeFuture().addListener(closeFuture -> onClose(channel));
+            SslHandler sslHandler = channel.pipeline().get(SslHandler.class);
+            if (sslHandler == null) {
+                promise.setSuccess(channel);
+                return;
+            }
+            sslHandler.handshakeFuture().addListener(handshakeFuture -> {
+                if (handshakeFuture.isSuccess()) {
+                    promise.setSuccess(channel);
+                } else {
+                    endpoint.onFailure();
+                    channel.close();
+                    promise.setFailure(handshakeFuture.cause());
+                }
+            });
+        });
+        return promise;
+    }
+
+    private static void addSslHandler(Channel channel, BacksideEndpoint endpoint) {
+        if (endpoint.getSslContext() != null) {
+            channel.pipeline()
+                    .addLast(endpoint.getSslContext()
+                            .newHandler(channel.alloc(), endpoint.getHost(), endpoint.getPort()));
+        }
+    }
+
+    private void onClose(Channel channel) {
+        connectionsClosed.increment();
+        LocalPool localPool = channel.attr(LOCAL_POOL).get();
+        if (localPool != null && localPool.idleConnections.removeIf(idle -> idle.channel == channel)) {
+            idleConnections.decrementAndGet();
+        }
+    }
+
+    /*
+     * Sends a single request on a connection of its own, so that checks neither wait for nor disturb pooled
+     * connections. Any outcome other than a response with a status below 500 within the interval is a failure.
+     */
+    void checkHealth(EventLoop eventLoop, BacksideEndpoint endpoint) {
+        HealthCheckHandler healthCheckHandler = new HealthCheckHandler(endpoint);
+        ChannelFuture connectFuture = new Bootstrap()
+                .group(eventLoop)
+                .channel(NettyTransport.forEventLoop(eventLoop).getSocketChannelClass())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int)
+                        Math.min(Integer.MAX_VALUE, healthCheckInterval.toMillis()))
+                .handler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        addSslHandler(ch, endpoint);
+                        ch.pipeline().addLast(new HttpClientCodec(), healthCheckHandler);
+                    }
+                })
+                .connect(endpoint.getHost(), endpoint.getPort());
+
+        Channel channel = connectFuture.channel();
+        channel.closeFuture().addListener(future -> healthCheckHandler.complete(false));
+        eventLoop.schedule(() -> channel.close(), healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+        connectFuture.addListener((ChannelFutureListener) future -> {
+            if (!future.isSuccess()) {
+                healthCheckHandler.complete(false);
+                return;
+            }
+
+            var request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, healthCheckPath);
+            request.headers()
+                    .set(HttpHeaderNames.HOST, endpoint.getHost())
+                    .set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE)
+                    .set(HttpHeaderNames.CONTENT_LENGTH, 0);
+            future.channel().writeAndFlush(request);
+        });
+    }
+
+    private static class HealthCheckHandler extends SimpleChannelInboundHandler<HttpResponse> {
+        private final BacksideEndpoint endpoint;
+        private boolean completed;
+
+        HealthCheckHandler(BacksideEndpoint endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, HttpResponse response) {
+            complete(response.status().code() < 500);
+            ctx.close();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.debug("Health check of {} failed.", endpoint.getUri(), cause);
+            complete(false);
+            ctx.close();
+        }
+
+        void complete(boolean healthy) {
+            if (completed) {
+                return;
+            }
+
+            completed = true;
+            if (healthy) {
+                endpoint.onSuccess();
+            } else {
+                endpoint.onFailure();
+            }
+        }
+    }
+}
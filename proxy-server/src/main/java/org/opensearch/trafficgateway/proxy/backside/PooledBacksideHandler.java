@@ -0,0 +1,67 @@
+package org.opensearch.trafficgateway.proxy.backside;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import lombok.extern.log4j.Log4j2;
+import org.opensearch.migrations.trafficcapture.proxyserver.netty.FrontsideHandler;
+
+/**
+ * Writes everything read from a backside connection back to the frontside connection it is currently lent to. Unlike
+ * the upstream BacksideHandler, the frontside connection can change when the connection goes back to the pool.
+ *
+ * <p>Reading goes on for as long as the frontside connection is writable, i.e. until its write buffer passes the
+ * high water mark, and resumes once {@link PooledFrontsideHandler} sees it drain below the low one. Likewise, the
+ * frontside connection is read again once this connection becomes writable. A slow client thus holds at most its
+ * write buffer of a large response, instead of the gateway reading the response as fast as the backside sends it.
+ */
+@Log4j2
+class PooledBacksideHandler extends ChannelInboundHandlerAdapter {
+    private Channel frontsideChannel;
+
+    void bind(Channel frontsideChannel) {
+        this.frontsideChannel = frontsideChannel;
+    }
+
+    void unbind() {
+        frontsideChannel = null;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (frontsideChannel == null) {
+            log.debug("Closing idle backside connection that received unexpected data.");
+            ReferenceCountUtil.release(msg);
+            ctx.close();
+            return;
+        }
+
+        frontsideChannel.writeAndFlush(msg).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+        if (frontsideChannel.isWritable()) {
+            ctx.read();
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        if (ctx.channel().isWritable() && frontsideChannel != null) {
+            frontsideChannel.read();
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        if (frontsideChannel != null) {
+            FrontsideHandler.closeOnFlush(frontsideChannel);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        log.debug("Closing backside connection after exception.", cause);
+        ctx.close();
+    }
+}
@@ -0,0 +1,135 @@
+package org.opensearch.trafficgateway.proxy.backside;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+import org.opensearch.migrations.trafficcapture.proxyserver.netty.FrontsideHandler;
+
+/**
+ * Forwards frontside traffic like the upstream FrontsideHandler, but borrows its backside connection from an
+ * {@link EventLoopAffineConnectionPool} and gives it back instead of closing it. Messages that arrive before the
+ * backside connection, as when the handlers before this one have already read while negotiating the protocol, are
+ * held until it is acquired.
+ *
+ * <p>Once the node of the backside connection is ejected, the connection is given back between two requests and
+ * another one is acquired, so that keep-alive clients are balanced onto the remaining nodes as well.
+ */
+@Log4j2
+public class PooledFrontsideHandler extends ChannelInboundHandlerAdapter {
+    private final EventLoopAffineConnectionPool connectionPool;
+    private Channel backsideChannel;
+    private PooledBacksideHandler backsideHandler;
+    private boolean acquiring;
+    private final List<Object> pendingMessages = new ArrayList<>();
+
+    public PooledFrontsideHandler(@NonNull EventLoopAffineConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) {
+        acquire(ctx.channel());
+    }
+
+    private void acquire(Channel frontsideChannel) {
+        acquiring = true;
+        connectionPool.acquire(frontsideChannel.eventLoop()).addListener((FutureListener<Channel>)
+                future -> onBacksideAcquired(frontsideChannel, future));
+    }
+
+    private void onBacksideAcquired(Channel frontsideChannel, Future<Channel> future) {
+        acquiring = false;
+        if (!future.isSuccess()) {
+            log.warn("Could not connect to the backside.", future.cause());
+            releasePendingMessages();
+            frontsideChannel.close();
+            return;
+        }
+
+        Channel channel = future.getNow();
+        if (!frontsideChannel.isActive()) {
+            releasePendingMessages();
+            connectionPool.release(channel);
+            return;
+        }
+
+        backsideChannel = channel;
+        backsideHandler = channel.pipeline().get(PooledBacksideHandler.class);
+        backsideHandler.bind(frontsideChannel);
+        if (pendingMessages.isEmpty()) {
+            frontsideChannel.read();
+            return;
+        }
+        pendingMessages.forEach(msg -> forward(frontsideChannel, msg));
+        pendingMessages.clear();
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (backsideChannel != null && connectionPool.shouldRebalance(backsideChannel)) {
+            log.debug("Moving frontside connection off the ejected backside node {}.", backsideChannel.remoteAddress());
+            releaseBackside();
+            acquire(ctx.channel());
+        }
+        if (acquiring) {
+            pendingMessages.add(msg);
+            return;
+        }
+        if (backsideChannel == null || !backsideChannel.isActive()) {
+            ReferenceCountUtil.release(msg);
+            FrontsideHandler.closeOnFlush(ctx.channel());
+            return;
+        }
+
+        forward(ctx.channel(), msg);
+    }
+
+    private void forward(Channel frontsideChannel, Object msg) {
+        backsideChannel.writeAndFlush(msg).addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+        if (backsideChannel.isWritable()) {
+            frontsideChannel.read();
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        // see PooledBacksideHandler for the other direction
+        if (ctx.channel().isWritable() && backsideChannel != null) {
+            backsideChannel.read();
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    private void releasePendingMessages() {
+        pendingMessages.forEach(ReferenceCountUtil::release);
+        pendingMessages.clear();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) {
+        if (backsideChannel != null) {
+            releaseBackside();
+        }
+    }
+
+    private void releaseBackside() {
+        backsideHandler.unbind();
+        connectionPool.release(backsideChannel);
+        backsideChannel = null;
+        backsideHandler = null;
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        log.debug("Closing frontside connection after exception.", cause);
+        FrontsideHandler.closeOnFlush(ctx.channel());
+    }
+}
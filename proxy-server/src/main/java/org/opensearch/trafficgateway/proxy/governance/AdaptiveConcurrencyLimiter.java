@@ -0,0 +1,272 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Limits the number of requests in flight to the backside. The limit adapts to the measured latency in the style
+ * of a gradient limiter: while latency stays close to the lowest latency seen recently the limit grows by roughly
+ * its square root per sample, and once latency rises the limit shrinks in proportion to the slowdown.
+ *
+ * <p>Priority requests (by default OpenSearch Dashboards traffic) may use the whole limit, other requests only the
+ * part not reserved for priority traffic. Requests over the limit wait up to {@code maxQueueTimeMs} for a permit
+ * before they are shed. Waiting requests are queued first in, first out, priority requests ahead of the others, and
+ * are handed permits through {@link Waiter#admit()} as they are returned. The limiter is shared by all channels;
+ * acquiring a permit while nothing waits is a single CAS, and only the waiter queues and the limit update on
+ * response are synchronized.
+ */
+@Log4j2
+public class AdaptiveConcurrencyLimiter {
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final long minRttWindowNanos;
+    private final double priorityReserveFraction;
+    private final List<String> priorityPathPrefixes;
+    private final LongSupplier nanoClock;
+
+    @Getter
+    private final long maxQueueTimeMs;
+
+    /**
+     * A request waiting for a permit. Implementations are responsible for moving to their own event loop.
+     */
+    public interface Waiter {
+        /**
+         * The request holds a permit from now on and has to return it.
+         */
+        void admit();
+    }
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // guarded by the lock of waiters, waiting is also read without it to keep the fast path lock free
+    private final Deque<Waiter> priorityWaiters = new ArrayDeque<>();
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    @Getter
+    private volatile double limit;
+
+    private long minRttNanos = Long.MAX_VALUE;
+    private long minRttResetNanos;
+
+    public AdaptiveConcurrencyLimiter(
+            int initialLimit,
+            int minLimit,
+            int maxLimit,
+            double rttTolerance,
+            double smoothing,
+            long minRttWindowMs,
+            double priorityReserveFraction,
+            @NonNull List<String> priorityPathPrefixes,
+            long maxQueueTimeMs) {
+        this(
+                initialLimit,
+                minLimit,
+                maxLimit,
+                rttTolerance,
+                smoothing,
+                minRttWindowMs,
+                priorityReserveFraction,
+                priorityPathPrefixes,
+                maxQueueTimeMs,
+                System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(
+            int initialLimit,
+            int minLimit,
+            int maxLimit,
+            double rttTolerance,
+            double smoothing,
+            long minRttWindowMs,
+            double priorityReserveFraction,
+            @NonNull List<String> priorityPathPrefixes,
+            long maxQueueTimeMs,
+            @NonNull LongSupplier nanoClock) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= minLimit <= initialLimit <= "
+                    + "maxLimit, got: " + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        if (rttTolerance < 1) {
+            throw new IllegalArgumentException("rttTolerance must be at least 1, got: " + rttTolerance);
+        }
+        if (smoothing <= 0 || smoothing > 1) {
+            throw new IllegalArgumentException("smoothing must be in (0, 1], got: " + smoothing);
+        }
+        if (priorityReserveFraction < 0 || priorityReserveFraction >= 1) {
+            throw new IllegalArgumentException(
+                    "priorityReserveFraction must be in [0, 1), got: " + priorityReserveFraction);
+        }
+        if (maxQueueTimeMs < 0) {
+            throw new IllegalArgumentException("maxQueueTimeMs must not be negative, got: " + maxQueueTimeMs);
+        }
+
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.minRttWindowNanos = TimeUnit.MILLISECONDS.toNanos(minRttWindowMs);
+        this.priorityReserveFraction = priorityReserveFraction;
+        this.priorityPathPrefixes = List.copyOf(priorityPathPrefixes);
+        this.maxQueueTimeMs = maxQueueTimeMs;
+        this.nanoClock = nanoClock;
+        this.minRttResetNanos = nanoClock.getAsLong() + minRttWindowNanos;
+    }
+
+    public boolean isPriority(FullHttpRequest request) {
+        String path = new QueryStringDecoder(request.uri()).path();
+        for (String prefix : priorityPathPrefixes) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return whether a permit was acquired. A permit has to be returned with {@link #release(long)} or
+     *     {@link #release()}.
+     */
+    public boolean tryAcquire(boolean priority) {
+        double currentLimit = limit;
+        int allowed = priority ? (int) currentLimit : Math.max(1, (int) (currentLimit * (1 - priorityReserveFraction)));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Acquires a permit unless requests of the same or a higher priority are already waiting, or queues
+     * {@code waiter} otherwise.
+     *
+     * @return true if a permit was acquired, false if {@code waiter} will be admitted later or has to be
+     *     {@link #cancel(Waiter) cancelled}.
+     */
+    public boolean tryAcquireOrWait(boolean priority, @NonNull Waiter waiter) {
+        if (waiting.get() == 0 && tryAcquire(priority)) {
+            return true;
+        }
+
+        // queued before acquiring, so that a release that misses the waiter leaves a permit to it
+        List<Waiter> admitted;
+        synchronized (waiters) {
+            (priority ? priorityWaiters : waiters).addLast(waiter);
+            waiting.incrementAndGet();
+            admitted = pollAdmittedWaiters();
+        }
+        boolean acquired = admitted.remove(waiter);
+        admitted.forEach(Waiter::admit);
+        return acquired;
+    }
+
+    /**
+     * @return true if the waiter was still queued, false if it was already admitted.
+     */
+    public boolean cancel(@NonNull Waiter waiter) {
+        synchronized (waiters) {
+            if (priorityWaiters.remove(waiter) || waiters.remove(waiter)) {
+                waiting.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * Returns a permit and uses the request's latency as a sample to update the limit.
+     */
+    public void release(long rttNanos) {
+        int inFlightAtRelease = inFlight.getAndDecrement();
+        onSample(rttNanos, inFlightAtRelease);
+        admitWaiters();
+    }
+
+    /**
+     * Returns a permit of a request that did not complete, e.g. because the client disconnected.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+        admitWaiters();
+    }
+
+    private void admitWaiters() {
+        if (waiting.get() == 0) {
+            return;
+        }
+
+        List<Waiter> admitted;
+        synchronized (waiters) {
+            admitted = pollAdmittedWaiters();
+        }
+        admitted.forEach(Waiter::admit);
+    }
+
+    /*
+     * Takes a permit for each waiter that can have one, priority waiters first. Has to hold the waiters' lock.
+     */
+    private List<Waiter> pollAdmittedWaiters() {
+        List<Waiter> admitted = new ArrayList<>();
+        while (!priorityWaiters.isEmpty() && tryAcquire(true)) {
+            admitted.add(priorityWaiters.pollFirst());
+        }
+        while (priorityWaiters.isEmpty() && !waiters.isEmpty() && tryAcquire(false)) {
+            admitted.add(waiters.pollFirst());
+        }
+        waiting.addAndGet(-admitted.size());
+        return admitted;
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtRelease) {
+        long now = nanoClock.getAsLong();
+        if (now - minRttResetNanos >= 0) {
+            // let the baseline follow the backside when it gets permanently slower, e.g. after data growth.
+            minRttNanos = rttNanos;
+            minRttResetNanos = now + minRttWindowNanos;
+        } else if (rttNanos < minRttNanos) {
+            minRttNanos = rttNanos;
+        }
+
+        double currentLimit = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * minRttNanos / Math.max(1L, rttNanos)));
+        double newLimit = currentLimit * gradient + Math.sqrt(currentLimit);
+        if (inFlightAtRelease < currentLimit / 2) {
+            // the limit was not the bottleneck, so this sample says nothing about whether it could be higher.
+            newLimit = Math.min(newLimit, currentLimit);
+        }
+        newLimit = currentLimit * (1 - smoothing) + newLimit * smoothing;
+        newLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+
+        if ((int) newLimit != (int) currentLimit) {
+            log.debug("Concurrency limit changed from {} to {}", (int) currentLimit, (int) newLimit);
+        }
+        limit = newLimit;
+    }
+}
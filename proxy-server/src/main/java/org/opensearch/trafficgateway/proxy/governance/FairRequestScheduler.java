@@ -0,0 +1,257 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+import java.util.regex.Pattern;
+import lombok.Getter;
+import lombok.NonNull;
+import org.opensearch.trafficgateway.proxy.util.UserIdExtractor;
+
+/**
+ * Bounds the number of requests in flight to the backside and, once the bound is reached, queues requests per class
+ * (user, tenant or endpoint) and admits them with deficit round robin. Every class with queued requests gets a turn
+ * in which it may send as many requests as its weight, so a client flooding the proxy only lengthens its own queue.
+ *
+ * <p>The scheduler is shared by all channels and synchronized; admissions are handed to the waiting channel through
+ * {@link QueuedRequest#admit()}, which is called on the thread returning the permit.
+ */
+public class FairRequestScheduler {
+    private static final String SECURITY_TENANT_HEADER = "securitytenant";
+    private static final String UNKNOWN_CLASS = "";
+
+    public enum ClassifyBy {
+        USER,
+        TENANT,
+        ENDPOINT
+    }
+
+    public enum Admission {
+        ADMITTED,
+        QUEUED,
+        REJECTED
+    }
+
+    /**
+     * A request waiting in its class queue. Implementations are responsible for moving to their own event loop.
+     */
+    public interface QueuedRequest {
+        /**
+         * The request holds a permit from now on and has to return it with {@link #release()}.
+         */
+        void admit();
+    }
+
+    private static class ClassQueue {
+        final String requestClass;
+        final int weight;
+        final Deque<QueuedRequest> requests = new ArrayDeque<>();
+        int deficit;
+        boolean turnStarted;
+
+        ClassQueue(String requestClass, int weight) {
+            this.requestClass = requestClass;
+            this.weight = weight;
+        }
+    }
+
+    @Getter
+    private final ClassifyBy classifyBy;
+
+    private final Map<Pattern, Integer> weightsByClassPattern = new LinkedHashMap<>();
+    private final int defaultWeight;
+    private final IntSupplier maxInFlight;
+    private final int maxQueuedPerClass;
+
+    @Getter
+    private final long maxQueueTimeMs;
+
+    private final UserIdExtractor userIdExtractor;
+
+    private final Map<String, ClassQueue> queues = new HashMap<>();
+    // classes with queued requests, in round robin order
+    private final Deque<ClassQueue> activeQueues = new ArrayDeque<>();
+    private int inFlight;
+
+    /**
+     * @param weightsByClassRegex weights by class regex, the first match wins. Classes without a match use
+     *     {@code defaultWeight}.
+     * @param maxInFlight the number of requests allowed in flight, read whenever a request arrives or completes.
+     */
+    public FairRequestScheduler(
+            @NonNull ClassifyBy classifyBy,
+            @NonNull Map<String, Integer> weightsByClassRegex,
+            int defaultWeight,
+            @NonNull IntSupplier maxInFlight,
+            int maxQueuedPerClass,
+            long maxQueueTimeMs,
+            @NonNull UserIdExtractor userIdExtractor) {
+        if (defaultWeight < 1 || weightsByClassRegex.values().stream().anyMatch(weight -> weight < 1)) {
+            throw new IllegalArgumentException("Fair queueing weights must be at least 1, got default " + defaultWeight
+                    + " and " + weightsByClassRegex);
+        }
+        if (maxQueuedPerClass < 0) {
+            throw new IllegalArgumentException("maxQueuedPerClass must not be negative, got: " + maxQueuedPerClass);
+        }
+
+        this.classifyBy = classifyBy;
+        weightsByClassRegex.forEach((regex, weight) -> weightsByClassPattern.put(Pattern.compile(regex), weight));
+        this.defaultWeight = defaultWeight;
+        this.maxInFlight = maxInFlight;
+        this.maxQueuedPerClass = maxQueuedPerClass;
+        this.maxQueueTimeMs = maxQueueTimeMs;
+        this.userIdExtractor = userIdExtractor;
+    }
+
+    /**
+     * @return the class the request is queued in. Requests that cannot be classified share one class.
+     */
+    public String classify(FullHttpRequest request) {
+        String requestClass;
+        switch (classifyBy) {
+            case USER:
+                requestClass = userIdExtractor.extractUserId(request);
+                if (requestClass == null) {
+                    requestClass = userIdExtractor.extractUserToken(request);
+                }
+                break;
+            case TENANT:
+                requestClass = request.headers().get(SECURITY_TENANT_HEADER);
+                break;
+            default:
+                requestClass = getEndpoint(new QueryStringDecoder(request.uri()).path());
+        }
+        return requestClass != null ? requestClass : UNKNOWN_CLASS;
+    }
+
+    /*
+     * The endpoint is the first path segment starting with an underscore, e.g. _search, _bulk or _dashboards.
+     */
+    private static String getEndpoint(String path) {
+        for (String segment : path.split("/")) {
+            if (segment.startsWith("_")) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return {@link Admission#ADMITTED} if the request may be sent right away, {@link Admission#QUEUED} if
+     *     {@code request} will be admitted later or has to be {@link #cancel(String, QueuedRequest) cancelled}, or
+     *     {@link Admission#REJECTED} if its class queue is full.
+     */
+    public synchronized Admission submit(@NonNull String requestClass, @NonNull QueuedRequest request) {
+        if (activeQueues.isEmpty() && inFlight < maxInFlight.getAsInt()) {
+            inFlight++;
+            return Admission.ADMITTED;
+        }
+
+        ClassQueue queue = queues.get(requestClass);
+        if (queue == null) {
+            queue = new ClassQueue(requestClass, getWeight(requestClass));
+            queues.put(requestClass, queue);
+            activeQueues.addLast(queue);
+        }
+        if (queue.requests.size() >= maxQueuedPerClass) {
+            if (queue.requests.isEmpty()) {
+                removeQueue(queue);
+            }
+            return Admission.REJECTED;
+        }
+
+        queue.requests.addLast(request);
+        return Admission.QUEUED;
+    }
+
+    /**
+     * @return true if the request was still queued, false if it was already admitted.
+     */
+    public synchronized boolean cancel(@NonNull String requestClass, @NonNull QueuedRequest request) {
+        ClassQueue queue = queues.get(requestClass);
+        if (queue == null || !queue.requests.remove(request)) {
+            return false;
+        }
+
+        if (queue.requests.isEmpty()) {
+            removeQueue(queue);
+        }
+        return true;
+    }
+
+    /**
+     * Returns a permit and admits queued requests while permits are available.
+     */
+    public void release() {
+        List<QueuedRequest> admitted = new ArrayList<>();
+        synchronized (this) {
+            inFlight--;
+            for (QueuedRequest next = nextOrNull(); next != null; next = nextOrNull()) {
+                inFlight++;
+                admitted.add(next);
+            }
+        }
+        admitted.forEach(QueuedRequest::admit);
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return queues.values().stream().mapToInt(queue -> queue.requests.size()).sum();
+    }
+
+    /*
+     * Deficit round robin with a cost of one per request: the class at the head of the round gets its weight added to
+     * its deficit when its turn starts, sends while the deficit lasts and then moves to the back of the round.
+     */
+    private QueuedRequest nextOrNull() {
+        if (inFlight >= maxInFlight.getAsInt()) {
+            return null;
+        }
+
+        while (!activeQueues.isEmpty()) {
+            ClassQueue queue = activeQueues.peekFirst();
+            if (!queue.turnStarted) {
+                queue.turnStarted = true;
+                queue.deficit += queue.weight;
+            }
+            if (queue.deficit < 1) {
+                queue.turnStarted = false;
+                activeQueues.addLast(activeQueues.pollFirst());
+                continue;
+            }
+
+            queue.deficit--;
+            QueuedRequest next = queue.requests.pollFirst();
+            if (queue.requests.isEmpty()) {
+                removeQueue(queue);
+            }
+            return next;
+        }
+        return null;
+    }
+
+    private void removeQueue(ClassQueue queue) {
+        // an idle class does not keep its deficit, as in the original algorithm
+        queues.remove(queue.requestClass);
+        activeQueues.remove(queue);
+    }
+
+    private int getWeight(String requestClass) {
+        for (Map.Entry<Pattern, Integer> classWeight : weightsByClassPattern.entrySet()) {
+            if (classWeight.getKey().matcher(requestClass).matches()) {
+                return classWeight.getValue();
+            }
+        }
+        return defaultWeight;
+    }
+}
@@ -1,7 +1,9 @@
 package org.opensearch.trafficgateway.proxy.governance;
 
-import java.util.Map;
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.List;
 import lombok.Builder;
+import lombok.NonNull;
 import lombok.Value;
 import lombok.extern.jackson.Jacksonized;
 
@@ -15,10 +17,173 @@ public class GovernanceConfiguration {
     @Value
     public static class GovernanceRuleConfiguration {
         private final String ruleClass;
-        private final Map<String, Object> ruleConfig;
+        private final JsonNode ruleConfig;
+
+        /*
+         * Shadow rules never reject. They are evaluated off the event loop on shadowSampleRate (0 to 1, default 1)
+         * of the requests and their would-be rejections are logged as captured traffic.
+         */
+        private final boolean shadow;
+        private final Double shadowSampleRate;
+    }
+
+    /*
+     * A set of rules that replaces the default rules for requests from the listed users, or for requests where
+     * headerName has one of the listed headerValues (e.g. a tenant or role header).
+     */
+    @Jacksonized
+    @Builder
+    @Value
+    public static class GovernanceRuleSetConfiguration {
+        private final String name;
+        private final String[] userIds;
+        private final String headerName;
+        private final String[] headerValues;
+        private final boolean includeDefaultRules;
+        private final GovernanceRuleConfiguration[] rules;
+    }
+
+    /*
+     * Adaptive limit on the number of requests in flight to the backside. Requests over the limit wait up to
+     * maxQueueTimeMs and are then rejected with a 503. Requests whose path starts with one of priorityPathPrefixes
+     * may use the whole limit, all others only the part not covered by priorityReserveFraction.
+     */
+    @Jacksonized
+    @Builder
+    @Value
+    public static class ConcurrencyLimitConfiguration {
+        @Builder.Default
+        private final int initialLimit = 20;
+
+        @Builder.Default
+        private final int minLimit = 1;
+
+        @Builder.Default
+        private final int maxLimit = 200;
+
+        /*
+         * How much slower than the lowest recent latency a response may be before the limit starts to shrink.
+         */
+        @Builder.Default
+        private final double rttTolerance = 2.0;
+
+        @Builder.Default
+        private final double smoothing = 0.2;
+
+        @Builder.Default
+        private final long minRttWindowMs = 60_000L;
+
+        @Builder.Default
+        private final double priorityReserveFraction = 0.2;
+
+        @Builder.Default
+        private final List<String> priorityPathPrefixes = List.of("/_dashboards");
+
+        @Builder.Default
+        private final long maxQueueTimeMs = 100L;
+    }
+
+    /*
+     * Opt-in fair queueing between request classes: per user, per tenant (securitytenant header) or per endpoint such
+     * as _search or _bulk. Once maxInFlight requests are in flight, requests wait in a queue per class and classes are
+     * served in deficit round robin with the weight of the first classWeights entry matching the class, or
+     * defaultWeight. A maxInFlight of 0 follows the concurrency limit, which then has to be configured. Requests
+     * are shed with a 503 when their class already has maxQueuedPerClass requests waiting or after maxQueueTimeMs.
+     */
+    @Jacksonized
+    @Builder
+    @Value
+    public static class FairQueueingConfiguration {
+        @Builder.Default
+        private final FairRequestScheduler.ClassifyBy classifyBy = FairRequestScheduler.ClassifyBy.USER;
+
+        @Builder.Default
+        private final int defaultWeight = 1;
+
+        @Builder.Default
+        private final ClassWeightConfiguration[] classWeights = new ClassWeightConfiguration[0];
+
+        @Builder.Default
+        private final int maxInFlight = 0;
+
+        @Builder.Default
+        private final int maxQueuedPerClass = 1000;
+
+        @Builder.Default
+        private final long maxQueueTimeMs = 30_000L;
+    }
+
+    @Jacksonized
+    @Builder
+    @Value
+    public static class ClassWeightConfiguration {
+        @NonNull
+        private final String classRegex;
+
+        private final int weight;
+    }
+
+    /*
+     * Opt-in sharing of one backside request between concurrent identical requests whose path matches pathRegex.
+     * With keyByIdentity, requests are only shared between callers with the same credentials, cookies and tenant;
+     * without it, requests carrying any of these are never shared. Responses larger than maxResponseBytes are not
+     * shared and the waiting requests are sent on their own.
+     */
+    @Jacksonized
+    @Builder
+    @Value
+    public static class RequestCoalescingConfiguration {
+        @Builder.Default
+        private final boolean keyByIdentity = true;
+
+        @Builder.Default
+        private final String pathRegex = "(/[^/]+)?/_search|/_dashboards/internal/search/.*";
+
+        @Builder.Default
+        private final long maxResponseBytes = 10L * 1024 * 1024;
+    }
+
+    /*
+     * Opt-in cache of successful responses to requests whose path matches pathRegex, held off-heap and bounded by
+     * maxBytes in total and maxEntryBytes per response. Responses are cached for the ttlMs of the first indexTtls entry
+     * matching the target index, or defaultTtlMs if none matches. A TTL of 0 disables caching for those indices.
+     */
+    @Jacksonized
+    @Builder
+    @Value
+    public static class ResponseCacheConfiguration {
+        @Builder.Default
+        private final long maxBytes = 64L * 1024 * 1024;
+
+        @Builder.Default
+        private final long maxEntryBytes = 1024L * 1024;
+
+        @Builder.Default
+        private final String pathRegex = "(/[^/]+)?/_search|/_dashboards/internal/search/.*";
+
+        @Builder.Default
+        private final long defaultTtlMs = 30000L;
+
+        @Builder.Default
+        private final IndexTtlConfiguration[] indexTtls = new IndexTtlConfiguration[0];
+    }
+
+    @Jacksonized
+    @Builder
+    @Value
+    public static class IndexTtlConfiguration {
+        @NonNull
+        private final String indexRegex;
+
+        private final long ttlMs;
     }
 
     private final GovernanceRuleConfiguration[] rules;
+    private final GovernanceRuleSetConfiguration[] ruleSets;
+    private final ConcurrencyLimitConfiguration concurrencyLimit;
+    private final FairQueueingConfiguration fairQueueing;
+    private final RequestCoalescingConfiguration requestCoalescing;
+    private final ResponseCacheConfiguration responseCache;
     private final String bypassKey;
     private final boolean disableAllGovernanceRules;
 }
@@ -6,29 +6,96 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.*;
 import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import lombok.Getter;
 import lombok.extern.log4j.Log4j2;
+import org.opensearch.trafficgateway.proxy.util.DecodedRequestListener;
+import org.opensearch.trafficgateway.proxy.util.RequestIdentity;
 
 @Log4j2
-public class GovernanceHandler extends ChannelInboundHandlerAdapter {
+public class GovernanceHandler extends ChannelDuplexHandler {
     private static final String BYPASS_KEY_KEYWORD = "bypassKey";
     private static final int DEFAULT_MAX_CONTENT_LENGTH = 2147483647;
+    private static final String LOAD_SHED_MESSAGE = "The cluster is overloaded, please retry later.";
+
+    private static final GovernanceRule LOAD_SHED_RESPONDER = new GovernanceRule() {
+        @Override
+        public GovernanceRuleResult evaluate(FullHttpRequest request) {
+            return getPassResult();
+        }
+
+        @Override
+        public int getRejectResultHttpStatusCode() {
+            return HttpResponseStatus.SERVICE_UNAVAILABLE.code();
+        }
+    };
+
     private final EmbeddedChannel requestProcessingChannel;
     private final EmbeddedChannel modifiedRequestProcessingChannel;
 
     private final GovernanceRuleHandler governanceRuleHandler;
 
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final List<Object> pendingMessages = new ArrayList<>();
+    private long pendingSinceNanos;
+    private long permitAcquiredNanos;
+    private boolean permitHeld;
+    private LimiterWaiter limiterWaiter;
+
+    private final FairRequestScheduler requestScheduler;
+    private ScheduledRequest scheduledRequest;
+    private boolean scheduledPermitHeld;
+
+    private final RequestCoalescer requestCoalescer;
+    private String leadingKey;
+    private List<Object> coalescedRequestMessages;
+
+    private final ResponseCache responseCache;
+    private ResponseCache.CacheableRequest cachingRequest;
+
+    private ResponseRecorder responseRecorder;
+
     public GovernanceHandler(String bypassKey, boolean disableAllGovernanceRules, GovernanceRule... rules) {
+        this(bypassKey, disableAllGovernanceRules, GovernanceRuleDispatcher.of(rules));
+    }
+
+    public GovernanceHandler(
+            String bypassKey, boolean disableAllGovernanceRules, GovernanceRuleDispatcher ruleDispatcher) {
+        this(new GovernanceHandlerFactory(bypassKey, disableAllGovernanceRules, ruleDispatcher));
+    }
+
+    /**
+     * Handlers sharing a concurrency limiter, request scheduler, request coalescer or response cache are created
+     * through {@link GovernanceHandlerFactory#createGovernanceHandler()}, which documents each of them.
+     */
+    GovernanceHandler(GovernanceHandlerFactory options) {
+        this.concurrencyLimiter = options.getConcurrencyLimiter();
+        this.requestScheduler = options.getRequestScheduler();
+        this.requestCoalescer = options.getRequestCoalescer();
+        this.responseCache = options.getResponseCache();
         modifiedRequestProcessingChannel = new EmbeddedChannel(new HttpRequestEncoder());
         governanceRuleHandler = new GovernanceRuleHandler(
-                bypassKey, disableAllGovernanceRules, modifiedRequestProcessingChannel, rules);
+                options.getBypassKey(),
+                options.isDisableAllGovernanceRules(),
+                modifiedRequestProcessingChannel,
+                options.getRuleDispatcher(),
+                concurrencyLimiter,
+                requestScheduler,
+                requestCoalescer,
+                responseCache);
         requestProcessingChannel = new EmbeddedChannel(
                 new HttpRequestDecoder(),
                 new HttpResponseEncoder(),
@@ -39,27 +106,79 @@ public class GovernanceHandler extends ChannelInboundHandlerAdapter {
     static class GovernanceRuleHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
         private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
 
-        private final GovernanceRule[] rules;
+        private final GovernanceRuleDispatcher ruleDispatcher;
         private String bypassKey;
         private boolean disableAllGovernanceRules;
 
         @Getter
         private boolean requestRejected;
 
+        @Getter
+        private boolean priorityRequest;
+
+        private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+        @Getter
+        private String requestClass;
+
+        private final FairRequestScheduler requestScheduler;
+
+        @Getter
+        private String coalescingKey;
+
+        @Getter
+        private int decodedRequests;
+
+        private final RequestCoalescer requestCoalescer;
+
+        @Getter
+        private ResponseCache.CacheableRequest cacheableRequest;
+
+        private final ResponseCache responseCache;
+
         private final EmbeddedChannel modifiedRequestProcessingChannel;
 
+        private DecodedRequestListener decodedRequestListener;
+
+        // sampled by shadow rules, which only evaluate them once they were forwarded
+        private final List<ShadowEvaluation> shadowEvaluations = new ArrayList<>();
+
         GovernanceRuleHandler(
                 String bypassKey,
                 boolean disableAllGovernanceRules,
                 EmbeddedChannel modifiedRequestProcessingChannel,
-                GovernanceRule... rules) {
-            this.rules = rules;
+                GovernanceRuleDispatcher ruleDispatcher,
+                AdaptiveConcurrencyLimiter concurrencyLimiter,
+                FairRequestScheduler requestScheduler,
+                RequestCoalescer requestCoalescer,
+                ResponseCache responseCache) {
+            this.ruleDispatcher = ruleDispatcher;
+            this.concurrencyLimiter = concurrencyLimiter;
+            this.requestScheduler = requestScheduler;
+            this.requestCoalescer = requestCoalescer;
+            this.responseCache = responseCache;
             this.bypassKey = bypassKey;
             this.disableAllGovernanceRules = disableAllGovernanceRules;
             requestRejected = false;
             this.modifiedRequestProcessingChannel = modifiedRequestProcessingChannel;
         }
 
+        void resetDecodedRequests() {
+            decodedRequests = 0;
+            coalescingKey = null;
+            cacheableRequest = null;
+        }
+
+        void submitShadowEvaluations() {
+            shadowEvaluations.forEach(evaluation -> evaluation.rule.submit(evaluation.request));
+            shadowEvaluations.clear();
+        }
+
+        void discardShadowEvaluations() {
+            shadowEvaluations.forEach(evaluation -> evaluation.request.release());
+            shadowEvaluations.clear();
+        }
+
         protected String getRequestBypassKey(JsonNode jsonBody) {
             if (jsonBody != null && jsonBody.has(BYPASS_KEY_KEYWORD)) {
                 JsonNode bypassNode = jsonBody.get(BYPASS_KEY_KEYWORD);
@@ -90,6 +209,9 @@ public class GovernanceHandler extends ChannelInboundHandlerAdapter {
 
         @Override
         protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest msg) throws Exception {
+            priorityRequest = concurrencyLimiter != null && concurrencyLimiter.isPriority(msg);
+            requestClass = requestScheduler != null ? requestScheduler.classify(msg) : null;
+
             String requestBody = msg.content().toString(CharsetUtil.UTF_8);
             // if the content is empty string "" or null then the fromJson returns null.
             JsonNode jsonBody;
@@ -103,16 +225,40 @@ public class GovernanceHandler extends ChannelInboundHandlerAdapter {
             reformatRequestBody(jsonBody, msg);
             modifiedRequestProcessingChannel.writeOutbound(msg.retainedDuplicate());
 
-            if (disableAllGovernanceRules) {
+            boolean rulesApply =
+                    !disableAllGovernanceRules && (requestBypassKey == null || !requestBypassKey.equals(bypassKey));
+            // only extracted here if the rules need it, the listener extracts it off the event loop otherwise
+            RequestIdentity identity =
+                    rulesApply && ruleDispatcher.isKeyedByUser() ? ruleDispatcher.identify(msg) : null;
+
+            // published before the rules are evaluated, so that rejected requests are captured too
+            if (decodedRequestListener != null) {
+                decodedRequestListener.onDecodedRequest(msg, identity);
+            }
+
+            decodedRequests++;
+            coalescingKey = requestCoalescer != null ? requestCoalescer.getKey(msg, jsonBody) : null;
+            cacheableRequest = responseCache != null ? responseCache.getCacheableRequest(msg, jsonBody) : null;
+
+            if (!rulesApply) {
                 return;
             }
 
-            if (requestBypassKey != null && requestBypassKey.equals(bypassKey)) {
+            GovernanceRule[] rules = ruleDispatcher.selectRules(msg, identity);
+            if (rules.length == 0) {
                 return;
             }
 
             log.debug("Got FullHttpRequest for path: {}", () -> msg.uri());
             for (GovernanceRule rule : rules) {
+                if (rule instanceof ShadowGovernanceRule) {
+                    ShadowGovernanceRule shadowRule = (ShadowGovernanceRule) rule;
+                    if (shadowRule.isSampled()) {
+                        shadowEvaluations.add(new ShadowEvaluation(shadowRule, msg.retainedDuplicate()));
+                    }
+                    continue;
+                }
+
                 log.debug("Evaluating rule: {}", () -> rule.getClass().getSimpleName());
                 GovernanceRuleResult ruleResult = rule.evaluate(msg);
 
@@ -135,9 +281,34 @@ public class GovernanceHandler extends ChannelInboundHandlerAdapter {
         }
     }
 
+    private static final class ShadowEvaluation {
+        private final ShadowGovernanceRule rule;
+        private final FullHttpRequest request;
+
+        ShadowEvaluation(ShadowGovernanceRule rule, FullHttpRequest request) {
+            this.rule = rule;
+            this.request = request;
+        }
+    }
+
+    /*
+     * Publishes the decoded requests to the listener of the channel, if it takes them, so that they are not decoded
+     * again to be captured.
+     */
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        super.handlerAdded(ctx);
+        DecodedRequestListener listener =
+                ctx.channel().attr(DecodedRequestListener.ATTRIBUTE).get();
+        if (listener != null && listener.acceptDecodedRequests()) {
+            governanceRuleHandler.decodedRequestListener = listener;
+        }
+    }
+
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         log.atDebug().log("Received message. Sending to embedded channel for processing.");
+        governanceRuleHandler.resetDecodedRequests();
         requestProcessingChannel.writeInbound(((ByteBuf) msg).retainedDuplicate());
 
         log.debug(
@@ -154,6 +325,7 @@ public class GovernanceHandler extends ChannelInboundHandlerAdapter {
         requestProcessingChannel.releaseInbound();
 
         if (governanceRuleHandler.requestRejected) {
+            governanceRuleHandler.discardShadowEvaluations();
             log.debug("Request rejected by governance handlers, closing channel.");
             // Close channel because there may be a partially sent request sitting on the
             // target server.
@@ -161,21 +333,441 @@ public class GovernanceHandler extends ChannelInboundHandlerAdapter {
             ctx.close();
         } else {
             log.debug("Sending request to next handler.");
+            try {
+                forwardModifiedRequest(ctx);
+            } finally {
+                governanceRuleHandler.submitShadowEvaluations();
+            }
+        }
+    }
 
-            // retrieve the full request if partial is retrieved
-            if (modifiedRequestProcessingChannel.outboundMessages().isEmpty()) {
-                ctx.channel().read();
+    private void forwardModifiedRequest(ChannelHandlerContext ctx) throws Exception {
+        // retrieve the full request if partial is retrieved
+        if (modifiedRequestProcessingChannel.outboundMessages().isEmpty()) {
+            ctx.channel().read();
+        }
+        // The encoder was splitting the FullHttpRequest into two parts
+        // And we were only passing along the request content so we pass it directly
+        // from the embedded channel in order
+        List<Object> requestMessages = new ArrayList<>();
+        for (Object modifiedMsg = modifiedRequestProcessingChannel.readOutbound();
+                modifiedMsg != null;
+                modifiedMsg = modifiedRequestProcessingChannel.readOutbound()) {
+            if (modifiedMsg instanceof ByteBuf) {
+                requestMessages.add(modifiedMsg);
             }
-            // The encoder was splitting the FullHttpRequest into two parts
-            // And we were only passing along the request content so we pass it directly
-            // from the embedded channel in order
-            for (Object modifiedMsg = modifiedRequestProcessingChannel.readOutbound();
-                    modifiedMsg != null;
-                    modifiedMsg = modifiedRequestProcessingChannel.readOutbound()) {
-                if (modifiedMsg instanceof ByteBuf) {
-                    super.channelRead(ctx, modifiedMsg);
+        }
+
+        if (requestMessages.isEmpty()) {
+            return;
+        }
+        boolean singleRequestOnIdleChannel = isSingleRequestOnIdleChannel();
+        if (singleRequestOnIdleChannel
+                && (tryRespondFromCache(ctx, requestMessages) || tryFollowRequestInFlight(ctx, requestMessages))) {
+            return;
+        }
+        if (singleRequestOnIdleChannel) {
+            cachingRequest = governanceRuleHandler.getCacheableRequest();
+        }
+        forwardRequestMessages(ctx, requestMessages);
+    }
+
+    private void forwardRequestMessages(ChannelHandlerContext ctx, List<Object> requestMessages) throws Exception {
+        if (concurrencyLimiter == null && requestScheduler == null) {
+            for (Object requestMsg : requestMessages) {
+                super.channelRead(ctx, requestMsg);
+            }
+            return;
+        }
+
+        boolean alreadyQueued = !pendingMessages.isEmpty();
+        pendingMessages.addAll(requestMessages);
+        // a pipelined request waits for the response to the request in flight, which holds this channel's permits
+        if (!alreadyQueued && !permitHeld && !scheduledPermitHeld) {
+            pendingSinceNanos = System.nanoTime();
+            schedulePendingMessages(ctx);
+        }
+    }
+
+    /*
+     * Queues the request in its class queue of the fair scheduler unless this channel already holds a permit from it.
+     * Admitted requests continue to the concurrency limiter, which has its own queue time.
+     */
+    private void schedulePendingMessages(ChannelHandlerContext ctx) throws Exception {
+        if (requestScheduler == null || scheduledPermitHeld) {
+            forwardPendingMessagesWhenAdmitted(ctx);
+            return;
+        }
+
+        ScheduledRequest request = new ScheduledRequest(ctx, governanceRuleHandler.getRequestClass());
+        switch (requestScheduler.submit(request.requestClass, request)) {
+            case ADMITTED:
+                scheduledPermitHeld = true;
+                forwardPendingMessagesWhenAdmitted(ctx);
+                return;
+            case QUEUED:
+                scheduledRequest = request;
+                request.expiry = ctx.executor()
+                        .schedule(request::expire, requestScheduler.getMaxQueueTimeMs(), TimeUnit.MILLISECONDS);
+                return;
+            default:
+                log.debug("Queue of request class '{}' is full.", request.requestClass);
+                shedPendingRequest(ctx);
+        }
+    }
+
+    /*
+     * Pipelined requests only start waiting for permits of their own once the request before them was answered.
+     */
+    private void schedulePipelinedMessages(ChannelHandlerContext ctx) {
+        if (pendingMessages.isEmpty()
+                || permitHeld
+                || scheduledPermitHeld
+                || scheduledRequest != null
+                || limiterWaiter != null) {
+            return;
+        }
+
+        pendingSinceNanos = System.nanoTime();
+        try {
+            schedulePendingMessages(ctx);
+        } catch (Exception e) {
+            ctx.fireExceptionCaught(e);
+        }
+    }
+
+    private final class ScheduledRequest implements FairRequestScheduler.QueuedRequest {
+        private final ChannelHandlerContext ctx;
+        private final String requestClass;
+        private ScheduledFuture<?> expiry;
+
+        ScheduledRequest(ChannelHandlerContext ctx, String requestClass) {
+            this.ctx = ctx;
+            this.requestClass = requestClass;
+        }
+
+        @Override
+        public void admit() {
+            ctx.executor().execute(() -> {
+                if (scheduledRequest != this) {
+                    // the client went away while the permit was being handed over
+                    requestScheduler.release();
+                    return;
                 }
+
+                scheduledRequest = null;
+                expiry.cancel(false);
+                scheduledPermitHeld = true;
+                pendingSinceNanos = System.nanoTime();
+                try {
+                    forwardPendingMessagesWhenAdmitted(ctx);
+                } catch (Exception e) {
+                    ctx.fireExceptionCaught(e);
+                }
+            });
+        }
+
+        void expire() {
+            if (scheduledRequest == this && requestScheduler.cancel(requestClass, this)) {
+                scheduledRequest = null;
+                shedPendingRequest(ctx);
             }
         }
     }
+
+    /*
+     * Only a single request per read is coalesced or answered from the cache, and only while this channel has nothing
+     * else in flight, so that a shared response can never be interleaved with another response on the same
+     * connection.
+     */
+    private boolean isSingleRequestOnIdleChannel() {
+        return governanceRuleHandler.getDecodedRequests() == 1
+                && leadingKey == null
+                && cachingRequest == null
+                && responseRecorder == null
+                && coalescedRequestMessages == null
+                && pendingMessages.isEmpty();
+    }
+
+    private boolean tryRespondFromCache(ChannelHandlerContext ctx, List<Object> requestMessages) {
+        ResponseCache.CacheableRequest cacheableRequest = governanceRuleHandler.getCacheableRequest();
+        if (cacheableRequest == null) {
+            return false;
+        }
+
+        ByteBuf cachedResponse = responseCache.get(cacheableRequest.getKey());
+        if (cachedResponse == null) {
+            return false;
+        }
+
+        log.debug("Answering request from the response cache.");
+        requestMessages.forEach(ReferenceCountUtil::release);
+        ctx.pipeline().writeAndFlush(cachedResponse);
+        ctx.channel().read();
+        return true;
+    }
+
+    private boolean tryFollowRequestInFlight(ChannelHandlerContext ctx, List<Object> requestMessages) {
+        String coalescingKey = governanceRuleHandler.getCoalescingKey();
+        if (coalescingKey == null) {
+            return false;
+        }
+
+        if (requestCoalescer.join(coalescingKey, new CoalescedRequestFollower(ctx))) {
+            log.debug("Waiting for the response of an identical request in flight.");
+            coalescedRequestMessages = requestMessages;
+            return true;
+        }
+
+        leadingKey = coalescingKey;
+        return false;
+    }
+
+    private final class CoalescedRequestFollower implements RequestCoalescer.Follower {
+        private final ChannelHandlerContext ctx;
+
+        CoalescedRequestFollower(ChannelHandlerContext ctx) {
+            this.ctx = ctx;
+        }
+
+        @Override
+        public void onResponse(List<ByteBuf> responseParts) {
+            ctx.executor().execute(() -> writeCoalescedResponse(ctx, responseParts));
+        }
+
+        @Override
+        public void onAbandoned() {
+            ctx.executor().execute(() -> forwardCoalescedRequest(ctx));
+        }
+    }
+
+    private void writeCoalescedResponse(ChannelHandlerContext ctx, List<ByteBuf> responseParts) {
+        if (coalescedRequestMessages == null) {
+            // the client went away while waiting
+            responseParts.forEach(ByteBuf::release);
+            return;
+        }
+
+        coalescedRequestMessages.forEach(ReferenceCountUtil::release);
+        coalescedRequestMessages = null;
+        for (ByteBuf responsePart : responseParts) {
+            ctx.pipeline().write(responsePart);
+        }
+        ctx.pipeline().flush();
+        ctx.channel().read();
+    }
+
+    private void forwardCoalescedRequest(ChannelHandlerContext ctx) {
+        List<Object> requestMessages = coalescedRequestMessages;
+        if (requestMessages == null) {
+            return;
+        }
+
+        coalescedRequestMessages = null;
+        try {
+            forwardRequestMessages(ctx, requestMessages);
+        } catch (Exception e) {
+            ctx.fireExceptionCaught(e);
+        }
+    }
+
+    /*
+     * Holds the request until the concurrency limiter hands out a permit. Since the frontside channel does not auto
+     * read, nothing more is read from the client while the request waits. Requests that cannot get a permit within
+     * maxQueueTimeMs are shed with a 503.
+     */
+    private void forwardPendingMessagesWhenAdmitted(ChannelHandlerContext ctx) throws Exception {
+        if (pendingMessages.isEmpty() || limiterWaiter != null) {
+            return;
+        }
+
+        if (concurrencyLimiter != null && !permitHeld) {
+            boolean priority = governanceRuleHandler.isPriorityRequest();
+            long remainingMs = concurrencyLimiter.getMaxQueueTimeMs()
+                    - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pendingSinceNanos);
+            if (remainingMs <= 0) {
+                if (!concurrencyLimiter.tryAcquire(priority)) {
+                    shedPendingRequest(ctx);
+                    return;
+                }
+            } else {
+                LimiterWaiter waiter = new LimiterWaiter(ctx);
+                if (!concurrencyLimiter.tryAcquireOrWait(priority, waiter)) {
+                    limiterWaiter = waiter;
+                    waiter.expiry = ctx.executor().schedule(waiter::expire, remainingMs, TimeUnit.MILLISECONDS);
+                    return;
+                }
+            }
+            permitHeld = true;
+            permitAcquiredNanos = System.nanoTime();
+        }
+        forwardPendingMessages(ctx);
+    }
+
+    private void forwardPendingMessages(ChannelHandlerContext ctx) throws Exception {
+        List<Object> messages = new ArrayList<>(pendingMessages);
+        pendingMessages.clear();
+        for (Object msg : messages) {
+            super.channelRead(ctx, msg);
+        }
+    }
+
+    private final class LimiterWaiter implements AdaptiveConcurrencyLimiter.Waiter {
+        private final ChannelHandlerContext ctx;
+        private ScheduledFuture<?> expiry;
+
+        LimiterWaiter(ChannelHandlerContext ctx) {
+            this.ctx = ctx;
+        }
+
+        @Override
+        public void admit() {
+            ctx.executor().execute(() -> {
+                if (limiterWaiter != this) {
+                    // the client went away while the permit was being handed over
+                    concurrencyLimiter.release();
+                    return;
+                }
+
+                limiterWaiter = null;
+                expiry.cancel(false);
+                permitHeld = true;
+                permitAcquiredNanos = System.nanoTime();
+                try {
+                    forwardPendingMessages(ctx);
+                } catch (Exception e) {
+                    ctx.fireExceptionCaught(e);
+                }
+            });
+        }
+
+        void expire() {
+            if (limiterWaiter == this && concurrencyLimiter.cancel(this)) {
+                limiterWaiter = null;
+                shedPendingRequest(ctx);
+            }
+        }
+    }
+
+    private void shedPendingRequest(ChannelHandlerContext ctx) {
+        log.debug(
+                "Shedding request after waiting {}ms for a permit.",
+                () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pendingSinceNanos));
+        releasePendingMessages();
+
+        FullHttpResponse response = LOAD_SHED_RESPONDER
+                .getRejectResultWithMessage(LOAD_SHED_MESSAGE)
+                .getGovernanceRuleResponse();
+        response.headers().set(HttpHeaderNames.RETRY_AFTER, 1);
+        requestProcessingChannel.writeOutbound(response);
+        for (Object outboundMsg = requestProcessingChannel.readOutbound();
+                outboundMsg != null;
+                outboundMsg = requestProcessingChannel.readOutbound()) {
+            ctx.pipeline().write(outboundMsg);
+        }
+        ctx.pipeline().flush();
+        ctx.close();
+    }
+
+    private void releasePendingMessages() {
+        pendingMessages.forEach(ReferenceCountUtil::release);
+        pendingMessages.clear();
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        // the first response bytes written back to the client complete the request's latency sample
+        boolean permitReleased = permitHeld || scheduledPermitHeld;
+        if (permitHeld) {
+            permitHeld = false;
+            concurrencyLimiter.release(System.nanoTime() - permitAcquiredNanos);
+        }
+        if (scheduledPermitHeld) {
+            scheduledPermitHeld = false;
+            requestScheduler.release();
+        }
+        if (permitReleased && !pendingMessages.isEmpty()) {
+            ctx.executor().execute(() -> schedulePipelinedMessages(ctx));
+        }
+        if (leadingKey != null || cachingRequest != null) {
+            startRecordingResponse();
+        }
+        if (responseRecorder != null && msg instanceof ByteBuf && responseRecorder.record((ByteBuf) msg)) {
+            responseRecorder = null;
+        }
+        super.write(ctx, msg, promise);
+    }
+
+    /*
+     * Records the response of the request just forwarded once, for both the requests coalesced with it and the cache.
+     */
+    private void startRecordingResponse() {
+        List<RequestCoalescer.Follower> followers =
+                leadingKey != null ? requestCoalescer.responseStarted(leadingKey) : Collections.emptyList();
+        ResponseCache.CacheableRequest cacheableRequest = cachingRequest;
+        leadingKey = null;
+        cachingRequest = null;
+        if (followers.isEmpty() && cacheableRequest == null) {
+            return;
+        }
+
+        long maxCoalescedBytes = followers.isEmpty() ? 0 : requestCoalescer.getMaxResponseBytes();
+        long maxCachedBytes = cacheableRequest == null ? 0 : responseCache.getMaxEntryBytes();
+        responseRecorder =
+                new ResponseRecorder(Math.max(maxCoalescedBytes, maxCachedBytes), new ResponseRecorder.Listener() {
+                    @Override
+                    public void onResponse(HttpResponse response, List<ByteBuf> responseParts, long responseBytes) {
+                        if (responseBytes <= maxCoalescedBytes) {
+                            RequestCoalescer.deliver(followers, responseParts);
+                        } else {
+                            followers.forEach(RequestCoalescer.Follower::onAbandoned);
+                        }
+                        if (cacheableRequest != null) {
+                            responseCache.put(cacheableRequest, response, responseParts, responseBytes);
+                        }
+                    }
+
+                    @Override
+                    public void onAbandoned() {
+                        followers.forEach(RequestCoalescer.Follower::onAbandoned);
+                    }
+                });
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (permitHeld) {
+            permitHeld = false;
+            concurrencyLimiter.release();
+        }
+        if (scheduledPermitHeld) {
+            scheduledPermitHeld = false;
+            requestScheduler.release();
+        }
+        if (scheduledRequest != null) {
+            requestScheduler.cancel(scheduledRequest.requestClass, scheduledRequest);
+            scheduledRequest.expiry.cancel(false);
+            scheduledRequest = null;
+        }
+        if (limiterWaiter != null) {
+            concurrencyLimiter.cancel(limiterWaiter);
+            limiterWaiter.expiry.cancel(false);
+            limiterWaiter = null;
+        }
+        releasePendingMessages();
+        if (leadingKey != null) {
+            requestCoalescer.abandon(leadingKey);
+            leadingKey = null;
+        }
+        cachingRequest = null;
+        if (responseRecorder != null) {
+            responseRecorder.abandon();
+            responseRecorder = null;
+        }
+        if (coalescedRequestMessages != null) {
+            coalescedRequestMessages.forEach(ReferenceCountUtil::release);
+            coalescedRequestMessages = null;
+        }
+        super.channelInactive(ctx);
+    }
 }
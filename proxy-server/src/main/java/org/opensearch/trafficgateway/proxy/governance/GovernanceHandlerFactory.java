@@ -1,9 +1,16 @@
 package org.opensearch.trafficgateway.proxy.governance;
 
+import lombok.AccessLevel;
+import lombok.Getter;
 import lombok.Setter;
 
+/**
+ * Creates the {@link GovernanceHandler} of each connection. The concurrency limiter, request scheduler, request
+ * coalescer and response cache are shared by all handlers so that they apply to the proxy as a whole.
+ */
+@Getter(AccessLevel.PACKAGE)
 public class GovernanceHandlerFactory {
-    private GovernanceRule[] rules;
+    private GovernanceRuleDispatcher ruleDispatcher;
 
     @Setter
     private String bypassKey;
@@ -11,17 +18,49 @@ public class GovernanceHandlerFactory {
     @Setter
     private boolean disableAllGovernanceRules;
 
+    /**
+     * If set, requests are only forwarded while a permit is available. The permit is returned when the first bytes of
+     * the response are written back to the client.
+     */
+    @Setter
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    /**
+     * If set, requests wait in per-class queues for a permit before the concurrency limiter is asked for one. The
+     * permit is returned when the first bytes of the response are written.
+     */
+    @Setter
+    private FairRequestScheduler requestScheduler;
+
+    /**
+     * If set, a request identical to one already in flight waits for that request's response instead of being
+     * forwarded.
+     */
+    @Setter
+    private RequestCoalescer requestCoalescer;
+
+    /**
+     * If set, cacheable requests are answered from the cache when possible and their responses are added to it.
+     */
+    @Setter
+    private ResponseCache responseCache;
+
     public GovernanceHandlerFactory(GovernanceRule... rules) {
-        this.rules = rules;
+        this.ruleDispatcher = GovernanceRuleDispatcher.of(rules);
     }
 
     public GovernanceHandlerFactory(String bypassKey, boolean disableAllGovernanceRules, GovernanceRule... rules) {
+        this(bypassKey, disableAllGovernanceRules, GovernanceRuleDispatcher.of(rules));
+    }
+
+    public GovernanceHandlerFactory(
+            String bypassKey, boolean disableAllGovernanceRules, GovernanceRuleDispatcher ruleDispatcher) {
         this.bypassKey = bypassKey;
         this.disableAllGovernanceRules = disableAllGovernanceRules;
-        this.rules = rules;
+        this.ruleDispatcher = ruleDispatcher;
     }
 
     public GovernanceHandler createGovernanceHandler() {
-        return new GovernanceHandler(this.bypassKey, this.disableAllGovernanceRules, this.rules);
+        return new GovernanceHandler(this);
     }
 }
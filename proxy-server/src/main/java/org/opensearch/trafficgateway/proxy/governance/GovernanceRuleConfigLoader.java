@@ -1,18 +1,33 @@
 package org.opensearch.trafficgateway.proxy.governance;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.BufferedReader;
 import java.io.FileReader;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Parameter;
 import java.util.Collections;
-import java.util.List;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntSupplier;
 import java.util.stream.Stream;
 import lombok.Getter;
 import lombok.SneakyThrows;
 import lombok.extern.log4j.Log4j2;
-import net.shibboleth.utilities.java.support.security.KeyNotFoundException;
+import org.opensearch.trafficgateway.proxy.governance.GovernanceConfiguration.ClassWeightConfiguration;
+import org.opensearch.trafficgateway.proxy.governance.GovernanceConfiguration.ConcurrencyLimitConfiguration;
+import org.opensearch.trafficgateway.proxy.governance.GovernanceConfiguration.FairQueueingConfiguration;
 import org.opensearch.trafficgateway.proxy.governance.GovernanceConfiguration.GovernanceRuleConfiguration;
+import org.opensearch.trafficgateway.proxy.governance.GovernanceConfiguration.GovernanceRuleSetConfiguration;
+import org.opensearch.trafficgateway.proxy.governance.GovernanceConfiguration.IndexTtlConfiguration;
+import org.opensearch.trafficgateway.proxy.governance.GovernanceConfiguration.RequestCoalescingConfiguration;
+import org.opensearch.trafficgateway.proxy.governance.GovernanceConfiguration.ResponseCacheConfiguration;
+import org.opensearch.trafficgateway.proxy.util.UserIdExtractor;
 
 @Log4j2
 public class GovernanceRuleConfigLoader {
@@ -25,6 +40,12 @@ public class GovernanceRuleConfigLoader {
     @Getter(lazy = true)
     private final GovernanceConfiguration governanceConfig = parseGovernanceConfig();
 
+    @Getter(lazy = true)
+    private final Map<String, GovernanceRuleFactory<?>> ruleFactories = loadRuleFactories();
+
+    @Getter(lazy = true)
+    private final ExecutorService shadowRuleExecutor = ShadowGovernanceRule.newDefaultExecutor();
+
     @SneakyThrows
     private GovernanceConfiguration parseGovernanceConfig() {
         try (BufferedReader configFileReader =
@@ -33,8 +54,37 @@ public class GovernanceRuleConfigLoader {
         }
     }
 
+    private static Map<String, GovernanceRuleFactory<?>> loadRuleFactories() {
+        Map<String, GovernanceRuleFactory<?>> factories = new TreeMap<>();
+        @SuppressWarnings("rawtypes")
+        ServiceLoader<GovernanceRuleFactory> loader = ServiceLoader.load(GovernanceRuleFactory.class);
+        for (GovernanceRuleFactory<?> factory : loader) {
+            String ruleClassName = factory.getRuleClass().getName();
+            GovernanceRuleFactory<?> existing = factories.putIfAbsent(ruleClassName, factory);
+            if (existing != null) {
+                throw new IllegalStateException("Multiple GovernanceRuleFactory implementations found for rule class "
+                        + ruleClassName + ": " + existing.getClass().getName() + " and "
+                        + factory.getClass().getName());
+            }
+            log.debug(
+                    "Registered {} for rule class {}", () -> factory.getClass().getName(), () -> ruleClassName);
+        }
+
+        return Collections.unmodifiableMap(factories);
+    }
+
     public GovernanceRule[] getRules() {
-        GovernanceRule[] rules = Stream.of(getGovernanceConfig().getRules())
+        return instantiateRules(getGovernanceConfig().getRules());
+    }
+
+    private GovernanceRule[] instantiateRules(GovernanceRuleConfiguration[] ruleConfigs) {
+        if (ruleConfigs == null) {
+            return new GovernanceRule[0];
+        }
+
+        // shadow rules always pass, so evaluate them last and only for requests the enforced rules let through.
+        GovernanceRule[] rules = Stream.of(ruleConfigs)
+                .sorted(Comparator.comparing(GovernanceRuleConfiguration::isShadow))
                 .map(ruleConfig -> {
                     log.info(ruleConfig.getRuleClass());
                     return instantiateRule(ruleConfig);
@@ -43,6 +93,151 @@ public class GovernanceRuleConfigLoader {
         return rules;
     }
 
+    public GovernanceRuleDispatcher getRuleDispatcher(UserIdExtractor userIdExtractor) {
+        GovernanceRule[] defaultRules = getRules();
+        GovernanceRuleSetConfiguration[] ruleSetConfigs = getGovernanceConfig().getRuleSets();
+        if (ruleSetConfigs == null || ruleSetConfigs.length == 0) {
+            return GovernanceRuleDispatcher.of(defaultRules);
+        }
+
+        Map<String, GovernanceRule[]> rulesByUserId = new HashMap<>();
+        Map<String, Map<String, GovernanceRule[]>> rulesByHeaderValue = new LinkedHashMap<>();
+        for (GovernanceRuleSetConfiguration ruleSetConfig : ruleSetConfigs) {
+            String ruleSetName = ruleSetConfig.getName() != null ? ruleSetConfig.getName() : "<unnamed>";
+            log.info("Loading rule set: {}", ruleSetName);
+
+            GovernanceRule[] ruleSetRules = instantiateRules(ruleSetConfig.getRules());
+            if (ruleSetConfig.isIncludeDefaultRules()) {
+                ruleSetRules = Stream.concat(Stream.of(defaultRules), Stream.of(ruleSetRules))
+                        .toArray(GovernanceRule[]::new);
+            }
+
+            boolean keyedByUser = ruleSetConfig.getUserIds() != null;
+            boolean keyedByHeader = ruleSetConfig.getHeaderName() != null;
+            if (keyedByUser == keyedByHeader) {
+                throw new IllegalArgumentException(
+                        "Rule set '" + ruleSetName + "' must specify either userIds or headerName/headerValues.");
+            }
+
+            if (keyedByUser) {
+                putRuleSet(rulesByUserId, ruleSetConfig.getUserIds(), ruleSetRules, ruleSetName);
+            } else {
+                if (ruleSetConfig.getHeaderValues() == null) {
+                    throw new IllegalArgumentException("Rule set '" + ruleSetName + "' must specify headerValues.");
+                }
+                Map<String, GovernanceRule[]> headerTable = rulesByHeaderValue.computeIfAbsent(
+                        ruleSetConfig.getHeaderName().toLowerCase(Locale.ROOT), h -> new HashMap<>());
+                putRuleSet(headerTable, ruleSetConfig.getHeaderValues(), ruleSetRules, ruleSetName);
+            }
+        }
+
+        return new GovernanceRuleDispatcher(defaultRules, rulesByUserId, rulesByHeaderValue, userIdExtractor);
+    }
+
+    private static void putRuleSet(
+            Map<String, GovernanceRule[]> table, String[] keys, GovernanceRule[] rules, String ruleSetName) {
+        for (String key : keys) {
+            if (table.putIfAbsent(key, rules) != null) {
+                throw new IllegalArgumentException(
+                        "'" + key + "' in rule set '" + ruleSetName + "' is already assigned to another rule set.");
+            }
+        }
+    }
+
+    /**
+     * @return a limiter for requests in flight to the backside, or null if no concurrency limit is configured.
+     */
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        ConcurrencyLimitConfiguration limitConfig = getGovernanceConfig().getConcurrencyLimit();
+        if (limitConfig == null) {
+            return null;
+        }
+
+        return new AdaptiveConcurrencyLimiter(
+                limitConfig.getInitialLimit(),
+                limitConfig.getMinLimit(),
+                limitConfig.getMaxLimit(),
+                limitConfig.getRttTolerance(),
+                limitConfig.getSmoothing(),
+                limitConfig.getMinRttWindowMs(),
+                limitConfig.getPriorityReserveFraction(),
+                limitConfig.getPriorityPathPrefixes(),
+                limitConfig.getMaxQueueTimeMs());
+    }
+
+    /**
+     * @param concurrencyLimiter the limiter whose limit bounds the requests in flight if fair queueing does not set
+     *     its own bound, may be null.
+     * @return a scheduler queueing requests fairly between classes, or null if fair queueing is not configured.
+     */
+    public FairRequestScheduler getRequestScheduler(
+            AdaptiveConcurrencyLimiter concurrencyLimiter, UserIdExtractor userIdExtractor) {
+        FairQueueingConfiguration queueingConfig = getGovernanceConfig().getFairQueueing();
+        if (queueingConfig == null) {
+            return null;
+        }
+
+        IntSupplier maxInFlight;
+        if (queueingConfig.getMaxInFlight() > 0) {
+            int configuredMaxInFlight = queueingConfig.getMaxInFlight();
+            maxInFlight = () -> configuredMaxInFlight;
+        } else if (concurrencyLimiter != null) {
+            maxInFlight = () -> (int) concurrencyLimiter.getLimit();
+        } else {
+            throw new IllegalArgumentException(
+                    "fairQueueing.maxInFlight must be set when no concurrencyLimit is configured.");
+        }
+
+        Map<String, Integer> weightsByClassRegex = new LinkedHashMap<>();
+        for (ClassWeightConfiguration classWeight : queueingConfig.getClassWeights()) {
+            weightsByClassRegex.putIfAbsent(classWeight.getClassRegex(), classWeight.getWeight());
+        }
+        return new FairRequestScheduler(
+                queueingConfig.getClassifyBy(),
+                weightsByClassRegex,
+                queueingConfig.getDefaultWeight(),
+                maxInFlight,
+                queueingConfig.getMaxQueuedPerClass(),
+                queueingConfig.getMaxQueueTimeMs(),
+                userIdExtractor);
+    }
+
+    /**
+     * @return a coalescer for identical concurrent requests, or null if request coalescing is not configured.
+     */
+    public RequestCoalescer getRequestCoalescer() {
+        RequestCoalescingConfiguration coalescingConfig = getGovernanceConfig().getRequestCoalescing();
+        if (coalescingConfig == null) {
+            return null;
+        }
+
+        return new RequestCoalescer(
+                coalescingConfig.isKeyByIdentity(),
+                coalescingConfig.getPathRegex(),
+                coalescingConfig.getMaxResponseBytes());
+    }
+
+    /**
+     * @return a response cache, or null if response caching is not configured.
+     */
+    public ResponseCache getResponseCache() {
+        ResponseCacheConfiguration cacheConfig = getGovernanceConfig().getResponseCache();
+        if (cacheConfig == null) {
+            return null;
+        }
+
+        Map<String, Long> ttlMsByIndexRegex = new LinkedHashMap<>();
+        for (IndexTtlConfiguration indexTtl : cacheConfig.getIndexTtls()) {
+            ttlMsByIndexRegex.putIfAbsent(indexTtl.getIndexRegex(), indexTtl.getTtlMs());
+        }
+        return new ResponseCache(
+                cacheConfig.getMaxBytes(),
+                cacheConfig.getMaxEntryBytes(),
+                cacheConfig.getPathRegex(),
+                cacheConfig.getDefaultTtlMs(),
+                ttlMsByIndexRegex);
+    }
+
     public String getBypassKey() {
         return getGovernanceConfig().getBypassKey();
     }
@@ -51,44 +246,38 @@ public class GovernanceRuleConfigLoader {
         return getGovernanceConfig().isDisableAllGovernanceRules();
     }
 
-    @SneakyThrows
     public GovernanceRule instantiateRule(GovernanceRuleConfiguration ruleConfig) {
-        @SuppressWarnings("unchecked")
-        Class<? extends GovernanceRule> ruleClass =
-                (Class<? extends GovernanceRule>) Class.forName(ruleConfig.getRuleClass());
-
-        int numParameters = ruleConfig.getRuleConfig().size();
-        List<Class<String>> constructorTypes = Collections.nCopies(numParameters, String.class);
-
-        Constructor<? extends GovernanceRule> ruleConstructor;
-        try {
-            ruleConstructor = ruleClass.getDeclaredConstructor(constructorTypes.toArray(Class<?>[]::new));
-        } catch (NoSuchMethodException e) {
-            log.error(
-                    () -> ruleClass.getName() + " does not contain a constructor that takes " + numParameters
-                            + " arguments.",
-                    e);
-            throw e;
+        GovernanceRuleFactory<?> factory = getRuleFactories().get(ruleConfig.getRuleClass());
+        if (factory == null) {
+            throw new IllegalArgumentException("No GovernanceRuleFactory found for rule class '"
+                    + ruleConfig.getRuleClass() + "'. Available rule classes: "
+                    + getRuleFactories().keySet());
         }
 
-        String[] params = new String[numParameters];
-        for (int i = 0; i < numParameters; i++) {
-            Parameter param = ruleConstructor.getParameters()[i];
+        GovernanceRule rule = createRule(factory, ruleConfig);
+        if (!ruleConfig.isShadow()) {
+            return rule;
+        }
 
-            if (!param.isNamePresent()) {
-                throw new IllegalStateException("All constructor parameters must have names");
-            }
+        double sampleRate = ruleConfig.getShadowSampleRate() != null ? ruleConfig.getShadowSampleRate() : 1.0;
+        log.info("Running {} in shadow mode with sample rate {}", ruleConfig.getRuleClass(), sampleRate);
+        return new ShadowGovernanceRule(rule, sampleRate, getShadowRuleExecutor());
+    }
 
-            if (!ruleConfig.getRuleConfig().containsKey(param.getName())) {
-                throw new KeyNotFoundException("No argument found in rule config for parameter: " + param.getName());
-            }
+    private static <C> GovernanceRule createRule(
+            GovernanceRuleFactory<C> factory, GovernanceRuleConfiguration ruleConfig) {
+        JsonNode configNode =
+                ruleConfig.getRuleConfig() != null ? ruleConfig.getRuleConfig() : JSON_MAPPER.createObjectNode();
 
-            Object paramValue = ruleConfig.getRuleConfig().get(param.getName());
-            params[i] = paramValue instanceof String ? (String) paramValue : JSON_MAPPER.writeValueAsString(paramValue);
+        C config;
+        try {
+            config = JSON_MAPPER.treeToValue(configNode, factory.getConfigClass());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(
+                    "Invalid ruleConfig for rule class '" + ruleConfig.getRuleClass() + "': " + e.getOriginalMessage(),
+                    e);
         }
 
-        GovernanceRule rule = ruleConstructor.newInstance((Object[]) params);
-
-        return rule;
+        return factory.createRule(config);
     }
 }
@@ -0,0 +1,92 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import io.netty.handler.codec.http.FullHttpRequest;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.extern.log4j.Log4j2;
+import org.opensearch.trafficgateway.proxy.util.RequestIdentity;
+import org.opensearch.trafficgateway.proxy.util.UserIdExtractor;
+
+/**
+ * Lookup table from request identity to the rules that apply to it.
+ *
+ * <p>Rule sets are resolved once at load time, so selecting the rules for a request is at most one map lookup per
+ * key source: the userId first, then each configured header in the order the rule sets were declared. Requests
+ * matching no rule set get the default rules. The user id is only extracted when at least one rule set is keyed by
+ * user.
+ */
+@Log4j2
+public class GovernanceRuleDispatcher {
+    private static final GovernanceRule[] NO_RULES = new GovernanceRule[0];
+
+    private final GovernanceRule[] defaultRules;
+    private final Map<String, GovernanceRule[]> rulesByUserId;
+    private final Map<String, Map<String, GovernanceRule[]>> rulesByHeaderValue;
+    private final UserIdExtractor userIdExtractor;
+
+    public GovernanceRuleDispatcher(
+            GovernanceRule[] defaultRules,
+            Map<String, GovernanceRule[]> rulesByUserId,
+            Map<String, Map<String, GovernanceRule[]>> rulesByHeaderValue,
+            UserIdExtractor userIdExtractor) {
+        this.defaultRules = defaultRules != null ? defaultRules : NO_RULES;
+        this.rulesByUserId = Map.copyOf(rulesByUserId);
+        this.rulesByHeaderValue = Collections.unmodifiableMap(new LinkedHashMap<>(rulesByHeaderValue));
+        this.userIdExtractor = userIdExtractor;
+    }
+
+    public static GovernanceRuleDispatcher of(GovernanceRule... rules) {
+        return new GovernanceRuleDispatcher(rules, Map.of(), Map.of(), null);
+    }
+
+    /**
+     * Extracts who sent {@code request}, null if this dispatcher has no {@link UserIdExtractor}.
+     */
+    public RequestIdentity identify(FullHttpRequest request) {
+        if (userIdExtractor == null) {
+            return null;
+        }
+        return new RequestIdentity(userIdExtractor.extractUserId(request), userIdExtractor.extractUserToken(request));
+    }
+
+    /**
+     * Whether selecting the rules for a request needs its identity.
+     */
+    public boolean isKeyedByUser() {
+        return !rulesByUserId.isEmpty();
+    }
+
+    public GovernanceRule[] selectRules(FullHttpRequest request) {
+        return selectRules(request, null);
+    }
+
+    /**
+     * @param identity the identity of {@code request} if it was already extracted, null to extract it if needed.
+     */
+    public GovernanceRule[] selectRules(FullHttpRequest request, RequestIdentity identity) {
+        if (!rulesByUserId.isEmpty()) {
+            String userId = identity != null ? identity.getUserId() : userIdExtractor.extractUserId(request);
+            if (userId != null) {
+                GovernanceRule[] userRules = rulesByUserId.get(userId);
+                if (userRules != null) {
+                    log.debug("Selected rule set for userId: {}", userId);
+                    return userRules;
+                }
+            }
+        }
+
+        for (Map.Entry<String, Map<String, GovernanceRule[]>> headerTable : rulesByHeaderValue.entrySet()) {
+            String headerValue = request.headers().get(headerTable.getKey());
+            if (headerValue != null) {
+                GovernanceRule[] headerRules = headerTable.getValue().get(headerValue);
+                if (headerRules != null) {
+                    log.debug("Selected rule set for header {}: {}", headerTable.getKey(), headerValue);
+                    return headerRules;
+                }
+            }
+        }
+
+        return defaultRules;
+    }
+}
@@ -0,0 +1,23 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+/**
+ * Service provider interface used to create {@link GovernanceRule}s from the governance configuration.
+ *
+ * <p>Implementations are discovered with {@link java.util.ServiceLoader}, so rules shipped in separate jars only
+ * need a {@code META-INF/services/org.opensearch.trafficgateway.proxy.governance.GovernanceRuleFactory} entry. The
+ * {@code ruleConfig} of a rule is bound directly to {@link #getConfigClass()} with Jackson before being handed to
+ * {@link #createRule(Object)}.
+ *
+ * @param <C> the typed configuration of the rule.
+ */
+public interface GovernanceRuleFactory<C> {
+    /**
+     * @return the rule class created by this factory. Its fully qualified name is matched against the
+     *     {@code ruleClass} of the configuration.
+     */
+    Class<? extends GovernanceRule> getRuleClass();
+
+    Class<C> getConfigClass();
+
+    GovernanceRule createRule(C config);
+}
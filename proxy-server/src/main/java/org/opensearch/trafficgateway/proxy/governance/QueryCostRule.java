@@ -0,0 +1,274 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+import lombok.Value;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.jackson.Jacksonized;
+import lombok.extern.log4j.Log4j2;
+import org.opensearch.trafficgateway.proxy.offload.TrafficAggregatingLogOffloader;
+
+/**
+ * Estimates the cost of a search from its body alone and rejects (or only logs) searches above {@code maxCost}. The
+ * estimate adds up deep paging, aggregations weighted by the number of buckets their parents fan out to, bool clauses,
+ * leading wildcards, regexps and scripts. The body is walked once.
+ */
+@Log4j2
+@Getter
+@EqualsAndHashCode(callSuper = true)
+@ToString
+@FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
+public class QueryCostRule extends BaseSearchGovernanceRule {
+    public static final String QUERY_COST_RECORD_TYPE = "QUERY_COST";
+
+    private static final int DEFAULT_SEARCH_SIZE = 10;
+    private static final int DEFAULT_TERMS_SIZE = 10;
+    private static final Set<String> AGGREGATIONS_KEYWORDS = Set.of("aggs", "aggregations");
+    private static final Set<String> BOOL_CLAUSE_KEYWORDS = Set.of("must", "should", "filter", "must_not");
+    private static final Set<String> SIZED_BUCKET_AGGREGATIONS =
+            Set.of("terms", "significant_terms", "significant_text", "rare_terms", "multi_terms", "composite");
+    private static final Set<String> HISTOGRAM_AGGREGATIONS = Set.of(
+            "histogram",
+            "date_histogram",
+            "auto_date_histogram",
+            "variable_width_histogram",
+            "geohash_grid",
+            "geotile_grid");
+    private static final Set<String> RANGE_AGGREGATIONS = Set.of("range", "date_range", "ip_range");
+    private static final Pattern LEADING_WILDCARD_IN_QUERY_STRING = Pattern.compile("(^|[\\s(:])[*?]");
+
+    /*
+     * Weights of the cost components. The defaults put a 10k deep page, a 10k bucket terms aggregation or twenty
+     * leading wildcards at roughly the same cost.
+     */
+    @Jacksonized
+    @Builder
+    @Value
+    public static class CostWeights {
+        @Builder.Default
+        double perDocument = 0.01;
+
+        @Builder.Default
+        double perBoolClause = 1;
+
+        @Builder.Default
+        double perAggregation = 1;
+
+        @Builder.Default
+        double perBucket = 0.01;
+
+        @Builder.Default
+        double perLeadingWildcard = 5;
+
+        @Builder.Default
+        double perRegexp = 5;
+
+        @Builder.Default
+        double perScript = 10;
+
+        /*
+         * Bucket count assumed for histogram-like aggregations, whose bucket count depends on the data.
+         */
+        @Builder.Default
+        int histogramBuckets = 100;
+    }
+
+    @Value
+    public static class QueryCostRecord {
+        String recordType;
+        long timestamp;
+        String method;
+        String path;
+        String index;
+        double cost;
+        double maxCost;
+    }
+
+    double maxCost;
+
+    boolean rejectAboveMaxCost;
+
+    @NonNull
+    CostWeights weights;
+
+    String responseMessage;
+
+    public QueryCostRule(
+            @NonNull String indexRegex,
+            double maxCost,
+            boolean rejectAboveMaxCost,
+            @NonNull CostWeights weights,
+            String responseMessage) {
+        super(indexRegex);
+        this.maxCost = maxCost;
+        this.rejectAboveMaxCost = rejectAboveMaxCost;
+        this.weights = weights;
+        if (responseMessage != null) {
+            this.responseMessage = responseMessage;
+        } else {
+            this.responseMessage = "The estimated cost of the search exceeds the maximum cost of " + maxCost + ".";
+        }
+    }
+
+    @Override
+    public GovernanceRuleResult evaluate(FullHttpRequest request) {
+        ParsedSearchRequest searchRequest = tryParseSearchRequest(request);
+
+        if (searchRequest == null || !requestMatchesIndex(searchRequest)) {
+            return getPassResult();
+        }
+
+        double cost = estimateCost(searchRequest.getSearchBody());
+        if (cost <= maxCost) {
+            return getPassResult();
+        }
+
+        if (rejectAboveMaxCost) {
+            return getRejectResultWithMessage(getResponseMessage());
+        }
+
+        log.always()
+                .withMarker(TrafficAggregatingLogOffloader.CAPTURED_TRAFFIC_MARKER)
+                .log(new QueryCostRecord(
+                        QUERY_COST_RECORD_TYPE,
+                        Instant.now().toEpochMilli(),
+                        request.method().toString(),
+                        new QueryStringDecoder(request.uri()).path(),
+                        searchRequest.getIndex(),
+                        cost,
+                        maxCost));
+        return getPassResult();
+    }
+
+    double estimateCost(JsonNode searchBody) {
+        if (searchBody == null || !searchBody.isObject()) {
+            return 0;
+        }
+
+        // added as doubles so that deep pages near Long.MAX_VALUE cannot overflow to a negative, free cost
+        long from = searchBody.path("from").asLong(0);
+        long size = searchBody.path("size").asLong(DEFAULT_SEARCH_SIZE);
+        return weights.getPerDocument() * Math.max(0, (double) from + size) + walk(searchBody, 1);
+    }
+
+    /*
+     * multiplier is the number of buckets the enclosing aggregations fan out to, since every sub-aggregation and
+     * every query inside one runs once per parent bucket.
+     */
+    private double walk(JsonNode node, double multiplier) {
+        double cost = 0;
+        if (node.isArray()) {
+            for (JsonNode element : node) {
+                cost += walk(element, multiplier);
+            }
+            return cost;
+        }
+        if (!node.isObject()) {
+            return 0;
+        }
+
+        for (Iterator<Map.Entry<String, JsonNode>> it = node.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = it.next();
+            String name = field.getKey();
+            JsonNode value = field.getValue();
+
+            if (AGGREGATIONS_KEYWORDS.contains(name)) {
+                for (JsonNode aggregation : value) {
+                    cost += walkAggregation(aggregation, multiplier);
+                }
+            } else if (name.equals("script")) {
+                cost += weights.getPerScript() * multiplier;
+            } else if (name.equals("regexp")) {
+                cost += weights.getPerRegexp() * multiplier;
+            } else if (name.equals("wildcard")) {
+                if (hasLeadingWildcard(value)) {
+                    cost += weights.getPerLeadingWildcard() * multiplier;
+                }
+            } else if (name.equals("query_string") || name.equals("simple_query_string")) {
+                String query = value.path("query").asText("");
+                if (LEADING_WILDCARD_IN_QUERY_STRING.matcher(query).find()) {
+                    cost += weights.getPerLeadingWildcard() * multiplier;
+                }
+            } else if (name.equals("bool")) {
+                for (String clause : BOOL_CLAUSE_KEYWORDS) {
+                    JsonNode clauses = value.get(clause);
+                    if (clauses != null) {
+                        cost += weights.getPerBoolClause() * multiplier * (clauses.isArray() ? clauses.size() : 1);
+                    }
+                }
+                cost += walk(value, multiplier);
+            } else {
+                cost += walk(value, multiplier);
+            }
+        }
+
+        return cost;
+    }
+
+    private double walkAggregation(JsonNode aggregation, double multiplier) {
+        double cost = weights.getPerAggregation() * multiplier;
+        double buckets = 1;
+        JsonNode subAggregations = null;
+
+        for (Iterator<Map.Entry<String, JsonNode>> it = aggregation.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = it.next();
+            if (AGGREGATIONS_KEYWORDS.contains(field.getKey())) {
+                subAggregations = field.getValue();
+            } else if (!field.getKey().equals("meta")) {
+                buckets = Math.max(buckets, estimateBuckets(field.getKey(), field.getValue()));
+                cost += walk(field.getValue(), multiplier);
+            }
+        }
+
+        cost += weights.getPerBucket() * buckets * multiplier;
+        if (subAggregations != null) {
+            for (JsonNode subAggregation : subAggregations) {
+                cost += walkAggregation(subAggregation, multiplier * buckets);
+            }
+        }
+
+        return cost;
+    }
+
+    private double estimateBuckets(String type, JsonNode parameters) {
+        if (SIZED_BUCKET_AGGREGATIONS.contains(type)) {
+            return parameters.path("size").asInt(DEFAULT_TERMS_SIZE);
+        }
+        if (HISTOGRAM_AGGREGATIONS.contains(type)) {
+            return parameters.path("buckets").asInt(weights.getHistogramBuckets());
+        }
+        if (RANGE_AGGREGATIONS.contains(type)) {
+            return Math.max(1, parameters.path("ranges").size());
+        }
+        if (type.equals("filters")) {
+            return Math.max(1, parameters.path("filters").size());
+        }
+        return 1;
+    }
+
+    private static boolean hasLeadingWildcard(JsonNode wildcardQuery) {
+        for (JsonNode fieldQuery : wildcardQuery) {
+            String pattern = fieldQuery.isTextual()
+                    ? fieldQuery.asText()
+                    : fieldQuery.has("value")
+                            ? fieldQuery.path("value").asText("")
+                            : fieldQuery.path("wildcard").asText("");
+            if (pattern.startsWith("*") || pattern.startsWith("?")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
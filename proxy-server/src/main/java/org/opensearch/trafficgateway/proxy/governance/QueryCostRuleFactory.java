@@ -0,0 +1,51 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+public class QueryCostRuleFactory implements GovernanceRuleFactory<QueryCostRuleFactory.Config> {
+
+    @Jacksonized
+    @Builder
+    @Value
+    public static class Config {
+        @NonNull
+        String indexRegex;
+
+        @NonNull
+        Double maxCost;
+
+        /*
+         * When false, searches above maxCost are let through and logged as captured traffic instead.
+         */
+        @Builder.Default
+        boolean rejectAboveMaxCost = true;
+
+        @Builder.Default
+        QueryCostRule.CostWeights weights = QueryCostRule.CostWeights.builder().build();
+
+        String responseMessage;
+    }
+
+    @Override
+    public Class<? extends GovernanceRule> getRuleClass() {
+        return QueryCostRule.class;
+    }
+
+    @Override
+    public Class<Config> getConfigClass() {
+        return Config.class;
+    }
+
+    @Override
+    public GovernanceRule createRule(Config config) {
+        return new QueryCostRule(
+                config.getIndexRegex(),
+                config.getMaxCost(),
+                config.isRejectAboveMaxCost(),
+                config.getWeights(),
+                config.getResponseMessage());
+    }
+}
@@ -0,0 +1,253 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+import lombok.experimental.FieldDefaults;
+import org.opensearch.trafficgateway.proxy.util.UserIdExtractor;
+
+/**
+ * Limits the request rate per user, per target index or per user and index pair. Each key gets a token bucket
+ * holding up to {@code burst} requests that refills at {@code requestsPerSecond}. Rejected requests receive a 429
+ * with a {@code Retry-After} header.
+ *
+ * <p>Buckets are kept in a {@link ConcurrentHashMap} and updated with a single compare-and-set, so worker event loops
+ * never block on each other. Buckets that have fully refilled carry no state and are evicted periodically.
+ */
+@Getter
+@ToString
+@FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
+public class RateLimitRule implements GovernanceRule {
+    private static final String DEFAULT_RESPONSE_MESSAGE = "Too many requests, please retry later.";
+    private static final String KEY_SEPARATOR = "\u0000";
+
+    public enum KeyType {
+        USER,
+        INDEX,
+        USER_AND_INDEX
+    }
+
+    @NonNull
+    KeyType keyType;
+
+    double requestsPerSecond;
+
+    long burst;
+
+    Pattern indexRegexPattern;
+
+    String responseMessage;
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    UserIdExtractor userIdExtractor;
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    LongSupplier nanoClock;
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    long emissionIntervalNanos;
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    long burstToleranceNanos;
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    long evictionIntervalNanos;
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    AtomicLong nextEvictionNanos;
+
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public RateLimitRule(
+            @NonNull KeyType keyType,
+            double requestsPerSecond,
+            long burst,
+            String indexRegex,
+            long evictionIntervalMs,
+            @NonNull UserIdExtractor userIdExtractor,
+            String responseMessage) {
+        this(
+                keyType,
+                requestsPerSecond,
+                burst,
+                indexRegex,
+                evictionIntervalMs,
+                userIdExtractor,
+                responseMessage,
+                System::nanoTime);
+    }
+
+    RateLimitRule(
+            @NonNull KeyType keyType,
+            double requestsPerSecond,
+            long burst,
+            String indexRegex,
+            long evictionIntervalMs,
+            @NonNull UserIdExtractor userIdExtractor,
+            String responseMessage,
+            @NonNull LongSupplier nanoClock) {
+        if (!(requestsPerSecond > 0)) {
+            throw new IllegalArgumentException("requestsPerSecond must be positive, got: " + requestsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1, got: " + burst);
+        }
+        if (evictionIntervalMs <= 0) {
+            throw new IllegalArgumentException("evictionIntervalMs must be positive, got: " + evictionIntervalMs);
+        }
+
+        this.keyType = keyType;
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.indexRegexPattern = indexRegex != null ? Pattern.compile(indexRegex) : null;
+        this.userIdExtractor = userIdExtractor;
+        this.responseMessage = responseMessage != null ? responseMessage : DEFAULT_RESPONSE_MESSAGE;
+        this.nanoClock = nanoClock;
+
+        this.emissionIntervalNanos = Math.max(1L, Math.round(TimeUnit.SECONDS.toNanos(1) / requestsPerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.evictionIntervalNanos = TimeUnit.MILLISECONDS.toNanos(evictionIntervalMs);
+        this.nextEvictionNanos = new AtomicLong(nanoClock.getAsLong() + evictionIntervalNanos);
+    }
+
+    @Override
+    public int getRejectResultHttpStatusCode() {
+        return HttpResponseStatus.TOO_MANY_REQUESTS.code();
+    }
+
+    @Override
+    public GovernanceRuleResult evaluate(FullHttpRequest request) {
+        String key = getKey(request);
+        if (key == null) {
+            return getPassResult();
+        }
+
+        long now = nanoClock.getAsLong();
+        evictIdleBuckets(now);
+
+        long waitNanos = tryAcquire(buckets.computeIfAbsent(key, k -> new AtomicLong(now)), now);
+        if (waitNanos == 0) {
+            return getPassResult();
+        }
+
+        GovernanceRuleResult result = getRejectResultWithMessage(responseMessage);
+        long retryAfterSeconds =
+                Math.max(1L, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        result.getGovernanceRuleResponse().headers().set(HttpHeaderNames.RETRY_AFTER, retryAfterSeconds);
+        return result;
+    }
+
+    int getTrackedKeyCount() {
+        return buckets.size();
+    }
+
+    /*
+     * Generic cell rate algorithm: the bucket only stores the time at which it will be full again. A request is
+     * admitted if that time is at most the burst tolerance ahead of now, and pushes it one emission interval further.
+     * Returns 0 when admitted, otherwise how long to wait until the next request would be admitted.
+     */
+    private long tryAcquire(AtomicLong theoreticalArrival, long now) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long start = Math.max(current, now);
+            long waitNanos = start - burstToleranceNanos - now;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrival.compareAndSet(current, start + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /*
+     * A bucket whose theoretical arrival time has passed is full, which is the same state a new bucket starts in, so it
+     * can be dropped without changing any decision. Only the thread that wins the CAS does the sweep.
+     */
+    private void evictIdleBuckets(long now) {
+        long nextEviction = nextEvictionNanos.get();
+        if (now - nextEviction < 0 || !nextEvictionNanos.compareAndSet(nextEviction, now + evictionIntervalNanos)) {
+            return;
+        }
+
+        buckets.values().removeIf(theoreticalArrival -> theoreticalArrival.get() - now <= 0);
+    }
+
+    private String getKey(FullHttpRequest request) {
+        String user = null;
+        if (keyType != KeyType.INDEX) {
+            user = userIdExtractor.extractUserId(request);
+            if (user == null) {
+                user = userIdExtractor.extractUserToken(request);
+            }
+            if (user == null) {
+                return null;
+            }
+        }
+
+        String index = null;
+        if (keyType != KeyType.USER || indexRegexPattern != null) {
+            index = getTargetIndexOrNull(request);
+            if (index == null) {
+                return null;
+            }
+            if (indexRegexPattern != null && !indexRegexPattern.matcher(index).matches()) {
+                return null;
+            }
+        }
+
+        switch (keyType) {
+            case USER:
+                return user;
+            case INDEX:
+                return index;
+            default:
+                return user + KEY_SEPARATOR + index;
+        }
+    }
+
+    /*
+     * The index expression is the first path segment, unless the path starts with an API endpoint such as _bulk or
+     * _search. Console proxy requests carry the real path in the "path" parameter.
+     */
+    private static String getTargetIndexOrNull(FullHttpRequest request) {
+        QueryStringDecoder queryStringDecoder = new QueryStringDecoder(request.uri());
+        String path = queryStringDecoder.path();
+        if (path.equals("/_dashboards/api/console/proxy")) {
+            List<String> pathParam = queryStringDecoder.parameters().get("path");
+            if (pathParam == null || pathParam.size() != 1) {
+                return null;
+            }
+            path = new QueryStringDecoder(pathParam.get(0)).path();
+        }
+
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.indexOf('/', start);
+        String firstSegment = end < 0 ? path.substring(start) : path.substring(start, end);
+        if (firstSegment.isEmpty() || firstSegment.startsWith("_")) {
+            return null;
+        }
+
+        return firstSegment;
+    }
+}
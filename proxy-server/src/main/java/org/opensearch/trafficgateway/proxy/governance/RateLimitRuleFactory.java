@@ -0,0 +1,70 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+import org.opensearch.trafficgateway.proxy.util.UserIdExtractor;
+
+public class RateLimitRuleFactory implements GovernanceRuleFactory<RateLimitRuleFactory.Config> {
+
+    @Jacksonized
+    @Builder
+    @Value
+    public static class Config {
+        @NonNull
+        RateLimitRule.KeyType keyType;
+
+        /*
+         * Sustained rate each key is refilled at.
+         */
+        @NonNull
+        Double requestsPerSecond;
+
+        /*
+         * Number of requests a key may send back to back after being idle. Defaults to one second worth of requests.
+         */
+        Long burst;
+
+        /*
+         * Only requests targeting a matching index are limited.
+         */
+        String indexRegex;
+
+        @Builder.Default
+        long evictionIntervalMs = 60_000L;
+
+        @Builder.Default
+        String samlUserIdXPath = UserIdExtractor.DEFAULT_SAML_USER_ID_XPATH;
+
+        @Builder.Default
+        String samlTokenCookieName = UserIdExtractor.DEFAULT_SAML_TOKEN_COOKIE_NAME;
+
+        String responseMessage;
+    }
+
+    @Override
+    public Class<? extends GovernanceRule> getRuleClass() {
+        return RateLimitRule.class;
+    }
+
+    @Override
+    public Class<Config> getConfigClass() {
+        return Config.class;
+    }
+
+    @Override
+    public GovernanceRule createRule(Config config) {
+        long burst = config.getBurst() != null
+                ? config.getBurst()
+                : Math.max(1L, (long) Math.ceil(config.getRequestsPerSecond()));
+        return new RateLimitRule(
+                config.getKeyType(),
+                config.getRequestsPerSecond(),
+                burst,
+                config.getIndexRegex(),
+                config.getEvictionIntervalMs(),
+                new UserIdExtractor(config.getSamlUserIdXPath(), config.getSamlTokenCookieName()),
+                config.getResponseMessage());
+    }
+}
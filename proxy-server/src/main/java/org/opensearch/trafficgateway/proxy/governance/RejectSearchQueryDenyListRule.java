@@ -30,18 +30,31 @@ public class RejectSearchQueryDenyListRule extends BaseSearchGovernanceRule {
         this(indexRegex, queryStructure, null);
     }
 
-    @SneakyThrows
     public RejectSearchQueryDenyListRule(
             @NonNull String indexRegex, @NonNull String queryStructure, String responseMessage) {
+        this(indexRegex, readJson(queryStructure), responseMessage);
+    }
+
+    /**
+     * @param queryStructure a JSON array of deny-listed query structures. A textual node is parsed as JSON so that
+     *     configurations written with a stringified array keep working.
+     */
+    public RejectSearchQueryDenyListRule(
+            @NonNull String indexRegex, @NonNull JsonNode queryStructure, String responseMessage) {
         super(indexRegex);
-        this.denyListArray = JSON_MAPPER.readTree(queryStructure);
+        this.denyListArray = queryStructure.isTextual() ? readJson(queryStructure.asText()) : queryStructure;
         if (responseMessage != null) {
             this.responseMessage = responseMessage;
         } else {
-            this.responseMessage = "Query matches one of the deny-listed structures: '" + queryStructure + "'";
+            this.responseMessage = "Query matches one of the deny-listed structures: '" + denyListArray + "'";
         }
     }
 
+    @SneakyThrows
+    private static JsonNode readJson(String json) {
+        return JSON_MAPPER.readTree(json);
+    }
+
     @Override
     public GovernanceRuleResult evaluate(FullHttpRequest request) {
         ParsedSearchRequest searchRequest = tryParseSearchRequest(request);
@@ -0,0 +1,43 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+public class RejectSearchQueryDenyListRuleFactory
+        implements GovernanceRuleFactory<RejectSearchQueryDenyListRuleFactory.Config> {
+
+    @Jacksonized
+    @Builder
+    @Value
+    public static class Config {
+        @NonNull
+        String indexRegex;
+
+        /*
+         * Either a JSON array of query structures or a string containing one.
+         */
+        @NonNull
+        JsonNode queryStructure;
+
+        String responseMessage;
+    }
+
+    @Override
+    public Class<? extends GovernanceRule> getRuleClass() {
+        return RejectSearchQueryDenyListRule.class;
+    }
+
+    @Override
+    public Class<Config> getConfigClass() {
+        return Config.class;
+    }
+
+    @Override
+    public GovernanceRule createRule(Config config) {
+        return new RejectSearchQueryDenyListRule(
+                config.getIndexRegex(), config.getQueryStructure(), config.getResponseMessage());
+    }
+}
@@ -0,0 +1,42 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+public class RejectSearchRegexFieldRuleFactory
+        implements GovernanceRuleFactory<RejectSearchRegexFieldRuleFactory.Config> {
+
+    @Jacksonized
+    @Builder
+    @Value
+    public static class Config {
+        @NonNull
+        String fieldName;
+
+        @NonNull
+        String fieldRegex;
+
+        @NonNull
+        String indexRegex;
+
+        String responseMessage;
+    }
+
+    @Override
+    public Class<? extends GovernanceRule> getRuleClass() {
+        return RejectSearchRegexFieldRule.class;
+    }
+
+    @Override
+    public Class<Config> getConfigClass() {
+        return Config.class;
+    }
+
+    @Override
+    public GovernanceRule createRule(Config config) {
+        return new RejectSearchRegexFieldRule(
+                config.getFieldName(), config.getFieldRegex(), config.getIndexRegex(), config.getResponseMessage());
+    }
+}
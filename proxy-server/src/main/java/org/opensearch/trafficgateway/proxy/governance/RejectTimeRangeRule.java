@@ -71,10 +71,24 @@ public class RejectTimeRangeRule extends BaseSearchGovernanceRule {
             @NonNull String maxTimeRangeMs,
             @NonNull String rejectIfMissing,
             String responseMessage) {
+        this(
+                indexRegex,
+                rangeField,
+                Long.parseLong(maxTimeRangeMs),
+                Boolean.parseBoolean(rejectIfMissing),
+                responseMessage);
+    }
+
+    public RejectTimeRangeRule(
+            @NonNull String indexRegex,
+            @NonNull String rangeField,
+            long maxTimeRangeMs,
+            boolean rejectIfMissing,
+            String responseMessage) {
         super(indexRegex);
         this.rangeField = rangeField;
-        this.maxTimeRangeMs = Long.parseLong(maxTimeRangeMs);
-        this.rejectIfMissing = Boolean.parseBoolean(rejectIfMissing);
+        this.maxTimeRangeMs = maxTimeRangeMs;
+        this.rejectIfMissing = rejectIfMissing;
         this.rangeFound = 0;
         if (responseMessage != null) {
             this.responseMessage = responseMessage;
@@ -0,0 +1,47 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+public class RejectTimeRangeRuleFactory implements GovernanceRuleFactory<RejectTimeRangeRuleFactory.Config> {
+
+    @Jacksonized
+    @Builder
+    @Value
+    public static class Config {
+        @NonNull
+        String indexRegex;
+
+        @NonNull
+        String rangeField;
+
+        @NonNull
+        Long maxTimeRangeMs;
+
+        boolean rejectIfMissing;
+
+        String responseMessage;
+    }
+
+    @Override
+    public Class<? extends GovernanceRule> getRuleClass() {
+        return RejectTimeRangeRule.class;
+    }
+
+    @Override
+    public Class<Config> getConfigClass() {
+        return Config.class;
+    }
+
+    @Override
+    public GovernanceRule createRule(Config config) {
+        return new RejectTimeRangeRule(
+                config.getIndexRegex(),
+                config.getRangeField(),
+                config.getMaxTimeRangeMs(),
+                config.isRejectIfMissing(),
+                config.getResponseMessage());
+    }
+}
@@ -0,0 +1,130 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.util.CharsetUtil;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Lets concurrent identical searches share one backside request. The first request for a key leads and is forwarded;
+ * requests with the same key that arrive before the leader's response starts follow and are not forwarded. The
+ * leader's response bytes are recorded and written to every follower as retained duplicates.
+ *
+ * <p>Requests are keyed by method, path, sorted query parameters, the negotiated {@code Accept-Encoding} and
+ * {@code Accept}, and body, since followers are sent the leader's response as is. Since responses depend on the
+ * caller's permissions, the key also contains the caller's credentials, cookies and tenant, or, if {@code keyByIdentity} is
+ * off, requests carrying any of them are not coalesced at all.
+ */
+public class RequestCoalescer {
+    /**
+     * A request waiting for the leader's response. Implementations are called from the leader's event loop and are
+     * responsible for moving to their own.
+     */
+    public interface Follower {
+        /**
+         * @param responseParts the raw response, owned by the follower from here on.
+         */
+        void onResponse(List<ByteBuf> responseParts);
+
+        /**
+         * The leader could not deliver a response, so the follower has to send its own request.
+         */
+        void onAbandoned();
+    }
+
+    @Getter
+    private final boolean keyByIdentity;
+
+    private final Pattern pathPattern;
+
+    @Getter
+    private final long maxResponseBytes;
+
+    private final Map<String, List<Follower>> inFlight = new ConcurrentHashMap<>();
+
+    public RequestCoalescer(boolean keyByIdentity, @NonNull String pathRegex, long maxResponseBytes) {
+        this.keyByIdentity = keyByIdentity;
+        this.pathPattern = Pattern.compile(pathRegex);
+        this.maxResponseBytes = maxResponseBytes;
+    }
+
+    /**
+     * @param jsonBody the parsed body, used so that formatting differences do not split keys. May be null.
+     * @return the coalescing key, or null if the request must not be coalesced.
+     */
+    public String getKey(FullHttpRequest request, JsonNode jsonBody) {
+        HttpMethod method = request.method();
+        if (!method.equals(HttpMethod.GET) && !method.equals(HttpMethod.POST)) {
+            return null;
+        }
+
+        QueryStringDecoder queryStringDecoder = new QueryStringDecoder(request.uri());
+        if (!pathPattern.matcher(queryStringDecoder.path()).matches()) {
+            return null;
+        }
+
+        if (!keyByIdentity && !RequestKeys.getSecurityContext(request.headers()).isEmpty()) {
+            return null;
+        }
+
+        String body = jsonBody != null ? jsonBody.toString() : request.content().toString(CharsetUtil.UTF_8);
+        return RequestKeys.build(request, queryStringDecoder, body);
+    }
+
+    /**
+     * @return true if a request with the same key is in flight and {@code follower} will be notified of its outcome,
+     *     false if the caller leads and must call {@link #responseStarted(String)} or {@link #abandon(String)}.
+     */
+    public boolean join(@NonNull String key, @NonNull Follower follower) {
+        boolean[] joined = {false};
+        inFlight.compute(key, (k, followers) -> {
+            if (followers == null) {
+                return new ArrayList<>();
+            }
+            followers.add(follower);
+            joined[0] = true;
+            return followers;
+        });
+        return joined[0];
+    }
+
+    /**
+     * Closes the key to new followers. Requests arriving from now on start a new backside request, since they could
+     * not be sent the part of the response that was already written.
+     *
+     * @return the followers waiting for the leader's response.
+     */
+    public List<Follower> responseStarted(@NonNull String key) {
+        List<Follower> followers = inFlight.remove(key);
+        return followers != null ? followers : Collections.emptyList();
+    }
+
+    public void abandon(@NonNull String key) {
+        responseStarted(key).forEach(Follower::onAbandoned);
+    }
+
+    int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Hands each follower its own retained duplicate of the leader's response.
+     */
+    public static void deliver(List<Follower> followers, List<ByteBuf> responseParts) {
+        for (Follower follower : followers) {
+            List<ByteBuf> copy = new ArrayList<>(responseParts.size());
+            responseParts.forEach(part -> copy.add(part.retainedDuplicate()));
+            follower.onResponse(copy);
+        }
+    }
+}
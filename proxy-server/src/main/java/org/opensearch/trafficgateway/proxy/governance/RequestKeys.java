@@ -0,0 +1,50 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import java.util.TreeMap;
+
+/**
+ * Builds the keys under which {@link RequestCoalescer} and {@link ResponseCache} share one response between requests.
+ * A key holds everything the raw response bytes depend on besides the state of the cluster: the protocol version, which
+ * decides e.g. whether the response can be chunked, the method, path, sorted query parameters, the caller's security
+ * context, the negotiated {@code Accept-Encoding} and {@code Accept}, and the body.
+ */
+final class RequestKeys {
+    private static final String SECURITY_TENANT_HEADER = "securitytenant";
+    private static final String KEY_SEPARATOR = "\n";
+
+    private RequestKeys() {}
+
+    /**
+     * @param body the body in a form that does not split keys over formatting differences.
+     */
+    static String build(HttpRequest request, QueryStringDecoder queryStringDecoder, String body) {
+        HttpHeaders headers = request.headers();
+        return String.join(
+                KEY_SEPARATOR,
+                request.protocolVersion().text(),
+                request.method().name(),
+                queryStringDecoder.path(),
+                new TreeMap<>(queryStringDecoder.parameters()).toString(),
+                getSecurityContext(headers),
+                headers.get(HttpHeaderNames.ACCEPT_ENCODING, ""),
+                headers.get(HttpHeaderNames.ACCEPT, ""),
+                body);
+    }
+
+    /**
+     * @return the credentials, cookies and tenant a response may depend on, or an empty string if there are none.
+     */
+    static String getSecurityContext(HttpHeaders headers) {
+        String authorization = headers.get(HttpHeaderNames.AUTHORIZATION, "");
+        String cookie = headers.get(HttpHeaderNames.COOKIE, "");
+        String tenant = headers.get(SECURITY_TENANT_HEADER, "");
+        if (authorization.isEmpty() && cookie.isEmpty() && tenant.isEmpty()) {
+            return "";
+        }
+        return String.join(KEY_SEPARATOR, authorization, cookie, tenant);
+    }
+}
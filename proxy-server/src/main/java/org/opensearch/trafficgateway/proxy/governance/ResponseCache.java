@@ -0,0 +1,358 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import java.time.DateTimeException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Caches complete responses of idempotent searches in direct (off-heap) buffers. Entries are keyed by the protocol
+ * version, the caller's security context, the path, the sorted query parameters, the {@code Accept-Encoding} and
+ * {@code Accept} headers and a canonical form of the body, expire after a TTL
+ * chosen by target index, and are evicted least recently used first once the cache exceeds {@code maxBytes}.
+ *
+ * <p>The entries are spread over up to {@value #MAX_SEGMENTS} segments by key, each holding an equal share of
+ * {@code maxBytes} and at least one entry of {@code maxEntryBytes}, so that event loops only contend for the same
+ * segment. Recency is tracked per segment.
+ *
+ * <p>Searches using {@code now} date math are only cached when every {@code now} is rounded, e.g. {@code now-1h/m},
+ * and then only until the rounded value changes. Rounding happens in the {@code time_zone} given next to the date
+ * math, or UTC without one, as in OpenSearch. Searches with a time zone that cannot be parsed are not cached.
+ */
+public class ResponseCache {
+    private static final ObjectMapper CANONICAL_JSON_MAPPER =
+            new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+    private static final Pattern NOW_PATTERN = Pattern.compile("\\bnow(?:[+-]\\d+[yMwdhHms])*(?:/([yMwdhHms]))?");
+    private static final String TIME_ZONE_FIELD = "time_zone";
+    private static final int MAX_SEGMENTS = 16;
+
+    @Value
+    public static class CacheableRequest {
+        String key;
+        long expiresAtMillis;
+    }
+
+    private static class Entry {
+        final ByteBuf content;
+        final long expiresAtMillis;
+
+        Entry(ByteBuf content, long expiresAtMillis) {
+            this.content = content;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    @Getter
+    private final long maxBytes;
+
+    @Getter
+    private final long maxEntryBytes;
+
+    private final Pattern pathPattern;
+    private final long defaultTtlMs;
+    private final Map<Pattern, Long> ttlMsByIndexPattern = new LinkedHashMap<>();
+    private final LongSupplier clock;
+    private final Segment[] segments;
+
+    /**
+     * @param ttlMsByIndexRegex TTLs by index regex, the first match wins. Indices without a match use
+     *     {@code defaultTtlMs}, a TTL of 0 disables caching.
+     */
+    public ResponseCache(
+            long maxBytes,
+            long maxEntryBytes,
+            @NonNull String pathRegex,
+            long defaultTtlMs,
+            @NonNull Map<String, Long> ttlMsByIndexRegex) {
+        this(maxBytes, maxEntryBytes, pathRegex, defaultTtlMs, ttlMsByIndexRegex, System::currentTimeMillis);
+    }
+
+    ResponseCache(
+            long maxBytes,
+            long maxEntryBytes,
+            @NonNull String pathRegex,
+            long defaultTtlMs,
+            @NonNull Map<String, Long> ttlMsByIndexRegex,
+            @NonNull LongSupplier clock) {
+        if (maxBytes <= 0 || maxEntryBytes <= 0 || maxEntryBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxBytes must be positive and maxEntryBytes in [1, " + Integer.MAX_VALUE
+                    + "], got: " + maxBytes + ", " + maxEntryBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+        int segmentCount = (int) Math.max(1, Math.min(MAX_SEGMENTS, maxBytes / this.maxEntryBytes));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maxBytes / segmentCount);
+        }
+        this.pathPattern = Pattern.compile(pathRegex);
+        this.defaultTtlMs = defaultTtlMs;
+        ttlMsByIndexRegex.forEach((regex, ttlMs) -> ttlMsByIndexPattern.put(Pattern.compile(regex), ttlMs));
+        this.clock = clock;
+    }
+
+    /**
+     * @param jsonBody the parsed body. Searches without a JSON body are only cached if the body is empty.
+     * @return the cache key and expiry of the request, or null if its response must not be cached.
+     */
+    public CacheableRequest getCacheableRequest(FullHttpRequest request, JsonNode jsonBody) {
+        HttpMethod method = request.method();
+        if (!method.equals(HttpMethod.GET) && !method.equals(HttpMethod.POST)) {
+            return null;
+        }
+
+        QueryStringDecoder queryStringDecoder = new QueryStringDecoder(request.uri());
+        String path = queryStringDecoder.path();
+        if (!pathPattern.matcher(path).matches()) {
+            return null;
+        }
+        if (jsonBody == null && request.content().isReadable()) {
+            return null;
+        }
+
+        long ttlMs = getTtlMs(getIndex(path, jsonBody));
+        if (ttlMs <= 0) {
+            return null;
+        }
+
+        long now = clock.getAsLong();
+        long expiresAtMillis = now + ttlMs;
+        if (jsonBody != null) {
+            long stableUntilMillis = getStableUntilMillis(jsonBody, ZoneOffset.UTC, now);
+            if (stableUntilMillis <= now) {
+                return null;
+            }
+            expiresAtMillis = Math.min(expiresAtMillis, stableUntilMillis);
+        }
+
+        String canonicalBody;
+        try {
+            canonicalBody = jsonBody != null ? CANONICAL_JSON_MAPPER.writeValueAsString(toPlainObject(jsonBody)) : "";
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+
+        String key = RequestKeys.build(request, queryStringDecoder, canonicalBody);
+        return new CacheableRequest(key, expiresAtMillis);
+    }
+
+    /**
+     * @return a retained duplicate of the cached response, or null on a miss.
+     */
+    public ByteBuf get(@NonNull String key) {
+        return getSegment(key).get(key, clock.getAsLong());
+    }
+
+    /**
+     * Stores a copy of a recorded response if it is a cacheable success.
+     */
+    public void put(
+            @NonNull CacheableRequest request,
+            HttpResponse response,
+            @NonNull List<ByteBuf> responseParts,
+            long responseBytes) {
+        if (response == null
+                || !response.status().equals(HttpResponseStatus.OK)
+                || response.headers().contains(HttpHeaderNames.SET_COOKIE)
+                || response.headers().containsValue(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE, true)
+                || responseBytes > maxEntryBytes
+                || request.getExpiresAtMillis() <= clock.getAsLong()) {
+            return;
+        }
+
+        ByteBuf content = Unpooled.directBuffer((int) responseBytes);
+        responseParts.forEach(part -> content.writeBytes(part, part.readerIndex(), part.readableBytes()));
+
+        getSegment(request.getKey()).put(request.getKey(), new Entry(content, request.getExpiresAtMillis()));
+    }
+
+    long getTotalBytes() {
+        long totalBytes = 0;
+        for (Segment segment : segments) {
+            totalBytes += segment.getTotalBytes();
+        }
+        return totalBytes;
+    }
+
+    private Segment getSegment(String key) {
+        int hash = key.hashCode();
+        return segments[Math.floorMod(hash ^ (hash >>> 16), segments.length)];
+    }
+
+    private static class Segment {
+        private final long maxBytes;
+        // access ordered, so iteration starts at the least recently used entry
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long totalBytes;
+
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized ByteBuf get(String key, long now) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAtMillis <= now) {
+                remove(key);
+                return null;
+            }
+            return entry.content.retainedDuplicate();
+        }
+
+        synchronized void put(String key, Entry entry) {
+            remove(key);
+            entries.put(key, entry);
+            totalBytes += entry.content.readableBytes();
+            for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+                    totalBytes > maxBytes && it.hasNext(); ) {
+                Entry evicted = it.next().getValue();
+                it.remove();
+                totalBytes -= evicted.content.readableBytes();
+                evicted.content.release();
+            }
+        }
+
+        synchronized long getTotalBytes() {
+            return totalBytes;
+        }
+
+        private void remove(String key) {
+            Entry removed = entries.remove(key);
+            if (removed != null) {
+                totalBytes -= removed.content.readableBytes();
+                removed.content.release();
+            }
+        }
+    }
+
+    private long getTtlMs(String index) {
+        if (index != null) {
+            for (Map.Entry<Pattern, Long> indexTtl : ttlMsByIndexPattern.entrySet()) {
+                if (indexTtl.getKey().matcher(index).matches()) {
+                    return indexTtl.getValue();
+                }
+            }
+        }
+        return defaultTtlMs;
+    }
+
+    private static String getIndex(String path, JsonNode jsonBody) {
+        if (path.startsWith("/_dashboards/")) {
+            return jsonBody != null ? jsonBody.path("params").path("index").asText(null) : null;
+        }
+
+        int end = path.indexOf('/', 1);
+        String firstSegment = end < 0 ? path.substring(1) : path.substring(1, end);
+        return firstSegment.startsWith("_") ? "*" : firstSegment;
+    }
+
+    /*
+     * Returns the time until which all now-relative date math in the body evaluates to the same value, Long.MAX_VALUE
+     * if there is none, or 0 if some of it is not rounded or its time zone is invalid. A time_zone applies to the date
+     * math in the object it is set in, e.g. a range or a query_string query.
+     */
+    private static long getStableUntilMillis(JsonNode node, ZoneId zone, long now) {
+        if (node.isObject() && node.has(TIME_ZONE_FIELD)) {
+            try {
+                zone = ZoneId.of(node.get(TIME_ZONE_FIELD).asText());
+            } catch (DateTimeException e) {
+                return 0;
+            }
+        }
+        if (node.isTextual()) {
+            String text = node.asText();
+            if (!text.contains("now")) {
+                return Long.MAX_VALUE;
+            }
+
+            long stableUntil = Long.MAX_VALUE;
+            Matcher matcher = NOW_PATTERN.matcher(text);
+            while (matcher.find()) {
+                if (matcher.group(1) == null) {
+                    return 0;
+                }
+                stableUntil = Math.min(
+                        stableUntil, getNextRoundingBoundary(matcher.group(1).charAt(0), zone, now));
+            }
+            return stableUntil;
+        }
+
+        long stableUntil = Long.MAX_VALUE;
+        for (JsonNode child : node) {
+            stableUntil = Math.min(stableUntil, getStableUntilMillis(child, zone, now));
+        }
+        return stableUntil;
+    }
+
+    /*
+     * Returns the time at which now, rounded down to the unit in the zone, changes next.
+     */
+    private static long getNextRoundingBoundary(char unit, ZoneId zone, long now) {
+        ZonedDateTime time = Instant.ofEpochMilli(now).atZone(zone);
+        ZonedDateTime next;
+        switch (unit) {
+            case 's':
+                next = time.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+                break;
+            case 'm':
+                next = time.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+                break;
+            case 'h':
+            case 'H':
+                next = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+                break;
+            case 'd':
+                next = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+                break;
+            case 'w':
+                next = time.truncatedTo(ChronoUnit.DAYS)
+                        .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                        .plusWeeks(1);
+                break;
+            case 'M':
+                next = time.truncatedTo(ChronoUnit.DAYS)
+                        .with(TemporalAdjusters.firstDayOfMonth())
+                        .plusMonths(1);
+                break;
+            default:
+                next = time.truncatedTo(ChronoUnit.DAYS)
+                        .with(TemporalAdjusters.firstDayOfYear())
+                        .plusYears(1);
+        }
+        return next.toInstant().toEpochMilli();
+    }
+
+    private static Object toPlainObject(JsonNode node) {
+        // maps are sorted on serialization, which JsonNode trees are not
+        return CANONICAL_JSON_MAPPER.convertValue(node, Object.class);
+    }
+}
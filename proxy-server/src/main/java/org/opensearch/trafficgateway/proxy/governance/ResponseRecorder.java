@@ -0,0 +1,90 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseDecoder;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Collects the raw bytes of a response written back to the client until an {@link HttpResponseDecoder} sees its end.
+ * Not thread safe, used from the channel's event loop only.
+ */
+@Log4j2
+class ResponseRecorder {
+    interface Listener {
+        /**
+         * @param responseParts the raw response. Only valid during the call; retain what needs to be kept.
+         */
+        void onResponse(HttpResponse response, List<ByteBuf> responseParts, long responseBytes);
+
+        /**
+         * The response was not recorded completely, because it was too large or the channel closed.
+         */
+        void onAbandoned();
+    }
+
+    private final long maxResponseBytes;
+    private final Listener listener;
+    private final EmbeddedChannel responseDecoder = new EmbeddedChannel(new HttpResponseDecoder());
+    private final List<ByteBuf> responseParts = new ArrayList<>();
+    private HttpResponse response;
+    private long responseBytes;
+
+    ResponseRecorder(long maxResponseBytes, Listener listener) {
+        this.maxResponseBytes = maxResponseBytes;
+        this.listener = listener;
+    }
+
+    /**
+     * @return true once the recorder is done, either because the response was complete and handed to the listener
+     *     or because it was too large.
+     */
+    boolean record(ByteBuf responsePart) {
+        responseBytes += responsePart.readableBytes();
+        if (responseBytes > maxResponseBytes) {
+            log.debug("Response exceeds {} bytes, not recording it.", maxResponseBytes);
+            abandon();
+            return true;
+        }
+
+        responseParts.add(responsePart.retainedDuplicate());
+        responseDecoder.writeInbound(responsePart.retainedDuplicate());
+        boolean complete = false;
+        for (Object decoded = responseDecoder.readInbound(); decoded != null; decoded = responseDecoder.readInbound()) {
+            if (decoded instanceof HttpResponse) {
+                response = (HttpResponse) decoded;
+            }
+            complete |= decoded instanceof LastHttpContent;
+            ReferenceCountUtil.release(decoded);
+        }
+        if (!complete) {
+            return false;
+        }
+
+        try {
+            listener.onResponse(response, responseParts, responseBytes);
+        } finally {
+            release();
+        }
+        return true;
+    }
+
+    void abandon() {
+        try {
+            listener.onAbandoned();
+        } finally {
+            release();
+        }
+    }
+
+    private void release() {
+        responseParts.forEach(ByteBuf::release);
+        responseParts.clear();
+        responseDecoder.finishAndReleaseAll();
+    }
+}
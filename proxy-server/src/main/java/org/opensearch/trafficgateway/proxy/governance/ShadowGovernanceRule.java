@@ -0,0 +1,141 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import java.time.Instant;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.Marker;
+import org.opensearch.trafficgateway.proxy.offload.TrafficAggregatingLogOffloader;
+
+/**
+ * Wraps a rule so that it never rejects a request. A sampled fraction of requests is handed to a background
+ * executor, where the wrapped rule is evaluated and any would-be rejection is logged under
+ * {@link #SHADOW_REJECTION_MARKER}. Requests that cannot be queued are skipped rather
+ * than delaying the event loop.
+ *
+ * <p>{@link GovernanceHandler} only {@link #submit}s the sampled requests once it forwarded them, so that shadow rules
+ * never delay a request.
+ */
+@Log4j2
+public class ShadowGovernanceRule implements GovernanceRule {
+    public static final String SHADOW_REJECTION_RECORD_TYPE = "SHADOW_REJECTION";
+    // so that rejections land next to the captured traffic
+    public static final Marker SHADOW_REJECTION_MARKER = TrafficAggregatingLogOffloader.CAPTURED_TRAFFIC_MARKER;
+    private static final int DEFAULT_QUEUE_SIZE = 1024;
+
+    @Value
+    public static class ShadowRuleRejection {
+        String recordType;
+        String ruleClass;
+        long timestamp;
+        String method;
+        String path;
+        Integer responseCode;
+        String responseReason;
+    }
+
+    @Getter
+    private final GovernanceRule delegate;
+
+    @Getter
+    private final double sampleRate;
+
+    private final Executor executor;
+    private final AtomicLong droppedEvaluations = new AtomicLong();
+
+    public ShadowGovernanceRule(@NonNull GovernanceRule delegate, double sampleRate, @NonNull Executor executor) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("shadowSampleRate must be between 0 and 1, got: " + sampleRate);
+        }
+        this.delegate = delegate;
+        this.sampleRate = sampleRate;
+        this.executor = executor;
+    }
+
+    /**
+     * @return a bounded executor with a single daemon thread, shared by all shadow rules of a configuration.
+     */
+    public static ExecutorService newDefaultExecutor() {
+        return new ThreadPoolExecutor(
+                1,
+                1,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(DEFAULT_QUEUE_SIZE),
+                new DefaultThreadFactory("shadowGovernanceRule", true));
+    }
+
+    public long getDroppedEvaluations() {
+        return droppedEvaluations.get();
+    }
+
+    @Override
+    public GovernanceRuleResult evaluate(FullHttpRequest request) {
+        if (isSampled()) {
+            submit(request.retainedDuplicate());
+        }
+        return getPassResult();
+    }
+
+    /**
+     * Whether the next request is to be evaluated, on {@link #sampleRate}.
+     */
+    public boolean isSampled() {
+        return sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    /**
+     * Evaluates the wrapped rule on {@code request} in the background, and releases it once done.
+     */
+    public void submit(FullHttpRequest request) {
+        long timestamp = Instant.now().toEpochMilli();
+        try {
+            executor.execute(() -> evaluateInBackground(request, timestamp));
+        } catch (RejectedExecutionException e) {
+            request.release();
+            long dropped = droppedEvaluations.incrementAndGet();
+            log.debug("Shadow evaluation queue is full, skipping request. {} evaluations skipped so far.", dropped);
+        }
+    }
+
+    private void evaluateInBackground(FullHttpRequest request, long timestamp) {
+        try {
+            GovernanceRuleResult result = delegate.evaluate(request);
+            if (result.getResultType() != GovernanceRuleResultType.REJECT) {
+                return;
+            }
+
+            FullHttpResponse response = result.getGovernanceRuleResponse();
+            ShadowRuleRejection rejection = new ShadowRuleRejection(
+                    SHADOW_REJECTION_RECORD_TYPE,
+                    delegate.getClass().getName(),
+                    timestamp,
+                    request.method().toString(),
+                    new QueryStringDecoder(request.uri()).path(),
+                    response != null ? response.status().code() : null,
+                    response != null ? response.status().reasonPhrase() : null);
+            if (response != null) {
+                response.release();
+            }
+
+            log.always().withMarker(SHADOW_REJECTION_MARKER).log(rejection);
+        } catch (Exception e) {
+            log.warn("Shadow evaluation of {} failed.", delegate.getClass().getName(), e);
+        } finally {
+            request.release();
+        }
+    }
+}
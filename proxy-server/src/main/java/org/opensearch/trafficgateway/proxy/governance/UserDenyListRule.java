@@ -37,14 +37,25 @@ public class UserDenyListRule implements GovernanceRule {
                 null);
     }
 
-    @SneakyThrows
     public UserDenyListRule(
             @NonNull String userDenyList,
             @NonNull String samlUserIdXPath,
             @NonNull String samlTokenCookieName,
             String responseMessage) {
+        this(readJson(userDenyList), samlUserIdXPath, samlTokenCookieName, responseMessage);
+    }
+
+    /**
+     * @param userDenyList a JSON array of denied user ids or tokens. A textual node is parsed as JSON so that
+     *     configurations written with a stringified array keep working.
+     */
+    public UserDenyListRule(
+            @NonNull JsonNode userDenyList,
+            @NonNull String samlUserIdXPath,
+            @NonNull String samlTokenCookieName,
+            String responseMessage) {
         denyList = new HashSet<String>();
-        JsonNode denyListJson = JSON_MAPPER.readTree(userDenyList);
+        JsonNode denyListJson = userDenyList.isTextual() ? readJson(userDenyList.asText()) : userDenyList;
         for (JsonNode entry : denyListJson) {
             denyList.add(entry.asText());
         }
@@ -58,6 +69,11 @@ public class UserDenyListRule implements GovernanceRule {
         }
     }
 
+    @SneakyThrows
+    private static JsonNode readJson(String json) {
+        return JSON_MAPPER.readTree(json);
+    }
+
     @Override
     public int getRejectResultHttpStatusCode() {
         return HttpResponseStatus.UNAUTHORIZED.code();
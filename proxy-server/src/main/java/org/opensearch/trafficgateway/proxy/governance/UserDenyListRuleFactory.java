@@ -0,0 +1,49 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+import org.opensearch.trafficgateway.proxy.util.UserIdExtractor;
+
+public class UserDenyListRuleFactory implements GovernanceRuleFactory<UserDenyListRuleFactory.Config> {
+
+    @Jacksonized
+    @Builder
+    @Value
+    public static class Config {
+        /*
+         * Either a JSON array of user ids/tokens or a string containing one.
+         */
+        @NonNull
+        JsonNode userDenyList;
+
+        @Builder.Default
+        String samlUserIdXPath = UserIdExtractor.DEFAULT_SAML_USER_ID_XPATH;
+
+        @Builder.Default
+        String samlTokenCookieName = UserIdExtractor.DEFAULT_SAML_TOKEN_COOKIE_NAME;
+
+        String responseMessage;
+    }
+
+    @Override
+    public Class<? extends GovernanceRule> getRuleClass() {
+        return UserDenyListRule.class;
+    }
+
+    @Override
+    public Class<Config> getConfigClass() {
+        return Config.class;
+    }
+
+    @Override
+    public GovernanceRule createRule(Config config) {
+        return new UserDenyListRule(
+                config.getUserDenyList(),
+                config.getSamlUserIdXPath(),
+                config.getSamlTokenCookieName(),
+                config.getResponseMessage());
+    }
+}
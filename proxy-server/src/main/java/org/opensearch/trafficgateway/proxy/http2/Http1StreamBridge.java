@@ -0,0 +1,112 @@
+package org.opensearch.trafficgateway.proxy.http2;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpMessage;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpRequestEncoder;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseDecoder;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http2.HttpConversionUtil;
+import io.netty.util.ReferenceCountUtil;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Sits on an HTTP/2 stream channel behind {@code Http2StreamFrameToHttpObjectCodec}, so that the handlers above it see
+ * the stream as an HTTP/1.1 connection carrying a single exchange: requests are read as HTTP/1.1 bytes, and the
+ * HTTP/1.1 bytes of the response written back are turned into HTTP objects again for the codec.
+ */
+@Log4j2
+class Http1StreamBridge extends ChannelDuplexHandler {
+    private final Deque<HttpMethod> pendingMethods = new ArrayDeque<>();
+    private final EmbeddedChannel requestEncoder = new EmbeddedChannel(new HttpRequestEncoder());
+    private final EmbeddedChannel responseDecoder = new EmbeddedChannel(new HttpResponseDecoder() {
+        @Override
+        protected boolean isContentAlwaysEmpty(HttpMessage msg) {
+            // as in HttpClientCodec, responses to HEAD have no content whatever their headers say
+            return HttpMethod.HEAD.equals(pendingMethods.peekFirst()) || super.isContentAlwaysEmpty(msg);
+        }
+    });
+    private boolean informationalResponse;
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (!(msg instanceof HttpObject)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+
+        if (msg instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) msg;
+            for (HttpConversionUtil.ExtensionHeaderNames name : HttpConversionUtil.ExtensionHeaderNames.values()) {
+                request.headers().remove(name.text());
+            }
+            pendingMethods.addLast(request.method());
+        }
+        requestEncoder.writeOutbound(msg);
+        for (Object encoded = requestEncoder.readOutbound(); encoded != null; encoded = requestEncoder.readOutbound()) {
+            ctx.fireChannelRead(encoded);
+        }
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (!(msg instanceof ByteBuf)) {
+            ctx.write(msg, promise);
+            return;
+        }
+
+        responseDecoder.writeInbound(msg);
+        List<Object> decodedObjects = new ArrayList<>();
+        for (Object decoded = responseDecoder.readInbound(); decoded != null; decoded = responseDecoder.readInbound()) {
+            if (((HttpObject) decoded).decoderResult().isFailure()) {
+                log.warn(
+                        "Could not parse response to HTTP/2 stream.",
+                        ((HttpObject) decoded).decoderResult().cause());
+                ReferenceCountUtil.release(decoded);
+                decodedObjects.forEach(ReferenceCountUtil::release);
+                promise.setFailure(((HttpObject) decoded).decoderResult().cause());
+                ctx.close();
+                return;
+            }
+            onResponseObject(decoded);
+            decodedObjects.add(decoded);
+        }
+
+        if (decodedObjects.isEmpty()) {
+            promise.setSuccess();
+            return;
+        }
+        for (int i = 0; i < decodedObjects.size() - 1; i++) {
+            ctx.write(decodedObjects.get(i));
+        }
+        ctx.write(decodedObjects.get(decodedObjects.size() - 1), promise);
+    }
+
+    private void onResponseObject(Object decoded) {
+        if (decoded instanceof HttpResponse) {
+            informationalResponse = ((HttpResponse) decoded).status().codeClass() == HttpStatusClass.INFORMATIONAL;
+        }
+        if (decoded instanceof LastHttpContent && !informationalResponse) {
+            // a 1xx response precedes the final response to the same request
+            pendingMethods.pollFirst();
+        }
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        requestEncoder.finishAndReleaseAll();
+        responseDecoder.finishAndReleaseAll();
+    }
+}
@@ -0,0 +1,133 @@
+package org.opensearch.trafficgateway.proxy.http2;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
+import java.io.IOException;
+import java.util.List;
+import lombok.NonNull;
+
+/**
+ * Lets frontside connections speak HTTP/2, negotiated with ALPN over TLS or started with the prior knowledge preface
+ * over cleartext (h2c), next to HTTP/1.1. Every HTTP/2 stream gets a child channel of its own, on which the HTTP/1.1
+ * handlers run as if the stream were an HTTP/1.1 connection, so streams are governed, captured and forwarded to pooled
+ * backside connections independently of each other.
+ *
+ * <p>The handlers below the negotiator only see {@code channelActive} once the protocol is known.
+ */
+public class Http2FrontsideConfigurer {
+    private static final ByteBuf CONNECTION_PREFACE = Http2CodecUtil.connectionPrefaceBuf();
+
+    private final int maxConcurrentStreams;
+    private final Http1HandlerInstaller http1HandlerInstaller;
+
+    /**
+     * Adds the handlers of an HTTP/1.1 connection with the given id to the end of a pipeline, be it that of a
+     * connection or of an HTTP/2 stream.
+     */
+    @FunctionalInterface
+    public interface Http1HandlerInstaller {
+        void addHandlers(ChannelPipeline pipeline, String connectionId) throws IOException;
+    }
+
+    public Http2FrontsideConfigurer(int maxConcurrentStreams, @NonNull Http1HandlerInstaller http1HandlerInstaller) {
+        if (maxConcurrentStreams <= 0) {
+            throw new IllegalArgumentException("maxConcurrentStreams must be positive, got: " + maxConcurrentStreams);
+        }
+
+        this.maxConcurrentStreams = maxConcurrentStreams;
+        this.http1HandlerInstaller = http1HandlerInstaller;
+    }
+
+    /**
+     * Returns the handler that picks the protocol of a new connection, to be added last to its pipeline.
+     */
+    public ChannelHandler newProtocolNegotiator(boolean tls) {
+        return tls ? new AlpnNegotiator() : new PriorKnowledgeDetector();
+    }
+
+    private void configureHttp1(ChannelHandlerContext ctx) throws IOException {
+        http1HandlerInstaller.addHandlers(ctx.pipeline(), ctx.channel().id().asLongText());
+        ctx.fireChannelActive();
+    }
+
+    private void configureHttp2(ChannelHandlerContext ctx) {
+        String connectionId = ctx.channel().id().asLongText();
+        ctx.pipeline()
+                .addLast(
+                        Http2FrameCodecBuilder.forServer()
+                                .initialSettings(
+                                        Http2Settings.defaultSettings().maxConcurrentStreams(maxConcurrentStreams))
+                                .build(),
+                        new Http2MultiplexHandler(new ChannelInitializer<Http2StreamChannel>() {
+                            @Override
+                            protected void initChannel(Http2StreamChannel ch) throws IOException {
+                                // as on HTTP/1.1 connections, the handlers ask for every read
+                                ch.config().setAutoRead(false);
+                                ch.pipeline()
+                                        .addLast(new Http2StreamFrameToHttpObjectCodec(true), new Http1StreamBridge());
+                                http1HandlerInstaller.addHandlers(
+                                        ch.pipeline(),
+                                        connectionId + "-" + ch.stream().id());
+                            }
+                        }));
+        ctx.fireChannelActive();
+        // HTTP/2 flow control, applied per stream as the stream handlers read, limits what the connection takes in
+        ctx.channel().config().setAutoRead(true);
+    }
+
+    private class AlpnNegotiator extends ApplicationProtocolNegotiationHandler {
+        AlpnNegotiator() {
+            super(ApplicationProtocolNames.HTTP_1_1);
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            // the TLS handshake needs reads, the handlers configured afterwards see channelActive themselves
+            ctx.read();
+        }
+
+        @Override
+        protected void configurePipeline(ChannelHandlerContext ctx, String protocol) throws IOException {
+            if (ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+                configureHttp2(ctx);
+            } else {
+                configureHttp1(ctx);
+            }
+        }
+    }
+
+    /*
+     * Reads until the bytes received either are the HTTP/2 connection preface or cannot become it anymore.
+     */
+    private class PriorKnowledgeDetector extends ByteToMessageDecoder {
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            ctx.read();
+        }
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws IOException {
+            int length = Math.min(in.readableBytes(), CONNECTION_PREFACE.readableBytes());
+            if (!ByteBufUtil.equals(in, in.readerIndex(), CONNECTION_PREFACE, 0, length)) {
+                configureHttp1(ctx);
+                ctx.pipeline().remove(this);
+            } else if (length == CONNECTION_PREFACE.readableBytes()) {
+                configureHttp2(ctx);
+                ctx.pipeline().remove(this);
+            }
+        }
+    }
+}
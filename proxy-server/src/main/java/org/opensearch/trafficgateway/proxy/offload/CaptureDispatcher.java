@@ -0,0 +1,216 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.PlatformDependent;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Runs capture work, i.e. decoding, aggregating, serializing and logging captured traffic, on threads of its own
+ * rather than on the event loop that forwards the traffic. Every thread drains a bounded lock-free queue of its own in
+ * batches. Connections are spread over the threads and keep theirs, so that the events of a connection are processed
+ * in order by one thread.
+ *
+ * <p>When a queue is full, the {@link OverflowPolicy} either drops the event or makes the event loop wait for room.
+ */
+@Log4j2
+public class CaptureDispatcher implements AutoCloseable {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long STATS_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    public enum OverflowPolicy {
+        /**
+         * Drops the event, which ends the capture of its connection, as the rest of the connection cannot be decoded
+         * without it.
+         */
+        DROP,
+        /**
+         * Waits for room in the queue, holding up the event loop and every connection on it.
+         */
+        BLOCK
+    }
+
+    @Value
+    public static class Stats {
+        long submitted;
+        long processed;
+        long dropped;
+        long blocked;
+        long failed;
+    }
+
+    private static class Lane {
+        final Queue<Runnable> queue;
+        volatile Thread thread;
+        volatile boolean idle;
+
+        Lane(int capacity) {
+            queue = PlatformDependent.newFixedMpscQueue(capacity);
+        }
+    }
+
+    private final Lane[] lanes;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicInteger nextLane = new AtomicInteger();
+    private volatile boolean running = true;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * @param threads the number of capture threads, each with a queue of its own.
+     * @param queueCapacity the events each queue holds, rounded up to a power of two.
+     * @param batchSize the events a thread processes before it checks whether it should stop.
+     */
+    public CaptureDispatcher(int threads, int queueCapacity, int batchSize, @NonNull OverflowPolicy overflowPolicy) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be positive, got: " + threads);
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive, got: " + queueCapacity);
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive, got: " + batchSize);
+        }
+
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        lanes = new Lane[threads];
+        ThreadFactory threadFactory = new DefaultThreadFactory("captureDispatcher", true);
+        for (int i = 0; i < threads; i++) {
+            Lane lane = new Lane(queueCapacity);
+            lanes[i] = lane;
+            lane.thread = threadFactory.newThread(() -> run(lane, lane == lanes[0]));
+            lane.thread.start();
+        }
+    }
+
+    /**
+     * Returns the lane, i.e. the thread, for the events of a new connection.
+     */
+    int nextLane() {
+        return Math.floorMod(nextLane.getAndIncrement(), lanes.length);
+    }
+
+    /**
+     * Queues {@code task} on {@code lane}. Returns false if the task was dropped, in which case the caller still owns
+     * whatever the task would have released.
+     */
+    boolean submit(int lane, Runnable task) {
+        return submit(lane, task, overflowPolicy);
+    }
+
+    /**
+     * Queues {@code task} on {@code lane}, waiting for room whatever the {@link OverflowPolicy}, for the few tasks that
+     * release what a connection holds. Returns false only once the dispatcher is stopped.
+     */
+    boolean submitWaiting(int lane, Runnable task) {
+        return submit(lane, task, OverflowPolicy.BLOCK);
+    }
+
+    private boolean submit(int lane, Runnable task, OverflowPolicy overflowPolicy) {
+        Lane target = lanes[lane];
+        boolean waited = false;
+        while (!running || !target.queue.offer(task)) {
+            if (overflowPolicy == OverflowPolicy.DROP || !running) {
+                dropped.increment();
+                return false;
+            }
+            if (!waited) {
+                blocked.increment();
+                waited = true;
+            }
+            LockSupport.parkNanos(BLOCKED_PARK_NANOS);
+        }
+        submitted.increment();
+        if (target.idle) {
+            LockSupport.unpark(target.thread);
+        }
+        return true;
+    }
+
+    public Stats getStats() {
+        return new Stats(submitted.sum(), processed.sum(), dropped.sum(), blocked.sum(), failed.sum());
+    }
+
+    private void run(Lane lane, boolean logStats) {
+        long lastStatsLogNanos = System.nanoTime();
+        Stats lastStats = getStats();
+        while (true) {
+            int drained = drain(lane);
+            if (logStats && System.nanoTime() - lastStatsLogNanos >= STATS_LOG_INTERVAL_NANOS) {
+                Stats stats = getStats();
+                if (stats.dropped != lastStats.dropped || stats.blocked != lastStats.blocked) {
+                    log.warn("Capture queues overflowed: {}", stats);
+                } else {
+                    log.debug("Capture dispatcher stats: {}", stats);
+                }
+                lastStats = stats;
+                lastStatsLogNanos = System.nanoTime();
+            }
+            if (drained > 0) {
+                continue;
+            }
+            if (!running) {
+                return;
+            }
+
+            // a submit that misses the flag is picked up when the park times out
+            lane.idle = true;
+            if (lane.queue.isEmpty()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            lane.idle = false;
+        }
+    }
+
+    private int drain(Lane lane) {
+        int drained = 0;
+        Runnable task;
+        while (drained < batchSize && (task = lane.queue.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                failed.increment();
+                log.warn("Could not process captured traffic.", e);
+            }
+            drained++;
+        }
+        processed.add(drained);
+        return drained;
+    }
+
+    /**
+     * Stops accepting events and waits up to {@code timeout} for the queued ones to be processed.
+     */
+    public void close(Duration timeout) throws InterruptedException {
+        running = false;
+        long deadlineNanos = System.nanoTime() + timeout.toNanos();
+        for (Lane lane : lanes) {
+            LockSupport.unpark(lane.thread);
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+            if (remainingMillis > 0) {
+                lane.thread.join(remainingMillis);
+            }
+        }
+        log.info("Capture dispatcher stopped: {}", getStats());
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        close(Duration.ofSeconds(10));
+    }
+}
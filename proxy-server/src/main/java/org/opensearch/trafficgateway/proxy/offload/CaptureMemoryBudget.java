@@ -0,0 +1,144 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.opentelemetry.api.metrics.Meter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * The memory that the content of captured messages may take across all connections, reserved by
+ * {@link TruncatingHttpObjectAggregator} for every chunk it keeps and released when the aggregated content is. A
+ * message whose content does not fit is captured without it, with only its headers and the length of its body, rather
+ * than letting captures take the heap the proxy needs. {@link TrafficAggregatingLogOffloader} reserves the buffers of
+ * the events queued for its capture thread as well, and captures the messages of an event that does not fit with their
+ * headers only.
+ *
+ * <p>A slice of a buffer keeps all of it alive, so what counts is the capacity of the buffers that kept content was
+ * sliced from, not only the bytes it keeps.
+ */
+@Log4j2
+public class CaptureMemoryBudget {
+    private static final long DEGRADED_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    @Value
+    public static class Stats {
+        long maxBytes;
+        long reservedBytes;
+        long degradedCaptures;
+        long abandonedCaptures;
+    }
+
+    private final long maxBytes;
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final LongAdder degradedCaptures = new LongAdder();
+    private final LongAdder abandonedCaptures = new LongAdder();
+    private final AtomicLong lastDegradedLogNanos = new AtomicLong(System.nanoTime() - DEGRADED_LOG_INTERVAL_NANOS);
+
+    public CaptureMemoryBudget(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative, got: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Reserves {@code bytes} if they fit. Returns false, and reserves nothing, if they do not.
+     */
+    boolean tryReserve(long bytes) {
+        long reserved;
+        do {
+            reserved = reservedBytes.get();
+            if (reserved + bytes > maxBytes) {
+                return false;
+            }
+        } while (!reservedBytes.compareAndSet(reserved, reserved + bytes));
+        return true;
+    }
+
+    void release(long bytes) {
+        reservedBytes.addAndGet(-bytes);
+    }
+
+    /**
+     * Counts a message captured without its content because the budget was exhausted.
+     */
+    void recordDegradedCapture() {
+        degradedCaptures.increment();
+        logExhausted();
+    }
+
+    /**
+     * Counts a connection whose capture was abandoned because one of its events could not be queued, which the
+     * {@link CaptureDispatcher} logs.
+     */
+    void recordAbandonedCapture() {
+        abandonedCaptures.increment();
+    }
+
+    private void logExhausted() {
+        long lastLogNanos = lastDegradedLogNanos.get();
+        long nowNanos = System.nanoTime();
+        if (nowNanos - lastLogNanos >= DEGRADED_LOG_INTERVAL_NANOS
+                && lastDegradedLogNanos.compareAndSet(lastLogNanos, nowNanos)) {
+            log.warn("Capture memory budget exhausted, capturing messages without their content: {}", getStats());
+        }
+    }
+
+    /**
+     * The buffer that a slice or duplicate keeps alive.
+     */
+    static ByteBuf getPinnedBuffer(ByteBuf buffer) {
+        ByteBuf pinnedBuffer = buffer;
+        while (pinnedBuffer.unwrap() != null) {
+            pinnedBuffer = pinnedBuffer.unwrap();
+        }
+        return pinnedBuffer;
+    }
+
+    /**
+     * The capacity of the buffers that a buffer keeps alive, counting those of consecutive components of a composite
+     * buffer that were sliced from the same buffer once.
+     */
+    static long getPinnedBytes(ByteBuf buffer) {
+        ByteBuf pinnedBuffer = getPinnedBuffer(buffer);
+        if (!(pinnedBuffer instanceof CompositeByteBuf)) {
+            return pinnedBuffer.capacity();
+        }
+
+        CompositeByteBuf composite = (CompositeByteBuf) pinnedBuffer;
+        long pinnedBytes = 0;
+        ByteBuf lastComponentBuffer = null;
+        for (int i = 0; i < composite.numComponents(); i++) {
+            ByteBuf componentBuffer = getPinnedBuffer(composite.internalComponent(i));
+            if (componentBuffer != lastComponentBuffer) {
+                pinnedBytes += getPinnedBytes(componentBuffer);
+                lastComponentBuffer = componentBuffer;
+            }
+        }
+        return pinnedBytes;
+    }
+
+    /**
+     * Reports the reserved bytes and the counts of {@link #getStats()} as instruments of {@code meter}, which are read
+     * whenever metrics are exported.
+     */
+    public void registerMetrics(@NonNull Meter meter) {
+        meter.upDownCounterBuilder("captureMemoryBudgetMaxBytes")
+                .buildWithCallback(measurement -> measurement.record(maxBytes));
+        meter.upDownCounterBuilder("captureMemoryBudgetReservedBytes")
+                .buildWithCallback(measurement -> measurement.record(reservedBytes.get()));
+        meter.counterBuilder("capturesDegraded")
+                .buildWithCallback(measurement -> measurement.record(degradedCaptures.sum()));
+        meter.counterBuilder("capturesAbandoned")
+                .buildWithCallback(measurement -> measurement.record(abandonedCaptures.sum()));
+    }
+
+    public Stats getStats() {
+        return new Stats(maxBytes, reservedBytes.get(), degradedCaptures.sum(), abandonedCaptures.sum());
+    }
+}
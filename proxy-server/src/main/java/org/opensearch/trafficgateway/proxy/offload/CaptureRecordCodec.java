@@ -0,0 +1,134 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.opensearch.trafficgateway.proxy.offload.SerializableHttpMessage.RequestType;
+
+/**
+ * The binary layout of a {@link SerializableHttpMessage} in capture segments: its fields in declaration order, strings
+ * as a length and UTF-8 bytes, collections as a count and their elements, and -1 for any null length or count.
+ */
+final class CaptureRecordCodec {
+    private static final int NULL = -1;
+
+    private CaptureRecordCodec() {}
+
+    static void encode(SerializableHttpMessage message, ByteBuf out) {
+        out.writeByte(message.getRequestType().ordinal());
+        writeString(out, message.getRequestId());
+        writeString(out, message.getUserId());
+        writeString(out, message.getUserToken());
+        out.writeLong(message.getTimestamp());
+        writeString(out, message.getMethod());
+        writeString(out, message.getPath());
+
+        Map<String, List<String>> queryParams = message.getQueryParams();
+        if (queryParams == null) {
+            out.writeInt(NULL);
+        } else {
+            out.writeInt(queryParams.size());
+            for (Map.Entry<String, List<String>> queryParam : queryParams.entrySet()) {
+                writeString(out, queryParam.getKey());
+                List<String> values = queryParam.getValue();
+                out.writeInt(values != null ? values.size() : NULL);
+                if (values != null) {
+                    values.forEach(value -> writeString(out, value));
+                }
+            }
+        }
+
+        List<Map.Entry<String, String>> headers = message.getHeaders();
+        if (headers == null) {
+            out.writeInt(NULL);
+        } else {
+            out.writeInt(headers.size());
+            for (Map.Entry<String, String> header : headers) {
+                writeString(out, header.getKey());
+                writeString(out, header.getValue());
+            }
+        }
+
+        out.writeInt(message.getResponseCode() != null ? message.getResponseCode() : NULL);
+        writeString(out, message.getResponseReason());
+        writeString(out, message.getBody());
+        out.writeLong(message.getBodyLength());
+        out.writeBoolean(message.isBodyTruncated());
+    }
+
+    private static void writeString(ByteBuf out, String value) {
+        if (value == null) {
+            out.writeInt(NULL);
+            return;
+        }
+        int lengthIndex = out.writerIndex();
+        out.writeInt(0);
+        int length = out.writeCharSequence(value, CharsetUtil.UTF_8);
+        out.setInt(lengthIndex, length);
+    }
+
+    static SerializableHttpMessage decode(ByteBuf in) {
+        RequestType requestType = RequestType.values()[in.readByte()];
+        String requestId = readString(in);
+        String userId = readString(in);
+        String userToken = readString(in);
+        long timestamp = in.readLong();
+        String method = readString(in);
+        String path = readString(in);
+
+        Map<String, List<String>> queryParams = null;
+        int queryParamCount = in.readInt();
+        if (queryParamCount != NULL) {
+            queryParams = new LinkedHashMap<>();
+            for (int i = 0; i < queryParamCount; i++) {
+                String name = readString(in);
+                int valueCount = in.readInt();
+                List<String> values = null;
+                if (valueCount != NULL) {
+                    values = new ArrayList<>(valueCount);
+                    for (int j = 0; j < valueCount; j++) {
+                        values.add(readString(in));
+                    }
+                }
+                queryParams.put(name, values);
+            }
+        }
+
+        List<Map.Entry<String, String>> headers = null;
+        int headerCount = in.readInt();
+        if (headerCount != NULL) {
+            headers = new ArrayList<>(headerCount);
+            for (int i = 0; i < headerCount; i++) {
+                headers.add(new SimpleImmutableEntry<>(readString(in), readString(in)));
+            }
+        }
+
+        int responseCode = in.readInt();
+        return new SerializableHttpMessage(
+                requestType,
+                requestId,
+                userId,
+                userToken,
+                timestamp,
+                method,
+                path,
+                queryParams,
+                headers,
+                responseCode != NULL ? responseCode : null,
+                readString(in),
+                readString(in),
+                in.readLong(),
+                in.readBoolean());
+    }
+
+    private static String readString(ByteBuf in) {
+        int length = in.readInt();
+        return length == NULL
+                ? null
+                : in.readCharSequence(length, CharsetUtil.UTF_8).toString();
+    }
+}
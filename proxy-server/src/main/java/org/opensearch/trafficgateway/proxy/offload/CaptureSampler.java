@@ -0,0 +1,136 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.regex.Pattern;
+import lombok.NonNull;
+import org.opensearch.trafficgateway.proxy.offload.CaptureSamplingConfiguration.CaptureRuleConfiguration;
+import org.opensearch.trafficgateway.proxy.util.UserIdExtractor;
+
+/**
+ * Decides from the request line and headers alone whether {@link TrafficAggregatingLogOffloader} captures a request,
+ * and from the status line whether it captures a response, and with it its request, regardless.
+ */
+public class CaptureSampler {
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    private static class Rule {
+        final Set<String> methods;
+        final Pattern pathPattern;
+        final Pattern indexPattern;
+        final Set<String> userIds;
+        final double sampleRate;
+
+        Rule(CaptureRuleConfiguration config) {
+            if (config.getSampleRate() < 0 || config.getSampleRate() > 1) {
+                throw new IllegalArgumentException(
+                        "sampleRate must be between 0 and 1, got: " + config.getSampleRate());
+            }
+            methods = config.getMethods() != null ? toUpperCase(config.getMethods()) : null;
+            pathPattern = config.getPathRegex() != null ? Pattern.compile(config.getPathRegex()) : null;
+            indexPattern = config.getIndexRegex() != null ? Pattern.compile(config.getIndexRegex()) : null;
+            userIds = config.getUserIds() != null ? new HashSet<>(config.getUserIds()) : null;
+            sampleRate = config.getSampleRate();
+        }
+
+        private static Set<String> toUpperCase(List<String> methods) {
+            Set<String> upperCaseMethods = new HashSet<>();
+            methods.forEach(method -> upperCaseMethods.add(method.toUpperCase(Locale.ROOT)));
+            return upperCaseMethods;
+        }
+    }
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final double defaultSampleRate;
+    private final int alwaysCaptureStatusFrom;
+    private final UserIdExtractor userIdExtractor = new UserIdExtractor();
+    private final DoubleSupplier random;
+
+    public CaptureSampler(@NonNull CaptureSamplingConfiguration config) {
+        this(config, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    CaptureSampler(@NonNull CaptureSamplingConfiguration config, @NonNull DoubleSupplier random) {
+        if (config.getDefaultSampleRate() < 0 || config.getDefaultSampleRate() > 1) {
+            throw new IllegalArgumentException(
+                    "defaultSampleRate must be between 0 and 1, got: " + config.getDefaultSampleRate());
+        }
+        for (CaptureRuleConfiguration ruleConfig : config.getRules()) {
+            rules.add(new Rule(ruleConfig));
+        }
+        this.defaultSampleRate = config.getDefaultSampleRate();
+        this.alwaysCaptureStatusFrom = config.getAlwaysCaptureStatusFrom();
+        this.random = random;
+    }
+
+    public static CaptureSampler load(@NonNull Path configFile) throws IOException {
+        return new CaptureSampler(JSON_MAPPER.readValue(configFile.toFile(), CaptureSamplingConfiguration.class));
+    }
+
+    public boolean shouldCapture(HttpRequest request) {
+        double sampleRate = getSampleRate(request);
+        return sampleRate >= 1 || (sampleRate > 0 && random.getAsDouble() < sampleRate);
+    }
+
+    /**
+     * Whether {@code response} is captured, together with its request, even if the request was not sampled.
+     */
+    public boolean shouldAlwaysCapture(HttpResponse response) {
+        return response.status().code() >= alwaysCaptureStatusFrom;
+    }
+
+    private double getSampleRate(HttpRequest request) {
+        String path = null;
+        String index = null;
+        String userId = null;
+        for (Rule rule : rules) {
+            if (rule.methods != null && !rule.methods.contains(request.method().name())) {
+                continue;
+            }
+            if (path == null && (rule.pathPattern != null || rule.indexPattern != null)) {
+                path = new QueryStringDecoder(request.uri()).path();
+            }
+            if (rule.pathPattern != null && !rule.pathPattern.matcher(path).matches()) {
+                continue;
+            }
+            if (rule.indexPattern != null) {
+                if (index == null) {
+                    index = getIndex(path);
+                }
+                if (!rule.indexPattern.matcher(index).matches()) {
+                    continue;
+                }
+            }
+            if (rule.userIds != null) {
+                if (userId == null) {
+                    userId = userIdExtractor.extractBasicAuthUserId(request.headers());
+                }
+                if (userId == null || !rule.userIds.contains(userId)) {
+                    continue;
+                }
+            }
+            return rule.sampleRate;
+        }
+        return defaultSampleRate;
+    }
+
+    private static String getIndex(String path) {
+        if (path.length() <= 1) {
+            return "*";
+        }
+        int end = path.indexOf('/', 1);
+        String firstSegment = end < 0 ? path.substring(1) : path.substring(1, end);
+        return firstSegment.startsWith("_") ? "*" : firstSegment;
+    }
+}
@@ -0,0 +1,44 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+/*
+ * Which requests are captured: each request is captured with the sampleRate of the first rule it matches, or
+ * defaultSampleRate if it matches none. Responses with a status of at least alwaysCaptureStatusFrom, such as
+ * governance rejections and errors, are captured together with their request even if that was not sampled.
+ */
+@Jacksonized
+@Builder
+@Value
+public class CaptureSamplingConfiguration {
+
+    /*
+     * A rule matches requests that match all of its criteria that are set: one of the methods, pathRegex on the path
+     * without query string, indexRegex on the target index (the first path segment, '*' for paths starting with '_')
+     * and one of the userIds of the Basic authorization header.
+     */
+    @Jacksonized
+    @Builder
+    @Value
+    public static class CaptureRuleConfiguration {
+        private final List<String> methods;
+        private final String pathRegex;
+        private final String indexRegex;
+        private final List<String> userIds;
+
+        @Builder.Default
+        private final double sampleRate = 1.0;
+    }
+
+    @Builder.Default
+    private final CaptureRuleConfiguration[] rules = new CaptureRuleConfiguration[0];
+
+    @Builder.Default
+    private final double defaultSampleRate = 1.0;
+
+    @Builder.Default
+    private final int alwaysCaptureStatusFrom = 400;
+}
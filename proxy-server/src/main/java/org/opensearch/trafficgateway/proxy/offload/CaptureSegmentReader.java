@@ -0,0 +1,126 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Converts the segments of a {@link SegmentedCaptureWriter} into the JSON lines the log capture prints, i.e. objects
+ * with the captured message as {@code message}, the {@code marker} and the {@code time} it was captured.
+ *
+ * <p>Usage: {@code CaptureSegmentReader <segment file or directory>...}, printing to standard output. The segments of a
+ * directory are read in the order they were written.
+ */
+public final class CaptureSegmentReader {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final DateTimeFormatter TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    private CaptureSegmentReader() {}
+
+    /**
+     * Calls {@code recordConsumer} with the time each record of {@code segment} was written and its message. A segment
+     * cut short, e.g. by a crash, is read up to its last complete record.
+     */
+    public static void read(Path segment, BiConsumer<Instant, SerializableHttpMessage> recordConsumer)
+            throws IOException {
+        MappedByteBuffer mappedSegment;
+        try (FileChannel channel = FileChannel.open(segment)) {
+            mappedSegment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        ByteBuf in = Unpooled.wrappedBuffer(mappedSegment);
+        if (in.readableBytes() < SegmentedCaptureWriter.SEGMENT_HEADER_LENGTH
+                || in.readInt() != SegmentedCaptureWriter.MAGIC) {
+            throw new IOException("Not a capture segment: " + segment);
+        }
+        byte version = in.readByte();
+        if (version != SegmentedCaptureWriter.VERSION) {
+            throw new IOException("Unsupported capture segment version " + version + ": " + segment);
+        }
+
+        while (in.readableBytes() >= Integer.BYTES) {
+            int length = in.readInt();
+            if (length == 0) {
+                break;
+            }
+            if (length < Long.BYTES || length > in.readableBytes()) {
+                // not logged, as the log goes to the standard output the JSON lines are written to
+                System.err.println("Segment " + segment + " ends with an incomplete record.");
+                break;
+            }
+            ByteBuf record = in.readSlice(length);
+            Instant writtenAt = Instant.ofEpochMilli(record.readLong());
+            recordConsumer.accept(writtenAt, CaptureRecordCodec.decode(record));
+        }
+    }
+
+    static void writeJsonLine(OutputStream out, Instant writtenAt, SerializableHttpMessage message) throws IOException {
+        try (JsonGenerator generator =
+                MAPPER.getFactory().createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            generator.writeStartObject();
+            generator.writeFieldName("message");
+            MAPPER.writeValue(generator, message);
+            generator.writeStringField("marker", TrafficAggregatingLogOffloader.CAPTURED_TRAFFIC_MARKER.getName());
+            generator.writeStringField("time", TIME_FORMATTER.format(writtenAt));
+            generator.writeEndObject();
+        }
+        out.write('\n');
+    }
+
+    private static List<Path> listSegments(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+        // segment names sort in the order they were written
+        try (Stream<Path> files = Files.list(path)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SegmentedCaptureWriter.SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: CaptureSegmentReader <segment file or directory>...");
+            System.exit(2);
+        }
+
+        List<Path> segments = new ArrayList<>();
+        for (String arg : args) {
+            segments.addAll(listSegments(Paths.get(arg)));
+        }
+
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out));
+        for (Path segment : segments) {
+            read(segment, (writtenAt, message) -> {
+                try {
+                    writeJsonLine(out, writtenAt, message);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        out.flush();
+    }
+}
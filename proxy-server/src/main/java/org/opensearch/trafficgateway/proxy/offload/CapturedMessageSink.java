@@ -0,0 +1,36 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import java.util.function.Consumer;
+
+/**
+ * Where {@link TrafficAggregatingLogOffloader} puts the requests and responses it captured. Called from whichever
+ * thread processes the capture, so implementations shared by offloaders must be thread safe.
+ */
+@FunctionalInterface
+public interface CapturedMessageSink {
+    void accept(SerializableHttpMessage message);
+
+    /**
+     * Whether messages passed now are taken without being dropped, e.g. because the system behind the sink falls
+     * behind. {@link SpillingCaptureSink} holds messages back on disk while it is not.
+     */
+    default boolean isAccepting() {
+        return true;
+    }
+
+    /**
+     * Passes a message on only if the sink takes it now, unlike {@link #accept}, which may still drop it while the sink
+     * falls behind. {@code onAcknowledged} is called once with {@code true} when the message is stored or rejected for
+     * good, or with {@code false} when it was dropped after all and should be offered again.
+     *
+     * @return whether the sink took the message.
+     */
+    default boolean offer(SerializableHttpMessage message, Consumer<Boolean> onAcknowledged) {
+        if (!isAccepting()) {
+            return false;
+        }
+        accept(message);
+        onAcknowledged.accept(true);
+        return true;
+    }
+}
@@ -1,14 +1,19 @@
 package org.opensearch.trafficgateway.proxy.offload;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.FullHttpRequest;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.net.SocketAddress;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 import lombok.extern.log4j.Log4j2;
 import org.opensearch.migrations.trafficcapture.IChannelConnectionCaptureSerializer;
+import org.opensearch.trafficgateway.proxy.util.DecodedRequestListener;
+import org.opensearch.trafficgateway.proxy.util.RequestIdentity;
 
 /*
  * TODO: This might be more maintainable if multiple netty handlers were used in succession and
@@ -16,8 +21,9 @@ import org.opensearch.migrations.trafficcapture.IChannelConnectionCaptureSeriali
  * offloading handlers)
  */
 @Log4j2
-public class MultiTargetOffloader implements IChannelConnectionCaptureSerializer<Object> {
+public class MultiTargetOffloader implements IChannelConnectionCaptureSerializer<Object>, DecodedRequestListener {
     private final IChannelConnectionCaptureSerializer<?>[] offloaders;
+    private final List<DecodedRequestListener> decodedRequestListeners = new ArrayList<>();
 
     public MultiTargetOffloader(IChannelConnectionCaptureSerializer<?>... offloaders) {
         this.offloaders = offloaders;
@@ -188,4 +194,25 @@ public class MultiTargetOffloader implements IChannelConnectionCaptureSerializer
             offloader.cancelCaptureForCurrentRequest(timestamp);
         }
     }
+
+    /*
+     * Takes the decoded requests if any of the offloaders does. The others keep getting only the raw bytes.
+     */
+    @Override
+    public boolean acceptDecodedRequests() {
+        for (IChannelConnectionCaptureSerializer<?> offloader : offloaders) {
+            if (offloader instanceof DecodedRequestListener
+                    && ((DecodedRequestListener) offloader).acceptDecodedRequests()) {
+                decodedRequestListeners.add((DecodedRequestListener) offloader);
+            }
+        }
+        return !decodedRequestListeners.isEmpty();
+    }
+
+    @Override
+    public void onDecodedRequest(FullHttpRequest request, RequestIdentity identity) {
+        for (DecodedRequestListener listener : decodedRequestListeners) {
+            listener.onDecodedRequest(request, identity);
+        }
+    }
 }
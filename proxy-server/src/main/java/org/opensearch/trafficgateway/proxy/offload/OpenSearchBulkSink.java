@@ -0,0 +1,591 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.pool.AbstractChannelPoolHandler;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.util.AttributeKey;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.ClosedChannelException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Indexes captured messages into an OpenSearch cluster with {@code _bulk} requests, sent from a Netty client thread of
+ * its own. Messages are batched until a batch is large enough or the flush interval passes. Up to
+ * {@code maxInFlightBatches} bulk requests are sent at a time, and failed ones are retried with exponential backoff, as
+ * are the messages of a batch that the cluster rejected with a 429 or 5xx item status. Every message is indexed with
+ * its request id and type as document id, so that retries do not duplicate it.
+ *
+ * <p>Messages are serialized on the calling thread; only appending them to the current batch is synchronized. Batches
+ * are queued and sent on the client thread, which owns all the sending state. Messages are only
+ * {@link #offer offered} successfully while fewer batches than fit in flight and in the queue are pending, so that
+ * offered messages are not dropped for a full queue.
+ */
+@Log4j2
+public class OpenSearchBulkSink implements CapturedMessageSink, Closeable {
+    private static final int MAX_RESPONSE_BYTES = 16 * 1024 * 1024;
+    private static final String BULK_PATH = "/_bulk?filter_path=errors,items.*.status";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final AttributeKey<Promise<FullHttpResponse>> RESPONSE_PROMISE =
+            AttributeKey.valueOf(OpenSearchBulkSink.class, "responsePromise");
+
+    @Value
+    public static class Stats {
+        long indexed;
+        long failed;
+        long dropped;
+        long retried;
+    }
+
+    private static class Batch {
+        final ByteBuf content;
+        final int actions;
+        final List<Consumer<Boolean>> acknowledgements;
+        int retries;
+
+        Batch(ByteBuf content, int actions, List<Consumer<Boolean>> acknowledgements) {
+            this.content = content;
+            this.actions = actions;
+            this.acknowledgements = acknowledgements;
+        }
+    }
+
+    private final OpenSearchBulkSinkOptions options;
+    private final String host;
+    private final int port;
+    private final String bulkUri;
+    private final String authorization;
+    private final byte[] actionPrefix;
+    private final EventLoopGroup eventLoopGroup;
+    private final EventLoop eventLoop;
+    private final ChannelPool channelPool;
+
+    // guarded by this
+    private ByteBuf currentBatch;
+    private int currentBatchActions;
+    private List<Consumer<Boolean>> currentBatchAcknowledgements = new ArrayList<>();
+    private boolean closed;
+
+    // taken from the current batch and not indexed or dropped yet
+    private final AtomicInteger pendingBatches = new AtomicInteger();
+
+    // only touched on the event loop
+    private final Deque<Batch> queuedBatches = new ArrayDeque<>();
+    private int inFlightBatches;
+    private int backingOffBatches;
+    private volatile boolean accepting = true;
+
+    private final LongAdder indexed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    public OpenSearchBulkSink(@NonNull OpenSearchBulkSinkOptions options) throws IOException {
+        if (options.getMaxBatchActions() <= 0 || options.getMaxBatchBytes() <= 0) {
+            throw new IllegalArgumentException("maxBatchActions and maxBatchBytes must be positive");
+        }
+        if (options.getMaxInFlightBatches() <= 0 || options.getMaxQueuedBatches() < 0) {
+            throw new IllegalArgumentException(
+                    "maxInFlightBatches must be positive and maxQueuedBatches must not be negative");
+        }
+        if (options.getFlushInterval().isZero() || options.getFlushInterval().isNegative()) {
+            throw new IllegalArgumentException("flushInterval must be positive, got: " + options.getFlushInterval());
+        }
+        if (!options.getIndex().matches("[^\"\\\\\\s,/*?<>|#]+")) {
+            throw new IllegalArgumentException("Not a valid index name: " + options.getIndex());
+        }
+
+        URI uri = options.getUri();
+        boolean tls = "https".equalsIgnoreCase(uri.getScheme());
+        if (!tls && !"http".equalsIgnoreCase(uri.getScheme())) {
+            throw new IllegalArgumentException("Only http and https are supported, got: " + uri);
+        }
+        this.options = options;
+        this.host = uri.getHost();
+        this.port = uri.getPort() != -1 ? uri.getPort() : tls ? 443 : 80;
+        String path = uri.getRawPath() == null ? "" : uri.getRawPath().replaceAll("/+$", "");
+        this.bulkUri = path + BULK_PATH;
+        this.authorization = uri.getRawUserInfo() == null
+                ? null
+                : "Basic "
+                        + Base64.getEncoder().encodeToString(uri.getUserInfo().getBytes(CharsetUtil.UTF_8));
+        this.actionPrefix =
+                ("{\"index\":{\"_index\":\"" + options.getIndex() + "\",\"_id\":\"").getBytes(CharsetUtil.UTF_8);
+
+        SslContext sslContext = tls ? newSslContext(options) : null;
+        eventLoopGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("captureBulkSink", true));
+        eventLoop = eventLoopGroup.next();
+        Bootstrap bootstrap =
+                new Bootstrap().group(eventLoop).channel(NioSocketChannel.class).remoteAddress(host, port);
+        channelPool = new FixedChannelPool(
+                bootstrap,
+                new AbstractChannelPoolHandler() {
+                    @Override
+                    public void channelCreated(Channel ch) {
+                        if (sslContext != null) {
+                            ch.pipeline().addLast(sslContext.newHandler(ch.alloc(), host, port));
+                        }
+                        ch.pipeline()
+                                .addLast(
+                                        new HttpClientCodec(),
+                                        new HttpObjectAggregator(MAX_RESPONSE_BYTES),
+                                        new ResponseHandler());
+                    }
+                },
+                options.getMaxInFlightBatches());
+
+        long flushIntervalMs = options.getFlushInterval().toMillis();
+        eventLoop.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static SslContext newSslContext(OpenSearchBulkSinkOptions options) throws IOException {
+        SslContextBuilder sslContextBuilder = SslContextBuilder.forClient()
+                // the credentials of the uri are only sent to the host they were given for
+                .endpointIdentificationAlgorithm("HTTPS");
+        if (options.getTrustedCertificates() != null) {
+            sslContextBuilder.trustManager(options.getTrustedCertificates());
+        }
+        return sslContextBuilder.build();
+    }
+
+    @Override
+    public void accept(SerializableHttpMessage message) {
+        append(message, null);
+    }
+
+    /**
+     * Takes the message unless the sink backs off or as many batches as fit in flight and in the queue are pending.
+     * It is acknowledged once its batch is indexed, with its messages that were rejected for good, or dropped.
+     */
+    @Override
+    public boolean offer(SerializableHttpMessage message, Consumer<Boolean> onAcknowledged) {
+        return append(message, onAcknowledged);
+    }
+
+    private boolean append(SerializableHttpMessage message, Consumer<Boolean> onAcknowledged) {
+        ByteBuf action = ByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            // request ids are UUIDs, which need no escaping
+            action.writeBytes(actionPrefix);
+            ByteBufUtil.writeUtf8(action, message.getRequestId());
+            action.writeByte('-');
+            ByteBufUtil.writeAscii(action, message.getRequestType().name().toLowerCase(Locale.ROOT));
+            ByteBufUtil.writeAscii(action, "\"}}\n");
+            MAPPER.writeValue((OutputStream) new ByteBufOutputStream(action), message);
+            action.writeByte('\n');
+            return append(action, onAcknowledged);
+        } catch (IOException e) {
+            log.warn("Could not serialize captured message.", e);
+            if (onAcknowledged != null) {
+                onAcknowledged.accept(true);
+            }
+            return true;
+        } finally {
+            action.release();
+        }
+    }
+
+    private boolean append(ByteBuf action, Consumer<Boolean> onAcknowledged) {
+        Batch fullBatch = null;
+        synchronized (this) {
+            if (onAcknowledged != null
+                    && (closed
+                            || !accepting
+                            || pendingBatches.get()
+                                    >= options.getMaxInFlightBatches() + options.getMaxQueuedBatches())) {
+                return false;
+            }
+            if (closed) {
+                dropped.increment();
+                return true;
+            }
+
+            if (currentBatch == null) {
+                currentBatch = ByteBufAllocator.DEFAULT.buffer();
+            }
+            currentBatch.writeBytes(action);
+            currentBatchActions++;
+            if (onAcknowledged != null) {
+                currentBatchAcknowledgements.add(onAcknowledged);
+            }
+            if (currentBatchActions >= options.getMaxBatchActions()
+                    || currentBatch.readableBytes() >= options.getMaxBatchBytes()) {
+                fullBatch = takeCurrentBatch();
+            }
+        }
+
+        if (fullBatch != null) {
+            Batch batch = fullBatch;
+            eventLoop.execute(() -> enqueue(batch));
+        }
+        return true;
+    }
+
+    /**
+     * Whether the cluster keeps up: no batch waits to be retried and there is room for another one.
+     */
+    @Override
+    public boolean isAccepting() {
+        return accepting;
+    }
+
+    private Batch takeCurrentBatch() {
+        if (currentBatch == null) {
+            return null;
+        }
+        Batch batch = new Batch(currentBatch, currentBatchActions, currentBatchAcknowledgements);
+        currentBatch = null;
+        currentBatchActions = 0;
+        currentBatchAcknowledgements = new ArrayList<>();
+        pendingBatches.incrementAndGet();
+        return batch;
+    }
+
+    private void flush() {
+        Batch batch;
+        synchronized (this) {
+            batch = takeCurrentBatch();
+        }
+        if (batch != null) {
+            enqueue(batch);
+        }
+    }
+
+    private void enqueue(Batch batch) {
+        if (queuedBatches.size() >= options.getMaxQueuedBatches()
+                && inFlightBatches >= options.getMaxInFlightBatches()) {
+            log.warn("Dropping a batch of {} captured messages, the cluster does not keep up.", batch.actions);
+            drop(batch);
+            return;
+        }
+        queuedBatches.addLast(batch);
+        sendQueuedBatches();
+    }
+
+    private void sendQueuedBatches() {
+        while (inFlightBatches < options.getMaxInFlightBatches() && !queuedBatches.isEmpty()) {
+            inFlightBatches++;
+            send(queuedBatches.pollFirst());
+        }
+        accepting = backingOffBatches == 0
+                && (queuedBatches.size() < options.getMaxQueuedBatches()
+                        || inFlightBatches < options.getMaxInFlightBatches());
+    }
+
+    private void send(Batch batch) {
+        channelPool.acquire().addListener((Future<Channel> acquireFuture) -> {
+            if (!acquireFuture.isSuccess()) {
+                onFailure(batch, acquireFuture.cause().toString());
+                return;
+            }
+
+            Channel channel = acquireFuture.getNow();
+            Promise<FullHttpResponse> responsePromise = eventLoop.newPromise();
+            channel.attr(RESPONSE_PROMISE).set(responsePromise);
+            ScheduledFuture<?> responseTimeout = eventLoop.schedule(
+                    () -> responsePromise.tryFailure(
+                            new TimeoutException("No bulk response within " + options.getResponseTimeout())),
+                    options.getResponseTimeout().toMillis(),
+                    TimeUnit.MILLISECONDS);
+            responsePromise.addListener((Future<FullHttpResponse> responseFuture) -> {
+                responseTimeout.cancel(false);
+                channel.attr(RESPONSE_PROMISE).set(null);
+                if (!responseFuture.isSuccess()) {
+                    channel.close();
+                    channelPool.release(channel);
+                    onFailure(batch, responseFuture.cause().toString());
+                    return;
+                }
+
+                FullHttpResponse response = responseFuture.getNow();
+                try {
+                    if (!HttpUtil.isKeepAlive(response)) {
+                        channel.close();
+                    }
+                    channelPool.release(channel);
+                    onResponse(batch, response);
+                } finally {
+                    response.release();
+                }
+            });
+
+            FullHttpRequest request = new DefaultFullHttpRequest(
+                    HttpVersion.HTTP_1_1, HttpMethod.POST, bulkUri, batch.content.retainedDuplicate());
+            request.headers()
+                    .set(HttpHeaderNames.HOST, host + ":" + port)
+                    .set(HttpHeaderNames.CONTENT_TYPE, "application/x-ndjson")
+                    .set(HttpHeaderNames.CONTENT_LENGTH, batch.content.readableBytes());
+            if (authorization != null) {
+                request.headers().set(HttpHeaderNames.AUTHORIZATION, authorization);
+            }
+            channel.writeAndFlush(request).addListener(writeFuture -> {
+                if (!writeFuture.isSuccess()) {
+                    responsePromise.tryFailure(writeFuture.cause());
+                }
+            });
+        });
+    }
+
+    private void onResponse(Batch batch, FullHttpResponse response) {
+        int status = response.status().code();
+        if (status == 429 || status >= 500) {
+            onFailure(batch, response.status().toString());
+            return;
+        }
+        if (status >= 300) {
+            log.warn(
+                    "Dropping a batch of {} captured messages rejected with {}: {}",
+                    batch.actions,
+                    response.status(),
+                    response.content().toString(CharsetUtil.UTF_8));
+            failed.add(batch.actions);
+            complete(batch);
+            return;
+        }
+
+        int failedItems = 0;
+        List<Integer> retryableItems = new ArrayList<>();
+        int item = 0;
+        for (int itemStatus : getFailedItemStatuses(response.content())) {
+            // items of other actions than those sent are not retried
+            if ((itemStatus == 429 || itemStatus >= 500) && item < batch.actions) {
+                retryableItems.add(item);
+            } else if (itemStatus < 200 || itemStatus >= 300) {
+                failedItems++;
+            }
+            item++;
+        }
+        if (failedItems > 0) {
+            log.warn("{} of {} captured messages were not indexed.", failedItems, batch.actions);
+        }
+        failed.add(failedItems);
+        indexed.add(batch.actions - failedItems - retryableItems.size());
+        if (retryableItems.isEmpty()) {
+            complete(batch);
+            return;
+        }
+
+        // the messages indexed already are acknowledged together with the retried ones
+        Batch retryBatch =
+                new Batch(sliceActions(batch.content, retryableItems), retryableItems.size(), batch.acknowledgements);
+        retryBatch.retries = batch.retries;
+        batch.content.release();
+        onFailure(retryBatch, retryableItems.size() + " items rejected with a 429 or 5xx status");
+    }
+
+    /*
+     * The status of every item of a bulk response that reports errors, missing ones as 0, or none if it reports none.
+     */
+    private static List<Integer> getFailedItemStatuses(ByteBuf content) {
+        List<Integer> itemStatuses = new ArrayList<>();
+        try {
+            JsonNode body = MAPPER.readTree(new ByteBufInputStream(content.duplicate()));
+            if (!body.path("errors").asBoolean()) {
+                return itemStatuses;
+            }
+            for (JsonNode item : body.path("items")) {
+                JsonNode result = item.elements().hasNext() ? item.elements().next() : null;
+                itemStatuses.add(result != null ? result.path("status").asInt() : 0);
+            }
+        } catch (IOException e) {
+            log.warn("Could not parse bulk response.", e);
+        }
+        return itemStatuses;
+    }
+
+    /*
+     * Copies the actions at the given ascending indexes, each an action line followed by a document line.
+     */
+    private static ByteBuf sliceActions(ByteBuf content, List<Integer> actionIndexes) {
+        ByteBuf slicedContent = ByteBufAllocator.DEFAULT.buffer();
+        int end = content.writerIndex();
+        int actionStart = content.readerIndex();
+        int action = 0;
+        for (int actionIndex : actionIndexes) {
+            for (; action < actionIndex; action++) {
+                actionStart = getLineEnd(content, getLineEnd(content, actionStart, end), end);
+            }
+            int actionEnd = getLineEnd(content, getLineEnd(content, actionStart, end), end);
+            slicedContent.writeBytes(content, actionStart, actionEnd - actionStart);
+            actionStart = actionEnd;
+            action++;
+        }
+        return slicedContent;
+    }
+
+    private static int getLineEnd(ByteBuf content, int lineStart, int end) {
+        int newline = content.indexOf(lineStart, end, (byte) '\n');
+        return newline != -1 ? newline + 1 : end;
+    }
+
+    private void onFailure(Batch batch, String cause) {
+        inFlightBatches--;
+        if (batch.retries >= options.getMaxRetries()) {
+            log.warn(
+                    "Dropping a batch of {} captured messages after {} retries: {}",
+                    batch.actions,
+                    batch.retries,
+                    cause);
+            drop(batch);
+            sendQueuedBatches();
+            return;
+        }
+
+        long backoffMs = Math.min(
+                options.getMaxBackoff().toMillis(),
+                options.getInitialBackoff().toMillis() << Math.min(batch.retries, 30));
+        batch.retries++;
+        retried.increment();
+        log.debug("Retrying a bulk request in {}ms: {}", backoffMs, cause);
+        backingOffBatches++;
+        eventLoop.schedule(
+                () -> {
+                    backingOffBatches--;
+                    queuedBatches.addFirst(batch);
+                    sendQueuedBatches();
+                },
+                backoffMs,
+                TimeUnit.MILLISECONDS);
+        sendQueuedBatches();
+    }
+
+    private void complete(Batch batch) {
+        batch.content.release();
+        pendingBatches.decrementAndGet();
+        inFlightBatches--;
+        sendQueuedBatches();
+        // once the sink accepts again, so that the acknowledged messages can be followed by more right away
+        batch.acknowledgements.forEach(acknowledgement -> acknowledgement.accept(true));
+    }
+
+    private void drop(Batch batch) {
+        dropped.add(batch.actions);
+        batch.content.release();
+        pendingBatches.decrementAndGet();
+        batch.acknowledgements.forEach(acknowledgement -> acknowledgement.accept(false));
+    }
+
+    public Stats getStats() {
+        return new Stats(indexed.sum(), failed.sum(), dropped.sum(), retried.sum());
+    }
+
+    /**
+     * Sends the current batch, and waits up to {@code timeout} for every batch to be indexed or given up on.
+     */
+    public void close(Duration timeout) throws InterruptedException {
+        Batch lastBatch;
+        synchronized (this) {
+            closed = true;
+            lastBatch = takeCurrentBatch();
+        }
+        if (lastBatch != null) {
+            eventLoop.execute(() -> enqueue(lastBatch));
+        }
+
+        long deadlineNanos = System.nanoTime() + timeout.toNanos();
+        try {
+            while (System.nanoTime() < deadlineNanos
+                    && !eventLoop
+                            .submit(() -> queuedBatches.isEmpty() && inFlightBatches == 0 && backingOffBatches == 0)
+                            .get()) {
+                Thread.sleep(50);
+            }
+        } catch (ExecutionException e) {
+            log.warn("Could not wait for captured messages to be indexed.", e);
+        }
+        channelPool.close();
+        eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+        log.info("Bulk capture sink stopped: {}", getStats());
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            close(Duration.ofSeconds(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * Completes the promise of the request in flight on this connection.
+     */
+    private static class ResponseHandler extends SimpleChannelInboundHandler<FullHttpResponse> {
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+            Promise<FullHttpResponse> promise =
+                    ctx.channel().attr(RESPONSE_PROMISE).get();
+            if (promise == null || !promise.trySuccess(response.retain())) {
+                response.release();
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            Promise<FullHttpResponse> promise =
+                    ctx.channel().attr(RESPONSE_PROMISE).get();
+            if (promise != null) {
+                promise.tryFailure(new ClosedChannelException());
+            }
+            ctx.fireChannelInactive();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            Promise<FullHttpResponse> promise =
+                    ctx.channel().attr(RESPONSE_PROMISE).get();
+            if (promise != null) {
+                promise.tryFailure(cause);
+            }
+            ctx.close();
+        }
+    }
+}
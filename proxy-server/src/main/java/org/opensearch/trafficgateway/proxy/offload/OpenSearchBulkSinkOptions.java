@@ -0,0 +1,87 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import java.io.File;
+import java.net.URI;
+import java.time.Duration;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Where and how {@link OpenSearchBulkSink} indexes captured traffic.
+ */
+@Builder
+@Value
+public class OpenSearchBulkSinkOptions {
+    /**
+     * The cluster to index into, http or https. User info in the URI is sent as basic authentication.
+     */
+    @NonNull
+    URI uri;
+
+    /**
+     * PEM file of the certificates to trust for an https {@link #uri}, null for the JVM's default trust store. The
+     * certificate of the cluster has to match its host either way.
+     */
+    File trustedCertificates;
+
+    @NonNull
+    @Builder.Default
+    String index = "captured-traffic";
+
+    /**
+     * A batch is sent once it holds this many messages...
+     */
+    @Builder.Default
+    int maxBatchActions = 1000;
+
+    /**
+     * ...or this many bytes...
+     */
+    @Builder.Default
+    int maxBatchBytes = 5 * 1024 * 1024;
+
+    /**
+     * ...or, with at least one message, once this much time passed since the last time-based flush.
+     */
+    @NonNull
+    @Builder.Default
+    Duration flushInterval = Duration.ofSeconds(1);
+
+    /**
+     * Bulk requests sent at the same time, each on a connection of its own.
+     */
+    @Builder.Default
+    int maxInFlightBatches = 2;
+
+    /**
+     * Full batches waiting for an in-flight slot, beyond which new batches are dropped.
+     */
+    @Builder.Default
+    int maxQueuedBatches = 8;
+
+    /**
+     * A bulk request without a response after this long fails like one whose connection was lost.
+     */
+    @NonNull
+    @Builder.Default
+    Duration responseTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Times a batch is sent again after a connection failure, a 429 or a 5xx response, before it is dropped. Messages
+     * rejected with a 429 or 5xx item status are sent again in a batch of their own as often.
+     */
+    @Builder.Default
+    int maxRetries = 5;
+
+    /**
+     * The wait before the first retry, doubling with every further one up to {@link #maxBackoff}.
+     */
+    @NonNull
+    @Builder.Default
+    Duration initialBackoff = Duration.ofMillis(200);
+
+    @NonNull
+    @Builder.Default
+    Duration maxBackoff = Duration.ofSeconds(10);
+}
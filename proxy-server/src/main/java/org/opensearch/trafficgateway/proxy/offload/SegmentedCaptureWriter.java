@@ -0,0 +1,130 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Writes captured messages as binary records into memory-mapped segment files, which {@link CaptureSegmentReader}
+ * turns back into JSON lines. A segment is mapped at its full size when it is created, so writing a record is a copy
+ * into memory, and cut to the records it holds once the next one takes over.
+ *
+ * <p>A segment starts with {@link #MAGIC} and {@link #VERSION}, followed by records of an int length, the time the
+ * record was written in epoch milliseconds and the {@link CaptureRecordCodec} bytes of the message. A zero length, as
+ * left by the preallocation, ends the segment early.
+ *
+ * <p>Messages are encoded on the calling thread; only the copy into the segment is serialized.
+ */
+@Log4j2
+public class SegmentedCaptureWriter implements CapturedMessageSink, Closeable {
+    static final int MAGIC = 0x4f544743; // "OTGC"
+    static final byte VERSION = 2;
+    static final int SEGMENT_HEADER_LENGTH = Integer.BYTES + Byte.BYTES;
+    static final int RECORD_HEADER_LENGTH = Integer.BYTES + Long.BYTES;
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final long createdMillis = System.currentTimeMillis();
+    private final Deque<Path> segments = new ArrayDeque<>();
+
+    private long segmentSequence;
+    private FileChannel segmentChannel;
+    private MappedByteBuffer segmentBuffer;
+    private boolean closed;
+
+    /**
+     * @param segmentSize the size segments are created with. Records larger than that get a segment of their own.
+     * @param maxSegments the segments kept, deleting the oldest ones, 0 to keep every segment.
+     */
+    public SegmentedCaptureWriter(@NonNull Path directory, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize <= SEGMENT_HEADER_LENGTH + RECORD_HEADER_LENGTH) {
+            throw new IllegalArgumentException("segmentSize is too small, got: " + segmentSize);
+        }
+        if (maxSegments < 0) {
+            throw new IllegalArgumentException("maxSegments must not be negative, got: " + maxSegments);
+        }
+
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+    }
+
+    @Override
+    public void accept(SerializableHttpMessage message) {
+        ByteBuf record = ByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            CaptureRecordCodec.encode(message, record);
+            write(record);
+        } catch (IOException e) {
+            log.warn("Could not write captured message to a segment.", e);
+        } finally {
+            record.release();
+        }
+    }
+
+    private synchronized void write(ByteBuf record) throws IOException {
+        if (closed) {
+            log.debug("Dropping captured message written after close.");
+            return;
+        }
+
+        int recordLength = RECORD_HEADER_LENGTH + record.readableBytes();
+        if (segmentBuffer == null || segmentBuffer.remaining() < recordLength) {
+            nextSegment(recordLength);
+        }
+        segmentBuffer.putInt(Long.BYTES + record.readableBytes());
+        segmentBuffer.putLong(System.currentTimeMillis());
+        segmentBuffer.put(record.nioBuffer());
+    }
+
+    private void nextSegment(int recordLength) throws IOException {
+        closeSegment();
+
+        Path segment =
+                directory.resolve(String.format("capture-%d-%06d%s", createdMillis, segmentSequence++, SEGMENT_SUFFIX));
+        segmentChannel = FileChannel.open(
+                segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segmentBuffer = segmentChannel.map(
+                FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, SEGMENT_HEADER_LENGTH + recordLength));
+        segmentBuffer.putInt(MAGIC).put(VERSION);
+
+        segments.addLast(segment);
+        while (maxSegments > 0 && segments.size() > maxSegments) {
+            Files.deleteIfExists(segments.removeFirst());
+        }
+    }
+
+    private void closeSegment() throws IOException {
+        if (segmentChannel == null) {
+            return;
+        }
+
+        try {
+            segmentBuffer.force();
+            // nothing touches the mapping beyond its position anymore
+            segmentChannel.truncate(segmentBuffer.position());
+        } finally {
+            segmentChannel.close();
+            segmentChannel = null;
+            segmentBuffer = null;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        closeSegment();
+    }
+}
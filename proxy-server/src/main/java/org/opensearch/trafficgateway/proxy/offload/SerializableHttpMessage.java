@@ -3,9 +3,11 @@ package org.opensearch.trafficgateway.proxy.offload;
 import java.util.List;
 import java.util.Map;
 import lombok.Value;
+import org.apache.logging.log4j.layout.template.json.util.JsonWriter;
+import org.opensearch.trafficgateway.logging.log4j.plugins.JsonWriterSerializable;
 
 @Value
-public class SerializableHttpMessage {
+public class SerializableHttpMessage implements JsonWriterSerializable {
     static enum RequestType {
         REQUEST,
         RESPONSE
@@ -23,4 +25,109 @@ public class SerializableHttpMessage {
     Integer responseCode;
     String responseReason;
     String body;
+    // the length of the original body in bytes, of which body may hold only the first maxContentLength
+    long bodyLength;
+    boolean bodyTruncated;
+
+    /*
+     * Writes the same JSON Jackson makes of this class, field by field: headers as single entry objects and nulls
+     * included.
+     */
+    @Override
+    public void writeTo(JsonWriter jsonWriter) {
+        jsonWriter.writeObjectStart();
+        writeStringField(jsonWriter, "requestType", requestType != null ? requestType.name() : null, false);
+        writeStringField(jsonWriter, "requestId", requestId, true);
+        writeStringField(jsonWriter, "userId", userId, true);
+        writeStringField(jsonWriter, "userToken", userToken, true);
+        jsonWriter.writeSeparator();
+        jsonWriter.writeObjectKey("timestamp");
+        jsonWriter.writeNumber(timestamp);
+        writeStringField(jsonWriter, "method", method, true);
+        writeStringField(jsonWriter, "path", path, true);
+
+        jsonWriter.writeSeparator();
+        jsonWriter.writeObjectKey("queryParams");
+        if (queryParams == null) {
+            jsonWriter.writeNull();
+        } else {
+            jsonWriter.writeObjectStart();
+            boolean first = true;
+            for (Map.Entry<String, List<String>> queryParam : queryParams.entrySet()) {
+                if (!first) {
+                    jsonWriter.writeSeparator();
+                }
+                first = false;
+                jsonWriter.writeObjectKey(queryParam.getKey());
+                writeStringArray(jsonWriter, queryParam.getValue());
+            }
+            jsonWriter.writeObjectEnd();
+        }
+
+        jsonWriter.writeSeparator();
+        jsonWriter.writeObjectKey("headers");
+        if (headers == null) {
+            jsonWriter.writeNull();
+        } else {
+            jsonWriter.writeArrayStart();
+            for (int i = 0; i < headers.size(); i++) {
+                if (i > 0) {
+                    jsonWriter.writeSeparator();
+                }
+                jsonWriter.writeObjectStart();
+                writeStringField(
+                        jsonWriter, headers.get(i).getKey(), headers.get(i).getValue(), false);
+                jsonWriter.writeObjectEnd();
+            }
+            jsonWriter.writeArrayEnd();
+        }
+
+        jsonWriter.writeSeparator();
+        jsonWriter.writeObjectKey("responseCode");
+        if (responseCode == null) {
+            jsonWriter.writeNull();
+        } else {
+            jsonWriter.writeNumber(responseCode.intValue());
+        }
+        writeStringField(jsonWriter, "responseReason", responseReason, true);
+        writeStringField(jsonWriter, "body", body, true);
+        jsonWriter.writeSeparator();
+        jsonWriter.writeObjectKey("bodyLength");
+        jsonWriter.writeNumber(bodyLength);
+        jsonWriter.writeSeparator();
+        jsonWriter.writeObjectKey("bodyTruncated");
+        jsonWriter.writeBoolean(bodyTruncated);
+        jsonWriter.writeObjectEnd();
+    }
+
+    private static void writeStringField(JsonWriter jsonWriter, String key, String value, boolean separator) {
+        if (separator) {
+            jsonWriter.writeSeparator();
+        }
+        jsonWriter.writeObjectKey(key);
+        writeString(jsonWriter, value);
+    }
+
+    private static void writeStringArray(JsonWriter jsonWriter, List<String> values) {
+        if (values == null) {
+            jsonWriter.writeNull();
+            return;
+        }
+        jsonWriter.writeArrayStart();
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                jsonWriter.writeSeparator();
+            }
+            writeString(jsonWriter, values.get(i));
+        }
+        jsonWriter.writeArrayEnd();
+    }
+
+    private static void writeString(JsonWriter jsonWriter, String value) {
+        if (value == null) {
+            jsonWriter.writeNull();
+        } else {
+            jsonWriter.writeString(value);
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package org.opensearch.trafficgateway.proxy.offload;
 
+import io.netty.handler.codec.http.FullHttpMessage;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpHeaderNames;
@@ -12,6 +13,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.opensearch.trafficgateway.proxy.offload.SerializableHttpMessage.RequestType;
+import org.opensearch.trafficgateway.proxy.offload.TruncatingHttpObjectAggregator.AggregatedHttpMessage;
+import org.opensearch.trafficgateway.proxy.util.RequestIdentity;
 import org.opensearch.trafficgateway.proxy.util.UserIdExtractor;
 
 public class SerializableHttpMessageFactory {
@@ -27,14 +30,30 @@ public class SerializableHttpMessageFactory {
         this.userIdExtractor = new UserIdExtractor(samlUserIdXPath, samlTokenCookieName);
     }
 
+    /**
+     * Whether responses are serialized with their body. Without it, only the length of their body is.
+     */
+    public boolean isKeepResponseBody() {
+        return keepResponseBody;
+    }
+
     public SerializableHttpMessage serializeRequest(String requestId, Instant timestamp, FullHttpRequest request) {
+        return serializeRequest(requestId, timestamp, request, null);
+    }
+
+    /**
+     * @param identity the identity of {@code request} if it was already extracted, null to extract it.
+     */
+    public SerializableHttpMessage serializeRequest(
+            String requestId, Instant timestamp, FullHttpRequest request, RequestIdentity identity) {
         HttpHeaders requestHeaders = request.headers();
 
         QueryStringDecoder queryStringDecoder = new QueryStringDecoder(request.uri());
         String requestBody = request.content().toString(CharsetUtil.UTF_8);
+        long requestBodyLength = getOriginalContentLength(request);
 
-        String userId = userIdExtractor.extractUserId(request);
-        String userToken = userIdExtractor.extractUserToken(request);
+        String userId = identity != null ? identity.getUserId() : userIdExtractor.extractUserId(request);
+        String userToken = identity != null ? identity.getUserToken() : userIdExtractor.extractUserToken(request);
 
         List<Map.Entry<String, String>> headerList = getHeadersToCapture(requestHeaders);
 
@@ -50,10 +69,13 @@ public class SerializableHttpMessageFactory {
                 headerList,
                 null,
                 null,
-                requestBody);
+                requestBody,
+                requestBodyLength,
+                requestBodyLength > request.content().readableBytes());
     }
 
     public SerializableHttpMessage serializeResponse(String requestId, Instant timestamp, FullHttpResponse response) {
+        long responseBodyLength = getOriginalContentLength(response);
         return new SerializableHttpMessage(
                 RequestType.RESPONSE,
                 requestId,
@@ -66,7 +88,15 @@ public class SerializableHttpMessageFactory {
                 getHeadersToCapture(response.headers()),
                 response.status().code(),
                 response.status().reasonPhrase(),
-                keepResponseBody ? response.content().toString(CharsetUtil.UTF_8) : null);
+                keepResponseBody ? response.content().toString(CharsetUtil.UTF_8) : null,
+                responseBodyLength,
+                keepResponseBody && responseBodyLength > response.content().readableBytes());
+    }
+
+    private static long getOriginalContentLength(FullHttpMessage message) {
+        return message instanceof AggregatedHttpMessage
+                ? ((AggregatedHttpMessage) message).getOriginalContentLength()
+                : message.content().readableBytes();
     }
 
     List<Map.Entry<String, String>> getHeadersToCapture(HttpHeaders headers) {
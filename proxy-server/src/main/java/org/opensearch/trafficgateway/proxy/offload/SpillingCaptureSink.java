@@ -0,0 +1,442 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Passes captured messages on to a sink while it {@link CapturedMessageSink#isAccepting() accepts} them, and appends
+ * them to a write-ahead log on disk while it does not. A thread of its own fsyncs the appended records every sync
+ * interval, so that one fsync commits every record appended since the last one, and replays the log to the sink
+ * oldest first with {@link CapturedMessageSink#offer}, for as long as the sink takes them. Messages are spilled until
+ * the log is replayed completely, so the sink gets them in the order they were captured.
+ *
+ * <p>The log is a directory of segments in the layout of {@link SegmentedCaptureWriter}, which
+ * {@link CaptureSegmentReader} reads as well. A segment is deleted once the sink acknowledged every message replayed
+ * from it, and replayed again from its start if the sink dropped any of them. The oldest segments are evicted when the
+ * log would outgrow its limit. Segments left over from an earlier run are replayed first; a segment replayed in part
+ * when the process stopped is replayed again from its start.
+ */
+@Log4j2
+public class SpillingCaptureSink implements CapturedMessageSink, Closeable {
+    static final String SEGMENT_PREFIX = "spill-";
+
+    @Value
+    public static class Stats {
+        long spilled;
+        long replayed;
+        long evictedSegments;
+    }
+
+    private static class Segment {
+        final Path path;
+        long size;
+        boolean deleted;
+        // replayed messages the sink has not acknowledged yet, and whether it dropped one of them
+        final AtomicInteger unacknowledged = new AtomicInteger();
+        volatile boolean dropped;
+
+        Segment(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+    }
+
+    private final CapturedMessageSink delegate;
+    private final Path directory;
+    private final int segmentSize;
+    private final long maxBytes;
+    private final long syncIntervalNanos;
+    private final long createdMillis = System.currentTimeMillis();
+    private final Thread spillThread;
+
+    // guarded by this
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long totalBytes;
+    private long segmentSequence;
+    private Segment activeSegment;
+    private FileChannel activeChannel;
+    private boolean dirty;
+    private volatile boolean spilling;
+    private volatile boolean closed;
+
+    // only touched on the spill thread
+    private Segment readSegment;
+    private FileChannel readChannel;
+    private long readPosition;
+    private long lastRecordPosition;
+
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder evictedSegments = new LongAdder();
+
+    /**
+     * @param segmentSize the size after which the log continues in a new segment.
+     * @param maxBytes the size of all segments beyond which the oldest ones are evicted, at least two segments.
+     * @param syncInterval how often appended records are fsynced, and the sink is checked for accepting messages again.
+     */
+    public SpillingCaptureSink(
+            @NonNull CapturedMessageSink delegate,
+            @NonNull Path directory,
+            int segmentSize,
+            long maxBytes,
+            @NonNull Duration syncInterval)
+            throws IOException {
+        if (segmentSize <= SegmentedCaptureWriter.SEGMENT_HEADER_LENGTH + SegmentedCaptureWriter.RECORD_HEADER_LENGTH) {
+            throw new IllegalArgumentException("segmentSize is too small, got: " + segmentSize);
+        }
+        if (maxBytes < 2L * segmentSize) {
+            throw new IllegalArgumentException("maxBytes must hold at least two segments, got: " + maxBytes);
+        }
+        if (syncInterval.isZero() || syncInterval.isNegative()) {
+            throw new IllegalArgumentException("syncInterval must be positive, got: " + syncInterval);
+        }
+
+        this.delegate = delegate;
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.maxBytes = maxBytes;
+        this.syncIntervalNanos = syncInterval.toNanos();
+        recoverSegments();
+
+        spillThread = new Thread(this::runSpillThread, "captureSpill");
+        spillThread.setDaemon(true);
+        spillThread.start();
+    }
+
+    private void recoverSegments() throws IOException {
+        List<Path> leftOver;
+        // segment names sort in the order they were written
+        try (Stream<Path> files = Files.list(directory)) {
+            leftOver = files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SegmentedCaptureWriter.SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        for (Path segment : leftOver) {
+            long size = Files.size(segment);
+            segments.addLast(new Segment(segment, size));
+            totalBytes += size;
+        }
+        if (!segments.isEmpty()) {
+            log.info("Replaying {} spilled capture segments of {} bytes.", segments.size(), totalBytes);
+            spilling = true;
+        }
+    }
+
+    @Override
+    public void accept(SerializableHttpMessage message) {
+        if (!spilling && delegate.isAccepting()) {
+            delegate.accept(message);
+            return;
+        }
+
+        ByteBuf record = ByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            record.writeInt(0);
+            record.writeLong(System.currentTimeMillis());
+            CaptureRecordCodec.encode(message, record);
+            record.setInt(0, record.readableBytes() - Integer.BYTES);
+            append(record);
+        } catch (IOException e) {
+            log.warn("Could not spill captured message.", e);
+        } finally {
+            record.release();
+        }
+    }
+
+    private synchronized void append(ByteBuf record) throws IOException {
+        if (closed) {
+            log.debug("Dropping captured message spilled after close.");
+            return;
+        }
+
+        int recordLength = record.readableBytes();
+        if (activeSegment == null
+                || (activeSegment.size + recordLength > segmentSize
+                        && activeSegment.size > SegmentedCaptureWriter.SEGMENT_HEADER_LENGTH)) {
+            nextSegment();
+        }
+        evictSegments(recordLength);
+
+        ByteBuffer buffer = record.nioBuffer();
+        while (buffer.hasRemaining()) {
+            activeChannel.write(buffer);
+        }
+        activeSegment.size += recordLength;
+        totalBytes += recordLength;
+        dirty = true;
+        spilling = true;
+        spilled.increment();
+    }
+
+    private void nextSegment() throws IOException {
+        sealActiveSegment();
+
+        Path path = directory.resolve(String.format(
+                "%s%d-%06d%s",
+                SEGMENT_PREFIX, createdMillis, segmentSequence++, SegmentedCaptureWriter.SEGMENT_SUFFIX));
+        activeChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SegmentedCaptureWriter.SEGMENT_HEADER_LENGTH)
+                .putInt(SegmentedCaptureWriter.MAGIC)
+                .put(SegmentedCaptureWriter.VERSION)
+                .flip();
+        while (header.hasRemaining()) {
+            activeChannel.write(header);
+        }
+        activeSegment = new Segment(path, SegmentedCaptureWriter.SEGMENT_HEADER_LENGTH);
+        segments.addLast(activeSegment);
+        totalBytes += activeSegment.size;
+    }
+
+    private void sealActiveSegment() throws IOException {
+        if (activeChannel == null) {
+            return;
+        }
+
+        try {
+            activeChannel.force(false);
+        } finally {
+            activeChannel.close();
+            activeChannel = null;
+            activeSegment = null;
+            dirty = false;
+        }
+    }
+
+    private void evictSegments(int recordLength) throws IOException {
+        while (totalBytes + recordLength > maxBytes && segments.peekFirst() != activeSegment) {
+            Segment oldest = segments.removeFirst();
+            oldest.deleted = true;
+            totalBytes -= oldest.size;
+            Files.deleteIfExists(oldest.path);
+            evictedSegments.increment();
+            log.warn("Evicted spilled capture segment {}, the capture sink does not keep up.", oldest.path);
+        }
+    }
+
+    private void runSpillThread() {
+        while (!closed) {
+            sync();
+            try {
+                replay();
+            } catch (RuntimeException e) {
+                log.warn("Could not replay spilled captured message.", e);
+            }
+            LockSupport.parkNanos(this, syncIntervalNanos);
+        }
+        closeReadChannel();
+    }
+
+    /*
+     * Commits every record appended since the last sync with a single fsync.
+     */
+    private void sync() {
+        FileChannel channel;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            channel = activeChannel;
+        }
+
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // sealed in the meantime, which forces it
+        } catch (IOException e) {
+            log.warn("Could not sync spilled captured messages.", e);
+        }
+    }
+
+    private void replay() {
+        while (!closed && spilling && delegate.isAccepting()) {
+            SerializableHttpMessage message = readNext();
+            if (message == null) {
+                return;
+            }
+            Segment segment = readSegment;
+            segment.unacknowledged.incrementAndGet();
+            if (!delegate.offer(message, stored -> acknowledge(segment, stored))) {
+                segment.unacknowledged.decrementAndGet();
+                readPosition = lastRecordPosition;
+                return;
+            }
+            replayed.increment();
+        }
+    }
+
+    /*
+     * Called from whichever thread the sink acknowledges messages on.
+     */
+    private void acknowledge(Segment segment, boolean stored) {
+        if (!stored) {
+            segment.dropped = true;
+        }
+        if (segment.unacknowledged.decrementAndGet() == 0) {
+            LockSupport.unpark(spillThread);
+        }
+    }
+
+    private SerializableHttpMessage readNext() {
+        while (true) {
+            long readableSize;
+            synchronized (this) {
+                if (readSegment == null || readSegment.deleted) {
+                    closeReadChannel();
+                    readSegment = segments.peekFirst();
+                    if (readSegment == null) {
+                        spilling = false;
+                        return null;
+                    }
+                    openReadChannel();
+                }
+
+                readableSize = readSegment.size;
+                if (readPosition >= readableSize) {
+                    if (readSegment == activeSegment) {
+                        // caught up with the appends, so the sink gets messages directly again once it is deleted
+                        try {
+                            sealActiveSegment();
+                        } catch (IOException e) {
+                            log.warn("Could not close spilled capture segment.", e);
+                        }
+                    }
+                    if (readSegment.unacknowledged.get() > 0) {
+                        return null;
+                    }
+                    if (readSegment.dropped) {
+                        log.info(
+                                "Replaying spilled capture segment {} again, the sink dropped some of it.",
+                                readSegment.path);
+                        readSegment.dropped = false;
+                        closeReadChannel();
+                        openReadChannel();
+                        continue;
+                    }
+                    deleteReadSegment();
+                    continue;
+                }
+            }
+
+            try {
+                ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+                readFully(lengthBuffer, readPosition);
+                int length = lengthBuffer.flip().getInt();
+                if (length < Long.BYTES || readPosition + Integer.BYTES + length > readableSize) {
+                    log.warn("Spilled capture segment {} ends with an incomplete record.", readSegment.path);
+                    readPosition = readableSize;
+                    continue;
+                }
+
+                ByteBuffer recordBuffer = ByteBuffer.allocate(length);
+                readFully(recordBuffer, readPosition + Integer.BYTES);
+                lastRecordPosition = readPosition;
+                readPosition += Integer.BYTES + length;
+                ByteBuf record = Unpooled.wrappedBuffer(recordBuffer.flip());
+                record.skipBytes(Long.BYTES);
+                return CaptureRecordCodec.decode(record);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not read spilled capture segment {}, skipping it.", readSegment.path, e);
+                readPosition = readableSize;
+            }
+        }
+    }
+
+    private void openReadChannel() {
+        readPosition = readSegment.size;
+        try {
+            readChannel = FileChannel.open(readSegment.path);
+            ByteBuffer header = ByteBuffer.allocate(SegmentedCaptureWriter.SEGMENT_HEADER_LENGTH);
+            readFully(header, 0);
+            header.flip();
+            if (header.getInt() != SegmentedCaptureWriter.MAGIC || header.get() != SegmentedCaptureWriter.VERSION) {
+                log.warn("Skipping {}, which is not a spilled capture segment.", readSegment.path);
+                return;
+            }
+            readPosition = SegmentedCaptureWriter.SEGMENT_HEADER_LENGTH;
+        } catch (IOException e) {
+            log.warn("Could not open spilled capture segment {}, skipping it.", readSegment.path, e);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (readChannel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private void deleteReadSegment() {
+        segments.remove(readSegment);
+        totalBytes -= readSegment.size;
+        try {
+            Files.deleteIfExists(readSegment.path);
+        } catch (IOException e) {
+            log.warn("Could not delete replayed capture segment {}.", readSegment.path, e);
+        }
+        closeReadChannel();
+        readSegment = null;
+    }
+
+    private void closeReadChannel() {
+        if (readChannel == null) {
+            return;
+        }
+        try {
+            readChannel.close();
+        } catch (IOException e) {
+            log.debug("Could not close spilled capture segment.", e);
+        }
+        readChannel = null;
+    }
+
+    public Stats getStats() {
+        return new Stats(spilled.sum(), replayed.sum(), evictedSegments.sum());
+    }
+
+    /**
+     * Stops replaying, and keeps the messages not replayed yet on disk for the next run.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(spillThread);
+        try {
+            spillThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            sealActiveSegment();
+        }
+        log.info("Capture spill stopped: {}", getStats());
+    }
+}
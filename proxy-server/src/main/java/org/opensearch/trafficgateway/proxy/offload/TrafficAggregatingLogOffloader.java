@@ -1,27 +1,81 @@
 package org.opensearch.trafficgateway.proxy.offload;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpObjectDecoder;
+import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpRequestDecoder;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseDecoder;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
 import java.io.IOException;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import lombok.NonNull;
 import lombok.extern.log4j.Log4j2;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.MarkerManager;
 import org.opensearch.migrations.trafficcapture.IChannelConnectionCaptureSerializer;
+import org.opensearch.trafficgateway.proxy.util.DecodedRequestListener;
+import org.opensearch.trafficgateway.proxy.util.RequestIdentity;
 import org.opensearch.trafficgateway.proxy.util.UserIdExtractor;
 
+/**
+ * Decodes the captured bytes of a connection into requests and responses and hands them to a
+ * {@link CapturedMessageSink}, by default logging them with {@link #CAPTURED_TRAFFIC_MARKER}. With a
+ * {@link CaptureDispatcher}, the events are only handed off on the event loop and all the work, and all the state of
+ * this offloader, lives on the connection's capture thread.
+ *
+ * <p>With a {@link CaptureSampler}, requests it does not select are only decoded up to their headers. Their content is
+ * held back as is until the status line of their response shows whether it is captured regardless, e.g. because it is
+ * an error, and dropped without being aggregated or serialized otherwise.
+ *
+ * <p>As a {@link DecodedRequestListener}, it takes the requests the governance handler already decoded, with their
+ * identity, instead of decoding the read bytes again. Only the written bytes are decoded then, and the requests that
+ * the capture predicate cancels are matched to the published ones in the order they were read.
+ *
+ * <p>Unless the message factory keeps response bodies, responses are only decoded to their status line and headers
+ * and the length of their body. Their content is released as it is decoded and never aggregated.
+ *
+ * <p>With a {@link CaptureMemoryBudget}, a buffer that does not fit it while it is queued for the capture thread is
+ * only queued as a copy of its head. The messages it holds content of are captured with their headers only, and the
+ * decoder is fed zeros in place of the rest to keep decoding the connection.
+ */
 @Log4j2
-public class TrafficAggregatingLogOffloader implements IChannelConnectionCaptureSerializer<Void> {
+public class TrafficAggregatingLogOffloader
+        implements IChannelConnectionCaptureSerializer<Void>, DecodedRequestListener {
     public static final int DEFAULT_MAX_CONTENT_LENGTH = 209715200; // 200 MB
     public static final Marker CAPTURED_TRAFFIC_MARKER =
             MarkerManager.getMarker("org.opensearch.trafficgateway.proxy.offload.CAPTURED_TRAFFIC");
+    public static final CapturedMessageSink LOG_SINK = message ->
+            CapturedTrafficLog.log.always().withMarker(CAPTURED_TRAFFIC_MARKER).log(message);
+
+    // enough for the head of most messages, the decoder does not accept headers longer than this by default
+    private static final int SKIPPED_BUFFER_HEAD_LENGTH = 8192;
+    // read-only, and never released by the decoder that it is fed to
+    private static final ByteBuf SKIPPED_BYTES_FILLER =
+            Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(new byte[8192]).asReadOnly());
 
     private static final SerializableHttpMessageFactory DEfAULT_MESSAGE_FACTORY_INSTANCE =
             new SerializableHttpMessageFactory(
@@ -30,21 +84,328 @@ public class TrafficAggregatingLogOffloader implements IChannelConnectionCapture
     private final EmbeddedChannel requestProcessingChannel;
     private final EmbeddedChannel responseProcessingChannel;
     private final SerializableHttpMessageFactory messageFactory;
+    private final CaptureDispatcher captureDispatcher;
+    private final CapturedMessageSink messageSink;
+    private final int captureLane;
+    private final CaptureSampler captureSampler;
+    private final CaptureMemoryBudget memoryBudget;
+    // set on the event loop once an event could not be queued, after which the rest of the connection cannot be decoded
+    private boolean captureAbandoned;
+    private boolean captureClosed;
+    // set on the event loop, the read bytes are only used for their timestamps then
+    private boolean decodedRequestsAccepted;
+    private boolean skippingRequestContent;
+    private Instant unpublishedReadTimestamp;
+    private Instant lastReadTimestamp;
+    // whether each request read but not published yet was cancelled, in the order they were read
+    private final Deque<Boolean> unpublishedRequestsCancelled = new ArrayDeque<>();
 
     private Instant currentRequestTimestamp = null;
     private Instant currentResponseTimestamp = null;
     private String currentRequestId;
+    private RequestIdentity currentRequestIdentity;
+    private ChannelHandlerContext requestDecoderContext;
+
+    /*
+     * Only creates the logger of the captured traffic once traffic is logged, rather than whenever the marker is
+     * referenced.
+     */
+    private static final class CapturedTrafficLog {
+        private static final Logger log = LogManager.getLogger(TrafficAggregatingLogOffloader.class);
+    }
+
+    private enum SamplingState {
+        CAPTURED,
+        HELD,
+        DROPPED
+    }
+
+    private static class SampledRequest {
+        SamplingState state;
+        final Instant timestamp;
+        final RequestIdentity identity;
+        final List<HttpObject> heldParts = new ArrayList<>();
+        long heldContentLength;
+        long reservedBytes;
+        // kept alive by the last held part, like the aggregator's
+        ByteBuf lastPinnedBuffer;
+        boolean heldContentDropped;
+
+        SampledRequest(SamplingState state, Instant timestamp, RequestIdentity identity) {
+            this.state = state;
+            this.timestamp = timestamp;
+            this.identity = identity;
+        }
+    }
+
+    // requests in the order they were read, until the head of their response is
+    private final Deque<SampledRequest> sampledRequests = new ArrayDeque<>();
+    private SampledRequest currentSampledRequest;
+    private boolean currentResponseCaptured = true;
+    private final int maxContentLength;
 
     public TrafficAggregatingLogOffloader() {
         this(DEFAULT_MAX_CONTENT_LENGTH, DEfAULT_MESSAGE_FACTORY_INSTANCE);
     }
 
     public TrafficAggregatingLogOffloader(int maxContentLength, SerializableHttpMessageFactory messageFactory) {
-        requestProcessingChannel = new EmbeddedChannel(
-                new HttpRequestDecoder(), new TruncatingHttpObjectAggregator(maxContentLength), new RequestLogger());
-        responseProcessingChannel = new EmbeddedChannel(
-                new HttpResponseDecoder(), new TruncatingHttpObjectAggregator(maxContentLength), new ResponseLogger());
+        this(maxContentLength, messageFactory, null, LOG_SINK);
+    }
+
+    /**
+     * @param captureDispatcher the dispatcher to process events on, null to process them on the calling thread.
+     */
+    public TrafficAggregatingLogOffloader(
+            int maxContentLength,
+            SerializableHttpMessageFactory messageFactory,
+            CaptureDispatcher captureDispatcher,
+            @NonNull CapturedMessageSink messageSink) {
+        this(maxContentLength, messageFactory, captureDispatcher, messageSink, null);
+    }
+
+    /**
+     * @param captureSampler decides which requests are captured, null to capture every request.
+     */
+    public TrafficAggregatingLogOffloader(
+            int maxContentLength,
+            SerializableHttpMessageFactory messageFactory,
+            CaptureDispatcher captureDispatcher,
+            @NonNull CapturedMessageSink messageSink,
+            CaptureSampler captureSampler) {
+        this(maxContentLength, messageFactory, captureDispatcher, messageSink, captureSampler, null);
+    }
+
+    /**
+     * @param memoryBudget the budget shared by all connections that captured content is reserved from, null to not
+     *     limit it.
+     */
+    public TrafficAggregatingLogOffloader(
+            int maxContentLength,
+            SerializableHttpMessageFactory messageFactory,
+            CaptureDispatcher captureDispatcher,
+            @NonNull CapturedMessageSink messageSink,
+            CaptureSampler captureSampler,
+            CaptureMemoryBudget memoryBudget) {
+        // the body of a response that is not kept only needs to be counted
+        int maxResponseContentLength = messageFactory.isKeepResponseBody() ? maxContentLength : 0;
+        if (captureSampler != null) {
+            requestProcessingChannel = new EmbeddedChannel(
+                    new HttpRequestDecoder(),
+                    new DecoderResynchronizer(),
+                    new RequestSampler(),
+                    new TruncatingHttpObjectAggregator(maxContentLength, memoryBudget),
+                    new RequestLogger());
+            responseProcessingChannel = new EmbeddedChannel(
+                    new HttpResponseDecoder(),
+                    new DecoderResynchronizer(),
+                    new ResponseSampler(),
+                    new TruncatingHttpObjectAggregator(maxResponseContentLength, memoryBudget),
+                    new ResponseLogger());
+        } else {
+            requestProcessingChannel = new EmbeddedChannel(
+                    new HttpRequestDecoder(),
+                    new DecoderResynchronizer(),
+                    new TruncatingHttpObjectAggregator(maxContentLength, memoryBudget),
+                    new RequestLogger());
+            responseProcessingChannel = new EmbeddedChannel(
+                    new HttpResponseDecoder(),
+                    new DecoderResynchronizer(),
+                    new TruncatingHttpObjectAggregator(maxResponseContentLength, memoryBudget),
+                    new ResponseLogger());
+        }
+        this.maxContentLength = maxContentLength;
         this.messageFactory = messageFactory;
+        this.captureDispatcher = captureDispatcher;
+        this.messageSink = messageSink;
+        this.captureLane = captureDispatcher != null ? captureDispatcher.nextLane() : 0;
+        this.captureSampler = captureSampler;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /*
+     * Drops what the decoder makes of the bytes after skipped bytes that were not all content, which it cannot stay in
+     * step across, until a message is decoded from the bytes after them again. The decoder fails on those, and is reset
+     * before the next buffer to pick up at the next message that starts one.
+     */
+    static class DecoderResynchronizer extends ChannelInboundHandlerAdapter {
+        boolean skipping;
+        boolean afterSkippedBytes;
+        boolean decoderFailed;
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (afterSkippedBytes && ((HttpObject) msg).decoderResult().isFailure()) {
+                decoderFailed = true;
+            }
+            if (decoderFailed) {
+                ReferenceCountUtil.release(msg);
+                return;
+            }
+            if (msg instanceof LastHttpContent && !skipping) {
+                afterSkippedBytes = false;
+            }
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    /*
+     * Passes on the parts of sampled requests and holds back those of the others until their response decides.
+     */
+    class RequestSampler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof HttpRequest) {
+                SamplingState state =
+                        captureSampler.shouldCapture((HttpRequest) msg) ? SamplingState.CAPTURED : SamplingState.HELD;
+                currentSampledRequest = new SampledRequest(state, currentRequestTimestamp, currentRequestIdentity);
+                sampledRequests.addLast(currentSampledRequest);
+            }
+
+            SampledRequest request = currentSampledRequest;
+            if (request == null || request.state == SamplingState.CAPTURED) {
+                ctx.fireChannelRead(msg);
+            } else if (request.state == SamplingState.HELD) {
+                hold(request, (HttpObject) msg);
+            } else {
+                ReferenceCountUtil.release(msg);
+            }
+
+            if (msg instanceof LastHttpContent) {
+                currentSampledRequest = null;
+                if (request != null && request.state != SamplingState.CAPTURED) {
+                    // not consumed by the request logger
+                    currentRequestTimestamp = null;
+                    currentRequestIdentity = null;
+                }
+            }
+        }
+
+        /*
+         * Holds slices of the content up to one byte more than the aggregator keeps, which is enough for it to still
+         * tell that the content was truncated. A full request is held as its head and its content.
+         */
+        private void hold(SampledRequest request, HttpObject part) {
+            if (part instanceof FullHttpRequest) {
+                FullHttpRequest fullRequest = (FullHttpRequest) part;
+                request.heldParts.add(new DefaultHttpRequest(
+                        fullRequest.protocolVersion(), fullRequest.method(), fullRequest.uri(), fullRequest.headers()));
+            } else if (!(part instanceof HttpContent)) {
+                request.heldParts.add(part);
+                return;
+            }
+
+            if (skippingRequestContent && !request.heldContentDropped) {
+                dropHeldContent(request);
+            }
+            ByteBuf content = ((HttpContent) part).content();
+            int length = (int)
+                    Math.max(0, Math.min(content.readableBytes(), maxContentLength + 1L - request.heldContentLength));
+            if (length > 0 && memoryBudget != null) {
+                ByteBuf pinnedBuffer = CaptureMemoryBudget.getPinnedBuffer(content);
+                long pinnedBytes =
+                        pinnedBuffer == request.lastPinnedBuffer ? 0 : CaptureMemoryBudget.getPinnedBytes(pinnedBuffer);
+                if (request.heldContentDropped || !memoryBudget.tryReserve(pinnedBytes)) {
+                    if (!request.heldContentDropped) {
+                        memoryBudget.recordDegradedCapture();
+                        request.heldContentDropped = true;
+                    }
+                    length = 0;
+                } else {
+                    request.reservedBytes += pinnedBytes;
+                    request.lastPinnedBuffer = pinnedBuffer;
+                }
+            }
+            request.heldContentLength += length;
+            ByteBuf heldContent = content.retainedSlice(content.readerIndex(), length);
+            if (part instanceof LastHttpContent) {
+                LastHttpContent heldLastContent = new DefaultLastHttpContent(heldContent);
+                heldLastContent.trailingHeaders().set(((LastHttpContent) part).trailingHeaders());
+                request.heldParts.add(heldLastContent);
+            } else {
+                request.heldParts.add(new DefaultHttpContent(heldContent));
+            }
+            ReferenceCountUtil.release(part);
+        }
+    }
+
+    /*
+     * Captures the response to a sampled request, and a response that is captured regardless together with its held
+     * back request. Drops the others.
+     */
+    class ResponseSampler extends ChannelInboundHandlerAdapter {
+        private ChannelHandlerContext requestSamplerContext;
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof HttpResponse
+                    && ((HttpResponse) msg).status().codeClass() != HttpStatusClass.INFORMATIONAL) {
+                SampledRequest request = sampledRequests.pollFirst();
+                HttpResponse response = (HttpResponse) msg;
+                currentResponseCaptured = request == null
+                        || request.state == SamplingState.CAPTURED
+                        || captureSampler.shouldAlwaysCapture(response);
+                if (request != null && request.state == SamplingState.HELD) {
+                    currentResponseCaptured = release(request, currentResponseCaptured);
+                }
+            }
+
+            if (currentResponseCaptured) {
+                ctx.fireChannelRead(msg);
+            } else {
+                ReferenceCountUtil.release(msg);
+                if (msg instanceof LastHttpContent) {
+                    // not consumed by the response logger
+                    currentResponseTimestamp = null;
+                }
+            }
+        }
+
+        /*
+         * Returns whether the request was captured, which it cannot be while a pipelined request after it is halfway
+         * through the aggregator.
+         */
+        private boolean release(SampledRequest request, boolean capture) {
+            if (capture
+                    && currentSampledRequest != null
+                    && currentSampledRequest != request
+                    && currentSampledRequest.state == SamplingState.CAPTURED) {
+                log.debug("Dropping an unsampled request behind a pipelined request that is being captured.");
+                capture = false;
+            }
+            request.state = capture ? SamplingState.CAPTURED : SamplingState.DROPPED;
+            if (!capture) {
+                releaseHeldParts(request);
+                return false;
+            }
+
+            if (requestSamplerContext == null) {
+                requestSamplerContext = requestProcessingChannel.pipeline().context(RequestSampler.class);
+            }
+            Instant nextRequestTimestamp = currentRequestTimestamp;
+            RequestIdentity nextRequestIdentity = currentRequestIdentity;
+            currentRequestTimestamp = request.timestamp;
+            currentRequestIdentity = request.identity;
+            request.heldParts.forEach(requestSamplerContext::fireChannelRead);
+            request.heldParts.clear();
+            // reserved again by the aggregator
+            releaseHeldParts(request);
+            if (request != currentSampledRequest) {
+                // otherwise the rest of the request is still to be read
+                currentRequestTimestamp = nextRequestTimestamp;
+                currentRequestIdentity = nextRequestIdentity;
+            }
+            return true;
+        }
+    }
+
+    private void releaseHeldParts(SampledRequest request) {
+        request.heldParts.forEach(ReferenceCountUtil::release);
+        request.heldParts.clear();
+        if (request.reservedBytes > 0) {
+            memoryBudget.release(request.reservedBytes);
+            request.reservedBytes = 0;
+        }
+        request.lastPinnedBuffer = null;
     }
 
     class RequestLogger extends SimpleChannelInboundHandler<FullHttpRequest> {
@@ -52,11 +413,12 @@ public class TrafficAggregatingLogOffloader implements IChannelConnectionCapture
         protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest msg) throws Exception {
             currentRequestId = UUID.randomUUID().toString();
 
-            SerializableHttpMessage request =
-                    messageFactory.serializeRequest(currentRequestId, currentRequestTimestamp, msg);
-            log.always().withMarker(CAPTURED_TRAFFIC_MARKER).log(request);
+            SerializableHttpMessage request = messageFactory.serializeRequest(
+                    currentRequestId, currentRequestTimestamp, msg, currentRequestIdentity);
+            messageSink.accept(request);
 
             currentRequestTimestamp = null;
+            currentRequestIdentity = null;
         }
     }
 
@@ -70,7 +432,7 @@ public class TrafficAggregatingLogOffloader implements IChannelConnectionCapture
 
             SerializableHttpMessage response =
                     messageFactory.serializeResponse(currentRequestId, currentResponseTimestamp, msg);
-            log.always().withMarker(CAPTURED_TRAFFIC_MARKER).log(response);
+            messageSink.accept(response);
             currentResponseTimestamp = null;
         }
     }
@@ -78,22 +440,272 @@ public class TrafficAggregatingLogOffloader implements IChannelConnectionCapture
     @Override
     public void addReadEvent(Instant timestamp, ByteBuf buffer) throws IOException {
         log.debug("Received read event in traffic offloader.");
-        if (currentRequestTimestamp == null) {
-            currentRequestTimestamp = timestamp;
+        if (decodedRequestsAccepted) {
+            if (unpublishedReadTimestamp == null) {
+                unpublishedReadTimestamp = timestamp;
+            }
+            lastReadTimestamp = timestamp;
+            return;
         }
-        requestProcessingChannel.writeInbound(buffer.retainedDuplicate());
-        requestProcessingChannel.releaseInbound();
-        requestProcessingChannel.releaseOutbound();
+        dispatch(true, timestamp, buffer);
     }
 
     @Override
     public void addWriteEvent(Instant timestamp, ByteBuf buffer) throws IOException {
         log.debug("Received write event in traffic offloader.");
-        if (currentResponseTimestamp == null) {
-            currentResponseTimestamp = timestamp;
+        dispatch(false, timestamp, buffer);
+    }
+
+    @Override
+    public boolean acceptDecodedRequests() {
+        decodedRequestsAccepted = true;
+        return true;
+    }
+
+    @Override
+    public void onDecodedRequest(FullHttpRequest request, RequestIdentity identity) {
+        Boolean cancelled = unpublishedRequestsCancelled.poll();
+        if (Boolean.TRUE.equals(cancelled)) {
+            // suppressed by the capture predicate when it was read
+            unpublishedReadTimestamp = null;
+            return;
+        }
+
+        // a request read together with the one before it is timed by that read
+        Instant timestamp = unpublishedReadTimestamp != null ? unpublishedReadTimestamp : lastReadTimestamp;
+        if (timestamp == null) {
+            timestamp = Instant.now();
+        }
+        unpublishedReadTimestamp = null;
+
+        long reservedBytes = reserveWhileQueued(request.content());
+        FullHttpRequest publishedRequest;
+        if (reservedBytes < 0) {
+            // captured with its headers only, like a request whose content the aggregator could not keep
+            memoryBudget.recordDegradedCapture();
+            reservedBytes = 0;
+            publishedRequest = request.replace(Unpooled.EMPTY_BUFFER);
+        } else {
+            // the aggregator sets the headers of the request, which replace() copies
+            publishedRequest = request.replace(request.content().retainedDuplicate());
+        }
+        Instant requestTimestamp = timestamp;
+        dispatch(
+                () -> processDecodedRequest(requestTimestamp, publishedRequest, identity),
+                publishedRequest,
+                reservedBytes);
+    }
+
+    /*
+     * The logging handler reads a request either to its end, or only until the capture predicate cancels it, so every
+     * request it reads ends with exactly one of these two, in the order the governance handler publishes them.
+     */
+    @Override
+    public void commitEndOfHttpMessageIndicator(Instant timestamp) throws IOException {
+        if (decodedRequestsAccepted) {
+            unpublishedRequestsCancelled.add(false);
+        }
+    }
+
+    @Override
+    public void cancelCaptureForCurrentRequest(Instant timestamp) throws IOException {
+        if (decodedRequestsAccepted) {
+            unpublishedRequestsCancelled.add(true);
+        }
+    }
+
+    @Override
+    public void addCloseEvent(Instant timestamp) throws IOException {
+        dispatchClose();
+    }
+
+    @Override
+    public CompletableFuture<Void> flushCommitAndResetStream(boolean isFinal) throws IOException {
+        if (isFinal) {
+            dispatchClose();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /*
+     * Releases what the connection still holds, which would otherwise keep its share of the memory budget.
+     */
+    private void dispatchClose() {
+        if (captureDispatcher == null) {
+            closeCapture();
+        } else if (!captureDispatcher.submitWaiting(captureLane, this::closeCapture)) {
+            log.debug("Could not queue the close of a capture, the capture dispatcher is stopped.");
+        }
+    }
+
+    private void closeCapture() {
+        if (captureClosed) {
+            return;
+        }
+        captureClosed = true;
+        sampledRequests.forEach(this::releaseHeldParts);
+        sampledRequests.clear();
+        currentSampledRequest = null;
+        requestProcessingChannel.finishAndReleaseAll();
+        responseProcessingChannel.finishAndReleaseAll();
+    }
+
+    private void dispatch(boolean read, Instant timestamp, ByteBuf buffer) {
+        if (captureAbandoned) {
+            return;
+        }
+        long reservedBytes = reserveWhileQueued(buffer);
+        if (reservedBytes < 0) {
+            // a copy of the head of the buffer does not keep it alive, and is enough to capture a message it starts
+            memoryBudget.recordDegradedCapture();
+            ByteBuf head =
+                    buffer.copy(buffer.readerIndex(), Math.min(buffer.readableBytes(), SKIPPED_BUFFER_HEAD_LENGTH));
+            int skippedLength = buffer.readableBytes() - head.readableBytes();
+            dispatch(() -> skip(read, timestamp, head, skippedLength), head, 0);
+            return;
+        }
+        // the caller may reuse the buffer once this returns, but not its content
+        ByteBuf retainedBuffer = buffer.retainedDuplicate();
+        dispatch(() -> process(read, timestamp, retainedBuffer), retainedBuffer, reservedBytes);
+    }
+
+    /*
+     * Reserves the memory that a buffer keeps alive while it waits for the capture thread. Returns the reserved bytes,
+     * or -1 if they do not fit.
+     */
+    private long reserveWhileQueued(ByteBuf buffer) {
+        if (captureDispatcher == null || memoryBudget == null) {
+            return 0;
+        }
+        long pinnedBytes = CaptureMemoryBudget.getPinnedBytes(buffer);
+        return memoryBudget.tryReserve(pinnedBytes) ? pinnedBytes : -1;
+    }
+
+    /*
+     * Runs the task on the capture thread, or releases what it would have processed if it cannot be queued. The
+     * reserved bytes are released once it ran.
+     */
+    private void dispatch(Runnable task, ReferenceCounted taskInput, long reservedBytes) {
+        if (captureDispatcher == null) {
+            task.run();
+            return;
+        }
+        Runnable queuedTask = reservedBytes == 0
+                ? task
+                : () -> {
+                    try {
+                        task.run();
+                    } finally {
+                        memoryBudget.release(reservedBytes);
+                    }
+                };
+        if (captureAbandoned || !captureDispatcher.submit(captureLane, queuedTask)) {
+            taskInput.release();
+            if (reservedBytes > 0) {
+                memoryBudget.release(reservedBytes);
+            }
+            if (!captureAbandoned && memoryBudget != null) {
+                memoryBudget.recordAbandonedCapture();
+            }
+            captureAbandoned = true;
+        }
+    }
+
+    /*
+     * Passes the request on from where the decoder would have, to be sampled, aggregated and logged like a decoded one.
+     */
+    private void processDecodedRequest(Instant timestamp, FullHttpRequest request, RequestIdentity identity) {
+        if (captureClosed) {
+            request.release();
+            return;
+        }
+        if (requestDecoderContext == null) {
+            requestDecoderContext = requestProcessingChannel.pipeline().context(HttpRequestDecoder.class);
+        }
+        currentRequestTimestamp = timestamp;
+        currentRequestIdentity = identity;
+        requestDecoderContext.fireChannelRead(request);
+        requestProcessingChannel.releaseInbound();
+    }
+
+    /*
+     * Stands in for a buffer that was not queued with the copy of its head. The messages that content of the buffer
+     * belongs to are captured with their headers only, and the decoder reads zeros in place of the rest of it, which
+     * keep it in step if they were content, and which it skips like other control characters between messages.
+     */
+    private void skip(boolean read, Instant timestamp, ByteBuf head, int skippedLength) {
+        if (captureClosed) {
+            head.release();
+            return;
+        }
+        EmbeddedChannel processingChannel = read ? requestProcessingChannel : responseProcessingChannel;
+        TruncatingHttpObjectAggregator aggregator =
+                processingChannel.pipeline().get(TruncatingHttpObjectAggregator.class);
+        DecoderResynchronizer resynchronizer = processingChannel.pipeline().get(DecoderResynchronizer.class);
+        if (read && currentSampledRequest != null && currentSampledRequest.state == SamplingState.HELD) {
+            dropHeldContent(currentSampledRequest);
+        }
+        aggregator.setDroppingContent(true);
+        skippingRequestContent = read;
+        resynchronizer.skipping = true;
+        resynchronizer.afterSkippedBytes = true;
+        try {
+            process(read, timestamp, head);
+            for (int skipped = 0; skipped < skippedLength; ) {
+                int fillerLength = Math.min(skippedLength - skipped, SKIPPED_BYTES_FILLER.capacity());
+                process(read, timestamp, SKIPPED_BYTES_FILLER.slice(0, fillerLength));
+                skipped += fillerLength;
+            }
+        } finally {
+            aggregator.setDroppingContent(false);
+            skippingRequestContent = false;
+            resynchronizer.skipping = false;
+        }
+    }
+
+    /*
+     * Holds the rest of the request without content and releases the content it holds already.
+     */
+    private void dropHeldContent(SampledRequest request) {
+        request.heldParts.replaceAll(part -> {
+            if (!(part instanceof HttpContent)) {
+                return part;
+            }
+            ReferenceCountUtil.release(part);
+            return new DefaultHttpContent(Unpooled.EMPTY_BUFFER);
+        });
+        if (request.reservedBytes > 0) {
+            memoryBudget.release(request.reservedBytes);
+            request.reservedBytes = 0;
+        }
+        request.lastPinnedBuffer = null;
+        request.heldContentDropped = true;
+    }
+
+    private void process(boolean read, Instant timestamp, ByteBuf buffer) {
+        if (captureClosed) {
+            buffer.release();
+            return;
+        }
+        EmbeddedChannel processingChannel;
+        if (read) {
+            if (currentRequestTimestamp == null) {
+                currentRequestTimestamp = timestamp;
+            }
+            processingChannel = requestProcessingChannel;
+        } else {
+            if (currentResponseTimestamp == null) {
+                currentResponseTimestamp = timestamp;
+            }
+            processingChannel = responseProcessingChannel;
+        }
+        DecoderResynchronizer resynchronizer = processingChannel.pipeline().get(DecoderResynchronizer.class);
+        if (resynchronizer.decoderFailed) {
+            processingChannel.pipeline().get(HttpObjectDecoder.class).reset();
+            resynchronizer.decoderFailed = false;
         }
-        responseProcessingChannel.writeInbound(buffer.retainedDuplicate());
-        responseProcessingChannel.releaseInbound();
-        responseProcessingChannel.releaseOutbound();
+        processingChannel.writeInbound(buffer);
+        processingChannel.releaseInbound();
+        processingChannel.releaseOutbound();
     }
 }
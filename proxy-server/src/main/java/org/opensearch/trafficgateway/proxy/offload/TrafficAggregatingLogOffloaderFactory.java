@@ -1,16 +1,19 @@
 package org.opensearch.trafficgateway.proxy.offload;
 
 import java.io.IOException;
-import lombok.AllArgsConstructor;
+import lombok.NonNull;
 import org.opensearch.migrations.tracing.commoncontexts.IConnectionContext;
 import org.opensearch.migrations.trafficcapture.IChannelConnectionCaptureSerializer;
 import org.opensearch.migrations.trafficcapture.IConnectionCaptureFactory;
 import org.opensearch.trafficgateway.proxy.util.UserIdExtractor;
 
-@AllArgsConstructor
 public class TrafficAggregatingLogOffloaderFactory implements IConnectionCaptureFactory<Void> {
     private final SerializableHttpMessageFactory messageFactory;
     private final int maxContentLength;
+    private final CaptureDispatcher captureDispatcher;
+    private final CapturedMessageSink messageSink;
+    private final CaptureSampler captureSampler;
+    private final CaptureMemoryBudget memoryBudget;
 
     public TrafficAggregatingLogOffloaderFactory() {
         this(false);
@@ -26,13 +29,75 @@ public class TrafficAggregatingLogOffloaderFactory implements IConnectionCapture
 
     public TrafficAggregatingLogOffloaderFactory(
             boolean keepResponseBody, int maxConentLenth, String samlUserIdXPath, String samlTokenCookieName) {
+        this(
+                keepResponseBody,
+                maxConentLenth,
+                samlUserIdXPath,
+                samlTokenCookieName,
+                null,
+                TrafficAggregatingLogOffloader.LOG_SINK);
+    }
+
+    /**
+     * @param captureDispatcher the dispatcher to process captured traffic on, null to process it on the event loops.
+     * @param messageSink where captured requests and responses go.
+     */
+    public TrafficAggregatingLogOffloaderFactory(
+            boolean keepResponseBody,
+            int maxConentLenth,
+            String samlUserIdXPath,
+            String samlTokenCookieName,
+            CaptureDispatcher captureDispatcher,
+            CapturedMessageSink messageSink) {
         this(
                 new SerializableHttpMessageFactory(keepResponseBody, samlUserIdXPath, samlTokenCookieName),
-                maxConentLenth);
+                maxConentLenth,
+                captureDispatcher,
+                messageSink);
+    }
+
+    public TrafficAggregatingLogOffloaderFactory(
+            SerializableHttpMessageFactory messageFactory,
+            int maxContentLength,
+            CaptureDispatcher captureDispatcher,
+            @NonNull CapturedMessageSink messageSink) {
+        this(messageFactory, maxContentLength, captureDispatcher, messageSink, null);
+    }
+
+    /**
+     * @param captureSampler decides which requests are captured, null to capture every request.
+     */
+    public TrafficAggregatingLogOffloaderFactory(
+            SerializableHttpMessageFactory messageFactory,
+            int maxContentLength,
+            CaptureDispatcher captureDispatcher,
+            @NonNull CapturedMessageSink messageSink,
+            CaptureSampler captureSampler) {
+        this(messageFactory, maxContentLength, captureDispatcher, messageSink, captureSampler, null);
+    }
+
+    /**
+     * @param memoryBudget the budget shared by all connections that captured content is reserved from, null to not
+     *     limit it.
+     */
+    public TrafficAggregatingLogOffloaderFactory(
+            SerializableHttpMessageFactory messageFactory,
+            int maxContentLength,
+            CaptureDispatcher captureDispatcher,
+            @NonNull CapturedMessageSink messageSink,
+            CaptureSampler captureSampler,
+            CaptureMemoryBudget memoryBudget) {
+        this.messageFactory = messageFactory;
+        this.maxContentLength = maxContentLength;
+        this.captureDispatcher = captureDispatcher;
+        this.messageSink = messageSink;
+        this.captureSampler = captureSampler;
+        this.memoryBudget = memoryBudget;
     }
 
     @Override
     public IChannelConnectionCaptureSerializer<Void> createOffloader(IConnectionContext ctx) throws IOException {
-        return new TrafficAggregatingLogOffloader(maxContentLength, messageFactory);
+        return new TrafficAggregatingLogOffloader(
+                maxContentLength, messageFactory, captureDispatcher, messageSink, captureSampler, memoryBudget);
     }
 }
@@ -1,77 +1,253 @@
 package org.opensearch.trafficgateway.proxy.offload;
 
-import static io.netty.buffer.Unpooled.copiedBuffer;
-
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufHolder;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.DecoderResult;
+import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
 import io.netty.handler.codec.http.FullHttpMessage;
 import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMessage;
 import io.netty.handler.codec.http.HttpObject;
-import io.netty.handler.codec.http.HttpObjectAggregator;
-import io.netty.util.CharsetUtil;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
 import java.util.List;
 
-/*
- * TODO: There is a similar class in opensearch-migrations project.
+/**
+ * Aggregates decoded HTTP messages into full messages that keep only the first {@code maxContentLength} bytes of their
+ * content, as retained slices of the decoded content rather than copies. The rest of the content is released as it
+ * streams by, so a message costs at most {@code maxContentLength} bytes however long it is. The aggregated messages
+ * are {@link AggregatedHttpMessage}s that know how long their content was. With a {@code maxContentLength} of 0,
+ * messages are aggregated from their headers alone and their content is only counted.
+ *
+ * <p>The slices keep the buffers they were decoded from alive until the message is released. With a
+ * {@link CaptureMemoryBudget}, the capacity of those buffers is reserved from it. A message whose content does not fit
+ * is aggregated without content.
  */
-public class TruncatingHttpObjectAggregator extends HttpObjectAggregator {
-    private static final ByteBuf TRUNCATED_TAG = copiedBuffer("...<TRUNCATED>", CharsetUtil.UTF_8);
+public class TruncatingHttpObjectAggregator extends MessageToMessageDecoder<HttpObject> {
+    public interface AggregatedHttpMessage extends FullHttpMessage {
+        /**
+         * The length of the content before it was truncated to {@code maxContentLength}.
+         */
+        long getOriginalContentLength();
+    }
+
+    private final int maxContentLength;
+    private final CaptureMemoryBudget memoryBudget;
+
+    private HttpMessage currentMessage;
+    private BudgetedContent currentContent;
+    private long currentContentLength;
+    private boolean currentContentDropped;
+    private boolean droppingContent;
 
     public TruncatingHttpObjectAggregator(int maxContentLength) {
-        super(maxContentLength, false);
+        this(maxContentLength, null);
+    }
+
+    /**
+     * @param memoryBudget the budget the kept content is reserved from, null to keep it regardless.
+     */
+    public TruncatingHttpObjectAggregator(int maxContentLength, CaptureMemoryBudget memoryBudget) {
+        if (maxContentLength < 0) {
+            throw new IllegalArgumentException("maxContentLength must not be negative, got: " + maxContentLength);
+        }
+        this.maxContentLength = maxContentLength;
+        this.memoryBudget = memoryBudget;
     }
 
     @Override
-    protected void decode(ChannelHandlerContext ctx, HttpObject msg, List<Object> out) throws Exception {
-        // truncate content otherwise decoder will not read it.
+    protected void decode(ChannelHandlerContext ctx, HttpObject msg, List<Object> out) {
+        if (msg instanceof HttpMessage) {
+            releaseCurrentMessage();
+            currentMessage = (HttpMessage) msg;
+            currentContent = maxContentLength > 0 ? new BudgetedContent(ctx.alloc()) : null;
+            currentContentLength = 0;
+            currentContentDropped = false;
+        }
+        if (currentMessage == null) {
+            // content of a message that started before this handler was added
+            return;
+        }
+
         if (msg instanceof HttpContent) {
-            HttpContent contentMsg = (HttpContent) msg;
-            if (contentMsg.content().readableBytes() > maxContentLength()) {
-                msg = contentMsg.replace(
-                        contentMsg.content().copy(0, maxContentLength() - TRUNCATED_TAG.readableBytes()));
-                ((HttpContent) msg).content().writeBytes(TRUNCATED_TAG, 0, TRUNCATED_TAG.readableBytes());
+            append(((HttpContent) msg).content());
+        }
+        if (msg instanceof LastHttpContent) {
+            out.add(finish((LastHttpContent) msg));
+        }
+    }
+
+    private void append(ByteBuf content) {
+        int length = content.readableBytes();
+        currentContentLength += length;
+        if (droppingContent) {
+            dropCurrentContent();
+        }
+        if (currentContent == null) {
+            return;
+        }
+        int keptLength = Math.min(length, maxContentLength - currentContent.readableBytes());
+        if (keptLength <= 0 || currentContentDropped) {
+            return;
+        }
+
+        if (memoryBudget != null) {
+            // consecutive chunks are usually sliced from the same buffer, which is only reserved once
+            ByteBuf pinnedBuffer = CaptureMemoryBudget.getPinnedBuffer(content);
+            long pinnedBytes = pinnedBuffer == currentContent.lastPinnedBuffer
+                    ? 0
+                    : CaptureMemoryBudget.getPinnedBytes(pinnedBuffer);
+            if (!memoryBudget.tryReserve(pinnedBytes)) {
+                // the message is captured without content rather than with some of it
+                memoryBudget.recordDegradedCapture();
+                dropCurrentContent();
+                return;
             }
+            currentContent.reservedBytes += pinnedBytes;
+            currentContent.lastPinnedBuffer = pinnedBuffer;
+        }
+        currentContent.addComponent(true, content.retainedSlice(content.readerIndex(), keptLength));
+    }
+
+    /**
+     * While dropping content, the messages that are aggregated are aggregated without content, like those whose content
+     * does not fit the budget.
+     */
+    void setDroppingContent(boolean droppingContent) {
+        this.droppingContent = droppingContent;
+        if (droppingContent) {
+            dropCurrentContent();
         }
+    }
 
-        super.decode(ctx, msg, out);
+    private void dropCurrentContent() {
+        if (currentContent == null || currentContentDropped) {
+            return;
+        }
+        ByteBufAllocator alloc = currentContent.alloc();
+        currentContent.release();
+        currentContent = new BudgetedContent(alloc);
+        currentContentDropped = true;
+    }
+
+    private AggregatedHttpMessage finish(LastHttpContent last) {
+        HttpMessage message = currentMessage;
+        HttpHeaders headers = message.headers();
+        HttpUtil.setTransferEncodingChunked(message, false);
+        if (!HttpUtil.isContentLengthSet(message)) {
+            headers.set(HttpHeaderNames.CONTENT_LENGTH, currentContentLength);
+        }
+
+        ByteBuf content = currentContent != null ? currentContent : Unpooled.EMPTY_BUFFER;
+        AggregatedHttpMessage aggregated;
+        if (message instanceof HttpRequest) {
+            aggregated = new AggregatedFullHttpRequest(
+                    (HttpRequest) message, content, last.trailingHeaders(), currentContentLength);
+        } else {
+            aggregated = new AggregatedFullHttpResponse(
+                    (HttpResponse) message, content, last.trailingHeaders(), currentContentLength);
+        }
+        DecoderResult decoderResult =
+                message.decoderResult().isSuccess() ? last.decoderResult() : message.decoderResult();
+        aggregated.setDecoderResult(decoderResult);
+
+        currentMessage = null;
+        currentContent = null;
+        return aggregated;
+    }
+
+    private void releaseCurrentMessage() {
+        if (currentContent != null) {
+            currentContent.release();
+            currentContent = null;
+        }
+        currentMessage = null;
     }
 
     @Override
-    protected boolean isContentLengthInvalid(HttpMessage start, int maxContentLength) {
-        // checked on initial message. Override this so that we still read partial
-        // content.
-        return false;
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        try {
+            super.channelInactive(ctx);
+        } finally {
+            releaseCurrentMessage();
+        }
     }
 
     @Override
-    protected void handleOversizedMessage(ChannelHandlerContext ctx, HttpMessage oversized) throws Exception {
-        FullHttpMessage truncatedMessage;
-        if (oversized instanceof FullHttpMessage) {
-            FullHttpMessage originalMessage = (FullHttpMessage) oversized;
-            truncatedMessage = originalMessage.replace(originalMessage
-                    .content()
-                    .copy(0, maxContentLength() - TRUNCATED_TAG.readableBytes())
-                    .writeBytes(TRUNCATED_TAG, 0, TRUNCATED_TAG.readableBytes()));
-        } else {
-            ByteBuf truncatedContent;
-            if (oversized instanceof ByteBufHolder) {
-                ByteBuf content = ((ByteBufHolder) oversized).content();
-                truncatedContent = content.copy(0, maxContentLength() - TRUNCATED_TAG.readableBytes())
-                        .writeBytes(TRUNCATED_TAG, 0, TRUNCATED_TAG.readableBytes());
-            } else {
-                truncatedContent = Unpooled.EMPTY_BUFFER;
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        try {
+            super.handlerRemoved(ctx);
+        } finally {
+            releaseCurrentMessage();
+        }
+    }
+
+    /*
+     * Content that gives its reservation back to the budget once it is released. Never consolidated, which would copy
+     * the components.
+     */
+    private class BudgetedContent extends CompositeByteBuf {
+        long reservedBytes;
+        // kept alive by the last component, so it cannot be recycled as another buffer while it is compared to
+        ByteBuf lastPinnedBuffer;
+
+        BudgetedContent(ByteBufAllocator alloc) {
+            super(alloc, false, Integer.MAX_VALUE);
+        }
+
+        @Override
+        protected void deallocate() {
+            super.deallocate();
+            if (reservedBytes > 0) {
+                memoryBudget.release(reservedBytes);
+                reservedBytes = 0;
             }
+            lastPinnedBuffer = null;
+        }
+    }
 
-            truncatedMessage = beginAggregation(oversized, truncatedContent);
+    private static class AggregatedFullHttpRequest extends DefaultFullHttpRequest implements AggregatedHttpMessage {
+        private final long originalContentLength;
+
+        AggregatedFullHttpRequest(
+                HttpRequest request, ByteBuf content, HttpHeaders trailingHeaders, long originalContentLength) {
+            super(
+                    request.protocolVersion(),
+                    request.method(),
+                    request.uri(),
+                    content,
+                    request.headers(),
+                    trailingHeaders);
+            this.originalContentLength = originalContentLength;
+        }
+
+        @Override
+        public long getOriginalContentLength() {
+            return originalContentLength;
         }
+    }
 
-        finishAggregation(truncatedMessage);
+    private static class AggregatedFullHttpResponse extends DefaultFullHttpResponse implements AggregatedHttpMessage {
+        private final long originalContentLength;
 
-        ctx.fireChannelRead(truncatedMessage);
+        AggregatedFullHttpResponse(
+                HttpResponse response, ByteBuf content, HttpHeaders trailingHeaders, long originalContentLength) {
+            super(response.protocolVersion(), response.status(), content, response.headers(), trailingHeaders);
+            this.originalContentLength = originalContentLength;
+        }
 
-        // super.handleOversizedMessage(ctx, oversized);
+        @Override
+        public long getOriginalContentLength() {
+            return originalContentLength;
+        }
     }
 }
@@ -0,0 +1,28 @@
+package org.opensearch.trafficgateway.proxy.util;
+
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.util.AttributeKey;
+
+/**
+ * Gets the requests of a connection as the governance stage decodes them, so that they need not be decoded again, e.g.
+ * to capture them. A listener is set as the {@link #ATTRIBUTE} of the channel before the governance handler is added.
+ */
+public interface DecodedRequestListener {
+    AttributeKey<DecodedRequestListener> ATTRIBUTE =
+            AttributeKey.valueOf(DecodedRequestListener.class, "decodedRequestListener");
+
+    /**
+     * Called once when the governance handler is added, before any request is read. Returns whether the listener takes
+     * the decoded requests from now on, instead of decoding them itself.
+     */
+    boolean acceptDecodedRequests();
+
+    /**
+     * Called on the event loop for every request, after the bypass key is removed from it and before the governance
+     * rules are evaluated. {@code request} is released after the call, so it has to be retained to be kept, and it is
+     * not to be modified.
+     *
+     * @param identity who sent the request, null if the governance rules did not need it extracted.
+     */
+    void onDecodedRequest(FullHttpRequest request, RequestIdentity identity);
+}
@@ -0,0 +1,93 @@
+package org.opensearch.trafficgateway.proxy.util;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import java.util.Locale;
+import java.util.concurrent.ThreadFactory;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * The netty transports the proxy can run on. Epoll avoids the selector overhead of NIO and supports SO_REUSEPORT,
+ * but needs the native library shipped with netty for Linux.
+ */
+@Log4j2
+public enum NettyTransport {
+    NIO {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new NioEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> getSocketChannelClass() {
+            return NioSocketChannel.class;
+        }
+    },
+    EPOLL {
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+            return new EpollEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public Class<? extends ServerChannel> getServerChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        public Class<? extends SocketChannel> getSocketChannelClass() {
+            return EpollSocketChannel.class;
+        }
+    };
+
+    public static final String AUTO = "auto";
+
+    public abstract EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory);
+
+    public abstract Class<? extends ServerChannel> getServerChannelClass();
+
+    public abstract Class<? extends SocketChannel> getSocketChannelClass();
+
+    /**
+     * Resolves {@code name}, case-insensitively. {@value #AUTO} picks epoll where it is available and NIO otherwise,
+     * while asking for epoll explicitly fails if it is not available.
+     */
+    public static NettyTransport fromName(String name) {
+        if (AUTO.equalsIgnoreCase(name)) {
+            if (Epoll.isAvailable()) {
+                return EPOLL;
+            }
+            log.info(
+                    "Epoll is not available, falling back to NIO: {}",
+                    Epoll.unavailabilityCause().toString());
+            return NIO;
+        }
+
+        NettyTransport transport = valueOf(name.toUpperCase(Locale.ROOT));
+        if (transport == EPOLL) {
+            Epoll.ensureAvailability();
+        }
+        return transport;
+    }
+
+    /**
+     * Returns the transport of the group {@code eventLoop} belongs to, which a channel registered on it has to use.
+     */
+    public static NettyTransport forEventLoop(EventLoop eventLoop) {
+        return eventLoop.parent() instanceof EpollEventLoopGroup ? EPOLL : NIO;
+    }
+}
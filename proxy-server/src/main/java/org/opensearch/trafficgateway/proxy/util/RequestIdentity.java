@@ -0,0 +1,12 @@
+package org.opensearch.trafficgateway.proxy.util;
+
+import lombok.Value;
+
+/**
+ * Who sent a request, as {@link UserIdExtractor} extracts it.
+ */
+@Value
+public class RequestIdentity {
+    String userId;
+    String userToken;
+}
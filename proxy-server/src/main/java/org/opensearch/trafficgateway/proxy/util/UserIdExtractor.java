@@ -72,6 +72,15 @@ public class UserIdExtractor {
         return null;
     }
 
+    /**
+     * Like {@link #extractUserId(FullHttpRequest)}, but only from the Basic authorization header, so that it needs
+     * nothing but the headers of a request.
+     */
+    public String extractBasicAuthUserId(HttpHeaders headers) {
+        String authHeader = headers.get(HttpHeaderNames.AUTHORIZATION);
+        return authHeader != null && authHeader.startsWith("Basic ") ? getUserIdFromAuthHeader(authHeader) : null;
+    }
+
     public String extractUserToken(HttpMessage message) {
         HttpHeaders headers = message.headers();
 
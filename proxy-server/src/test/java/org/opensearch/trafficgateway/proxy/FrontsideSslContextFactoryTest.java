@@ -0,0 +1,43 @@
+package org.opensearch.trafficgateway.proxy;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.netty.handler.ssl.SslProvider;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.common.settings.Settings;
+
+@ExtendWith(MockitoExtension.class)
+public class FrontsideSslContextFactoryTest extends UnitTestBase {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testThatTruncatedTicketKeyFileIsRejected() throws Exception {
+        // given
+        Path ticketKeyFile = Files.write(tempDir.resolve("ticket.keys"), new byte[47]);
+
+        // when / then
+        assertThatThrownBy(() -> FrontsideSslContextFactory.readTicketKeys(ticketKeyFile))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testThatKeystoreSettingsAreRejected() {
+        // given
+        Settings settings = Settings.builder()
+                .put(FrontsideSslContextFactory.KEYSTORE_FILEPATH, "keystore.jks")
+                .build();
+
+        // when / then
+        assertThatThrownBy(() -> FrontsideSslContextFactory.create(
+                        settings, tempDir, SslProvider.JDK, 0, Duration.ZERO, false, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("PEM");
+    }
+}
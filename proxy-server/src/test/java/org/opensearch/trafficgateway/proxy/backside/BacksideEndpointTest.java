@@ -0,0 +1,43 @@
+package org.opensearch.trafficgateway.proxy.backside;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+
+@ExtendWith(MockitoExtension.class)
+public class BacksideEndpointTest extends UnitTestBase {
+    @Test
+    void testThatEndpointIsEjectedAndReadmitted() {
+        // given
+        AtomicLong nanos = new AtomicLong();
+        var endpoint =
+                new BacksideEndpoint(URI.create("https://localhost"), null, 2, Duration.ofSeconds(10), nanos::get);
+
+        // when
+        endpoint.onFailure();
+        boolean availableAfterOneFailure = endpoint.isAvailable();
+        endpoint.onFailure();
+        boolean availableAfterTwoFailures = endpoint.isAvailable();
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+        boolean availableAfterEjection = endpoint.isAvailable();
+        endpoint.onFailure();
+        boolean availableAfterFailureOnProbation = endpoint.isAvailable();
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+        endpoint.onSuccess();
+        endpoint.onFailure();
+
+        // then
+        assertThat(endpoint.getPort()).isEqualTo(443);
+        assertThat(availableAfterOneFailure).isTrue();
+        assertThat(availableAfterTwoFailures).isFalse();
+        assertThat(availableAfterEjection).isTrue();
+        assertThat(availableAfterFailureOnProbation).isFalse();
+        assertThat(endpoint.isAvailable()).isTrue();
+    }
+}
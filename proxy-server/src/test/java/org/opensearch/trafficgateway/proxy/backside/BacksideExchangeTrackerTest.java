@@ -0,0 +1,135 @@
+package org.opensearch.trafficgateway.proxy.backside;
+
+import static io.netty.buffer.Unpooled.copiedBuffer;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import java.net.URI;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+
+@ExtendWith(MockitoExtension.class)
+public class BacksideExchangeTrackerTest extends UnitTestBase {
+    private static final String GET_REQUEST =
+            "GET /logs/_search HTTP/1.1\r\nhost: localhost\r\ncontent-length: 0\r\n\r\n";
+    private static final String HEAD_REQUEST = "HEAD /logs HTTP/1.1\r\nhost: localhost\r\n\r\n";
+    private static final String RESPONSE = "HTTP/1.1 200 OK\r\ncontent-length: 2\r\n\r\n{}";
+
+    private BacksideEndpoint endpoint;
+    private BacksideExchangeTracker tracker;
+    private EmbeddedChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        endpoint = new BacksideEndpoint(URI.create("http://localhost:9200"), null, 1, Duration.ofSeconds(30));
+        tracker = new BacksideExchangeTracker(endpoint);
+        channel = new EmbeddedChannel(tracker);
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    private void writeRequest(String request) {
+        channel.writeOutbound(copiedBuffer(request, CharsetUtil.UTF_8));
+    }
+
+    private void readResponse(String response) {
+        channel.writeInbound(copiedBuffer(response, CharsetUtil.UTF_8));
+    }
+
+    @Test
+    void testThatConnectionIsReusableOnlyOnceAllResponsesAreRead() {
+        // given
+        writeRequest(GET_REQUEST);
+        writeRequest(GET_REQUEST);
+
+        // when
+        readResponse(RESPONSE);
+        boolean reusableAfterFirstResponse = tracker.isReusable();
+        readResponse(RESPONSE.substring(0, 30));
+        boolean reusableDuringSecondResponse = tracker.isReusable();
+        readResponse(RESPONSE.substring(30));
+
+        // then
+        assertThat(reusableAfterFirstResponse).isFalse();
+        assertThat(reusableDuringSecondResponse).isFalse();
+        assertThat(tracker.isReusable()).isTrue();
+    }
+
+    @Test
+    void testThatResponseToHeadHasNoContent() {
+        // given
+        writeRequest(HEAD_REQUEST);
+
+        // when
+        readResponse("HTTP/1.1 200 OK\r\ncontent-length: 1234\r\n\r\n");
+
+        // then
+        assertThat(tracker.isReusable()).isTrue();
+    }
+
+    @Test
+    void testThatInformationalResponseDoesNotCompleteRequest() {
+        // given
+        writeRequest(GET_REQUEST);
+
+        // when
+        readResponse("HTTP/1.1 100 Continue\r\n\r\n");
+        boolean reusableAfterContinue = tracker.isReusable();
+        readResponse(RESPONSE);
+
+        // then
+        assertThat(reusableAfterContinue).isFalse();
+        assertThat(tracker.isReusable()).isTrue();
+    }
+
+    @Test
+    void testThatClosingResponseIsNotReusable() {
+        // given
+        writeRequest(GET_REQUEST);
+
+        // when
+        readResponse("HTTP/1.1 200 OK\r\nconnection: close\r\ncontent-length: 2\r\n\r\n{}");
+
+        // then
+        assertThat(tracker.isReusable()).isFalse();
+    }
+
+    @Test
+    void testThatOutstandingRequestsAreCountedAtEndpoint() {
+        // given
+        writeRequest(GET_REQUEST);
+        writeRequest(GET_REQUEST);
+
+        // when
+        int outstandingBeforeResponses = endpoint.getOutstandingRequests();
+        readResponse(RESPONSE);
+
+        // then
+        assertThat(outstandingBeforeResponses).isEqualTo(2);
+        assertThat(endpoint.getOutstandingRequests()).isEqualTo(1);
+        channel.close();
+        assertThat(endpoint.getOutstandingRequests()).isZero();
+    }
+
+    @Test
+    void testThatGatewayErrorIsReportedAsFailure() {
+        // given
+        writeRequest(GET_REQUEST);
+
+        // when
+        readResponse("HTTP/1.1 503 Service Unavailable\r\ncontent-length: 0\r\n\r\n");
+
+        // then
+        assertThat(endpoint.isAvailable()).isFalse();
+        assertThat(tracker.isReusable()).isTrue();
+    }
+}
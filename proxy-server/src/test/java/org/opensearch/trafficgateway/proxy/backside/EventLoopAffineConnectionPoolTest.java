@@ -0,0 +1,267 @@
+package org.opensearch.trafficgateway.proxy.backside;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import io.opentelemetry.api.metrics.LongCounterBuilder;
+import io.opentelemetry.api.metrics.LongUpDownCounterBuilder;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableLongMeasurement;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+
+@ExtendWith(MockitoExtension.class)
+public class EventLoopAffineConnectionPoolTest extends UnitTestBase {
+    private EventLoopGroup eventLoopGroup;
+    private EventLoop eventLoop;
+    private final List<Channel> stubServers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        eventLoopGroup = new NioEventLoopGroup(1);
+        eventLoop = eventLoopGroup.next();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        stubServers.forEach(Channel::close);
+        eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+
+    /*
+     * Starts a local server on an ephemeral port that answers every request with an empty response of status.
+     */
+    private BacksideEndpoint startStubServer(HttpResponseStatus status) throws InterruptedException {
+        Channel server = new ServerBootstrap()
+                .group(eventLoopGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline()
+                                .addLast(
+                                        new HttpServerCodec(),
+                                        new HttpObjectAggregator(1024),
+                                        new SimpleChannelInboundHandler<FullHttpRequest>() {
+                                            @Override
+                                            protected void channelRead0(
+                                                    ChannelHandlerContext ctx, FullHttpRequest request) {
+                                                var response =
+                                                        new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status);
+                                                response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+                                                ctx.writeAndFlush(response);
+                                            }
+                                        });
+                    }
+                })
+                .bind("127.0.0.1", 0)
+                .sync()
+                .channel();
+        stubServers.add(server);
+        return createEndpoint(((InetSocketAddress) server.localAddress()).getPort());
+    }
+
+    private static BacksideEndpoint createEndpoint(int port) {
+        return new BacksideEndpoint(URI.create("http://127.0.0.1:" + port), null, 1, Duration.ofSeconds(30));
+    }
+
+    private static EventLoopAffineConnectionPool createPool(
+            List<BacksideEndpoint> endpoints, EventLoopAffineConnectionPool.LoadBalancing loadBalancing) {
+        return new EventLoopAffineConnectionPool(
+                endpoints, loadBalancing, 0, Duration.ZERO, Duration.ofSeconds(1), "/_cluster/health");
+    }
+
+    private Channel acquire(EventLoopAffineConnectionPool pool) throws Exception {
+        return eventLoop.submit(() -> pool.acquire(eventLoop)).get().get(5, TimeUnit.SECONDS);
+    }
+
+    private static void awaitUnavailable(BacksideEndpoint endpoint) throws InterruptedException {
+        for (int i = 0; i < 50 && endpoint.isAvailable(); i++) {
+            Thread.sleep(100);
+        }
+    }
+
+    @Test
+    void testThatLeastOutstandingRequestsIsChosen() throws Exception {
+        // given
+        BacksideEndpoint busyEndpoint = startStubServer(HttpResponseStatus.OK);
+        BacksideEndpoint idleEndpoint = startStubServer(HttpResponseStatus.OK);
+        busyEndpoint.onRequestStarted();
+        var pool = createPool(
+                List.of(busyEndpoint, idleEndpoint),
+                EventLoopAffineConnectionPool.LoadBalancing.LEAST_OUTSTANDING_REQUESTS);
+
+        // when
+        Channel channel = acquire(pool);
+
+        // then
+        assertThat(((InetSocketAddress) channel.remoteAddress()).getPort()).isEqualTo(idleEndpoint.getPort());
+        pool.release(channel);
+    }
+
+    @Test
+    void testThatEjectedEndpointIsSkipped() {
+        // given
+        BacksideEndpoint ejectedEndpoint = createEndpoint(9200);
+        BacksideEndpoint availableEndpoint = createEndpoint(9201);
+        ejectedEndpoint.onFailure();
+        var pool = createPool(
+                List.of(ejectedEndpoint, availableEndpoint),
+                EventLoopAffineConnectionPool.LoadBalancing.POWER_OF_TWO_CHOICES);
+
+        // when
+        List<Integer> chosen = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            chosen.add(pool.chooseEndpoint());
+        }
+
+        // then
+        assertThat(chosen).containsOnly(1);
+    }
+
+    @Test
+    void testThatAllEndpointsAreUsedWhenAllAreEjected() {
+        // given
+        BacksideEndpoint first = createEndpoint(9200);
+        BacksideEndpoint second = createEndpoint(9201);
+        first.onFailure();
+        second.onFailure();
+        second.onRequestStarted();
+        var pool = createPool(
+                List.of(first, second), EventLoopAffineConnectionPool.LoadBalancing.LEAST_OUTSTANDING_REQUESTS);
+
+        // when
+        int chosen = pool.chooseEndpoint();
+
+        // then
+        assertThat(chosen).isZero();
+    }
+
+    @Test
+    void testThatConnectionsToEjectedEndpointAreRebalanced() throws Exception {
+        // given
+        BacksideEndpoint ejectedEndpoint = startStubServer(HttpResponseStatus.OK);
+        BacksideEndpoint availableEndpoint = startStubServer(HttpResponseStatus.OK);
+        availableEndpoint.onRequestStarted();
+        var pool = createPool(
+                List.of(ejectedEndpoint, availableEndpoint),
+                EventLoopAffineConnectionPool.LoadBalancing.LEAST_OUTSTANDING_REQUESTS);
+        Channel channel = acquire(pool);
+        boolean rebalancedBeforeEjection =
+                eventLoop.submit(() -> pool.shouldRebalance(channel)).get();
+
+        // when
+        ejectedEndpoint.onFailure();
+        boolean rebalancedAfterEjection =
+                eventLoop.submit(() -> pool.shouldRebalance(channel)).get();
+        availableEndpoint.onFailure();
+        boolean rebalancedOnceAllAreEjected =
+                eventLoop.submit(() -> pool.shouldRebalance(channel)).get();
+
+        // then
+        assertThat(((InetSocketAddress) channel.remoteAddress()).getPort()).isEqualTo(ejectedEndpoint.getPort());
+        assertThat(rebalancedBeforeEjection).isFalse();
+        assertThat(rebalancedAfterEjection).isTrue();
+        assertThat(rebalancedOnceAllAreEjected).isFalse();
+        pool.release(channel);
+    }
+
+    @Test
+    void testThatStatsAreReportedAsMetrics() throws Exception {
+        // given
+        Map<String, Consumer<ObservableLongMeasurement>> callbacks = new HashMap<>();
+        Meter meter = mock(Meter.class);
+        when(meter.counterBuilder(anyString())).thenAnswer(invocation -> {
+            LongCounterBuilder builder = mock(LongCounterBuilder.class);
+            when(builder.buildWithCallback(any())).thenAnswer(build -> {
+                callbacks.put(invocation.getArgument(0), build.getArgument(0));
+                return null;
+            });
+            return builder;
+        });
+        when(meter.upDownCounterBuilder(anyString())).thenAnswer(invocation -> {
+            LongUpDownCounterBuilder builder = mock(LongUpDownCounterBuilder.class);
+            when(builder.buildWithCallback(any())).thenAnswer(build -> {
+                callbacks.put(invocation.getArgument(0), build.getArgument(0));
+                return null;
+            });
+            return builder;
+        });
+        BacksideEndpoint ejectedEndpoint = createEndpoint(9200);
+        BacksideEndpoint availableEndpoint = startStubServer(HttpResponseStatus.OK);
+        ejectedEndpoint.onFailure();
+        var pool = createPool(
+                List.of(ejectedEndpoint, availableEndpoint),
+                EventLoopAffineConnectionPool.LoadBalancing.LEAST_OUTSTANDING_REQUESTS);
+        pool.registerMetrics(meter);
+
+        // when
+        Channel channel = acquire(pool);
+        ObservableLongMeasurement opened = mock(ObservableLongMeasurement.class);
+        ObservableLongMeasurement inUse = mock(ObservableLongMeasurement.class);
+        ObservableLongMeasurement ejected = mock(ObservableLongMeasurement.class);
+        callbacks.get("backsideConnectionsOpened").accept(opened);
+        callbacks.get("backsideConnectionsInUse").accept(inUse);
+        callbacks.get("backsideNodesEjected").accept(ejected);
+
+        // then
+        verify(opened).record(1L);
+        verify(inUse).record(1L);
+        verify(ejected).record(1L);
+        pool.release(channel);
+    }
+
+    @Test
+    void testThatHealthCheckEjectsFailingEndpoints() throws Exception {
+        // given
+        BacksideEndpoint healthyEndpoint = startStubServer(HttpResponseStatus.OK);
+        BacksideEndpoint failingEndpoint = startStubServer(HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        BacksideEndpoint stoppedEndpoint = startStubServer(HttpResponseStatus.OK);
+        stubServers.remove(2).close().sync();
+        var endpoints = List.of(healthyEndpoint, failingEndpoint, stoppedEndpoint);
+        var pool = createPool(endpoints, EventLoopAffineConnectionPool.LoadBalancing.LEAST_OUTSTANDING_REQUESTS);
+
+        // when
+        endpoints.forEach(endpoint -> pool.checkHealth(eventLoop, endpoint));
+        awaitUnavailable(failingEndpoint);
+        awaitUnavailable(stoppedEndpoint);
+
+        // then
+        assertThat(healthyEndpoint.isAvailable()).isTrue();
+        assertThat(failingEndpoint.isAvailable()).isFalse();
+        assertThat(stoppedEndpoint.isAvailable()).isFalse();
+    }
+}
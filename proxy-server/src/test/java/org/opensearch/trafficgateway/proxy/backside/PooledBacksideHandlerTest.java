@@ -0,0 +1,100 @@
+package org.opensearch.trafficgateway.proxy.backside;
+
+import static io.netty.buffer.Unpooled.copiedBuffer;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+
+@ExtendWith(MockitoExtension.class)
+public class PooledBacksideHandlerTest extends UnitTestBase {
+    private static final String RESPONSE = "HTTP/1.1 200 OK\r\ncontent-length: 2\r\n\r\n{}";
+
+    private ReadCounter frontsideReads;
+    private ReadCounter backsideReads;
+    private EmbeddedChannel frontsideChannel;
+    private EmbeddedChannel backsideChannel;
+
+    private static class ReadCounter extends ChannelOutboundHandlerAdapter {
+        int reads;
+
+        @Override
+        public void read(ChannelHandlerContext ctx) {
+            reads++;
+            ctx.read();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        frontsideReads = new ReadCounter();
+        backsideReads = new ReadCounter();
+        frontsideChannel = new EmbeddedChannel(frontsideReads);
+        frontsideChannel.config().setAutoRead(false);
+        var backsideHandler = new PooledBacksideHandler();
+        backsideChannel = new EmbeddedChannel(backsideReads, backsideHandler);
+        backsideChannel.config().setAutoRead(false);
+        backsideHandler.bind(frontsideChannel);
+        frontsideReads.reads = 0;
+        backsideReads.reads = 0;
+    }
+
+    @AfterEach
+    void tearDown() {
+        frontsideChannel.finishAndReleaseAll();
+        backsideChannel.finishAndReleaseAll();
+    }
+
+    private static void setWritable(EmbeddedChannel channel, boolean writable) {
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, writable);
+        // the writability change is fired later on the event loop
+        channel.runPendingTasks();
+    }
+
+    @Test
+    void testThatBacksideIsReadOnWhileFrontsideIsWritable() {
+        // when
+        backsideChannel.writeInbound(copiedBuffer(RESPONSE, CharsetUtil.UTF_8));
+
+        // then
+        assertThat(backsideReads.reads).isEqualTo(1);
+        ByteBuf forwarded = frontsideChannel.readOutbound();
+        assertThat(forwarded.toString(CharsetUtil.UTF_8)).isEqualTo(RESPONSE);
+        forwarded.release();
+    }
+
+    @Test
+    void testThatBacksideIsNotReadWhileFrontsideIsNotWritable() {
+        // given
+        setWritable(frontsideChannel, false);
+
+        // when
+        backsideChannel.writeInbound(copiedBuffer(RESPONSE, CharsetUtil.UTF_8));
+
+        // then
+        assertThat(backsideReads.reads).isZero();
+    }
+
+    @Test
+    void testThatFrontsideIsReadOnceBacksideIsWritableAgain() {
+        // given
+        setWritable(backsideChannel, false);
+
+        // when
+        int readsWhileNotWritable = frontsideReads.reads;
+        setWritable(backsideChannel, true);
+
+        // then
+        assertThat(readsWhileNotWritable).isZero();
+        assertThat(frontsideReads.reads).isEqualTo(1);
+    }
+}
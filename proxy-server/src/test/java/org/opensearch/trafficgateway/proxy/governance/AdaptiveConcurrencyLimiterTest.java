@@ -0,0 +1,224 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.encode;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.getRequest;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.newGovernanceHandler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+
+@ExtendWith(MockitoExtension.class)
+public class AdaptiveConcurrencyLimiterTest extends UnitTestBase {
+    private static final long BASELINE_RTT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private AdaptiveConcurrencyLimiter newLimiter(int initialLimit, double priorityReserveFraction) {
+        return newLimiter(initialLimit, priorityReserveFraction, 0L);
+    }
+
+    private AdaptiveConcurrencyLimiter newLimiter(
+            int initialLimit, double priorityReserveFraction, long maxQueueTimeMs) {
+        return new AdaptiveConcurrencyLimiter(
+                initialLimit,
+                1,
+                100,
+                2.0,
+                1.0,
+                60_000L,
+                priorityReserveFraction,
+                List.of("/_dashboards"),
+                maxQueueTimeMs,
+                nanoTime::get);
+    }
+
+    private static void completeRequests(AdaptiveConcurrencyLimiter limiter, int count, long rttNanos) {
+        for (int i = 0; i < count; i++) {
+            assertThat(limiter.tryAcquire(true)).isTrue();
+        }
+        for (int i = 0; i < count; i++) {
+            limiter.release(rttNanos);
+        }
+    }
+
+    @Test
+    void testThatLimitGrowsWhileLatencyIsStableAndShrinksWhenItRises() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = newLimiter(10, 0.0);
+
+        // when
+        completeRequests(limiter, 10, BASELINE_RTT_NANOS);
+        double limitAfterFastResponses = limiter.getLimit();
+        completeRequests(limiter, (int) limitAfterFastResponses, BASELINE_RTT_NANOS * 10);
+
+        // then
+        assertThat(limitAfterFastResponses).isGreaterThan(10);
+        assertThat(limiter.getLimit()).isLessThan(limitAfterFastResponses);
+    }
+
+    @Test
+    void testThatNonPriorityRequestsCannotUseReservedPermits() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = newLimiter(10, 0.5);
+
+        // when
+        int admittedNonPriority = 0;
+        while (limiter.tryAcquire(false)) {
+            admittedNonPriority++;
+        }
+        int admittedPriority = 0;
+        while (limiter.tryAcquire(true)) {
+            admittedPriority++;
+        }
+
+        // then
+        assertThat(admittedNonPriority).isEqualTo(5);
+        assertThat(admittedPriority).isEqualTo(5);
+    }
+
+    @Test
+    void testThatDashboardsRequestsArePriority() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = newLimiter(10, 0.2);
+        FullHttpRequest dashboardsRequest =
+                new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/_dashboards/internal/search/es");
+        FullHttpRequest bulkRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/_bulk");
+
+        // when / then
+        assertThat(limiter.isPriority(dashboardsRequest)).isTrue();
+        assertThat(limiter.isPriority(bulkRequest)).isFalse();
+        dashboardsRequest.release();
+        bulkRequest.release();
+    }
+
+    @Test
+    void testThatReturnedPermitsAreHandedToWaitersInOrderPriorityFirst() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = newLimiter(1, 0.0);
+        List<String> admitted = new ArrayList<>();
+        assertThat(limiter.tryAcquire(true)).isTrue();
+        assertThat(limiter.tryAcquireOrWait(false, () -> admitted.add("first"))).isFalse();
+        assertThat(limiter.tryAcquireOrWait(false, () -> admitted.add("second")))
+                .isFalse();
+        assertThat(limiter.tryAcquireOrWait(true, () -> admitted.add("priority")))
+                .isFalse();
+        AdaptiveConcurrencyLimiter.Waiter cancelled = () -> admitted.add("cancelled");
+        assertThat(limiter.tryAcquireOrWait(false, cancelled)).isFalse();
+        assertThat(limiter.cancel(cancelled)).isTrue();
+
+        // when
+        limiter.release();
+        limiter.release();
+        limiter.release();
+        limiter.release();
+
+        // then
+        assertThat(admitted).containsExactly("priority", "first", "second");
+        assertThat(limiter.getWaiting()).isZero();
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void testThatGovernanceHandlerForwardsWaitingRequestWhenPermitIsReturned() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = newLimiter(1, 0.0, 60_000L);
+        limiter.tryAcquire(true);
+        EmbeddedChannel channel = new EmbeddedChannel(newGovernanceHandler(limiter));
+        channel.writeInbound(encode(getRequest("/logs/_search")));
+        assertThat((Object) channel.readInbound()).isNull();
+        assertThat(limiter.getWaiting()).isEqualTo(1);
+
+        // when
+        limiter.release();
+        channel.runPendingTasks();
+
+        // then
+        ByteBuf forwarded = channel.readInbound();
+        assertThat(forwarded).isNotNull();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        assertThat(limiter.getWaiting()).isZero();
+        forwarded.release();
+        channel.finishAndReleaseAll();
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void testThatGovernanceHandlerShedsRequestOverLimit() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = newLimiter(1, 0.0);
+        limiter.tryAcquire(true);
+        EmbeddedChannel channel = new EmbeddedChannel(newGovernanceHandler(limiter));
+
+        // when
+        channel.writeInbound(encode(getRequest("/logs/_search")));
+
+        // then
+        assertThat((Object) channel.readInbound()).isNull();
+        ByteBuf response = channel.readOutbound();
+        assertThat(response.toString(CharsetUtil.UTF_8)).startsWith("HTTP/1.1 503");
+        assertThat(channel.isOpen()).isFalse();
+        response.release();
+    }
+
+    @Test
+    void testThatGovernanceHandlerReleasesPermitWhenResponseIsWritten() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = newLimiter(1, 0.0);
+        EmbeddedChannel channel = new EmbeddedChannel(newGovernanceHandler(limiter));
+        channel.writeInbound(encode(getRequest("/logs/_search")));
+        ByteBuf forwarded = channel.readInbound();
+        assertThat(forwarded).isNotNull();
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+
+        // when
+        channel.writeOutbound(Unpooled.copiedBuffer("HTTP/1.1 200 OK\r\n", CharsetUtil.UTF_8));
+
+        // then
+        assertThat(limiter.getInFlight()).isZero();
+        forwarded.release();
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    void testThatPipelinedRequestWaitsForItsOwnPermit() {
+        // given
+        AdaptiveConcurrencyLimiter limiter = newLimiter(2, 0.0, 60_000L);
+        EmbeddedChannel channel = new EmbeddedChannel(newGovernanceHandler(limiter));
+        channel.writeInbound(encode(getRequest("/logs/_search")));
+        ByteBuf firstForwarded = channel.readInbound();
+
+        // when
+        channel.writeInbound(encode(getRequest("/logs/_count")));
+        Object forwardedWhileFirstInFlight = channel.readInbound();
+        int inFlightWhileFirstInFlight = limiter.getInFlight();
+        channel.writeOutbound(Unpooled.copiedBuffer("HTTP/1.1 200 OK\r\n", CharsetUtil.UTF_8));
+        channel.runPendingTasks();
+
+        // then
+        assertThat(firstForwarded).isNotNull();
+        assertThat(forwardedWhileFirstInFlight).isNull();
+        assertThat(inFlightWhileFirstInFlight).isEqualTo(1);
+        ByteBuf secondForwarded = channel.readInbound();
+        assertThat(secondForwarded.toString(CharsetUtil.UTF_8)).startsWith("GET /logs/_count");
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        firstForwarded.release();
+        secondForwarded.release();
+        channel.finishAndReleaseAll();
+        assertThat(limiter.getInFlight()).isZero();
+    }
+}
@@ -0,0 +1,155 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import static io.netty.buffer.Unpooled.copiedBuffer;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.RESPONSE;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.encode;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.getRequest;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.newGovernanceHandler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+import org.opensearch.trafficgateway.proxy.util.UserIdExtractor;
+
+@ExtendWith(MockitoExtension.class)
+public class FairRequestSchedulerTest extends UnitTestBase {
+    private static FairRequestScheduler newScheduler(int maxInFlight, Map<String, Integer> weights) {
+        return new FairRequestScheduler(
+                FairRequestScheduler.ClassifyBy.ENDPOINT,
+                weights,
+                1,
+                () -> maxInFlight,
+                2,
+                60_000,
+                new UserIdExtractor());
+    }
+
+    @Test
+    void testThatClassesAreServedByWeight() {
+        // given
+        FairRequestScheduler scheduler = newScheduler(1, Map.of("_bulk", 2));
+        List<String> admitted = new ArrayList<>();
+        assertThat(scheduler.submit("_search", () -> admitted.add("first")))
+                .isEqualTo(FairRequestScheduler.Admission.ADMITTED);
+        scheduler.submit("_bulk", () -> admitted.add("bulk 1"));
+        scheduler.submit("_bulk", () -> admitted.add("bulk 2"));
+        scheduler.submit("_search", () -> admitted.add("search 1"));
+        scheduler.submit("_search", () -> admitted.add("search 2"));
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            scheduler.release();
+        }
+
+        // then
+        assertThat(admitted).containsExactly("bulk 1", "bulk 2", "search 1", "search 2");
+        assertThat(scheduler.getInFlight()).isZero();
+        assertThat(scheduler.getQueued()).isZero();
+    }
+
+    @Test
+    void testThatFloodingClassIsRejectedWithoutAffectingOthers() {
+        // given
+        FairRequestScheduler scheduler = newScheduler(1, Map.of());
+        scheduler.submit("_search", () -> {});
+        List<String> admitted = new ArrayList<>();
+
+        // when
+        FairRequestScheduler.Admission first = scheduler.submit("_bulk", () -> admitted.add("bulk 1"));
+        FairRequestScheduler.Admission second = scheduler.submit("_bulk", () -> admitted.add("bulk 2"));
+        FairRequestScheduler.Admission third = scheduler.submit("_bulk", () -> admitted.add("bulk 3"));
+        FairRequestScheduler.Admission search = scheduler.submit("_search", () -> admitted.add("search"));
+        scheduler.release();
+        scheduler.release();
+
+        // then
+        assertThat(List.of(first, second, third, search))
+                .containsExactly(
+                        FairRequestScheduler.Admission.QUEUED,
+                        FairRequestScheduler.Admission.QUEUED,
+                        FairRequestScheduler.Admission.REJECTED,
+                        FairRequestScheduler.Admission.QUEUED);
+        assertThat(admitted).containsExactly("bulk 1", "search");
+    }
+
+    @Test
+    void testThatCancelledRequestIsNotAdmitted() {
+        // given
+        FairRequestScheduler scheduler = newScheduler(1, Map.of());
+        scheduler.submit("_search", () -> {});
+        List<String> admitted = new ArrayList<>();
+        FairRequestScheduler.QueuedRequest cancelled = () -> admitted.add("cancelled");
+        scheduler.submit("_search", cancelled);
+
+        // when
+        boolean wasQueued = scheduler.cancel("_search", cancelled);
+        scheduler.release();
+
+        // then
+        assertThat(wasQueued).isTrue();
+        assertThat(admitted).isEmpty();
+        assertThat(scheduler.getInFlight()).isZero();
+    }
+
+    @Test
+    void testThatGovernanceHandlerForwardsQueuedRequestWhenPermitIsReturned() {
+        // given
+        FairRequestScheduler scheduler = newScheduler(1, Map.of());
+        EmbeddedChannel first = new EmbeddedChannel(newGovernanceHandler(scheduler));
+        EmbeddedChannel second = new EmbeddedChannel(newGovernanceHandler(scheduler));
+        first.writeInbound(encode(getRequest("/logs/_search")));
+        second.writeInbound(encode(getRequest("/logs/_bulk")));
+        ByteBuf firstForwarded = first.readInbound();
+        assertThat((Object) second.readInbound()).isNull();
+
+        // when
+        first.writeOutbound(copiedBuffer(RESPONSE, CharsetUtil.UTF_8));
+        second.runPendingTasks();
+
+        // then
+        ByteBuf secondForwarded = second.readInbound();
+        assertThat(firstForwarded).isNotNull();
+        assertThat(secondForwarded.toString(CharsetUtil.UTF_8)).startsWith("GET /logs/_bulk");
+        assertThat(scheduler.getInFlight()).isEqualTo(1);
+        firstForwarded.release();
+        secondForwarded.release();
+        first.finishAndReleaseAll();
+        second.finishAndReleaseAll();
+        assertThat(scheduler.getInFlight()).isZero();
+    }
+
+    @Test
+    void testThatQueueTimeoutIsCancelledOnceAdmittedOrClosed() {
+        // given
+        FairRequestScheduler scheduler = newScheduler(1, Map.of());
+        EmbeddedChannel first = new EmbeddedChannel(newGovernanceHandler(scheduler));
+        EmbeddedChannel admitted = new EmbeddedChannel(newGovernanceHandler(scheduler));
+        EmbeddedChannel closed = new EmbeddedChannel(newGovernanceHandler(scheduler));
+        first.writeInbound(encode(getRequest("/logs/_search")));
+        admitted.writeInbound(encode(getRequest("/logs/_bulk")));
+        long queueTimeoutWhileQueued = admitted.runScheduledPendingTasks();
+
+        // when
+        first.writeOutbound(copiedBuffer(RESPONSE, CharsetUtil.UTF_8));
+        admitted.runPendingTasks();
+        closed.writeInbound(encode(getRequest("/logs/_count")));
+        closed.close();
+
+        // then
+        assertThat(queueTimeoutWhileQueued).isPositive();
+        assertThat(admitted.runScheduledPendingTasks()).isEqualTo(-1);
+        assertThat(closed.runScheduledPendingTasks()).isEqualTo(-1);
+        first.finishAndReleaseAll();
+        admitted.finishAndReleaseAll();
+        closed.finishAndReleaseAll();
+        assertThat(scheduler.getInFlight()).isZero();
+    }
+}
@@ -10,7 +10,14 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.*;
+import io.netty.util.Attribute;
 import io.netty.util.CharsetUtil;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -19,6 +26,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.opensearch.trafficgateway.proxy.UnitTestBase;
+import org.opensearch.trafficgateway.proxy.util.DecodedRequestListener;
+import org.opensearch.trafficgateway.proxy.util.RequestIdentity;
+import org.opensearch.trafficgateway.proxy.util.UserIdExtractor;
 
 @ExtendWith(MockitoExtension.class)
 public class GovernanceHandlerTest extends UnitTestBase {
@@ -174,4 +184,100 @@ public class GovernanceHandlerTest extends UnitTestBase {
         // then
         verify(testRule, times(1)).evaluate(any());
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testThatDecodedRequestsArePublishedWithoutTheBypassKeyBeforeTheRulesReject() throws Exception {
+        // given
+        List<String> publishedBodies = new ArrayList<>();
+        List<RequestIdentity> publishedIdentities = new ArrayList<>();
+        DecodedRequestListener listener = mock(DecodedRequestListener.class);
+        when(listener.acceptDecodedRequests()).thenReturn(true);
+        doAnswer(invocation -> {
+                    publishedBodies.add(
+                            invocation.<FullHttpRequest>getArgument(0).content().toString(CharsetUtil.UTF_8));
+                    publishedIdentities.add(invocation.getArgument(1));
+                    return null;
+                })
+                .when(listener)
+                .onDecodedRequest(any(), any());
+        Attribute<DecodedRequestListener> attribute = mock(Attribute.class);
+        when(attribute.get()).thenReturn(listener);
+        when(ctx.channel()).thenReturn(channel);
+        when(channel.attr(DecodedRequestListener.ATTRIBUTE)).thenReturn(attribute);
+
+        ByteBuf byteContent = Unpooled.copiedBuffer("{\"size\":1,\"bypassKey\":\"wrongBypassKey\"}", CharsetUtil.UTF_8);
+        FullHttpRequest request =
+                new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/index/_search", byteContent);
+        request.headers().set(HttpHeaderNames.CONTENT_LENGTH, byteContent.readableBytes());
+        request.headers()
+                .set(
+                        HttpHeaderNames.AUTHORIZATION,
+                        "Basic " + Base64.getEncoder().encodeToString("alice:secret".getBytes(StandardCharsets.UTF_8)));
+        requestEncoder.writeOutbound(request);
+        Object requestBuf = requestEncoder.readOutbound();
+
+        GovernanceRule testRule = mock(GovernanceRule.class);
+        when(testRule.evaluate(any()))
+                .thenReturn(new GovernanceRuleResult(
+                        GovernanceRuleResultType.REJECT,
+                        new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.FORBIDDEN)));
+        GovernanceHandler governanceHandler = new GovernanceHandler(
+                "correctBypassKey",
+                false,
+                new GovernanceRuleDispatcher(
+                        null, Map.of("alice", new GovernanceRule[] {testRule}), Map.of(), new UserIdExtractor()));
+
+        // when
+        governanceHandler.handlerAdded(this.ctx);
+        governanceHandler.channelRead(this.ctx, requestBuf);
+
+        // then
+        Assertions.assertEquals(List.of("{\"size\":1}"), publishedBodies);
+        Assertions.assertEquals(List.of(new RequestIdentity("alice", null)), publishedIdentities);
+        verify(testRule, times(1)).evaluate(any());
+    }
+
+    @Test
+    void testThatDecodedRequestsArePublishedWithoutIdentityWhenTheRulesDoNotNeedIt() throws Exception {
+        // given
+        List<RequestIdentity> publishedIdentities = new ArrayList<>();
+        DecodedRequestListener listener = mock(DecodedRequestListener.class);
+        when(listener.acceptDecodedRequests()).thenReturn(true);
+        doAnswer(invocation -> {
+                    publishedIdentities.add(invocation.getArgument(1));
+                    return null;
+                })
+                .when(listener)
+                .onDecodedRequest(any(), any());
+        Attribute<DecodedRequestListener> attribute = mock(Attribute.class);
+        when(attribute.get()).thenReturn(listener);
+        when(ctx.channel()).thenReturn(channel);
+        when(channel.attr(DecodedRequestListener.ATTRIBUTE)).thenReturn(attribute);
+
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/index/_search");
+        request.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+        request.headers()
+                .set(
+                        HttpHeaderNames.AUTHORIZATION,
+                        "Basic " + Base64.getEncoder().encodeToString("alice:secret".getBytes(StandardCharsets.UTF_8)));
+        requestEncoder.writeOutbound(request);
+        Object requestBuf = requestEncoder.readOutbound();
+
+        GovernanceRule testRule = mock(GovernanceRule.class);
+        when(testRule.evaluate(any())).thenReturn(new GovernanceRuleResult(GovernanceRuleResultType.PASS, null));
+        GovernanceHandler governanceHandler = new GovernanceHandler(
+                "correctBypassKey",
+                false,
+                new GovernanceRuleDispatcher(
+                        new GovernanceRule[] {testRule}, Map.of(), Map.of(), new UserIdExtractor()));
+
+        // when
+        governanceHandler.handlerAdded(this.ctx);
+        governanceHandler.channelRead(this.ctx, requestBuf);
+
+        // then
+        Assertions.assertEquals(Collections.singletonList(null), publishedIdentities);
+        verify(testRule, times(1)).evaluate(any());
+    }
 }
@@ -0,0 +1,83 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import static io.netty.buffer.Unpooled.copiedBuffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequestEncoder;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+
+/**
+ * Requests, responses and handlers shared by the tests that send traffic through a {@link GovernanceHandler}.
+ */
+final class GovernanceHandlerTestFixtures {
+    static final String RESPONSE =
+            "HTTP/1.1 200 OK\r\ncontent-length: 11\r\ncontent-type: application/json\r\n\r\n{\"hits\":{}}";
+
+    private GovernanceHandlerTestFixtures() {}
+
+    static FullHttpRequest searchRequest(String uri, String body) {
+        return searchRequest(uri, body, null);
+    }
+
+    static FullHttpRequest searchRequest(String uri, String body, String authorization) {
+        FullHttpRequest request = new DefaultFullHttpRequest(
+                HttpVersion.HTTP_1_1, HttpMethod.POST, uri, copiedBuffer(body, CharsetUtil.UTF_8));
+        request.headers().set(HttpHeaderNames.CONTENT_LENGTH, request.content().readableBytes());
+        if (authorization != null) {
+            request.headers().set(HttpHeaderNames.AUTHORIZATION, authorization);
+        }
+        return request;
+    }
+
+    static FullHttpRequest getRequest(String uri) {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+        request.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+        return request;
+    }
+
+    /*
+     * Encodes the request into a single buffer, as a client would send it.
+     */
+    static ByteBuf encode(FullHttpRequest request) {
+        EmbeddedChannel requestEncoder = new EmbeddedChannel(new HttpRequestEncoder());
+        requestEncoder.writeOutbound(request);
+        ByteBuf encoded = Unpooled.buffer();
+        for (ByteBuf part = requestEncoder.readOutbound(); part != null; part = requestEncoder.readOutbound()) {
+            encoded.writeBytes(part);
+            part.release();
+        }
+        requestEncoder.finish();
+        return encoded;
+    }
+
+    static GovernanceHandler newGovernanceHandler(AdaptiveConcurrencyLimiter limiter) {
+        GovernanceHandlerFactory factory = new GovernanceHandlerFactory();
+        factory.setConcurrencyLimiter(limiter);
+        return factory.createGovernanceHandler();
+    }
+
+    static GovernanceHandler newGovernanceHandler(FairRequestScheduler scheduler) {
+        GovernanceHandlerFactory factory = new GovernanceHandlerFactory();
+        factory.setRequestScheduler(scheduler);
+        return factory.createGovernanceHandler();
+    }
+
+    static GovernanceHandler newGovernanceHandler(RequestCoalescer coalescer) {
+        GovernanceHandlerFactory factory = new GovernanceHandlerFactory();
+        factory.setRequestCoalescer(coalescer);
+        return factory.createGovernanceHandler();
+    }
+
+    static GovernanceHandler newGovernanceHandler(ResponseCache cache) {
+        GovernanceHandlerFactory factory = new GovernanceHandlerFactory();
+        factory.setResponseCache(cache);
+        return factory.createGovernanceHandler();
+    }
+}
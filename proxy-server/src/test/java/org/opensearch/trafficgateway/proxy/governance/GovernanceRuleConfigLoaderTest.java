@@ -0,0 +1,78 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+import org.opensearch.trafficgateway.proxy.governance.GovernanceConfiguration.GovernanceRuleConfiguration;
+
+public class GovernanceRuleConfigLoaderTest extends UnitTestBase {
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    private static GovernanceRuleConfiguration ruleConfiguration(String ruleClass, String ruleConfig) throws Exception {
+        return GovernanceRuleConfiguration.builder()
+                .ruleClass(ruleClass)
+                .ruleConfig(JSON_MAPPER.readTree(ruleConfig))
+                .build();
+    }
+
+    @Test
+    void testThatRuleConfigIsBoundToTypedConfig() throws Exception {
+        // given
+        GovernanceRuleConfigLoader loader = new GovernanceRuleConfigLoader();
+        GovernanceRuleConfiguration ruleConfig = ruleConfiguration(
+                RejectTimeRangeRule.class.getName(),
+                "{\"indexRegex\": \"logs.*\", \"rangeField\": \"@timestamp\", \"maxTimeRangeMs\": 172800000,"
+                        + " \"rejectIfMissing\": true}");
+
+        // when
+        GovernanceRule rule = loader.instantiateRule(ruleConfig);
+
+        // then
+        assertThat(rule).isInstanceOf(RejectTimeRangeRule.class);
+        RejectTimeRangeRule timeRangeRule = (RejectTimeRangeRule) rule;
+        assertThat(timeRangeRule.getMaxTimeRangeMs()).isEqualTo(172800000L);
+        assertThat(timeRangeRule.isRejectIfMissing()).isTrue();
+    }
+
+    @Test
+    void testThatStringifiedListsAreStillAccepted() throws Exception {
+        // given
+        GovernanceRuleConfigLoader loader = new GovernanceRuleConfigLoader();
+        GovernanceRuleConfiguration ruleConfig = ruleConfiguration(
+                UserDenyListRule.class.getName(), "{\"userDenyList\": \"[\\\"random\\\", \\\"random2\\\"]\"}");
+
+        // when
+        GovernanceRule rule = loader.instantiateRule(ruleConfig);
+
+        // then
+        assertThat(((UserDenyListRule) rule).getDenyList()).containsExactlyInAnyOrder("random", "random2");
+    }
+
+    @Test
+    void testThatUnknownConfigPropertyFailsFast() throws Exception {
+        // given
+        GovernanceRuleConfigLoader loader = new GovernanceRuleConfigLoader();
+        GovernanceRuleConfiguration ruleConfig =
+                ruleConfiguration(UserDenyListRule.class.getName(), "{\"userDenyList\": [], \"userDenyLst\": []}");
+
+        // then
+        assertThatThrownBy(() -> loader.instantiateRule(ruleConfig))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("userDenyLst");
+    }
+
+    @Test
+    void testThatUnknownRuleClassFailsFast() throws Exception {
+        // given
+        GovernanceRuleConfigLoader loader = new GovernanceRuleConfigLoader();
+        GovernanceRuleConfiguration ruleConfig = ruleConfiguration("com.example.MissingRule", "{}");
+
+        // then
+        assertThatThrownBy(() -> loader.instantiateRule(ruleConfig))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("com.example.MissingRule");
+    }
+}
@@ -0,0 +1,82 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+import org.opensearch.trafficgateway.proxy.util.UserIdExtractor;
+
+@ExtendWith(MockitoExtension.class)
+public class GovernanceRuleDispatcherTest extends UnitTestBase {
+    private static final String TENANT_HEADER = "securitytenant";
+
+    private final GovernanceRule defaultRule = mock(GovernanceRule.class);
+    private final GovernanceRule userRule = mock(GovernanceRule.class);
+    private final GovernanceRule tenantRule = mock(GovernanceRule.class);
+
+    private GovernanceRuleDispatcher createDispatcher(UserIdExtractor userIdExtractor) {
+        return new GovernanceRuleDispatcher(
+                new GovernanceRule[] {defaultRule},
+                Map.of("reporting-job", new GovernanceRule[] {userRule}),
+                Map.of(
+                        TENANT_HEADER,
+                        Map.of("analysts", new GovernanceRule[] {tenantRule}, "dashboards", new GovernanceRule[0])),
+                userIdExtractor);
+    }
+
+    private static FullHttpRequest createRequest(String tenant) {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/logs/_search");
+        if (tenant != null) {
+            request.headers().set(TENANT_HEADER, tenant);
+        }
+        return request;
+    }
+
+    @Test
+    void testThatUserRuleSetTakesPrecedence() {
+        // given
+        UserIdExtractor userIdExtractor = mock(UserIdExtractor.class);
+        FullHttpRequest request = createRequest("analysts");
+        when(userIdExtractor.extractUserId(request)).thenReturn("reporting-job");
+
+        // when
+        GovernanceRule[] rules = createDispatcher(userIdExtractor).selectRules(request);
+
+        // then
+        assertThat(rules).containsExactly(userRule);
+    }
+
+    @Test
+    void testThatHeaderRuleSetIsSelected() {
+        // given
+        UserIdExtractor userIdExtractor = mock(UserIdExtractor.class);
+        FullHttpRequest request = createRequest("analysts");
+        when(userIdExtractor.extractUserId(request)).thenReturn("someone");
+
+        // when
+        GovernanceRule[] rules = createDispatcher(userIdExtractor).selectRules(request);
+
+        // then
+        assertThat(rules).containsExactly(tenantRule);
+    }
+
+    @Test
+    void testThatEmptyRuleSetAndDefaultRulesAreSelected() {
+        // given
+        UserIdExtractor userIdExtractor = mock(UserIdExtractor.class);
+        GovernanceRuleDispatcher dispatcher = createDispatcher(userIdExtractor);
+
+        // then
+        assertThat(dispatcher.selectRules(createRequest("dashboards"))).isEmpty();
+        assertThat(dispatcher.selectRules(createRequest(null))).containsExactly(defaultRule);
+    }
+}
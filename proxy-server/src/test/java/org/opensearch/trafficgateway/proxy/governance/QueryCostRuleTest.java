@@ -0,0 +1,135 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import static io.netty.buffer.Unpooled.copiedBuffer;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+import org.apache.logging.log4j.core.LogEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+import org.opensearch.trafficgateway.proxy.governance.QueryCostRule.QueryCostRecord;
+import org.opensearch.trafficgateway.proxy.offload.TrafficAggregatingLogOffloader;
+
+@ExtendWith(MockitoExtension.class)
+public class QueryCostRuleTest extends UnitTestBase {
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    private static QueryCostRule newRule(double maxCost, boolean rejectAboveMaxCost) {
+        return new QueryCostRule(
+                "logs.*",
+                maxCost,
+                rejectAboveMaxCost,
+                QueryCostRule.CostWeights.builder().build(),
+                null);
+    }
+
+    private static FullHttpRequest searchRequest(String body) {
+        return new DefaultFullHttpRequest(
+                HttpVersion.HTTP_1_1, HttpMethod.POST, "/logs-1/_search", copiedBuffer(body, CharsetUtil.UTF_8));
+    }
+
+    private static JsonNode json(String body) throws Exception {
+        return JSON_MAPPER.readTree(body);
+    }
+
+    @Test
+    void testThatDeepPagingIsRejected() {
+        // given
+        QueryCostRule rule = newRule(50, true);
+        FullHttpRequest shallowRequest = searchRequest("{\"from\": 0, \"size\": 100, \"query\": {\"match_all\": {}}}");
+        FullHttpRequest deepRequest = searchRequest("{\"from\": 9900, \"size\": 100, \"query\": {\"match_all\": {}}}");
+
+        // when
+        GovernanceRuleResult shallowResult = rule.evaluate(shallowRequest);
+        GovernanceRuleResult deepResult = rule.evaluate(deepRequest);
+
+        // then
+        assertThat(shallowResult.getResultType()).isEqualTo(GovernanceRuleResultType.PASS);
+        assertThat(deepResult.getResultType()).isEqualTo(GovernanceRuleResultType.REJECT);
+        deepResult.getGovernanceRuleResponse().release();
+        shallowRequest.release();
+        deepRequest.release();
+    }
+
+    @Test
+    void testThatPagesBeyondIntegerRangeAreRejected() {
+        // given
+        QueryCostRule rule = newRule(50, true);
+        FullHttpRequest request =
+                searchRequest("{\"from\": " + (Integer.MAX_VALUE - 1) + ", \"size\": " + Integer.MAX_VALUE + "}");
+
+        // when
+        GovernanceRuleResult result = rule.evaluate(request);
+
+        // then
+        assertThat(result.getResultType()).isEqualTo(GovernanceRuleResultType.REJECT);
+        result.getGovernanceRuleResponse().release();
+        request.release();
+    }
+
+    @Test
+    void testThatNestedAggregationsAreWeightedByParentBuckets() throws Exception {
+        // given
+        QueryCostRule rule = newRule(100, true);
+        JsonNode body = json("{\"size\": 0, \"aggs\": {\"hosts\": {\"terms\": {\"field\": \"host\", \"size\": 100},"
+                + " \"aggs\": {\"paths\": {\"terms\": {\"field\": \"path\", \"size\": 100}}}}}}");
+
+        // when
+        double cost = rule.estimateCost(body);
+
+        // then
+        // hosts: 1 + 100 buckets * 0.01, paths: 100 * (1 + 100 buckets * 0.01)
+        assertThat(cost).isCloseTo(2 + 200, within(1e-9));
+    }
+
+    @Test
+    void testThatExpensiveClausesAreCounted() throws Exception {
+        // given
+        QueryCostRule rule = newRule(100, true);
+        JsonNode body = json("{\"size\": 0, \"query\": {\"bool\": {"
+                + "\"must\": [{\"wildcard\": {\"msg\": {\"value\": \"*error\"}}}, {\"regexp\": {\"msg\": \"err.*\"}}],"
+                + "\"filter\": {\"script\": {\"script\": {\"source\": \"doc['a'].value > 1\"}}},"
+                + "\"should\": [{\"query_string\": {\"query\": \"msg:?rror\"}}, {\"wildcard\": {\"msg\": \"error*\"}}]"
+                + "}}}");
+
+        // when
+        double cost = rule.estimateCost(body);
+
+        // then
+        // 5 bool clauses, 2 leading wildcards, 1 regexp, 1 script
+        assertThat(cost).isCloseTo(5 * 1 + 2 * 5 + 5 + 10, within(1e-9));
+    }
+
+    @Test
+    void testThatExpensiveSearchIsLoggedWhenNotRejecting() {
+        // given
+        QueryCostRule rule = newRule(50, false);
+        FullHttpRequest request = searchRequest("{\"from\": 9900, \"size\": 100}");
+
+        // when
+        GovernanceRuleResult result = rule.evaluate(request);
+
+        // then
+        assertThat(result.getResultType()).isEqualTo(GovernanceRuleResultType.PASS);
+        assertThat(testLoggingAppender.getMessages())
+                .filteredOn(e -> e.getMarker() == TrafficAggregatingLogOffloader.CAPTURED_TRAFFIC_MARKER)
+                .map(LogEvent::getMessage)
+                .map(m -> m.getParameters()[0])
+                .singleElement()
+                .isInstanceOfSatisfying(QueryCostRecord.class, r -> {
+                    assertThat(r.getRecordType()).isEqualTo(QueryCostRule.QUERY_COST_RECORD_TYPE);
+                    assertThat(r.getIndex()).isEqualTo("logs-1");
+                    assertThat(r.getCost()).isCloseTo(100, within(1e-9));
+                });
+        request.release();
+    }
+}
@@ -0,0 +1,123 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+import org.opensearch.trafficgateway.proxy.util.UserIdExtractor;
+
+@ExtendWith(MockitoExtension.class)
+public class RateLimitRuleTest extends UnitTestBase {
+    // "alice:secret" and "bob:secret"
+    private static final String ALICE_AUTH = "Basic YWxpY2U6c2VjcmV0";
+    private static final String BOB_AUTH = "Basic Ym9iOnNlY3JldA==";
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private RateLimitRule newRule(RateLimitRule.KeyType keyType, double requestsPerSecond, long burst) {
+        return new RateLimitRule(
+                keyType, requestsPerSecond, burst, null, 60_000L, new UserIdExtractor(), null, nanoTime::get);
+    }
+
+    private static FullHttpRequest request(String uri, String authorization) {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+        if (authorization != null) {
+            request.headers().set(HttpHeaderNames.AUTHORIZATION, authorization);
+        }
+        return request;
+    }
+
+    private static GovernanceRuleResultType evaluate(RateLimitRule rule, String uri, String authorization) {
+        FullHttpRequest request = request(uri, authorization);
+        GovernanceRuleResult result = rule.evaluate(request);
+        request.release();
+        if (result.getGovernanceRuleResponse() != null) {
+            result.getGovernanceRuleResponse().release();
+        }
+        return result.getResultType();
+    }
+
+    @Test
+    void testThatBurstIsAdmittedThenRejectedWithRetryAfter() {
+        // given
+        RateLimitRule rule = newRule(RateLimitRule.KeyType.USER, 0.5, 2);
+
+        // when
+        GovernanceRuleResultType first = evaluate(rule, "/logs/_search", ALICE_AUTH);
+        GovernanceRuleResultType second = evaluate(rule, "/logs/_search", ALICE_AUTH);
+        FullHttpRequest request = request("/logs/_search", ALICE_AUTH);
+        GovernanceRuleResult third = rule.evaluate(request);
+
+        // then
+        assertThat(first).isEqualTo(GovernanceRuleResultType.PASS);
+        assertThat(second).isEqualTo(GovernanceRuleResultType.PASS);
+        assertThat(third.getResultType()).isEqualTo(GovernanceRuleResultType.REJECT);
+        assertThat(third.getGovernanceRuleResponse().status().code())
+                .isEqualTo(HttpResponseStatus.TOO_MANY_REQUESTS.code());
+        assertThat(third.getGovernanceRuleResponse().headers().get(HttpHeaderNames.RETRY_AFTER))
+                .isEqualTo("2");
+        third.getGovernanceRuleResponse().release();
+        request.release();
+    }
+
+    @Test
+    void testThatTokensRefillAtSustainedRate() {
+        // given
+        RateLimitRule rule = newRule(RateLimitRule.KeyType.USER, 1, 1);
+        evaluate(rule, "/logs/_search", ALICE_AUTH);
+
+        // when
+        GovernanceRuleResultType beforeRefill = evaluate(rule, "/logs/_search", ALICE_AUTH);
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        GovernanceRuleResultType afterRefill = evaluate(rule, "/logs/_search", ALICE_AUTH);
+
+        // then
+        assertThat(beforeRefill).isEqualTo(GovernanceRuleResultType.REJECT);
+        assertThat(afterRefill).isEqualTo(GovernanceRuleResultType.PASS);
+    }
+
+    @Test
+    void testThatKeysAreLimitedIndependently() {
+        // given
+        RateLimitRule rule = newRule(RateLimitRule.KeyType.USER_AND_INDEX, 1, 1);
+        evaluate(rule, "/logs/_search", ALICE_AUTH);
+
+        // when
+        GovernanceRuleResultType otherIndex = evaluate(rule, "/metrics/_search", ALICE_AUTH);
+        GovernanceRuleResultType otherUser = evaluate(rule, "/logs/_search", BOB_AUTH);
+        GovernanceRuleResultType anonymous = evaluate(rule, "/logs/_search", null);
+        GovernanceRuleResultType noIndex = evaluate(rule, "/_cluster/health", ALICE_AUTH);
+
+        // then
+        assertThat(otherIndex).isEqualTo(GovernanceRuleResultType.PASS);
+        assertThat(otherUser).isEqualTo(GovernanceRuleResultType.PASS);
+        assertThat(anonymous).isEqualTo(GovernanceRuleResultType.PASS);
+        assertThat(noIndex).isEqualTo(GovernanceRuleResultType.PASS);
+    }
+
+    @Test
+    void testThatIdleKeysAreEvicted() {
+        // given
+        RateLimitRule rule = newRule(RateLimitRule.KeyType.INDEX, 1, 1);
+        evaluate(rule, "/logs/_search", null);
+        evaluate(rule, "/metrics/_search", null);
+        assertThat(rule.getTrackedKeyCount()).isEqualTo(2);
+
+        // when
+        nanoTime.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        evaluate(rule, "/traces/_search", null);
+
+        // then
+        assertThat(rule.getTrackedKeyCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,133 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import static io.netty.buffer.Unpooled.copiedBuffer;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.RESPONSE;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.encode;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.newGovernanceHandler;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.searchRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.util.CharsetUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+
+@ExtendWith(MockitoExtension.class)
+public class RequestCoalescerTest extends UnitTestBase {
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final String SEARCH_PATH_REGEX = "(/[^/]+)?/_search";
+
+    private static String getKey(RequestCoalescer coalescer, FullHttpRequest request) throws Exception {
+        String key =
+                coalescer.getKey(request, JSON_MAPPER.readTree(request.content().toString(CharsetUtil.UTF_8)));
+        request.release();
+        return key;
+    }
+
+    private static EmbeddedChannel newChannel(RequestCoalescer coalescer) {
+        return new EmbeddedChannel(newGovernanceHandler(coalescer));
+    }
+
+    @Test
+    void testThatKeyIgnoresFormattingButNotIdentity() throws Exception {
+        // given
+        RequestCoalescer coalescer = new RequestCoalescer(true, SEARCH_PATH_REGEX, 1024);
+
+        // when
+        String key = getKey(coalescer, searchRequest("/logs/_search?b=1&a=2", "{\"size\": 0}", "Basic YQ=="));
+        String reformattedKey =
+                getKey(coalescer, searchRequest("/logs/_search?a=2&b=1", "{ \"size\":0 }", "Basic YQ=="));
+        String otherUserKey = getKey(coalescer, searchRequest("/logs/_search?a=2&b=1", "{\"size\": 0}", "Basic Yg=="));
+        String notSearchKey = getKey(coalescer, searchRequest("/logs/_doc/1", "{}", null));
+
+        // then
+        assertThat(key).isNotNull().isEqualTo(reformattedKey).isNotEqualTo(otherUserKey);
+        assertThat(notSearchKey).isNull();
+    }
+
+    @Test
+    void testThatRequestsWithIdentityAreExcludedWhenNotKeyedByIdentity() throws Exception {
+        // given
+        RequestCoalescer coalescer = new RequestCoalescer(false, SEARCH_PATH_REGEX, 1024);
+
+        // when
+        String anonymousKey = getKey(coalescer, searchRequest("/logs/_search", "{}", null));
+        String authenticatedKey = getKey(coalescer, searchRequest("/logs/_search", "{}", "Basic YQ=="));
+
+        // then
+        assertThat(anonymousKey).isNotNull();
+        assertThat(authenticatedKey).isNull();
+    }
+
+    @Test
+    void testThatKeyIncludesNegotiatedEncodingAndFormat() throws Exception {
+        // given
+        RequestCoalescer coalescer = new RequestCoalescer(true, SEARCH_PATH_REGEX, 1024);
+        FullHttpRequest gzipRequest = searchRequest("/logs/_search", "{}", null);
+        gzipRequest.headers().set(HttpHeaderNames.ACCEPT_ENCODING, "gzip");
+        FullHttpRequest yamlRequest = searchRequest("/logs/_search", "{}", null);
+        yamlRequest.headers().set(HttpHeaderNames.ACCEPT, "application/yaml");
+
+        // when
+        String identityKey = getKey(coalescer, searchRequest("/logs/_search", "{}", null));
+        String gzipKey = getKey(coalescer, gzipRequest);
+        String yamlKey = getKey(coalescer, yamlRequest);
+
+        // then
+        assertThat(identityKey).isNotEqualTo(gzipKey).isNotEqualTo(yamlKey);
+        assertThat(gzipKey).isNotEqualTo(yamlKey);
+    }
+
+    @Test
+    void testThatFollowerReceivesLeaderResponse() {
+        // given
+        RequestCoalescer coalescer = new RequestCoalescer(true, SEARCH_PATH_REGEX, 1024);
+        EmbeddedChannel leader = newChannel(coalescer);
+        EmbeddedChannel follower = newChannel(coalescer);
+        leader.writeInbound(encode(searchRequest("/logs/_search", "{\"size\": 0}", null)));
+        follower.writeInbound(encode(searchRequest("/logs/_search", "{\"size\": 0}", null)));
+        ByteBuf forwarded = leader.readInbound();
+
+        // when
+        leader.writeOutbound(copiedBuffer(RESPONSE, CharsetUtil.UTF_8));
+        follower.runPendingTasks();
+
+        // then
+        assertThat(forwarded).isNotNull();
+        assertThat((Object) follower.readInbound()).isNull();
+        ByteBuf followerResponse = follower.readOutbound();
+        assertThat(followerResponse.toString(CharsetUtil.UTF_8)).isEqualTo(RESPONSE);
+        assertThat(coalescer.getInFlightCount()).isZero();
+        forwarded.release();
+        followerResponse.release();
+        leader.finishAndReleaseAll();
+        follower.finishAndReleaseAll();
+    }
+
+    @Test
+    void testThatFollowerSendsOwnRequestWhenLeaderDisconnects() {
+        // given
+        RequestCoalescer coalescer = new RequestCoalescer(true, SEARCH_PATH_REGEX, 1024);
+        EmbeddedChannel leader = newChannel(coalescer);
+        EmbeddedChannel follower = newChannel(coalescer);
+        leader.writeInbound(encode(searchRequest("/logs/_search", "{\"size\": 0}", null)));
+        follower.writeInbound(encode(searchRequest("/logs/_search", "{\"size\": 0}", null)));
+        assertThat((Object) follower.readInbound()).isNull();
+
+        // when
+        leader.finishAndReleaseAll();
+        follower.runPendingTasks();
+
+        // then
+        ByteBuf forwarded = follower.readInbound();
+        assertThat(forwarded.toString(CharsetUtil.UTF_8)).startsWith("POST /logs/_search");
+        forwarded.release();
+        follower.finishAndReleaseAll();
+    }
+}
@@ -0,0 +1,275 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import static io.netty.buffer.Unpooled.copiedBuffer;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.RESPONSE;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.encode;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.newGovernanceHandler;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.searchRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.CharsetUtil;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+
+@ExtendWith(MockitoExtension.class)
+public class ResponseCacheTest extends UnitTestBase {
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final String SEARCH_PATH_REGEX = "(/[^/]+)?/_search";
+    private static final long NOW = TimeUnit.HOURS.toMillis(1000) + TimeUnit.SECONDS.toMillis(30);
+
+    private static ResponseCache.CacheableRequest getCacheableRequest(ResponseCache cache, FullHttpRequest request)
+            throws Exception {
+        ResponseCache.CacheableRequest cacheableRequest = cache.getCacheableRequest(
+                request, JSON_MAPPER.readTree(request.content().toString(CharsetUtil.UTF_8)));
+        request.release();
+        return cacheableRequest;
+    }
+
+    private static void put(ResponseCache cache, String key, int responseBytes) {
+        ByteBuf response = Unpooled.wrappedBuffer(new byte[responseBytes]);
+        cache.put(
+                new ResponseCache.CacheableRequest(key, Long.MAX_VALUE),
+                new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK),
+                List.of(response),
+                responseBytes);
+        response.release();
+    }
+
+    @Test
+    void testThatRepeatedSearchIsAnsweredFromCache() {
+        // given
+        ResponseCache cache = new ResponseCache(1024, 1024, SEARCH_PATH_REGEX, 60000, Map.of());
+        EmbeddedChannel first = new EmbeddedChannel(newGovernanceHandler(cache));
+        EmbeddedChannel second = new EmbeddedChannel(newGovernanceHandler(cache));
+        first.writeInbound(encode(searchRequest("/logs/_search", "{\"size\": 0, \"from\": 0}")));
+        ByteBuf forwarded = first.readInbound();
+        first.writeOutbound(copiedBuffer(RESPONSE, CharsetUtil.UTF_8));
+
+        // when
+        second.writeInbound(encode(searchRequest("/logs/_search", "{\"from\": 0, \"size\": 0}")));
+
+        // then
+        assertThat(forwarded).isNotNull();
+        assertThat((Object) second.readInbound()).isNull();
+        ByteBuf cachedResponse = second.readOutbound();
+        assertThat(cachedResponse.toString(CharsetUtil.UTF_8)).isEqualTo(RESPONSE);
+        forwarded.release();
+        cachedResponse.release();
+        first.finishAndReleaseAll();
+        second.finishAndReleaseAll();
+    }
+
+    @Test
+    void testThatResponsesAreOnlyReplayedToClientsNegotiatingTheSameEncoding() {
+        // given
+        ResponseCache cache = new ResponseCache(1024, 1024, SEARCH_PATH_REGEX, 60000, Map.of());
+        EmbeddedChannel gzipClient = new EmbeddedChannel(newGovernanceHandler(cache));
+        EmbeddedChannel plainClient = new EmbeddedChannel(newGovernanceHandler(cache));
+        FullHttpRequest gzipRequest = searchRequest("/logs/_search", "{\"size\": 0}");
+        gzipRequest.headers().set(HttpHeaderNames.ACCEPT_ENCODING, "gzip");
+        gzipClient.writeInbound(encode(gzipRequest));
+        ByteBuf forwardedGzip = gzipClient.readInbound();
+        gzipClient.writeOutbound(copiedBuffer(RESPONSE, CharsetUtil.UTF_8));
+        ByteBuf gzipResponse = gzipClient.readOutbound();
+
+        // when
+        FullHttpRequest plainRequest = searchRequest("/logs/_search", "{\"size\": 0}");
+        plainRequest.headers().set(HttpHeaderNames.ACCEPT_ENCODING, "identity");
+        plainClient.writeInbound(encode(plainRequest));
+
+        // then
+        ByteBuf forwardedPlain = plainClient.readInbound();
+        assertThat(forwardedGzip).isNotNull();
+        assertThat(forwardedPlain).isNotNull();
+        assertThat((Object) plainClient.readOutbound()).isNull();
+        forwardedGzip.release();
+        forwardedPlain.release();
+        gzipResponse.release();
+        gzipClient.finishAndReleaseAll();
+        plainClient.finishAndReleaseAll();
+    }
+
+    @Test
+    void testThatUnroundedNowIsNotCacheable() throws Exception {
+        // given
+        ResponseCache cache = new ResponseCache(1024, 1024, SEARCH_PATH_REGEX, 60000, Map.of(), () -> NOW);
+
+        // when
+        ResponseCache.CacheableRequest unrounded = getCacheableRequest(
+                cache,
+                searchRequest("/logs/_search", "{\"query\":{\"range\":{\"@timestamp\":{\"gte\":\"now-15m\"}}}}"));
+        ResponseCache.CacheableRequest partlyRounded = getCacheableRequest(
+                cache,
+                searchRequest(
+                        "/logs/_search",
+                        "{\"query\":{\"range\":{\"@timestamp\":{\"gte\":\"now-15m/m\",\"lte\":\"now\"}}}}"));
+
+        // then
+        assertThat(unrounded).isNull();
+        assertThat(partlyRounded).isNull();
+    }
+
+    @Test
+    void testThatRoundedNowIsCachedUntilRoundingBoundary() throws Exception {
+        // given
+        ResponseCache cache = new ResponseCache(1024, 1024, SEARCH_PATH_REGEX, 60000, Map.of(), () -> NOW);
+
+        // when
+        ResponseCache.CacheableRequest roundedToMinute = getCacheableRequest(
+                cache,
+                searchRequest(
+                        "/logs/_search",
+                        "{\"query\":{\"range\":{\"@timestamp\":{\"gte\":\"now-15m/m\",\"lte\":\"now/m\"}}}}"));
+        ResponseCache.CacheableRequest roundedToDay = getCacheableRequest(
+                cache,
+                searchRequest("/logs/_search", "{\"query\":{\"range\":{\"@timestamp\":{\"gte\":\"now-1d/d\"}}}}"));
+
+        // then
+        assertThat(roundedToMinute.getExpiresAtMillis()).isEqualTo(NOW + TimeUnit.SECONDS.toMillis(30));
+        assertThat(roundedToDay.getExpiresAtMillis()).isEqualTo(NOW + 60000);
+    }
+
+    @Test
+    void testThatRoundingBoundariesFollowTheTimeZoneOfTheQuery() throws Exception {
+        // given
+        ResponseCache cache =
+                new ResponseCache(1024, 1024, SEARCH_PATH_REGEX, TimeUnit.DAYS.toMillis(1), Map.of(), () -> NOW);
+
+        // when
+        ResponseCache.CacheableRequest utcDay = getCacheableRequest(
+                cache,
+                searchRequest("/logs/_search", "{\"query\":{\"range\":{\"@timestamp\":{\"gte\":\"now-1d/d\"}}}}"));
+        ResponseCache.CacheableRequest indiaDay = getCacheableRequest(
+                cache,
+                searchRequest(
+                        "/logs/_search",
+                        "{\"query\":{\"range\":{\"@timestamp\":{\"gte\":\"now-1d/d\",\"time_zone\":\"+05:30\"}}}}"));
+        ResponseCache.CacheableRequest quarterHourZoneHour = getCacheableRequest(
+                cache,
+                searchRequest(
+                        "/logs/_search",
+                        "{\"query\":{\"range\":{\"@timestamp\":{\"gte\":\"now-1h/h\",\"time_zone\":\"+05:45\"}}}}"));
+        ResponseCache.CacheableRequest invalidZone = getCacheableRequest(
+                cache,
+                searchRequest(
+                        "/logs/_search",
+                        "{\"query\":{\"range\":{\"@timestamp\":{\"gte\":\"now-1d/d\",\"time_zone\":\"Mars/Olympus\"}}}}"));
+
+        // then
+        // NOW is 16:00:30 UTC, 21:30:30 in +05:30 and 21:45:30 in +05:45
+        assertThat(utcDay.getExpiresAtMillis())
+                .isEqualTo(NOW + TimeUnit.HOURS.toMillis(8) - TimeUnit.SECONDS.toMillis(30));
+        assertThat(indiaDay.getExpiresAtMillis())
+                .isEqualTo(NOW + TimeUnit.MINUTES.toMillis(150) - TimeUnit.SECONDS.toMillis(30));
+        assertThat(quarterHourZoneHour.getExpiresAtMillis())
+                .isEqualTo(NOW + TimeUnit.MINUTES.toMillis(15) - TimeUnit.SECONDS.toMillis(30));
+        assertThat(invalidZone).isNull();
+    }
+
+    @Test
+    void testThatTtlIsChosenByIndex() throws Exception {
+        // given
+        ResponseCache cache = new ResponseCache(
+                1024, 1024, SEARCH_PATH_REGEX, 60000, Map.of("logs-.*", 5000L, "secrets", 0L), () -> NOW);
+
+        // when
+        ResponseCache.CacheableRequest logsRequest = getCacheableRequest(cache, searchRequest("/logs-1/_search", "{}"));
+        ResponseCache.CacheableRequest secretsRequest =
+                getCacheableRequest(cache, searchRequest("/secrets/_search", "{}"));
+        ResponseCache.CacheableRequest otherRequest = getCacheableRequest(cache, searchRequest("/other/_search", "{}"));
+
+        // then
+        assertThat(logsRequest.getExpiresAtMillis()).isEqualTo(NOW + 5000);
+        assertThat(secretsRequest).isNull();
+        assertThat(otherRequest.getExpiresAtMillis()).isEqualTo(NOW + 60000);
+    }
+
+    @Test
+    void testThatLeastRecentlyUsedEntriesAreEvictedBySize() {
+        // given
+        ResponseCache cache = new ResponseCache(300, 200, SEARCH_PATH_REGEX, 60000, Map.of());
+        put(cache, "a", 100);
+        put(cache, "b", 100);
+        cache.get("a").release();
+
+        // when
+        put(cache, "c", 150);
+        put(cache, "too large", 250);
+
+        // then
+        assertThat(cache.getTotalBytes()).isEqualTo(250);
+        ByteBuf a = cache.get("a");
+        assertThat(a).isNotNull();
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("too large")).isNull();
+        a.release();
+    }
+
+    @Test
+    void testThatOnlySuccessfulResponsesAreCached() {
+        // given
+        ResponseCache cache = new ResponseCache(1024, 1024, SEARCH_PATH_REGEX, 60000, Map.of());
+        HttpResponse errorResponse = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.BAD_REQUEST);
+        ByteBuf response = Unpooled.wrappedBuffer(new byte[10]);
+
+        // when
+        cache.put(new ResponseCache.CacheableRequest("a", Long.MAX_VALUE), errorResponse, List.of(response), 10);
+
+        // then
+        assertThat(cache.get("a")).isNull();
+        response.release();
+    }
+
+    @Test
+    void testThatResponsesAreOnlyReplayedToClientsOfTheSameProtocolVersion() throws Exception {
+        // given
+        ResponseCache cache = new ResponseCache(1024, 1024, SEARCH_PATH_REGEX, 60000, Map.of());
+        FullHttpRequest http10Request = searchRequest("/logs/_search", "{\"size\": 0}");
+        http10Request.setProtocolVersion(HttpVersion.HTTP_1_0);
+
+        // when
+        ResponseCache.CacheableRequest http11 =
+                getCacheableRequest(cache, searchRequest("/logs/_search", "{\"size\": 0}"));
+        ResponseCache.CacheableRequest http10 = getCacheableRequest(cache, http10Request);
+
+        // then
+        assertThat(http11.getKey()).isNotEqualTo(http10.getKey());
+    }
+
+    @Test
+    void testThatEntriesLargerThanABufferAreRejected() {
+        assertThatThrownBy(() -> new ResponseCache(
+                        4L * Integer.MAX_VALUE, Integer.MAX_VALUE + 1L, SEARCH_PATH_REGEX, 60000, Map.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testThatSegmentsTogetherStayWithinMaxBytes() {
+        // given
+        ResponseCache cache = new ResponseCache(1600, 100, SEARCH_PATH_REGEX, 60000, Map.of());
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            put(cache, "key-" + i, 100);
+        }
+
+        // then
+        assertThat(cache.getTotalBytes()).isPositive().isLessThanOrEqualTo(1600);
+    }
+}
@@ -0,0 +1,94 @@
+package org.opensearch.trafficgateway.proxy.governance;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.encode;
+import static org.opensearch.trafficgateway.proxy.governance.GovernanceHandlerTestFixtures.searchRequest;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.logging.log4j.core.LogEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+import org.opensearch.trafficgateway.proxy.governance.ShadowGovernanceRule.ShadowRuleRejection;
+
+@ExtendWith(MockitoExtension.class)
+public class ShadowGovernanceRuleTest extends UnitTestBase {
+    @Test
+    void testThatShadowRuleLogsRejectionAndPasses() {
+        // given
+        GovernanceRule delegate = mock(GovernanceRule.class);
+        when(delegate.evaluate(any()))
+                .thenReturn(
+                        new RejectSearchRegexFieldRule("foo", ".*", ".*").getRejectResultWithMessage("would reject"));
+        ShadowGovernanceRule rule = new ShadowGovernanceRule(delegate, 1.0, Runnable::run);
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/logs/_search");
+
+        // when
+        GovernanceRuleResult result = rule.evaluate(request);
+
+        // then
+        assertThat(result.getResultType()).isEqualTo(GovernanceRuleResultType.PASS);
+        assertThat(request.refCnt()).isEqualTo(1);
+        assertThat(testLoggingAppender.getMessages())
+                .filteredOn(e -> e.getMarker() == ShadowGovernanceRule.SHADOW_REJECTION_MARKER)
+                .map(LogEvent::getMessage)
+                .map(m -> m.getParameters()[0])
+                .singleElement()
+                .isInstanceOfSatisfying(ShadowRuleRejection.class, r -> {
+                    assertThat(r.getRecordType()).isEqualTo(ShadowGovernanceRule.SHADOW_REJECTION_RECORD_TYPE);
+                    assertThat(r.getPath()).isEqualTo("/logs/_search");
+                    assertThat(r.getResponseReason()).isEqualTo("would reject");
+                });
+        request.release();
+    }
+
+    @Test
+    void testThatUnsampledRequestsAreNotEvaluated() {
+        // given
+        GovernanceRule delegate = mock(GovernanceRule.class);
+        ShadowGovernanceRule rule = new ShadowGovernanceRule(delegate, 0.0, Runnable::run);
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/logs/_search");
+
+        // when
+        GovernanceRuleResult result = rule.evaluate(request);
+
+        // then
+        assertThat(result.getResultType()).isEqualTo(GovernanceRuleResultType.PASS);
+        verify(delegate, never()).evaluate(any());
+        request.release();
+    }
+
+    @Test
+    void testThatSampledRequestsAreOnlyEvaluatedOnceForwarded() {
+        // given
+        GovernanceRule delegate = mock(GovernanceRule.class);
+        when(delegate.evaluate(any())).thenReturn(new RejectSearchRegexFieldRule("foo", ".*", ".*").getPassResult());
+        List<Boolean> forwardedBeforeEvaluation = new ArrayList<>();
+        EmbeddedChannel[] channel = new EmbeddedChannel[1];
+        ShadowGovernanceRule rule = new ShadowGovernanceRule(delegate, 1.0, task -> {
+            forwardedBeforeEvaluation.add(!channel[0].inboundMessages().isEmpty());
+            task.run();
+        });
+        channel[0] = new EmbeddedChannel(new GovernanceHandler("bypassKey", false, rule));
+
+        // when
+        channel[0].writeInbound(encode(searchRequest("/logs/_search", "{}")));
+
+        // then
+        verify(delegate).evaluate(any());
+        assertThat(forwardedBeforeEvaluation).containsExactly(true);
+        channel[0].finishAndReleaseAll();
+    }
+}
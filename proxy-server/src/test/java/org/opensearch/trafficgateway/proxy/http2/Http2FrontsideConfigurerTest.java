@@ -0,0 +1,194 @@
+package org.opensearch.trafficgateway.proxy.http2;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.util.CharsetUtil;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+
+@ExtendWith(MockitoExtension.class)
+public class Http2FrontsideConfigurerTest extends UnitTestBase {
+    private EventLoopGroup eventLoopGroup;
+    private int port;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        eventLoopGroup = new NioEventLoopGroup(1);
+        var configurer = new Http2FrontsideConfigurer(10, Http2FrontsideConfigurerTest::addEchoHandlers);
+        Channel server = new ServerBootstrap()
+                .group(eventLoopGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.AUTO_READ, false)
+                .childHandler(configurer.newProtocolNegotiator(false))
+                .bind("127.0.0.1", 0)
+                .sync()
+                .channel();
+        port = ((InetSocketAddress) server.localAddress()).getPort();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+
+    /*
+     * An HTTP/1.1 server on raw bytes, as the gateway's handlers are, that answers with the connection id and URI.
+     */
+    private static void addEchoHandlers(ChannelPipeline pipeline, String connectionId) {
+        pipeline.channel().config().setAutoRead(true);
+        pipeline.addLast(
+                new HttpServerCodec(),
+                new HttpObjectAggregator(1024),
+                new SimpleChannelInboundHandler<FullHttpRequest>() {
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
+                        var response = new DefaultFullHttpResponse(
+                                HttpVersion.HTTP_1_1,
+                                HttpResponseStatus.OK,
+                                Unpooled.copiedBuffer(connectionId + " " + request.uri(), CharsetUtil.UTF_8));
+                        response.headers()
+                                .set(
+                                        HttpHeaderNames.CONTENT_LENGTH,
+                                        response.content().readableBytes());
+                        ctx.writeAndFlush(response);
+                    }
+                });
+    }
+
+    private static ChannelHandler newResponseHandler(CompletableFuture<String> responseBody) {
+        return new SimpleChannelInboundHandler<FullHttpResponse>() {
+            @Override
+            protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+                responseBody.complete(response.content().toString(CharsetUtil.UTF_8));
+            }
+        };
+    }
+
+    private static FullHttpRequest newRequest(String uri) {
+        var request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+        request.headers().set(HttpHeaderNames.HOST, "localhost");
+        return request;
+    }
+
+    @Test
+    void testThatHttp2StreamsAreHandledAsConnectionsOfTheirOwn() throws Exception {
+        // given
+        Channel connection = new Bootstrap()
+                .group(eventLoopGroup)
+                .channel(NioSocketChannel.class)
+                .handler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline()
+                                .addLast(
+                                        Http2FrameCodecBuilder.forClient().build(),
+                                        new Http2MultiplexHandler(new ChannelInitializer<>() {
+                                            @Override
+                                            protected void initChannel(Channel ch) {}
+                                        }));
+                    }
+                })
+                .connect("127.0.0.1", port)
+                .sync()
+                .channel();
+        var firstResponse = new CompletableFuture<String>();
+        var secondResponse = new CompletableFuture<String>();
+
+        // when
+        Http2StreamChannel firstStream = openStream(connection, firstResponse);
+        Http2StreamChannel secondStream = openStream(connection, secondResponse);
+        firstStream.writeAndFlush(newRequest("/first"));
+        secondStream.writeAndFlush(newRequest("/second"));
+
+        // then
+        assertThat(firstResponse.get(5, TimeUnit.SECONDS))
+                .endsWith("-" + firstStream.stream().id() + " /first");
+        assertThat(secondResponse.get(5, TimeUnit.SECONDS))
+                .endsWith("-" + secondStream.stream().id() + " /second");
+        connection.close();
+    }
+
+    private static Http2StreamChannel openStream(Channel connection, CompletableFuture<String> responseBody)
+            throws InterruptedException {
+        return new Http2StreamChannelBootstrap(connection)
+                .handler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline()
+                                .addLast(
+                                        new Http2StreamFrameToHttpObjectCodec(false),
+                                        new HttpObjectAggregator(1024),
+                                        newResponseHandler(responseBody));
+                    }
+                })
+                .open()
+                .sync()
+                .getNow();
+    }
+
+    @Test
+    void testThatHttp1ConnectionIsLeftAsIs() throws Exception {
+        // given
+        var response = new CompletableFuture<String>();
+        Channel connection = new Bootstrap()
+                .group(eventLoopGroup)
+                .channel(NioSocketChannel.class)
+                .handler(new ChannelInitializer<>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline()
+                                .addLast(
+                                        new HttpClientCodec(),
+                                        new HttpObjectAggregator(1024),
+                                        newResponseHandler(response));
+                    }
+                })
+                .connect("127.0.0.1", port)
+                .sync()
+                .channel();
+
+        // when
+        connection.writeAndFlush(newRequest("/logs/_search"));
+
+        // then
+        assertThat(response.get(5, TimeUnit.SECONDS)).endsWith(" /logs/_search");
+        connection.close();
+    }
+}
@@ -0,0 +1,64 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+
+@ExtendWith(MockitoExtension.class)
+public class CaptureDispatcherTest extends UnitTestBase {
+    @Test
+    void testThatTasksOfALaneRunInOrder() throws Exception {
+        // given
+        CaptureDispatcher captureDispatcher = new CaptureDispatcher(2, 8, 3, CaptureDispatcher.OverflowPolicy.BLOCK);
+        int lane = captureDispatcher.nextLane();
+        List<Integer> processed = new CopyOnWriteArrayList<>();
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            int task = i;
+            captureDispatcher.submit(lane, () -> processed.add(task));
+        }
+        captureDispatcher.close();
+
+        // then
+        assertThat(processed).hasSize(100).isSorted();
+        assertThat(captureDispatcher.getStats().getDropped()).isZero();
+    }
+
+    @Test
+    void testThatTasksAreDroppedWhenQueueIsFull() throws Exception {
+        // given
+        CaptureDispatcher captureDispatcher = new CaptureDispatcher(1, 2, 1, CaptureDispatcher.OverflowPolicy.DROP);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        captureDispatcher.submit(0, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // when
+        boolean firstSubmitted = captureDispatcher.submit(0, () -> {});
+        boolean secondSubmitted = captureDispatcher.submit(0, () -> {});
+        boolean thirdSubmitted = captureDispatcher.submit(0, () -> {});
+        release.countDown();
+        captureDispatcher.close();
+
+        // then
+        assertThat(firstSubmitted).isTrue();
+        assertThat(secondSubmitted).isTrue();
+        assertThat(thirdSubmitted).isFalse();
+        assertThat(captureDispatcher.getStats()).isEqualTo(new CaptureDispatcher.Stats(3, 3, 1, 0, 0));
+    }
+}
@@ -0,0 +1,68 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.opentelemetry.api.metrics.LongCounterBuilder;
+import io.opentelemetry.api.metrics.LongUpDownCounterBuilder;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableLongMeasurement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+
+@ExtendWith(MockitoExtension.class)
+public class CaptureMemoryBudgetTest extends UnitTestBase {
+
+    @Test
+    void testThatStatsAreReportedAsMetrics() {
+        // given
+        Map<String, Consumer<ObservableLongMeasurement>> callbacks = new HashMap<>();
+        Meter meter = mock(Meter.class);
+        when(meter.counterBuilder(anyString())).thenAnswer(invocation -> {
+            LongCounterBuilder builder = mock(LongCounterBuilder.class);
+            when(builder.buildWithCallback(any())).thenAnswer(build -> {
+                callbacks.put(invocation.getArgument(0), build.getArgument(0));
+                return null;
+            });
+            return builder;
+        });
+        when(meter.upDownCounterBuilder(anyString())).thenAnswer(invocation -> {
+            LongUpDownCounterBuilder builder = mock(LongUpDownCounterBuilder.class);
+            when(builder.buildWithCallback(any())).thenAnswer(build -> {
+                callbacks.put(invocation.getArgument(0), build.getArgument(0));
+                return null;
+            });
+            return builder;
+        });
+        CaptureMemoryBudget memoryBudget = new CaptureMemoryBudget(1024);
+        memoryBudget.registerMetrics(meter);
+
+        // when
+        boolean reserved = memoryBudget.tryReserve(512);
+        boolean overReserved = memoryBudget.tryReserve(1024);
+        memoryBudget.recordDegradedCapture();
+        memoryBudget.recordAbandonedCapture();
+        ObservableLongMeasurement reservedBytes = mock(ObservableLongMeasurement.class);
+        ObservableLongMeasurement degraded = mock(ObservableLongMeasurement.class);
+        ObservableLongMeasurement abandoned = mock(ObservableLongMeasurement.class);
+        callbacks.get("captureMemoryBudgetReservedBytes").accept(reservedBytes);
+        callbacks.get("capturesDegraded").accept(degraded);
+        callbacks.get("capturesAbandoned").accept(abandoned);
+
+        // then
+        assertThat(reserved).isTrue();
+        assertThat(overReserved).isFalse();
+        verify(reservedBytes).record(512L);
+        verify(degraded).record(1L);
+        verify(abandoned).record(1L);
+    }
+}
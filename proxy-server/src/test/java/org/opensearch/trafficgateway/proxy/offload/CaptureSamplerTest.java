@@ -0,0 +1,102 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+import org.opensearch.trafficgateway.proxy.offload.CaptureSamplingConfiguration.CaptureRuleConfiguration;
+
+@ExtendWith(MockitoExtension.class)
+public class CaptureSamplerTest extends UnitTestBase {
+    private static final CaptureSamplingConfiguration CONFIG = CaptureSamplingConfiguration.builder()
+            .rules(new CaptureRuleConfiguration[] {
+                CaptureRuleConfiguration.builder()
+                        .userIds(List.of("auditor"))
+                        .sampleRate(1.0)
+                        .build(),
+                CaptureRuleConfiguration.builder()
+                        .methods(List.of("get"))
+                        .indexRegex("logs-.*")
+                        .sampleRate(0.0)
+                        .build(),
+                CaptureRuleConfiguration.builder()
+                        .pathRegex(".*/_search")
+                        .sampleRate(0.5)
+                        .build()
+            })
+            .defaultSampleRate(0.1)
+            .build();
+
+    private static HttpRequest newRequest(HttpMethod method, String uri, String userId) {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, method, uri);
+        if (userId != null) {
+            request.headers()
+                    .set(
+                            HttpHeaderNames.AUTHORIZATION,
+                            "Basic "
+                                    + Base64.getEncoder()
+                                            .encodeToString((userId + ":secret").getBytes(StandardCharsets.UTF_8)));
+        }
+        return request;
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        "GET, /logs-2024/_search?q=x, auditor, 0.99, true",
+        "GET, /logs-2024/_search?q=x, jdoe, 0.0, false",
+        "POST, /logs-2024/_search, jdoe, 0.49, true",
+        "POST, /logs-2024/_search, jdoe, 0.5, false",
+        "GET, /_search, , 0.49, true",
+        "PUT, /metrics/_doc/1, , 0.09, true",
+        "PUT, /metrics/_doc/1, , 0.1, false"
+    })
+    void testThatTheFirstMatchingRuleDecides(
+            String method, String uri, String userId, double random, boolean expectedCapture) {
+        // given
+        CaptureSampler sampler = new CaptureSampler(CONFIG, () -> random);
+
+        // when
+        boolean capture = sampler.shouldCapture(newRequest(HttpMethod.valueOf(method), uri, userId));
+
+        // then
+        assertThat(capture).isEqualTo(expectedCapture);
+    }
+
+    @Test
+    void testThatErrorResponsesAreAlwaysCaptured() {
+        // given
+        CaptureSampler sampler = new CaptureSampler(CONFIG);
+
+        // then
+        assertThat(sampler.shouldAlwaysCapture(
+                        new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.FORBIDDEN)))
+                .isTrue();
+        assertThat(sampler.shouldAlwaysCapture(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK)))
+                .isFalse();
+    }
+
+    @Test
+    void testThatSampleRatesOutsideZeroToOneAreRejected() {
+        // given
+        CaptureSamplingConfiguration config =
+                CaptureSamplingConfiguration.builder().defaultSampleRate(1.5).build();
+
+        // then
+        assertThatThrownBy(() -> new CaptureSampler(config)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
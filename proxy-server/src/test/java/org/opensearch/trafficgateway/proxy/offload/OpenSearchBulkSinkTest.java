@@ -0,0 +1,412 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.util.CharsetUtil;
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+
+@ExtendWith(MockitoExtension.class)
+public class OpenSearchBulkSinkTest extends UnitTestBase {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private EventLoopGroup serverGroup;
+    private Channel serverChannel;
+    private final BlockingQueue<FullHttpRequest> bulkRequests = new LinkedBlockingQueue<>();
+    private final Queue<HttpResponseStatus> responseStatuses = new ConcurrentLinkedQueue<>();
+    private final Queue<String> responseBodies = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger unansweredRequests = new AtomicInteger();
+    private volatile SslContext serverSslContext;
+
+    @BeforeEach
+    void startStubCluster() throws Exception {
+        serverGroup = new NioEventLoopGroup(1);
+        serverChannel = new ServerBootstrap()
+                .group(serverGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        if (serverSslContext != null) {
+                            ch.pipeline().addLast(serverSslContext.newHandler(ch.alloc()));
+                        }
+                        ch.pipeline()
+                                .addLast(
+                                        new HttpServerCodec(),
+                                        new HttpObjectAggregator(Integer.MAX_VALUE),
+                                        new SimpleChannelInboundHandler<FullHttpRequest>() {
+                                            @Override
+                                            protected void channelRead0(
+                                                    ChannelHandlerContext ctx, FullHttpRequest request) {
+                                                bulkRequests.add(request.retainedDuplicate());
+                                                if (unansweredRequests.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                                                    return;
+                                                }
+                                                HttpResponseStatus status = responseStatuses.poll();
+                                                String body = responseBodies.poll();
+                                                FullHttpResponse response = new DefaultFullHttpResponse(
+                                                        HttpVersion.HTTP_1_1,
+                                                        status != null ? status : HttpResponseStatus.OK,
+                                                        Unpooled.copiedBuffer(
+                                                                body != null ? body : "{\"errors\":false}",
+                                                                CharsetUtil.UTF_8));
+                                                response.headers()
+                                                        .set(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                                                        .set(
+                                                                HttpHeaderNames.CONTENT_LENGTH,
+                                                                response.content()
+                                                                        .readableBytes());
+                                                ctx.writeAndFlush(response);
+                                            }
+                                        });
+                    }
+                })
+                .bind("127.0.0.1", 0)
+                .sync()
+                .channel();
+    }
+
+    @AfterEach
+    void stopStubCluster() throws Exception {
+        bulkRequests.forEach(FullHttpRequest::release);
+        serverChannel.close().sync();
+        serverGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+
+    private URI stubClusterUri() {
+        return URI.create("http://127.0.0.1:" + ((InetSocketAddress) serverChannel.localAddress()).getPort());
+    }
+
+    private URI stubClusterUri(String scheme, String host) {
+        return URI.create(scheme + "://" + host + ":" + ((InetSocketAddress) serverChannel.localAddress()).getPort());
+    }
+
+    private static File getResourceFile(String name) throws Exception {
+        return new File(OpenSearchBulkSinkTest.class.getResource(name).toURI());
+    }
+
+    private void serveTls(String certificateName) throws Exception {
+        serverSslContext = SslContextBuilder.forServer(
+                        getResourceFile("/offload/" + certificateName + ".crt.pem"),
+                        getResourceFile("/offload/" + certificateName + ".key.pem"))
+                .build();
+    }
+
+    private static SerializableHttpMessage newRequest(int i) {
+        return new SerializableHttpMessage(
+                SerializableHttpMessage.RequestType.REQUEST,
+                "request-" + i,
+                "jdoe",
+                null,
+                1700000000000L + i,
+                "POST",
+                "/logs/_search",
+                Map.of("size", List.of(String.valueOf(i))),
+                List.of(new SimpleImmutableEntry<>("content-type", "application/json")),
+                null,
+                null,
+                "{\"query\":{\"term\":{\"user\":\"j\u00f6rg\"}}}",
+                35,
+                false);
+    }
+
+    private static List<JsonNode> readLines(FullHttpRequest request) throws Exception {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : request.content().toString(CharsetUtil.UTF_8).split("\n")) {
+            lines.add(MAPPER.readTree(line));
+        }
+        return lines;
+    }
+
+    @Test
+    void testThatFullBatchesAreSentWithoutWaitingForTheFlushInterval() throws Exception {
+        // given
+        OpenSearchBulkSink sink = new OpenSearchBulkSink(OpenSearchBulkSinkOptions.builder()
+                .uri(stubClusterUri())
+                .index("traffic")
+                .maxBatchActions(2)
+                .flushInterval(Duration.ofHours(1))
+                .build());
+
+        try {
+            // when
+            for (int i = 0; i < 4; i++) {
+                sink.accept(newRequest(i));
+            }
+            FullHttpRequest first = bulkRequests.poll(10, TimeUnit.SECONDS);
+            FullHttpRequest second = bulkRequests.poll(10, TimeUnit.SECONDS);
+
+            // then
+            assertThat(first).isNotNull();
+            assertThat(second).isNotNull();
+            assertThat(first.uri()).isEqualTo("/_bulk?filter_path=errors,items.*.status");
+            assertThat(first.headers().get(HttpHeaderNames.CONTENT_TYPE)).isEqualTo("application/x-ndjson");
+
+            List<JsonNode> lines = new ArrayList<>(readLines(first));
+            lines.addAll(readLines(second));
+            assertThat(lines).hasSize(8);
+            for (int i = 0; i < lines.size(); i += 2) {
+                JsonNode document = lines.get(i + 1);
+                assertThat(lines.get(i).at("/index/_index").asText()).isEqualTo("traffic");
+                assertThat(lines.get(i).at("/index/_id").asText())
+                        .isEqualTo(document.get("requestId").asText() + "-request");
+                // read back rather than valueToTree, which keeps small longs as LongNodes
+                assertThat(document).isEqualTo(MAPPER.readTree(MAPPER.writeValueAsString(newRequest((int)
+                        (document.get("timestamp").asLong() - 1700000000000L)))));
+            }
+        } finally {
+            sink.close();
+        }
+        assertThat(sink.getStats()).isEqualTo(new OpenSearchBulkSink.Stats(4, 0, 0, 0));
+    }
+
+    @Test
+    void testThatPartialBatchesAreSentAfterTheFlushInterval() throws Exception {
+        // given
+        OpenSearchBulkSink sink = new OpenSearchBulkSink(OpenSearchBulkSinkOptions.builder()
+                .uri(stubClusterUri())
+                .flushInterval(Duration.ofMillis(100))
+                .build());
+
+        try {
+            // when
+            sink.accept(newRequest(0));
+            FullHttpRequest request = bulkRequests.poll(10, TimeUnit.SECONDS);
+
+            // then
+            assertThat(request).isNotNull();
+            List<JsonNode> lines = readLines(request);
+            assertThat(lines).hasSize(2);
+            assertThat(lines.get(0).at("/index/_index").asText()).isEqualTo("captured-traffic");
+            assertThat(lines.get(0).at("/index/_id").asText()).isEqualTo("request-0-request");
+        } finally {
+            sink.close();
+        }
+    }
+
+    @Test
+    void testThatBatchesAreRetriedAfterServerErrors() throws Exception {
+        // given
+        responseStatuses.add(HttpResponseStatus.SERVICE_UNAVAILABLE);
+        responseStatuses.add(HttpResponseStatus.TOO_MANY_REQUESTS);
+        OpenSearchBulkSink sink = new OpenSearchBulkSink(OpenSearchBulkSinkOptions.builder()
+                .uri(stubClusterUri())
+                .maxBatchActions(1)
+                .initialBackoff(Duration.ofMillis(10))
+                .build());
+
+        try {
+            // when
+            sink.accept(newRequest(0));
+            List<FullHttpRequest> attempts = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                attempts.add(bulkRequests.poll(10, TimeUnit.SECONDS));
+            }
+
+            // then
+            assertThat(attempts).doesNotContainNull();
+            assertThat(attempts)
+                    .extracting(attempt -> attempt.content().toString(CharsetUtil.UTF_8))
+                    .containsOnly(attempts.get(0).content().toString(CharsetUtil.UTF_8));
+        } finally {
+            sink.close();
+        }
+        assertThat(sink.getStats()).isEqualTo(new OpenSearchBulkSink.Stats(1, 0, 0, 2));
+    }
+
+    @Test
+    void testThatBatchesAreDroppedAfterTheLastRetry() throws Exception {
+        // given
+        responseStatuses.add(HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        responseStatuses.add(HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        OpenSearchBulkSink sink = new OpenSearchBulkSink(OpenSearchBulkSinkOptions.builder()
+                .uri(stubClusterUri())
+                .maxBatchActions(1)
+                .maxRetries(1)
+                .initialBackoff(Duration.ofMillis(10))
+                .build());
+
+        // when
+        sink.accept(newRequest(0));
+        sink.close();
+
+        // then
+        assertThat(bulkRequests).hasSize(2);
+        assertThat(sink.getStats()).isEqualTo(new OpenSearchBulkSink.Stats(0, 0, 1, 1));
+    }
+
+    @Test
+    void testThatItemsRejectedWithRetryableStatusesAreRetriedOnTheirOwn() throws Exception {
+        // given
+        responseBodies.add("{\"errors\":true,\"items\":[{\"index\":{\"status\":201}},"
+                + "{\"index\":{\"status\":429}},{\"index\":{\"status\":400}}]}");
+        OpenSearchBulkSink sink = new OpenSearchBulkSink(OpenSearchBulkSinkOptions.builder()
+                .uri(stubClusterUri())
+                .maxBatchActions(3)
+                .initialBackoff(Duration.ofMillis(10))
+                .build());
+
+        try {
+            // when
+            for (int i = 0; i < 3; i++) {
+                sink.accept(newRequest(i));
+            }
+            FullHttpRequest first = bulkRequests.poll(10, TimeUnit.SECONDS);
+            FullHttpRequest retry = bulkRequests.poll(10, TimeUnit.SECONDS);
+
+            // then
+            assertThat(first).isNotNull();
+            assertThat(readLines(first)).hasSize(6);
+            assertThat(retry).isNotNull();
+            List<JsonNode> lines = readLines(retry);
+            assertThat(lines).hasSize(2);
+            assertThat(lines.get(0).at("/index/_id").asText()).isEqualTo("request-1-request");
+            assertThat(lines.get(1).get("requestId").asText()).isEqualTo("request-1");
+        } finally {
+            sink.close();
+        }
+        assertThat(sink.getStats()).isEqualTo(new OpenSearchBulkSink.Stats(2, 1, 0, 1));
+    }
+
+    @Test
+    void testThatBatchesWithoutResponseAreRetriedAfterTheResponseTimeout() throws Exception {
+        // given
+        unansweredRequests.set(1);
+        OpenSearchBulkSink sink = new OpenSearchBulkSink(OpenSearchBulkSinkOptions.builder()
+                .uri(stubClusterUri())
+                .maxBatchActions(1)
+                .responseTimeout(Duration.ofMillis(100))
+                .initialBackoff(Duration.ofMillis(10))
+                .build());
+
+        try {
+            // when
+            sink.accept(newRequest(0));
+            FullHttpRequest first = bulkRequests.poll(10, TimeUnit.SECONDS);
+            FullHttpRequest retry = bulkRequests.poll(10, TimeUnit.SECONDS);
+
+            // then
+            assertThat(first).isNotNull();
+            assertThat(retry).isNotNull();
+            assertThat(retry.content().toString(CharsetUtil.UTF_8))
+                    .isEqualTo(first.content().toString(CharsetUtil.UTF_8));
+        } finally {
+            sink.close();
+        }
+        assertThat(sink.getStats()).isEqualTo(new OpenSearchBulkSink.Stats(1, 0, 0, 1));
+    }
+
+    @Test
+    void testThatMessagesAreOnlyOfferedWhileTheirBatchesCannotBeDropped() throws Exception {
+        // given
+        unansweredRequests.set(1);
+        OpenSearchBulkSink sink = new OpenSearchBulkSink(OpenSearchBulkSinkOptions.builder()
+                .uri(stubClusterUri())
+                .maxBatchActions(1)
+                .maxInFlightBatches(1)
+                .maxQueuedBatches(0)
+                .responseTimeout(Duration.ofMillis(200))
+                .initialBackoff(Duration.ofMillis(10))
+                .build());
+        CompletableFuture<Boolean> firstAcknowledgement = new CompletableFuture<>();
+        CompletableFuture<Boolean> thirdAcknowledgement = new CompletableFuture<>();
+
+        try {
+            // when
+            boolean firstTaken = sink.offer(newRequest(0), firstAcknowledgement::complete);
+            boolean secondTaken = sink.offer(newRequest(1), acknowledged -> {});
+            boolean firstAcknowledged = firstAcknowledgement.get(10, TimeUnit.SECONDS);
+            boolean thirdTaken = sink.offer(newRequest(2), thirdAcknowledgement::complete);
+
+            // then
+            assertThat(firstTaken).isTrue();
+            assertThat(secondTaken).isFalse();
+            assertThat(firstAcknowledged).isTrue();
+            assertThat(thirdTaken).isTrue();
+            assertThat(thirdAcknowledgement.get(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            sink.close();
+        }
+        assertThat(sink.getStats()).isEqualTo(new OpenSearchBulkSink.Stats(2, 0, 0, 1));
+    }
+
+    @Test
+    void testThatBatchesAreSentOverTlsToHostsMatchingTheirCertificate() throws Exception {
+        // given
+        serveTls("bulk-sink-matching");
+        OpenSearchBulkSink sink = new OpenSearchBulkSink(OpenSearchBulkSinkOptions.builder()
+                .uri(stubClusterUri("https", "127.0.0.1"))
+                .trustedCertificates(getResourceFile("/offload/bulk-sink-matching.crt.pem"))
+                .maxBatchActions(1)
+                .build());
+
+        // when
+        sink.accept(newRequest(0));
+        sink.close();
+
+        // then
+        assertThat(bulkRequests).hasSize(1);
+        assertThat(sink.getStats()).isEqualTo(new OpenSearchBulkSink.Stats(1, 0, 0, 0));
+    }
+
+    @Test
+    void testThatHostsNotMatchingTheirTrustedCertificateAreRejected() throws Exception {
+        // given
+        serveTls("bulk-sink-mismatched");
+        OpenSearchBulkSink sink = new OpenSearchBulkSink(OpenSearchBulkSinkOptions.builder()
+                .uri(stubClusterUri("https", "admin:secret@127.0.0.1"))
+                .trustedCertificates(getResourceFile("/offload/bulk-sink-mismatched.crt.pem"))
+                .maxBatchActions(1)
+                .maxRetries(0)
+                .build());
+
+        // when
+        sink.accept(newRequest(0));
+        sink.close();
+
+        // then
+        assertThat(bulkRequests).isEmpty();
+        assertThat(sink.getStats()).isEqualTo(new OpenSearchBulkSink.Stats(0, 0, 1, 0));
+    }
+}
@@ -0,0 +1,185 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+
+@ExtendWith(MockitoExtension.class)
+public class SegmentedCaptureWriterTest extends UnitTestBase {
+    @TempDir
+    Path tempDir;
+
+    private static SerializableHttpMessage newRequest(int i) {
+        return new SerializableHttpMessage(
+                SerializableHttpMessage.RequestType.REQUEST,
+                "request-" + i,
+                "jdoe",
+                null,
+                1700000000000L + i,
+                "POST",
+                "/logs/_search",
+                Map.of("size", List.of(String.valueOf(i))),
+                List.of(new SimpleImmutableEntry<>("content-type", "application/json")),
+                null,
+                null,
+                "{\"query\":{\"term\":{\"user\":\"j\u00f6rg\"}}}",
+                35,
+                false);
+    }
+
+    private static SerializableHttpMessage newResponse(int i) {
+        return new SerializableHttpMessage(
+                SerializableHttpMessage.RequestType.RESPONSE,
+                "request-" + i,
+                null,
+                null,
+                1700000000001L + i,
+                null,
+                null,
+                null,
+                List.of(),
+                200,
+                "OK",
+                null,
+                0,
+                false);
+    }
+
+    private List<Path> listSegments() throws Exception {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private List<SerializableHttpMessage> readAll(List<Path> segments) throws Exception {
+        List<SerializableHttpMessage> messages = new ArrayList<>();
+        for (Path segment : segments) {
+            CaptureSegmentReader.read(segment, (writtenAt, message) -> messages.add(message));
+        }
+        return messages;
+    }
+
+    @Test
+    void testThatMessagesAreReadBackAcrossRotatedSegments() throws Exception {
+        // given
+        List<SerializableHttpMessage> written = new ArrayList<>();
+        try (SegmentedCaptureWriter writer = new SegmentedCaptureWriter(tempDir, 512, 0)) {
+            // when
+            for (int i = 0; i < 20; i++) {
+                written.add(newRequest(i));
+                written.add(newResponse(i));
+                writer.accept(written.get(written.size() - 2));
+                writer.accept(written.get(written.size() - 1));
+            }
+        }
+
+        // then
+        List<Path> segments = listSegments();
+        assertThat(segments).hasSizeGreaterThan(1);
+        assertThat(readAll(segments)).isEqualTo(written);
+    }
+
+    @Test
+    void testThatOldestSegmentsAreDeleted() throws Exception {
+        // given
+        try (SegmentedCaptureWriter writer = new SegmentedCaptureWriter(tempDir, 512, 2)) {
+            // when
+            for (int i = 0; i < 20; i++) {
+                writer.accept(newRequest(i));
+            }
+        }
+
+        // then
+        List<Path> segments = listSegments();
+        assertThat(segments).hasSize(2);
+        assertThat(readAll(segments).get(readAll(segments).size() - 1)).isEqualTo(newRequest(19));
+    }
+
+    @Test
+    void testThatRecordLargerThanSegmentGetsSegmentOfItsOwn() throws Exception {
+        // given
+        SerializableHttpMessage request = newRequest(0);
+        SerializableHttpMessage largeRequest = new SerializableHttpMessage(
+                request.getRequestType(),
+                request.getRequestId(),
+                request.getUserId(),
+                request.getUserToken(),
+                request.getTimestamp(),
+                request.getMethod(),
+                request.getPath(),
+                request.getQueryParams(),
+                request.getHeaders(),
+                null,
+                null,
+                "x".repeat(4096),
+                1048576,
+                true);
+
+        // when
+        try (SegmentedCaptureWriter writer = new SegmentedCaptureWriter(tempDir, 512, 0)) {
+            writer.accept(request);
+            writer.accept(largeRequest);
+            writer.accept(request);
+        }
+
+        // then
+        assertThat(readAll(listSegments())).containsExactly(request, largeRequest, request);
+    }
+
+    @Test
+    void testThatIncompleteLastRecordIsSkipped() throws Exception {
+        // given
+        try (SegmentedCaptureWriter writer = new SegmentedCaptureWriter(tempDir, 1 << 16, 0)) {
+            writer.accept(newRequest(0));
+            writer.accept(newRequest(1));
+        }
+        Path segment = listSegments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+
+        // when
+        List<SerializableHttpMessage> messages = readAll(List.of(segment));
+
+        // then
+        assertThat(messages).containsExactly(newRequest(0));
+    }
+
+    @Test
+    void testThatJsonLineHasTheLoggedShape() throws Exception {
+        // given
+        SerializableHttpMessage request = newRequest(0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // when
+        CaptureSegmentReader.writeJsonLine(out, Instant.parse("2024-01-02T03:04:05.678Z"), request);
+
+        // then
+        ObjectMapper mapper = new ObjectMapper();
+        String line = out.toString(StandardCharsets.UTF_8);
+        assertThat(line).endsWith("}\n");
+        var json = mapper.readTree(line);
+        assertThat(json.get("message")).isEqualTo(mapper.readTree(mapper.writeValueAsString(request)));
+        assertThat(json.get("marker").asText())
+                .isEqualTo(TrafficAggregatingLogOffloader.CAPTURED_TRAFFIC_MARKER.getName());
+        assertThat(json.get("time").asText()).isEqualTo("2024-01-02T03:04:05.678Z");
+    }
+}
@@ -0,0 +1,70 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.layout.template.json.util.JsonWriter;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+
+@ExtendWith(MockitoExtension.class)
+public class SerializableHttpMessageTest extends UnitTestBase {
+    private static SerializableHttpMessage newMessage(SerializableHttpMessage.RequestType requestType) {
+        if (requestType == SerializableHttpMessage.RequestType.REQUEST) {
+            return new SerializableHttpMessage(
+                    requestType,
+                    "0f1e",
+                    "jdoe",
+                    null,
+                    1700000000000L,
+                    "POST",
+                    "/logs/_search",
+                    Map.of("size", List.of("10"), "q", List.of("a\"b", "c")),
+                    List.of(new SimpleEntry<>("content-type", "application/json")),
+                    null,
+                    null,
+                    "{\"query\":{\"match_all\":{}}}\n",
+                    1048576,
+                    true);
+        }
+        return new SerializableHttpMessage(
+                requestType,
+                "0f1e",
+                null,
+                "token",
+                1700000000001L,
+                null,
+                null,
+                null,
+                List.of(new SimpleEntry<>("content-length", "2"), new SimpleEntry<>("x-trace", "1")),
+                200,
+                "OK",
+                null,
+                2,
+                false);
+    }
+
+    @ParameterizedTest
+    @EnumSource(SerializableHttpMessage.RequestType.class)
+    void testThatWrittenJsonIsWhatJacksonMakesOfTheMessage(SerializableHttpMessage.RequestType requestType)
+            throws Exception {
+        // given
+        SerializableHttpMessage message = newMessage(requestType);
+        JsonWriter jsonWriter = JsonWriter.newBuilder()
+                .setMaxStringLength(1024)
+                .setTruncatedStringSuffix("...")
+                .build();
+
+        // when
+        String json = jsonWriter.use(() -> message.writeTo(jsonWriter));
+
+        // then
+        assertThat(json).isEqualTo(new ObjectMapper().writeValueAsString(message));
+    }
+}
@@ -0,0 +1,260 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+
+@ExtendWith(MockitoExtension.class)
+public class SpillingCaptureSinkTest extends UnitTestBase {
+    private static final Duration SYNC_INTERVAL = Duration.ofMillis(10);
+
+    @TempDir
+    Path tempDir;
+
+    private static class RecordingSink implements CapturedMessageSink {
+        final List<SerializableHttpMessage> messages = new CopyOnWriteArrayList<>();
+        volatile boolean accepting = true;
+
+        @Override
+        public void accept(SerializableHttpMessage message) {
+            messages.add(message);
+        }
+
+        @Override
+        public boolean isAccepting() {
+            return accepting;
+        }
+    }
+
+    /*
+     * Takes a limited number of offered messages and leaves acknowledging them to the test.
+     */
+    private static class AcknowledgingSink extends RecordingSink {
+        final List<Consumer<Boolean>> acknowledgements = new CopyOnWriteArrayList<>();
+        volatile int capacity = Integer.MAX_VALUE;
+
+        @Override
+        public boolean offer(SerializableHttpMessage message, Consumer<Boolean> onAcknowledged) {
+            if (!accepting || acknowledgements.size() >= capacity) {
+                return false;
+            }
+            messages.add(message);
+            acknowledgements.add(onAcknowledged);
+            return true;
+        }
+    }
+
+    private static SerializableHttpMessage newRequest(int i) {
+        return new SerializableHttpMessage(
+                SerializableHttpMessage.RequestType.REQUEST,
+                "request-" + i,
+                "jdoe",
+                null,
+                1700000000000L + i,
+                "POST",
+                "/logs/_search",
+                Map.of("size", List.of(String.valueOf(i))),
+                List.of(new SimpleImmutableEntry<>("content-type", "application/json")),
+                null,
+                null,
+                "{\"query\":{\"match_all\":{}}}",
+                26,
+                false);
+    }
+
+    private static List<SerializableHttpMessage> newRequests(int from, int to) {
+        return IntStream.range(from, to)
+                .mapToObj(SpillingCaptureSinkTest::newRequest)
+                .collect(Collectors.toList());
+    }
+
+    private List<Path> listSegments() throws Exception {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private boolean isSpillEmpty() {
+        return tempDir.toFile().list().length == 0;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testThatMessagesArePassedOnDirectlyWhileTheSinkAccepts() throws Exception {
+        // given
+        RecordingSink delegate = new RecordingSink();
+
+        // when
+        try (SpillingCaptureSink sink = new SpillingCaptureSink(delegate, tempDir, 4096, 8192, SYNC_INTERVAL)) {
+            newRequests(0, 10).forEach(sink::accept);
+
+            // then
+            assertThat(delegate.messages).isEqualTo(newRequests(0, 10));
+            assertThat(listSegments()).isEmpty();
+            assertThat(sink.getStats()).isEqualTo(new SpillingCaptureSink.Stats(0, 0, 0));
+        }
+    }
+
+    @Test
+    void testThatSpilledMessagesAreReplayedInOrderOnceTheSinkAcceptsAgain() throws Exception {
+        // given
+        RecordingSink delegate = new RecordingSink();
+
+        try (SpillingCaptureSink sink = new SpillingCaptureSink(delegate, tempDir, 1024, 1024 * 1024, SYNC_INTERVAL)) {
+            newRequests(0, 5).forEach(sink::accept);
+            delegate.accepting = false;
+            newRequests(5, 30).forEach(sink::accept);
+            Thread.sleep(50);
+            assertThat(delegate.messages).isEqualTo(newRequests(0, 5));
+            assertThat(listSegments()).hasSizeGreaterThan(1);
+
+            // when
+            delegate.accepting = true;
+            newRequests(30, 40).forEach(sink::accept);
+            waitFor(() -> delegate.messages.size() == 40 && isSpillEmpty());
+            newRequests(40, 45).forEach(sink::accept);
+            waitFor(() -> delegate.messages.size() == 45 && isSpillEmpty());
+
+            // then
+            assertThat(delegate.messages).isEqualTo(newRequests(0, 45));
+            assertThat(sink.getStats().getSpilled()).isGreaterThanOrEqualTo(25L);
+            assertThat(sink.getStats().getReplayed()).isEqualTo(sink.getStats().getSpilled());
+            assertThat(isSpillEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    void testThatSpilledMessagesAreReplayedAfterARestart() throws Exception {
+        // given
+        RecordingSink stalledDelegate = new RecordingSink();
+        stalledDelegate.accepting = false;
+        try (SpillingCaptureSink sink =
+                new SpillingCaptureSink(stalledDelegate, tempDir, 1024, 1024 * 1024, SYNC_INTERVAL)) {
+            newRequests(0, 20).forEach(sink::accept);
+        }
+        List<SerializableHttpMessage> segmentMessages = new ArrayList<>();
+        for (Path segment : listSegments()) {
+            CaptureSegmentReader.read(segment, (writtenAt, message) -> segmentMessages.add(message));
+        }
+
+        // when
+        RecordingSink delegate = new RecordingSink();
+        try (SpillingCaptureSink sink = new SpillingCaptureSink(delegate, tempDir, 1024, 1024 * 1024, SYNC_INTERVAL)) {
+            waitFor(() -> delegate.messages.size() == 20);
+            sink.accept(newRequest(20));
+            waitFor(() -> delegate.messages.size() == 21);
+
+            // then
+            assertThat(stalledDelegate.messages).isEmpty();
+            assertThat(segmentMessages).isEqualTo(newRequests(0, 20));
+            assertThat(delegate.messages).isEqualTo(newRequests(0, 21));
+        }
+    }
+
+    @Test
+    void testThatTheOldestSegmentsAreEvictedAtTheLimit() throws Exception {
+        // given
+        RecordingSink delegate = new RecordingSink();
+        delegate.accepting = false;
+
+        try (SpillingCaptureSink sink = new SpillingCaptureSink(delegate, tempDir, 1024, 3 * 1024, SYNC_INTERVAL)) {
+            // when
+            newRequests(0, 100).forEach(sink::accept);
+            long spilledBytes = 0;
+            for (Path segment : listSegments()) {
+                spilledBytes += Files.size(segment);
+            }
+            delegate.accepting = true;
+            waitFor(this::isSpillEmpty);
+
+            // then
+            assertThat(spilledBytes).isLessThanOrEqualTo(3 * 1024);
+            assertThat(sink.getStats().getEvictedSegments()).isPositive();
+            assertThat(delegate.messages).isNotEmpty().isEqualTo(newRequests(100 - delegate.messages.size(), 100));
+        }
+    }
+
+    @Test
+    void testThatSegmentsAreKeptUntilTheSinkAcknowledgesTheirMessages() throws Exception {
+        // given
+        AcknowledgingSink delegate = new AcknowledgingSink();
+        delegate.accepting = false;
+
+        try (SpillingCaptureSink sink =
+                new SpillingCaptureSink(delegate, tempDir, 1024 * 1024, 4 * 1024 * 1024, SYNC_INTERVAL)) {
+            newRequests(0, 10).forEach(sink::accept);
+            delegate.capacity = 6;
+            delegate.accepting = true;
+            waitFor(() -> delegate.messages.size() == 6);
+            Thread.sleep(50);
+            assertThat(delegate.messages).isEqualTo(newRequests(0, 6));
+
+            // when
+            delegate.capacity = 10;
+            waitFor(() -> delegate.messages.size() == 10);
+            Thread.sleep(50);
+            boolean keptUntilAcknowledged = !isSpillEmpty();
+            delegate.acknowledgements.forEach(acknowledgement -> acknowledgement.accept(true));
+            delegate.acknowledgements.clear();
+            waitFor(this::isSpillEmpty);
+
+            // then
+            assertThat(keptUntilAcknowledged).isTrue();
+            assertThat(delegate.messages).isEqualTo(newRequests(0, 10));
+            assertThat(sink.getStats().getReplayed()).isEqualTo(10);
+        }
+    }
+
+    @Test
+    void testThatSegmentsAreReplayedAgainWhenTheSinkDropsTheirMessages() throws Exception {
+        // given
+        AcknowledgingSink delegate = new AcknowledgingSink();
+        delegate.accepting = false;
+
+        try (SpillingCaptureSink sink =
+                new SpillingCaptureSink(delegate, tempDir, 1024 * 1024, 4 * 1024 * 1024, SYNC_INTERVAL)) {
+            newRequests(0, 5).forEach(sink::accept);
+            delegate.accepting = true;
+            waitFor(() -> delegate.messages.size() == 5);
+
+            // when
+            List<Consumer<Boolean>> firstAcknowledgements = new ArrayList<>(delegate.acknowledgements);
+            delegate.acknowledgements.clear();
+            for (int i = 0; i < firstAcknowledgements.size(); i++) {
+                firstAcknowledgements.get(i).accept(i != 2);
+            }
+            waitFor(() -> delegate.messages.size() == 10);
+            delegate.acknowledgements.forEach(acknowledgement -> acknowledgement.accept(true));
+            waitFor(this::isSpillEmpty);
+
+            // then
+            List<SerializableHttpMessage> expected = new ArrayList<>(newRequests(0, 5));
+            expected.addAll(newRequests(0, 5));
+            assertThat(delegate.messages).isEqualTo(expected);
+            assertThat(isSpillEmpty()).isTrue();
+        }
+    }
+}
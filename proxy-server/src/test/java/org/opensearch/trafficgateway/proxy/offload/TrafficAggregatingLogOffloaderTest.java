@@ -9,6 +9,7 @@ import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.when;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
@@ -41,6 +42,7 @@ import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.opensearch.migrations.testutils.WrapWithNettyLeakDetection;
 import org.opensearch.trafficgateway.proxy.UnitTestBase;
+import org.opensearch.trafficgateway.proxy.util.RequestIdentity;
 import org.opensearch.trafficgateway.proxy.util.UserIdExtractor;
 
 @ExtendWith(MockitoExtension.class)
@@ -139,6 +141,377 @@ public class TrafficAggregatingLogOffloaderTest extends UnitTestBase {
         assertThat(message).matches(m -> keepResponseBody ? m.getBody().equals(responseBody) : (m.getBody() == null));
     }
 
+    @Test
+    void testThatEventsHandedToCaptureDispatcherAreLoggedInOrder() throws Exception {
+        // given
+        CaptureDispatcher captureDispatcher = new CaptureDispatcher(2, 16, 4, CaptureDispatcher.OverflowPolicy.BLOCK);
+        TrafficAggregatingLogOffloader offloader = new TrafficAggregatingLogOffloader(
+                TrafficAggregatingLogOffloader.DEFAULT_MAX_CONTENT_LENGTH,
+                new SerializableHttpMessageFactory(
+                        true,
+                        UserIdExtractor.DEFAULT_SAML_USER_ID_XPATH,
+                        UserIdExtractor.DEFAULT_SAML_TOKEN_COOKIE_NAME),
+                captureDispatcher,
+                TrafficAggregatingLogOffloader.LOG_SINK);
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/test");
+        request.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+        httpRequestEncoderChannel.writeOutbound(request);
+        ByteBuf requestByteBuf = httpRequestEncoderChannel.readOutbound();
+        ByteBuf responseContent = copiedBuffer("Hello World!", CharsetUtil.UTF_8);
+        FullHttpResponse response =
+                new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, responseContent);
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, responseContent.readableBytes());
+        httpResponseEncoderChannel.writeOutbound(response);
+        ByteBuf responseByteBuf = httpResponseEncoderChannel.readOutbound();
+
+        // when
+        offloader.addReadEvent(Instant.now(), requestByteBuf);
+        offloader.addWriteEvent(Instant.now(), responseByteBuf.slice(0, 10));
+        offloader.addWriteEvent(Instant.now(), responseByteBuf.slice(10, responseByteBuf.readableBytes() - 10));
+        requestByteBuf.release();
+        responseByteBuf.release();
+        captureDispatcher.close();
+
+        // then
+        assertThat(capturedTrafficLogs).hasSize(2);
+        SerializableHttpMessage loggedRequest = (SerializableHttpMessage) capturedTrafficLogs.get(0);
+        SerializableHttpMessage loggedResponse = (SerializableHttpMessage) capturedTrafficLogs.get(1);
+        assertThat(loggedResponse.getBody()).isEqualTo("Hello World!");
+        assertThat(loggedResponse.getRequestId()).isEqualTo(loggedRequest.getRequestId());
+        assertThat(captureDispatcher.getStats().getProcessed()).isEqualTo(3);
+    }
+
+    @Test
+    void testThatBodiesLongerThanMaxContentLengthAreTruncated() throws Exception {
+        // given
+        List<SerializableHttpMessage> capturedMessages = new ArrayList<>();
+        TrafficAggregatingLogOffloader offloader = new TrafficAggregatingLogOffloader(
+                5,
+                new SerializableHttpMessageFactory(
+                        true,
+                        UserIdExtractor.DEFAULT_SAML_USER_ID_XPATH,
+                        UserIdExtractor.DEFAULT_SAML_TOKEN_COOKIE_NAME),
+                null,
+                capturedMessages::add);
+        ByteBuf requestContent = copiedBuffer("Hello World!", CharsetUtil.UTF_8);
+        FullHttpRequest request =
+                new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/test", requestContent);
+        request.headers().set(HttpHeaderNames.CONTENT_LENGTH, requestContent.readableBytes());
+        httpRequestEncoderChannel.writeOutbound(request);
+        ByteBuf requestByteBuf = httpRequestEncoderChannel.readOutbound();
+
+        // when
+        offloader.addReadEvent(Instant.now(), requestByteBuf);
+        requestByteBuf.release();
+
+        // then
+        assertThat(capturedMessages).hasSize(1);
+        assertThat(capturedMessages.get(0).getBody()).isEqualTo("Hello");
+        assertThat(capturedMessages.get(0).getBodyLength()).isEqualTo(12);
+        assertThat(capturedMessages.get(0).isBodyTruncated()).isTrue();
+    }
+
+    @Test
+    void testThatResponseBodiesThatAreNotKeptAreOnlyCounted() throws Exception {
+        // given
+        CaptureMemoryBudget memoryBudget = new CaptureMemoryBudget(16);
+        List<SerializableHttpMessage> capturedMessages = new ArrayList<>();
+        TrafficAggregatingLogOffloader offloader = new TrafficAggregatingLogOffloader(
+                TrafficAggregatingLogOffloader.DEFAULT_MAX_CONTENT_LENGTH,
+                new SerializableHttpMessageFactory(
+                        false,
+                        UserIdExtractor.DEFAULT_SAML_USER_ID_XPATH,
+                        UserIdExtractor.DEFAULT_SAML_TOKEN_COOKIE_NAME),
+                null,
+                capturedMessages::add,
+                null,
+                memoryBudget);
+        ByteBuf responseContent = copiedBuffer("x".repeat(1024), CharsetUtil.UTF_8);
+        FullHttpResponse response =
+                new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, responseContent);
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, responseContent.readableBytes());
+        httpResponseEncoderChannel.writeOutbound(response);
+        ByteBuf responseByteBuf = Unpooled.wrappedBuffer(
+                httpResponseEncoderChannel.<ByteBuf>readOutbound(), httpResponseEncoderChannel.readOutbound());
+
+        // when
+        offloader.addWriteEvent(Instant.now(), responseByteBuf.slice(0, 512));
+        long reservedBeforeLastWrite = memoryBudget.getStats().getReservedBytes();
+        offloader.addWriteEvent(Instant.now(), responseByteBuf.slice(512, responseByteBuf.readableBytes() - 512));
+        responseByteBuf.release();
+
+        // then
+        assertThat(reservedBeforeLastWrite).isZero();
+        assertThat(capturedMessages).hasSize(1);
+        assertThat(capturedMessages.get(0).getResponseCode()).isEqualTo(200);
+        assertThat(capturedMessages.get(0).getBody()).isNull();
+        assertThat(capturedMessages.get(0).getBodyLength()).isEqualTo(1024);
+        assertThat(capturedMessages.get(0).isBodyTruncated()).isFalse();
+        assertThat(memoryBudget.getStats()).isEqualTo(new CaptureMemoryBudget.Stats(16, 0, 0, 0));
+    }
+
+    @Test
+    void testThatClosingTheConnectionReleasesTheBudgetOfUnfinishedMessages() throws Exception {
+        // given
+        CaptureMemoryBudget memoryBudget = new CaptureMemoryBudget(1024);
+        List<SerializableHttpMessage> capturedMessages = new ArrayList<>();
+        TrafficAggregatingLogOffloader offloader = new TrafficAggregatingLogOffloader(
+                TrafficAggregatingLogOffloader.DEFAULT_MAX_CONTENT_LENGTH,
+                new SerializableHttpMessageFactory(
+                        true,
+                        UserIdExtractor.DEFAULT_SAML_USER_ID_XPATH,
+                        UserIdExtractor.DEFAULT_SAML_TOKEN_COOKIE_NAME),
+                null,
+                capturedMessages::add,
+                null,
+                memoryBudget);
+        ByteBuf requestContent = copiedBuffer("Hello World!", CharsetUtil.UTF_8);
+        FullHttpRequest request =
+                new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/test", requestContent);
+        request.headers().set(HttpHeaderNames.CONTENT_LENGTH, 100);
+        httpRequestEncoderChannel.writeOutbound(request);
+        ByteBuf requestByteBuf = httpRequestEncoderChannel.readOutbound();
+        long pinnedBytes = CaptureMemoryBudget.getPinnedBytes(requestByteBuf);
+        offloader.addReadEvent(Instant.now(), requestByteBuf);
+        requestByteBuf.release();
+        long reservedBeforeClose = memoryBudget.getStats().getReservedBytes();
+
+        // when
+        offloader.flushCommitAndResetStream(true);
+
+        // then
+        assertThat(reservedBeforeClose).isEqualTo(pinnedBytes);
+        assertThat(memoryBudget.getStats().getReservedBytes()).isZero();
+    }
+
+    @Test
+    void testThatEventsThatDoNotFitTheBudgetWhileQueuedAreCapturedWithTheirHeadersOnly() throws Exception {
+        // given
+        CaptureMemoryBudget memoryBudget = new CaptureMemoryBudget(16);
+        CaptureDispatcher captureDispatcher = new CaptureDispatcher(2, 16, 4, CaptureDispatcher.OverflowPolicy.BLOCK);
+        List<SerializableHttpMessage> capturedMessages = new ArrayList<>();
+        TrafficAggregatingLogOffloader offloader = new TrafficAggregatingLogOffloader(
+                TrafficAggregatingLogOffloader.DEFAULT_MAX_CONTENT_LENGTH,
+                new SerializableHttpMessageFactory(
+                        true,
+                        UserIdExtractor.DEFAULT_SAML_USER_ID_XPATH,
+                        UserIdExtractor.DEFAULT_SAML_TOKEN_COOKIE_NAME),
+                captureDispatcher,
+                capturedMessages::add,
+                null,
+                memoryBudget);
+        ByteBuf requestContent = copiedBuffer("x".repeat(10000), CharsetUtil.UTF_8);
+        FullHttpRequest request =
+                new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/first", requestContent);
+        request.headers().set(HttpHeaderNames.CONTENT_LENGTH, requestContent.readableBytes());
+        ByteBuf requestByteBuf = encode(httpRequestEncoderChannel, request);
+        ByteBuf responseContent = copiedBuffer("x".repeat(10000), CharsetUtil.UTF_8);
+        FullHttpResponse response = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.INTERNAL_SERVER_ERROR, responseContent);
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, responseContent.readableBytes());
+        ByteBuf responseByteBuf = encode(httpResponseEncoderChannel, response);
+        FullHttpRequest nextRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/second");
+        nextRequest.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+        ByteBuf nextRequestByteBuf = encode(httpRequestEncoderChannel, nextRequest);
+
+        // when
+        offloader.addReadEvent(Instant.now(), requestByteBuf);
+        offloader.addWriteEvent(Instant.now(), responseByteBuf);
+        offloader.addReadEvent(Instant.now(), nextRequestByteBuf);
+        requestByteBuf.release();
+        responseByteBuf.release();
+        nextRequestByteBuf.release();
+        offloader.flushCommitAndResetStream(true);
+        captureDispatcher.close();
+
+        // then
+        assertThat(capturedMessages).hasSize(3);
+        assertThat(capturedMessages.get(0).getPath()).isEqualTo("/first");
+        assertThat(capturedMessages.get(0).getBody()).isEmpty();
+        assertThat(capturedMessages.get(0).getBodyLength()).isEqualTo(10000);
+        assertThat(capturedMessages.get(1).getResponseCode()).isEqualTo(500);
+        assertThat(capturedMessages.get(1).getBody()).isEmpty();
+        assertThat(capturedMessages.get(1).getBodyLength()).isEqualTo(10000);
+        assertThat(capturedMessages.get(2).getPath()).isEqualTo("/second");
+        assertThat(memoryBudget.getStats()).isEqualTo(new CaptureMemoryBudget.Stats(16, 0, 3, 0));
+    }
+
+    @Test
+    void testThatMessagesAfterEventsThatCannotBeDecodedWithoutTheirBytesAreCaptured() throws Exception {
+        // given
+        CaptureMemoryBudget memoryBudget = new CaptureMemoryBudget(16);
+        CaptureDispatcher captureDispatcher = new CaptureDispatcher(2, 16, 4, CaptureDispatcher.OverflowPolicy.BLOCK);
+        List<SerializableHttpMessage> capturedMessages = new ArrayList<>();
+        TrafficAggregatingLogOffloader offloader = new TrafficAggregatingLogOffloader(
+                TrafficAggregatingLogOffloader.DEFAULT_MAX_CONTENT_LENGTH,
+                new SerializableHttpMessageFactory(
+                        true,
+                        UserIdExtractor.DEFAULT_SAML_USER_ID_XPATH,
+                        UserIdExtractor.DEFAULT_SAML_TOKEN_COOKIE_NAME),
+                captureDispatcher,
+                capturedMessages::add,
+                null,
+                memoryBudget);
+        // headers that are longer than the copied head of the event
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/first");
+        request.headers().set("x-padding", "x".repeat(10000));
+        request.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+        ByteBuf requestByteBuf = encode(httpRequestEncoderChannel, request);
+        FullHttpRequest nextRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/second");
+        nextRequest.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+        ByteBuf nextRequestByteBuf = encode(httpRequestEncoderChannel, nextRequest);
+
+        // when
+        offloader.addReadEvent(Instant.now(), requestByteBuf);
+        offloader.addReadEvent(Instant.now(), nextRequestByteBuf);
+        requestByteBuf.release();
+        nextRequestByteBuf.release();
+        offloader.flushCommitAndResetStream(true);
+        captureDispatcher.close();
+
+        // then
+        assertThat(capturedMessages)
+                .extracting(SerializableHttpMessage::getPath)
+                .containsExactly("/second");
+    }
+
+    @Test
+    void testThatUnsampledRequestsAreOnlyCapturedWithAnErrorResponse() throws Exception {
+        // given
+        List<SerializableHttpMessage> capturedMessages = new ArrayList<>();
+        TrafficAggregatingLogOffloader offloader = new TrafficAggregatingLogOffloader(
+                TrafficAggregatingLogOffloader.DEFAULT_MAX_CONTENT_LENGTH,
+                new SerializableHttpMessageFactory(
+                        true,
+                        UserIdExtractor.DEFAULT_SAML_USER_ID_XPATH,
+                        UserIdExtractor.DEFAULT_SAML_TOKEN_COOKIE_NAME),
+                null,
+                capturedMessages::add,
+                new CaptureSampler(CaptureSamplingConfiguration.builder()
+                        .defaultSampleRate(0)
+                        .build()));
+
+        // when
+        for (HttpResponseStatus status : List.of(HttpResponseStatus.OK, HttpResponseStatus.SERVICE_UNAVAILABLE)) {
+            ByteBuf requestContent = copiedBuffer("request " + status.code(), CharsetUtil.UTF_8);
+            FullHttpRequest request =
+                    new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/test", requestContent);
+            request.headers().set(HttpHeaderNames.CONTENT_LENGTH, requestContent.readableBytes());
+            httpRequestEncoderChannel.writeOutbound(request);
+            ByteBuf responseContent = copiedBuffer("response " + status.code(), CharsetUtil.UTF_8);
+            FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status, responseContent);
+            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, responseContent.readableBytes());
+            httpResponseEncoderChannel.writeOutbound(response);
+
+            for (ByteBuf requestByteBuf; (requestByteBuf = httpRequestEncoderChannel.readOutbound()) != null; ) {
+                offloader.addReadEvent(Instant.now(), requestByteBuf);
+                requestByteBuf.release();
+            }
+            for (ByteBuf responseByteBuf; (responseByteBuf = httpResponseEncoderChannel.readOutbound()) != null; ) {
+                offloader.addWriteEvent(Instant.now(), responseByteBuf);
+                responseByteBuf.release();
+            }
+        }
+
+        // then
+        assertThat(capturedMessages)
+                .extracting(SerializableHttpMessage::getBody)
+                .containsExactly("request 503", "response 503");
+        assertThat(capturedMessages.get(1).getRequestId())
+                .isEqualTo(capturedMessages.get(0).getRequestId());
+        assertThat(capturedMessages).allMatch(message -> message.getTimestamp() > 0);
+    }
+
+    @Test
+    void testThatDecodedRequestsAreCapturedInsteadOfTheReadBytes() throws Exception {
+        // given
+        List<SerializableHttpMessage> capturedMessages = new ArrayList<>();
+        TrafficAggregatingLogOffloader offloader = new TrafficAggregatingLogOffloader(
+                TrafficAggregatingLogOffloader.DEFAULT_MAX_CONTENT_LENGTH,
+                new SerializableHttpMessageFactory(
+                        true,
+                        UserIdExtractor.DEFAULT_SAML_USER_ID_XPATH,
+                        UserIdExtractor.DEFAULT_SAML_TOKEN_COOKIE_NAME),
+                null,
+                capturedMessages::add,
+                new CaptureSampler(CaptureSamplingConfiguration.builder()
+                        .defaultSampleRate(0)
+                        .build()));
+        ByteBuf requestContent = copiedBuffer("Hello World!", CharsetUtil.UTF_8);
+        FullHttpRequest request =
+                new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/test", requestContent);
+        request.headers().set(HttpHeaderNames.CONTENT_LENGTH, requestContent.readableBytes());
+        httpRequestEncoderChannel.writeOutbound(request.retainedDuplicate());
+        ByteBuf requestByteBuf = httpRequestEncoderChannel.readOutbound();
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.FORBIDDEN);
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+        httpResponseEncoderChannel.writeOutbound(response);
+        ByteBuf responseByteBuf = httpResponseEncoderChannel.readOutbound();
+
+        // when
+        boolean accepted = offloader.acceptDecodedRequests();
+        offloader.addReadEvent(Instant.ofEpochMilli(42), requestByteBuf);
+        offloader.onDecodedRequest(request, new RequestIdentity("publishedUser", "publishedToken"));
+        offloader.addWriteEvent(Instant.now(), responseByteBuf);
+        request.release();
+        requestByteBuf.release();
+        responseByteBuf.release();
+
+        // then
+        assertThat(accepted).isTrue();
+        assertThat(capturedMessages).hasSize(2);
+        SerializableHttpMessage capturedRequest = capturedMessages.get(0);
+        assertThat(capturedRequest.getBody()).isEqualTo("Hello World!");
+        assertThat(capturedRequest.getUserId()).isEqualTo("publishedUser");
+        assertThat(capturedRequest.getUserToken()).isEqualTo("publishedToken");
+        assertThat(capturedRequest.getTimestamp()).isEqualTo(42);
+        assertThat(capturedMessages.get(1).getResponseCode()).isEqualTo(403);
+        assertThat(capturedMessages.get(1).getRequestId()).isEqualTo(capturedRequest.getRequestId());
+        assertThat(request.refCnt()).isZero();
+    }
+
+    @Test
+    void testThatCancellationsOfPipelinedRequestsApplyToTheRequestsTheyWereMadeFor() throws Exception {
+        // given
+        List<SerializableHttpMessage> capturedMessages = new ArrayList<>();
+        TrafficAggregatingLogOffloader offloader = new TrafficAggregatingLogOffloader(
+                TrafficAggregatingLogOffloader.DEFAULT_MAX_CONTENT_LENGTH,
+                new SerializableHttpMessageFactory(
+                        true,
+                        UserIdExtractor.DEFAULT_SAML_USER_ID_XPATH,
+                        UserIdExtractor.DEFAULT_SAML_TOKEN_COOKIE_NAME),
+                null,
+                capturedMessages::add);
+        List<FullHttpRequest> requests = new ArrayList<>();
+        ByteBuf requestByteBuf = Unpooled.buffer();
+        for (String path : List.of("/first", "/second", "/third")) {
+            FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, path);
+            request.headers().set(HttpHeaderNames.CONTENT_LENGTH, 0);
+            httpRequestEncoderChannel.writeOutbound(request.retainedDuplicate());
+            ByteBuf encodedRequest = httpRequestEncoderChannel.readOutbound();
+            requestByteBuf.writeBytes(encodedRequest);
+            encodedRequest.release();
+            requests.add(request);
+        }
+
+        // when
+        offloader.acceptDecodedRequests();
+        offloader.addReadEvent(Instant.now(), requestByteBuf);
+        offloader.commitEndOfHttpMessageIndicator(Instant.now());
+        offloader.cancelCaptureForCurrentRequest(Instant.now());
+        offloader.commitEndOfHttpMessageIndicator(Instant.now());
+        for (FullHttpRequest request : requests) {
+            offloader.onDecodedRequest(request, null);
+            request.release();
+        }
+        requestByteBuf.release();
+
+        // then
+        assertThat(capturedMessages)
+                .extracting(SerializableHttpMessage::getPath)
+                .containsExactly("/first", "/third");
+    }
+
     @Test
     @WrapWithNettyLeakDetection(repetitions = 32)
     void testThatAddReadEventWithFullHttpMessageDoesNotLeak() throws IOException {
@@ -153,4 +526,17 @@ public class TrafficAggregatingLogOffloaderTest extends UnitTestBase {
         testThatAddWriteEventWithFullHttpMessageLogsMessageWithMarker(keepResponseBody);
         capturedTrafficLogs.clear();
     }
+
+    /*
+     * Encodes the message into a single buffer, as a single event.
+     */
+    private static ByteBuf encode(EmbeddedChannel encoderChannel, Object message) {
+        encoderChannel.writeOutbound(message);
+        ByteBuf encoded = Unpooled.buffer();
+        for (ByteBuf part = encoderChannel.readOutbound(); part != null; part = encoderChannel.readOutbound()) {
+            encoded.writeBytes(part);
+            part.release();
+        }
+        return encoded;
+    }
 }
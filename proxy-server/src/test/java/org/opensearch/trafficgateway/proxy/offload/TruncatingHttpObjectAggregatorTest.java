@@ -0,0 +1,149 @@
+package org.opensearch.trafficgateway.proxy.offload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.CharsetUtil;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.migrations.testutils.WrapWithNettyLeakDetection;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+import org.opensearch.trafficgateway.proxy.offload.TruncatingHttpObjectAggregator.AggregatedHttpMessage;
+
+@ExtendWith(MockitoExtension.class)
+public class TruncatingHttpObjectAggregatorTest extends UnitTestBase {
+
+    @Test
+    void testThatOnlyTheHeadOfTheContentIsKeptWithoutCopyingIt() {
+        // given
+        EmbeddedChannel channel = new EmbeddedChannel(new TruncatingHttpObjectAggregator(10));
+        HttpResponse head = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        head.headers().set(HttpHeaderNames.TRANSFER_ENCODING, HttpHeaderValues.CHUNKED);
+        List<ByteBuf> chunks = new ArrayList<>();
+        for (String chunk : List.of("0123456", "789abcdef", "ghijklmnopqrstuvwxyz")) {
+            chunks.add(Unpooled.copiedBuffer(chunk, CharsetUtil.UTF_8));
+        }
+
+        // when
+        channel.writeInbound(head);
+        channel.writeInbound(new DefaultHttpContent(chunks.get(0)));
+        channel.writeInbound(new DefaultHttpContent(chunks.get(1)));
+        channel.writeInbound(new DefaultLastHttpContent(chunks.get(2)));
+        FullHttpResponse aggregated = channel.readInbound();
+
+        // then
+        try {
+            assertThat(aggregated).isInstanceOf(AggregatedHttpMessage.class);
+            assertThat(aggregated.status()).isEqualTo(HttpResponseStatus.OK);
+            assertThat(aggregated.content().toString(CharsetUtil.UTF_8)).isEqualTo("0123456789");
+            assertThat(((AggregatedHttpMessage) aggregated).getOriginalContentLength())
+                    .isEqualTo(36);
+            assertThat(aggregated.headers().get(HttpHeaderNames.CONTENT_LENGTH)).isEqualTo("36");
+            assertThat(aggregated.headers().contains(HttpHeaderNames.TRANSFER_ENCODING))
+                    .isFalse();
+
+            // the kept chunks are retained by the aggregated content, the discarded one is released
+            assertThat(chunks).extracting(ByteBuf::refCnt).containsExactly(1, 1, 0);
+            chunks.get(0).setByte(0, 'X');
+            assertThat(aggregated.content().getByte(0)).isEqualTo((byte) 'X');
+        } finally {
+            aggregated.release();
+        }
+        assertThat(chunks).extracting(ByteBuf::refCnt).containsOnly(0);
+        assertThat(channel.finish()).isFalse();
+    }
+
+    @Test
+    void testThatAnUnfinishedMessageIsReleasedWhenTheChannelCloses() {
+        // given
+        EmbeddedChannel channel = new EmbeddedChannel(new TruncatingHttpObjectAggregator(10));
+        ByteBuf chunk = Unpooled.copiedBuffer("0123", CharsetUtil.UTF_8);
+
+        // when
+        channel.writeInbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        channel.writeInbound(new DefaultHttpContent(chunk));
+        channel.finishAndReleaseAll();
+
+        // then
+        assertThat(chunk.refCnt()).isZero();
+    }
+
+    @Test
+    void testThatMessagesWhoseContentDoesNotFitTheBudgetAreAggregatedWithoutContent() {
+        // given
+        CaptureMemoryBudget budget = new CaptureMemoryBudget(16);
+        EmbeddedChannel first = new EmbeddedChannel(new TruncatingHttpObjectAggregator(10, budget));
+        EmbeddedChannel second = new EmbeddedChannel(new TruncatingHttpObjectAggregator(10, budget));
+
+        // when
+        first.writeInbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        first.writeInbound(new DefaultHttpContent(Unpooled.wrappedBuffer("0123456789".getBytes(CharsetUtil.UTF_8))));
+        second.writeInbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        second.writeInbound(new DefaultHttpContent(Unpooled.wrappedBuffer("0123".getBytes(CharsetUtil.UTF_8))));
+        second.writeInbound(new DefaultLastHttpContent(Unpooled.wrappedBuffer("4567".getBytes(CharsetUtil.UTF_8))));
+        long reservedBeforeFirstFinished = budget.getStats().getReservedBytes();
+        first.writeInbound(LastHttpContent.EMPTY_LAST_CONTENT);
+        FullHttpResponse firstAggregated = first.readInbound();
+        FullHttpResponse secondAggregated = second.readInbound();
+
+        // then
+        try {
+            assertThat(reservedBeforeFirstFinished).isEqualTo(10);
+            assertThat(firstAggregated.content().readableBytes()).isEqualTo(10);
+            assertThat(secondAggregated.content().readableBytes()).isZero();
+            assertThat(((AggregatedHttpMessage) secondAggregated).getOriginalContentLength())
+                    .isEqualTo(8);
+        } finally {
+            firstAggregated.release();
+            secondAggregated.release();
+        }
+        assertThat(budget.getStats()).isEqualTo(new CaptureMemoryBudget.Stats(16, 0, 1, 0));
+    }
+
+    @Test
+    void testThatTheBudgetCountsTheBuffersThatKeptContentIsSlicedFrom() {
+        // given
+        CaptureMemoryBudget budget = new CaptureMemoryBudget(1024);
+        EmbeddedChannel channel = new EmbeddedChannel(new TruncatingHttpObjectAggregator(10, budget));
+        ByteBuf decodedBuffer = Unpooled.wrappedBuffer("x".repeat(512).getBytes(CharsetUtil.UTF_8));
+
+        // when
+        channel.writeInbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        channel.writeInbound(new DefaultHttpContent(decodedBuffer.retainedSlice(0, 4)));
+        channel.writeInbound(new DefaultHttpContent(decodedBuffer.retainedSlice(4, 4)));
+        long reservedBeforeLastContent = budget.getStats().getReservedBytes();
+        channel.writeInbound(new DefaultLastHttpContent(decodedBuffer.retainedSlice(8, 4)));
+        decodedBuffer.release();
+        FullHttpResponse aggregated = channel.readInbound();
+
+        // then
+        try {
+            assertThat(reservedBeforeLastContent).isEqualTo(512);
+            assertThat(aggregated.content().readableBytes()).isEqualTo(10);
+        } finally {
+            aggregated.release();
+        }
+        assertThat(budget.getStats()).isEqualTo(new CaptureMemoryBudget.Stats(1024, 0, 0, 0));
+    }
+
+    @Test
+    @WrapWithNettyLeakDetection(repetitions = 32)
+    void testThatTruncatedContentDoesNotLeak() {
+        testThatOnlyTheHeadOfTheContentIsKeptWithoutCopyingIt();
+    }
+}
@@ -0,0 +1,37 @@
+package org.opensearch.trafficgateway.proxy.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.trafficgateway.proxy.UnitTestBase;
+
+@ExtendWith(MockitoExtension.class)
+public class NettyTransportTest extends UnitTestBase {
+    @Test
+    void testThatAutoPicksEpollOnlyWhereAvailable() {
+        // when
+        NettyTransport transport = NettyTransport.fromName("auto");
+
+        // then
+        assertThat(transport).isEqualTo(Epoll.isAvailable() ? NettyTransport.EPOLL : NettyTransport.NIO);
+    }
+
+    @Test
+    void testThatTransportOfEventLoopIsDetected() {
+        // given
+        EventLoopGroup eventLoopGroup =
+                NettyTransport.fromName("NIO").newEventLoopGroup(1, new DefaultThreadFactory("test"));
+
+        // when
+        NettyTransport transport = NettyTransport.forEventLoop(eventLoopGroup.next());
+
+        // then
+        assertThat(transport).isEqualTo(NettyTransport.NIO);
+        eventLoopGroup.shutdownGracefully();
+    }
+}